@@ -0,0 +1,164 @@
+package net.cactii.mathdoku.grid;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import net.cactii.mathdoku.Preferences;
+import net.cactii.mathdoku.gridGenerating.BatchGridGenerator;
+import net.cactii.mathdoku.gridGenerating.GridGeneratingParameters;
+import net.cactii.mathdoku.gridGenerating.GridGenerator.PuzzleComplexity;
+import net.cactii.mathdoku.painter.Painter;
+import net.cactii.mathdoku.storage.database.DatabaseHelper;
+import net.cactii.mathdoku.storage.database.SolvingAttemptDatabaseAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.RenamingDelegatingContext;
+import android.util.Log;
+
+/**
+ * Benchmarks saving and loading a grid on a device. Grid depends on Android
+ * for drawing and storage, so contrary to the benchmarks of the core module
+ * this benchmark can not run with JMH on a desktop JVM. Run it with
+ * "gradle :app:connectedAndroidTest".
+ *
+ * For each grid size a seeded grid of complexity NORMAL is generated and
+ * stored in a separate database, so the database of the app is not touched.
+ * The results are logged and written as JSON to the files directory of the
+ * app so runs on different commits can be compared.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GridStorageBenchmark {
+	private static final String TAG = "MathDoku.GridStorageBenchmark";
+
+	// Prefix of the database which is used instead of the database of the app.
+	private static final String DATABASE_PREFIX = "benchmark_";
+
+	// Name of the file to which the results are written.
+	private static final String RESULTS_FILE = "grid-storage-benchmark.json";
+
+	// Number of iterations which are run before and while measuring.
+	private static final int WARMUP_ITERATIONS = 20;
+	private static final int ITERATIONS = 100;
+
+	// Grid sizes for which the benchmark is run.
+	private static final int MIN_GRID_SIZE = 4;
+	private static final int MAX_GRID_SIZE = 9;
+
+	// Index of complexity NORMAL in the complexities of BatchGridGenerator.
+	private static final int COMPLEXITY_NORMAL = 2;
+
+	private Context mContext;
+
+	@Before
+	public void setUp() {
+		mContext = new RenamingDelegatingContext(
+				InstrumentationRegistry.getTargetContext(), DATABASE_PREFIX);
+		Preferences.getInstance(mContext);
+		DatabaseHelper.getInstance(mContext);
+		Painter.getInstance();
+	}
+
+	@Test
+	public void toStorageStringAndLoad() throws Exception {
+		int revision = mContext.getPackageManager().getPackageInfo(
+				mContext.getPackageName(), 0).versionCode;
+		StringBuilder results = new StringBuilder();
+		for (int gridSize = MIN_GRID_SIZE; gridSize <= MAX_GRID_SIZE; gridSize++) {
+			Grid grid = createGrid(gridSize);
+
+			// Store the grid in the same way as a new game is stored.
+			assertTrue(grid.loadStatistics());
+			int solvingAttemptId = new SolvingAttemptDatabaseAdapter().insert(
+					grid, revision);
+			assertTrue(solvingAttemptId >= 0);
+
+			for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+				grid.toStorageString();
+			}
+			long timeStarted = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				grid.toStorageString();
+			}
+			addResult(results, "toStorageString", gridSize,
+					System.nanoTime() - timeStarted);
+
+			for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+				assertTrue(new Grid().load(solvingAttemptId));
+			}
+			timeStarted = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				new Grid().load(solvingAttemptId);
+			}
+			addResult(results, "load", gridSize, System.nanoTime()
+					- timeStarted);
+		}
+		writeResults(results);
+	}
+
+	/**
+	 * Creates a grid from a seeded grid of the batch grid generator. The grid
+	 * is built from its definition in the same way as a shared grid.
+	 */
+	private Grid createGrid(int gridSize) {
+		ArrayList<Cage> cages = new BatchGridGenerator().generate(gridSize,
+				COMPLEXITY_NORMAL, gridSize).getCages();
+		int[] cageIds = new int[gridSize * gridSize];
+		for (Cage cage : cages) {
+			for (CageCell cell : cage.mCells) {
+				cageIds[cell.getCellNumber()] = cage.mId;
+			}
+		}
+		GridGeneratingParameters gridGeneratingParameters = new GridGeneratingParameters();
+		gridGeneratingParameters.mPuzzleComplexity = PuzzleComplexity.NORMAL;
+
+		Grid grid = new Grid();
+		assertTrue(grid.load(Grid.toGridDefinitionString(cageIds, cages,
+				gridGeneratingParameters)));
+		return grid;
+	}
+
+	/**
+	 * Adds the average time per operation to the results.
+	 */
+	private void addResult(StringBuilder results, String benchmark,
+			int gridSize, long elapsedNanos) {
+		double microsPerOperation = elapsedNanos / 1000.0 / ITERATIONS;
+		Log.i(TAG, benchmark + " " + gridSize + "x" + gridSize + ": "
+				+ String.format(Locale.US, "%.1f", microsPerOperation)
+				+ " us/op");
+		results.append(results.length() == 0 ? "[\n" : ",\n")
+				.append("  {\"benchmark\": \"").append(benchmark)
+				.append("\", \"gridSize\": ").append(gridSize)
+				.append(", \"microsPerOperation\": ")
+				.append(String.format(Locale.US, "%.3f",
+						microsPerOperation))
+				.append("}");
+	}
+
+	/**
+	 * Writes the results as JSON to the files directory of the app.
+	 */
+	private void writeResults(StringBuilder results) throws IOException {
+		File file = new File(InstrumentationRegistry.getTargetContext()
+				.getFilesDir(), RESULTS_FILE);
+		Writer writer = new FileWriter(file);
+		try {
+			writer.write(results.append("\n]\n").toString());
+		} finally {
+			writer.close();
+		}
+		Log.i(TAG, "Results written to " + file.getAbsolutePath());
+	}
+}
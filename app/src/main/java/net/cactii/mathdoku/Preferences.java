@@ -69,6 +69,10 @@ public class Preferences {
 	public final static String PUZZLE_PARAMETER_SIZE = "puzzle_parameter_size";
 	public final static int PUZZLE_PARAMETER_SIZE_DEFAULT = 4;
 
+	// Parameter sets for which puzzles are kept in the puzzle pool
+	public final static String PUZZLE_POOL_PARAMETER_SETS = "puzzle_pool_parameter_sets";
+	public final static String PUZZLE_POOL_PARAMETER_SETS_DEFAULT = "";
+
 	// Puzzle setting preferences
 	public final static String PUZZLE_SETTING_BAD_CAGE_MATHS_VISIBLE = "puzzle_setting_bad_cage_math_visible";
 	public final static boolean PUZZLE_SETTING_BAD_CAGE_MATHS_VISIBLE_DEFAULT = true;
@@ -962,6 +966,29 @@ public class Preferences {
 		prefeditor.apply();
 	}
 
+	/**
+	 * Get the parameter sets for which puzzles are kept in the puzzle pool.
+	 * 
+	 * @return The parameter sets for which puzzles are kept in the puzzle pool.
+	 */
+	public String getPuzzlePoolParameterSets() {
+		return mSharedPreferences.getString(PUZZLE_POOL_PARAMETER_SETS,
+				PUZZLE_POOL_PARAMETER_SETS_DEFAULT);
+	}
+
+	/**
+	 * Set the parameter sets for which puzzles are kept in the puzzle pool.
+	 * 
+	 * @param parameterSets
+	 *            The parameter sets for which puzzles are kept in the puzzle
+	 *            pool.
+	 */
+	public void setPuzzlePoolParameterSets(String parameterSets) {
+		Editor prefeditor = mSharedPreferences.edit();
+		prefeditor.putString(PUZZLE_POOL_PARAMETER_SETS, parameterSets);
+		prefeditor.apply();
+	}
+
 	/**
 	 * Checks whether the full screen preference is enabled.
 	 * 
@@ -6,11 +6,14 @@ import net.cactii.mathdoku.gridGenerating.DialogPresentingGridGenerator;
 import net.cactii.mathdoku.gridGenerating.GridGenerator;
 import net.cactii.mathdoku.gridGenerating.GridGenerator.PuzzleComplexity;
 import net.cactii.mathdoku.storage.database.DatabaseHelper;
+import net.cactii.mathdoku.storage.database.GridDefinitionFilter;
+import net.cactii.mathdoku.storage.database.GridGeneratingTelemetryDatabaseAdapter;
 import net.cactii.mathdoku.ui.PuzzleFragmentActivity;
 import net.cactii.mathdoku.util.Util;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.content.SharedPreferences.Editor;
+import android.os.AsyncTask;
 
 /**
  * The Development Helper class is intended to support Development and Unit
@@ -84,6 +87,9 @@ public class DevelopmentHelper {
 			case R.id.development_mode_clear_data:
 				deleteGamesAndPreferences(puzzleFragmentActivity);
 				return true;
+			case R.id.development_mode_generator_telemetry:
+				showGridGeneratingTelemetry(puzzleFragmentActivity);
+				return true;
 			default:
 				return false;
 			}
@@ -283,6 +289,7 @@ public class DevelopmentHelper {
 
 			// Delete the database.
 			puzzleFragmentActivity.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+			GridDefinitionFilter.reset();
 
 			// Reopen the database helper.
 			DatabaseHelper.getInstance(puzzleFragmentActivity);
@@ -365,4 +372,42 @@ public class DevelopmentHelper {
 			prefeditor.commit();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Shows a summary of the telemetry of all grids which have been generated
+	 * on this device. The summary can be used to tune the complexity presets
+	 * of the grid generator.
+	 * 
+	 * @param puzzleFragmentActivity
+	 *            The activity in which context the results will be shown.
+	 */
+	public static void showGridGeneratingTelemetry(
+			final PuzzleFragmentActivity puzzleFragmentActivity) {
+		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+			new AsyncTask<Void, Void, String>() {
+				@Override
+				protected String doInBackground(Void... params) {
+					String summary = new GridGeneratingTelemetryDatabaseAdapter()
+							.getSummary();
+					return (summary == null ? "Telemetry can not be retrieved."
+							: summary);
+				}
+
+				@Override
+				protected void onPostExecute(String result) {
+					new AlertDialog.Builder(puzzleFragmentActivity)
+							.setTitle("Grid generator telemetry")
+							.setMessage(result)
+							.setPositiveButton("OK",
+									new DialogInterface.OnClickListener() {
+										@Override
+										public void onClick(
+												DialogInterface dialog, int id) {
+											// Do nothing
+										}
+									}).show();
+				}
+			}.execute();
+		}
+	}
+}
@@ -14,6 +14,7 @@ import net.cactii.mathdoku.statistics.GridStatistics.StatisticsCounterType;
 import net.cactii.mathdoku.storage.database.DatabaseHelper;
 import net.cactii.mathdoku.storage.database.GridDatabaseAdapter;
 import net.cactii.mathdoku.storage.database.GridRow;
+import net.cactii.mathdoku.storage.database.PuzzlePoolRow;
 import net.cactii.mathdoku.storage.database.SolvingAttemptData;
 import net.cactii.mathdoku.storage.database.SolvingAttemptDatabaseAdapter;
 import net.cactii.mathdoku.storage.database.StatisticsDatabaseAdapter;
@@ -511,12 +512,19 @@ public class Grid {
 
 	/**
 	 * Converts the definition of this grid to a string. This is a shortcut for
-	 * calling {@link #toGridDefinitionString(ArrayList, ArrayList)}.
+	 * calling
+	 * {@link #toGridDefinitionString(int[], ArrayList, GridGeneratingParameters)}
+	 * .
 	 * 
 	 * @return A unique string representation of the grid.
 	 */
 	public String toGridDefinitionString() {
-		return toGridDefinitionString(mCells, mCages, mGridGeneratingParameters);
+		int[] cageIds = new int[mCells.size()];
+		for (GridCell cell : mCells) {
+			cageIds[cell.getCellNumber()] = cell.getCageId();
+		}
+		return toGridDefinitionString(cageIds, mCages,
+				mGridGeneratingParameters);
 	}
 
 	/**
@@ -526,57 +534,119 @@ public class Grid {
 	 * solving. This definition is unique regardless of grid size and or the
 	 * version of the grid generator used.
 	 * 
+	 * @param cageIds
+	 *            The id of the cage of each cell, ordered by cell number.
+	 * @param cages
+	 *            The cages of the grid.
+	 * @param gridGeneratingParameters
+	 *            The parameters used to generate the grid.
 	 * @return A unique string representation of the grid.
 	 */
-	public static String toGridDefinitionString(ArrayList<GridCell> cells,
-			ArrayList<GridCage> cages,
+	public static String toGridDefinitionString(int[] cageIds,
+			ArrayList<? extends AbstractGridCage<?>> cages,
 			GridGeneratingParameters gridGeneratingParameters) {
 		StringBuilder definitionString = new StringBuilder();
 
-		// Convert puzzle complexity to an integer value. Do not use the ordinal
-		// of the enumeration as this value is not persistent.
-		int complexity = 0;
-		switch (gridGeneratingParameters.mPuzzleComplexity) {
-		case VERY_EASY:
-			complexity = 1;
-			break;
-		case EASY:
-			complexity = 2;
-			break;
-		case NORMAL:
-			complexity = 3;
-			break;
-		case DIFFICULT:
-			complexity = 4;
-			break;
-		case VERY_DIFFICULT:
-			complexity = 5;
-			break;
-		// NO DEFAULT here as we want to be notified at compile time in case a
-		// new enum value is added.
-		}
-		definitionString.append(Integer.toString(complexity) + ":");
+		definitionString.append(Integer
+				.toString(toGridDefinitionComplexity(gridGeneratingParameters.mPuzzleComplexity))
+				+ ":");
 
 		// Get the cage number (represented as a value of two digits, if needed
 		// prefixed with a 0) for each cell. Note: with a maximum of 81 cells in
 		// a 9x9 grid we can never have a cage-id > 99.
-		for (GridCell cell : cells) {
-			definitionString.append(String.format("%02d", cell.getCageId()));
+		for (int cageId : cageIds) {
+			definitionString.append(String.format("%02d", cageId));
 		}
 		// Followed by cages
-		for (GridCage cage : cages) {
+		for (AbstractGridCage<?> cage : cages) {
 			definitionString
 					.append(":"
 							+ cage.mId
 							+ ","
 							+ cage.mResult
 							+ ","
-							+ (gridGeneratingParameters.mHideOperators ? GridCage.ACTION_NONE
+							+ (gridGeneratingParameters.mHideOperators ? AbstractGridCage.ACTION_NONE
 									: cage.mAction));
 		}
 		return definitionString.toString();
 	}
 
+	/**
+	 * Get the 64-bit hash of the given grid definition. The hash is used to
+	 * check quickly whether a grid definition might exist in the database.
+	 * 
+	 * @param gridDefinition
+	 *            The grid definition as created by
+	 *            {@link #toGridDefinitionString(int[], ArrayList, GridGeneratingParameters)}
+	 *            .
+	 * @return The 64-bit hash of the grid definition.
+	 */
+	public static long toGridDefinitionHash(String gridDefinition) {
+		return GridDefinitionHash.hash(gridDefinition);
+	}
+
+	/**
+	 * Get the 64-bit hash of the definition of the given cells and cages. The
+	 * hash equals the hash of the definition string as created by
+	 * {@link #toGridDefinitionString(int[], ArrayList, GridGeneratingParameters)}
+	 * but is computed without building this string.
+	 * 
+	 * @param cageIds
+	 *            The id of the cage of each cell, ordered by cell number.
+	 * @param cages
+	 *            The cages of the grid.
+	 * @param gridGeneratingParameters
+	 *            The parameters used to generate the grid.
+	 * @return The 64-bit hash of the grid definition.
+	 */
+	public static long toGridDefinitionHash(int[] cageIds,
+			ArrayList<? extends AbstractGridCage<?>> cages,
+			GridGeneratingParameters gridGeneratingParameters) {
+		long hash = GridDefinitionHash.OFFSET_BASIS;
+		hash = GridDefinitionHash.hashInt(hash,
+				toGridDefinitionComplexity(gridGeneratingParameters.mPuzzleComplexity));
+		hash = GridDefinitionHash.hashChar(hash, ':');
+		for (int cageId : cageIds) {
+			hash = GridDefinitionHash.hashCageId(hash, cageId);
+		}
+		for (AbstractGridCage<?> cage : cages) {
+			hash = GridDefinitionHash.hashChar(hash, ':');
+			hash = GridDefinitionHash.hashInt(hash, cage.mId);
+			hash = GridDefinitionHash.hashChar(hash, ',');
+			hash = GridDefinitionHash.hashInt(hash, cage.mResult);
+			hash = GridDefinitionHash.hashChar(hash, ',');
+			hash = GridDefinitionHash.hashInt(hash,
+					gridGeneratingParameters.mHideOperators ? AbstractGridCage.ACTION_NONE
+							: cage.mAction);
+		}
+		return hash;
+	}
+
+	/**
+	 * Converts puzzle complexity to the integer value used in the grid
+	 * definition.
+	 */
+	private static int toGridDefinitionComplexity(
+			PuzzleComplexity puzzleComplexity) {
+		// Convert puzzle complexity to an integer value. Do not use the ordinal
+		// of the enumeration as this value is not persistent.
+		switch (puzzleComplexity) {
+		case VERY_EASY:
+			return 1;
+		case EASY:
+			return 2;
+		case NORMAL:
+			return 3;
+		case DIFFICULT:
+			return 4;
+		case VERY_DIFFICULT:
+			return 5;
+		// NO DEFAULT here as we want to be notified at compile time in case a
+		// new enum value is added.
+		}
+		return 0;
+	}
+
 	/**
 	 * Read view information from or a storage string which was created with @
 	 * GridView#toStorageString()} before.
@@ -637,7 +707,29 @@ public class Grid {
 	public boolean create(int gridSize, ArrayList<GridCell> cells,
 			ArrayList<GridCage> cages, boolean active,
 			GridGeneratingParameters gridGeneratingParameters) {
+		build(gridSize, cells, cages, active, gridGeneratingParameters);
 
+		return insertInDatabase();
+	}
+
+	/**
+	 * Builds the grid with given information without inserting it into the
+	 * database.
+	 * 
+	 * @param gridSize
+	 *            The size of grid.
+	 * @param cells
+	 *            The list of cell used in the grid.
+	 * @param cages
+	 *            The list of cages used in the grid.
+	 * @param active
+	 *            The status of the grid.
+	 * @param gridGeneratingParameters
+	 *            The parameters used to generate the grid.
+	 */
+	public void build(int gridSize, ArrayList<GridCell> cells,
+			ArrayList<GridCage> cages, boolean active,
+			GridGeneratingParameters gridGeneratingParameters) {
 		// In case an existing grid object is reused, we have to clean up old
 		// data
 		if (this.mMoves != null) {
@@ -669,6 +761,34 @@ public class Grid {
 		for (GridCell cell : cells) {
 			cell.setBorders();
 		}
+	}
+
+	/**
+	 * Creates the grid from a puzzle which was taken from the puzzle pool.
+	 * Returns whether the grid was successfully inserted into the database
+	 * (true), or an error occurred in the process (false).
+	 * 
+	 * @param puzzlePoolRow
+	 *            The puzzle which was taken from the puzzle pool.
+	 */
+	public boolean create(PuzzlePoolRow puzzlePoolRow) {
+		// Be sure to start with an empty grid.
+		initialize();
+		mGridSize = puzzlePoolRow.mGridSize;
+		mGridGeneratingParameters = puzzlePoolRow.mGridGeneratingParameters;
+
+		// The data of the puzzle has the same format as the data of a solving
+		// attempt for which no moves have been made yet. The grid is created
+		// at the moment the puzzle is taken from the pool.
+		SolvingAttemptData solvingAttemptData = new SolvingAttemptData();
+		solvingAttemptData.mId = -1;
+		solvingAttemptData.mGridId = -1;
+		solvingAttemptData.mDateCreated = System.currentTimeMillis();
+		solvingAttemptData.mSavedWithRevision = puzzlePoolRow.mGridGeneratingParameters.mGeneratorRevisionNumber;
+		solvingAttemptData.setData(puzzlePoolRow.mData);
+		if (!load(solvingAttemptData)) {
+			return false;
+		}
 
 		return insertInDatabase();
 	}
@@ -1,34 +1,13 @@
 package net.cactii.mathdoku.grid;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-
 import net.cactii.mathdoku.storage.database.SolvingAttemptDatabaseAdapter;
 
-public class GridCage {
+public class GridCage extends AbstractGridCage<GridCell> {
 	// Each line in the GridFile which contains information about the cell
 	// starts with an identifier. This identifier consists of a generic part and
 	// the package revision number.
 	private static final String SAVE_GAME_CAGE_LINE = "CAGE";
 
-	public static final int ACTION_NONE = 0;
-	public static final int ACTION_ADD = 1;
-	public static final int ACTION_SUBTRACT = 2;
-	public static final int ACTION_MULTIPLY = 3;
-	public static final int ACTION_DIVIDE = 4;
-
-	// Action for the cage
-	public int mAction;
-
-	// Number the action results in
-	public int mResult;
-	// Flag to indicate whether operator (+,-,x,/) is hidden.
-	private boolean mHideOperator;
-
-	// List of cage's cells
-	public ArrayList<GridCell> mCells;
-	// Id of the cage
-	public int mId;
 	// Enclosing context
 	public Grid mGrid;
 
@@ -37,9 +16,6 @@ public class GridCage {
 	// Cage (or a cell within) is selected
 	public boolean mSelected;
 
-	// Cached list of numbers which satisfy the cage's arithmetic
-	private ArrayList<int[]> mPossibles;
-
 	/**
 	 * Creates a new instance of {@link GridCage}.
 	 * 
@@ -72,44 +48,13 @@ public class GridCage {
 	 */
 	private void initGridCage(Grid grid) {
 		this.mGrid = grid;
-		mPossibles = null;
 		mUserMathCorrect = true;
 		mSelected = false;
-		mCells = new ArrayList<GridCell>();
 	}
 
 	@Override
-	public String toString() {
-		String retStr = "";
-		retStr += "Cage id: " + this.mId + ", Size: "
-				+ (this.mCells == null ? 0 : this.mCells.size());
-		retStr += ", Action: ";
-		switch (this.mAction) {
-		case ACTION_NONE:
-			retStr += "None";
-			break;
-		case ACTION_ADD:
-			retStr += "Add";
-			break;
-		case ACTION_SUBTRACT:
-			retStr += "Subtract";
-			break;
-		case ACTION_MULTIPLY:
-			retStr += "Multiply";
-			break;
-		case ACTION_DIVIDE:
-			retStr += "Divide";
-			break;
-		}
-		retStr += ", Result: " + this.mResult;
-		retStr += ", cells: ";
-		for (GridCell cell : this.mCells)
-			retStr += cell.getCellNumber() + ", ";
-		return retStr;
-	}
-
-	public boolean isOperatorHidden() {
-		return mHideOperator;
+	protected int getGridSize() {
+		return mGrid.getGridSize();
 	}
 
 	public void revealOperator() {
@@ -329,231 +274,6 @@ public class GridCage {
 				+ this.mAction + ": " + this.toString());
 	}
 
-	public ArrayList<int[]> getPossibleNums() {
-		if (mPossibles == null) {
-			if (mHideOperator || (mAction == ACTION_NONE && mCells.size() > 1))
-				mPossibles = setPossibleNumsNoOperator();
-			else
-				mPossibles = setPossibleNums();
-		}
-		return mPossibles;
-	}
-
-	/**
-	 * Get all permutations of cell values for this cage.
-	 * 
-	 * @return The list of all permutations of cell values which can be used for
-	 *         this cage.
-	 */
-	private ArrayList<int[]> setPossibleNumsNoOperator() {
-		ArrayList<int[]> AllResults = new ArrayList<int[]>();
-
-		// Single cell cages can only contain the value of the single cell.
-		if (mCells.size() == 1) {
-			int number[] = { mResult };
-			AllResults.add(number);
-			return AllResults;
-		}
-
-		// Cages of size two can contain any operation
-		int gridSize = mGrid.getGridSize();
-		if (mCells.size() == 2) {
-			for (int i1 = 1; i1 <= gridSize; i1++) {
-				for (int i2 = i1 + 1; i2 <= gridSize; i2++) {
-					if (i2 - i1 == mResult || i1 - i2 == mResult
-							|| mResult * i1 == i2 || mResult * i2 == i1
-							|| i1 + i2 == mResult || i1 * i2 == mResult) {
-						int numbers[] = { i1, i2 };
-						AllResults.add(numbers);
-						numbers = new int[] { i2, i1 };
-						AllResults.add(numbers);
-					}
-				}
-			}
-			return AllResults;
-		}
-
-		// Cages of size two and above can only contain an add or a multiply
-		// operation
-		AllResults = getAllAddCombos(gridSize, mResult, mCells.size());
-		ArrayList<int[]> multResults = getAllMultiplyCombos(gridSize, mResult,
-				mCells.size());
-
-		// Combine Add & Multiply result sets
-		for (int[] possibleset : multResults) {
-			boolean foundset = false;
-			for (int[] currentset : AllResults) {
-				if (Arrays.equals(possibleset, currentset)) {
-					foundset = true;
-					break;
-				}
-			}
-			if (!foundset) {
-				AllResults.add(possibleset);
-			}
-		}
-
-		return AllResults;
-	}
-
-	/*
-	 * Generates all combinations of numbers which satisfy the cage's arithmetic
-	 * and MathDoku constraints i.e. a digit can only appear once in a
-	 * column/row
-	 */
-	private ArrayList<int[]> setPossibleNums() {
-		ArrayList<int[]> AllResults = new ArrayList<int[]>();
-
-		int gridSize = mGrid.getGridSize();
-
-		switch (this.mAction) {
-		case ACTION_NONE:
-			assert (mCells.size() == 1);
-			int number[] = { mResult };
-			AllResults.add(number);
-			break;
-		case ACTION_SUBTRACT:
-			assert (mCells.size() == 2);
-			for (int i1 = 1; i1 <= gridSize; i1++)
-				for (int i2 = i1 + 1; i2 <= gridSize; i2++)
-					if (i2 - i1 == mResult || i1 - i2 == mResult) {
-						int numbers[] = { i1, i2 };
-						AllResults.add(numbers);
-						numbers = new int[] { i2, i1 };
-						AllResults.add(numbers);
-					}
-			break;
-		case ACTION_DIVIDE:
-			assert (mCells.size() == 2);
-			for (int i1 = 1; i1 <= gridSize; i1++)
-				for (int i2 = i1 + 1; i2 <= gridSize; i2++)
-					if (mResult * i1 == i2 || mResult * i2 == i1) {
-						int numbers[] = { i1, i2 };
-						AllResults.add(numbers);
-						numbers = new int[] { i2, i1 };
-						AllResults.add(numbers);
-					}
-			break;
-		case ACTION_ADD:
-			AllResults = getAllAddCombos(gridSize, mResult, mCells.size());
-			break;
-		case ACTION_MULTIPLY:
-			AllResults = getAllMultiplyCombos(gridSize, mResult, mCells.size());
-			break;
-		}
-		return AllResults;
-	}
-
-	// The following two variables are required by the recursive methods below.
-	// They could be passed as parameters of the recursive methods, but this
-	// reduces performance.
-	private int[] getAllCombos_Numbers;
-	private ArrayList<int[]> getAllCombos_ResultSet;
-
-	private ArrayList<int[]> getAllAddCombos(int max_val, int target_sum,
-			int n_cells) {
-		getAllCombos_Numbers = new int[n_cells];
-		getAllCombos_ResultSet = new ArrayList<int[]>();
-		getAddCombos(max_val, target_sum, n_cells);
-		return getAllCombos_ResultSet;
-	}
-
-	/*
-	 * Recursive method to calculate all combinations of digits which add up to
-	 * target
-	 * 
-	 * @param max_val maximum permitted value of digit (= dimension of grid)
-	 * 
-	 * @param target_sum the value which all the digits should add up to
-	 * 
-	 * @param n_cells number of digits still to select
-	 */
-	private void getAddCombos(int max_val, int target_sum, int n_cells) {
-		for (int n = 1; n <= max_val; n++) {
-			if (n_cells == 1) {
-				if (n == target_sum) {
-					getAllCombos_Numbers[0] = n;
-					if (satisfiesConstraints(getAllCombos_Numbers))
-						getAllCombos_ResultSet
-								.add(getAllCombos_Numbers.clone());
-				}
-			} else {
-				getAllCombos_Numbers[n_cells - 1] = n;
-				getAddCombos(max_val, target_sum - n, n_cells - 1);
-			}
-		}
-		return;
-	}
-
-	private ArrayList<int[]> getAllMultiplyCombos(int max_val, int target_sum,
-			int n_cells) {
-		getAllCombos_Numbers = new int[n_cells];
-		getAllCombos_ResultSet = new ArrayList<int[]>();
-		getMultiplyCombos(max_val, target_sum, n_cells);
-
-		return getAllCombos_ResultSet;
-	}
-
-	/*
-	 * Recursive method to calculate all combinations of digits which multiply
-	 * up to target
-	 * 
-	 * @param max_val maximum permitted value of digit (= dimension of grid)
-	 * 
-	 * @param target_sum the value which all the digits should multiply up to
-	 * 
-	 * @param n_cells number of digits still to select
-	 */
-	private void getMultiplyCombos(int max_val, int target_sum, int n_cells) {
-		for (int n = 1; n <= max_val; n++) {
-			if (target_sum % n != 0)
-				continue;
-
-			if (n_cells == 1) {
-				if (n == target_sum) {
-					getAllCombos_Numbers[0] = n;
-					if (satisfiesConstraints(getAllCombos_Numbers))
-						getAllCombos_ResultSet
-								.add(getAllCombos_Numbers.clone());
-				}
-			} else {
-				getAllCombos_Numbers[n_cells - 1] = n;
-				getMultiplyCombos(max_val, target_sum / n, n_cells - 1);
-			}
-		}
-		return;
-	}
-
-	/*
-	 * Check whether the set of numbers satisfies all constraints Looking for
-	 * cases where a digit appears more than once in a column/row Constraints: 0
-	 * -> (mGridSize * mGridSize)-1 = column constraints (each column must
-	 * contain each digit) mGridSize * mGridSize -> 2*(mGridSize * mGridSize)-1
-	 * = row constraints (each row must contain each digit)
-	 */
-	private boolean satisfiesConstraints(int[] test_nums) {
-
-		int gridSize = mGrid.getGridSize();
-
-		boolean constraints[] = new boolean[gridSize * gridSize * 2];
-		int constraint_num;
-		for (int i = 0; i < this.mCells.size(); i++) {
-			constraint_num = gridSize * (test_nums[i] - 1)
-					+ mCells.get(i).getColumn();
-			if (constraints[constraint_num])
-				return false;
-			else
-				constraints[constraint_num] = true;
-			constraint_num = gridSize * gridSize + gridSize
-					* (test_nums[i] - 1) + mCells.get(i).getRow();
-			if (constraints[constraint_num])
-				return false;
-			else
-				constraints[constraint_num] = true;
-		}
-		return true;
-	}
-
 	/**
 	 * Create a string representation of the Grid Cage which can be used to
 	 * store a grid cage in a saved game.
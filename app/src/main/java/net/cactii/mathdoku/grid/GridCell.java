@@ -20,7 +20,7 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
 
-public class GridCell {
+public class GridCell implements CellPosition {
 	@SuppressWarnings("unused")
 	private static final String TAG = "MathDoku.GridCell";
 
@@ -6,6 +6,7 @@ import net.cactii.mathdoku.developmentHelper.DevelopmentHelper.Mode;
 import net.cactii.mathdoku.grid.Grid;
 import net.cactii.mathdoku.ui.PuzzleFragmentActivity;
 import android.app.ProgressDialog;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnCancelListener;
 import android.util.Log;
@@ -18,6 +19,10 @@ import android.util.Log;
 public final class DialogPresentingGridGenerator extends GridGenerator {
 	private static final String TAG = "MathDoku.DialogPresentingGridGenerator";
 
+	// Progress update which is published in case generating takes longer than
+	// the deadline.
+	private static final String PROGRESS_UPDATE_DEADLINE_EXCEEDED = "Deadline exceeded";
+
 	/**
 	 * The activity used to display the dialog, and to forward the generated
 	 * grid to. Access level is not private, to prevent the an extra access
@@ -30,6 +35,18 @@ public final class DialogPresentingGridGenerator extends GridGenerator {
 	// The dialog for this task
 	private ProgressDialog mProgressDialog;
 
+	// Whether the player has been told that generating takes longer than
+	// usual.
+	private boolean mDeadlineExceeded;
+
+	// The parameters of the grid which are needed to take a puzzle from the
+	// puzzle pool in case generating takes too long. The application context
+	// is used as the activity may be detached in the meantime.
+	private final Context mApplicationContext;
+	private final boolean mHideOperators;
+	private final PuzzleComplexity mPuzzleComplexity;
+	private final int mPackageVersionNumber;
+
 	private static final class GridForwarder implements GridUser {
 		public DialogPresentingGridGenerator mDialogPresentingGridGenerator;
 
@@ -79,6 +96,10 @@ public final class DialogPresentingGridGenerator extends GridGenerator {
 		super(gridSize, hideOperators, puzzleComplexity, packageVersionNumber,
 				new GridForwarder());
 		((GridForwarder) mUser).mDialogPresentingGridGenerator = this;
+		mApplicationContext = activity.getApplicationContext();
+		mHideOperators = hideOperators;
+		mPuzzleComplexity = puzzleComplexity;
+		mPackageVersionNumber = packageVersionNumber;
 
 		// Attach the task to the activity activity and show progress dialog if
 		// needed.
@@ -117,7 +138,8 @@ public final class DialogPresentingGridGenerator extends GridGenerator {
 		mProgressDialog = new ProgressDialog(mPuzzleFragmentActivity);
 		mProgressDialog.setTitle(R.string.dialog_building_puzzle_title);
 		mProgressDialog.setMessage(mPuzzleFragmentActivity.getResources()
-				.getString(R.string.dialog_building_puzzle_message));
+				.getString(mDeadlineExceeded ? R.string.dialog_building_puzzle_slow_message
+						: R.string.dialog_building_puzzle_message));
 		mProgressDialog.setIcon(android.R.drawable.ic_dialog_info);
 		mProgressDialog.setIndeterminate(false);
 
@@ -186,6 +208,17 @@ public final class DialogPresentingGridGenerator extends GridGenerator {
 		}
 	}
 
+	@Override
+	protected Grid takePooledGrid() {
+		return PuzzlePool.take(mApplicationContext, mGridSize, mHideOperators,
+				mPuzzleComplexity, mPackageVersionNumber);
+	}
+
+	@Override
+	protected void handleDeadlineExceeded() {
+		publishProgress(PROGRESS_UPDATE_DEADLINE_EXCEEDED);
+	}
+
 	@Override
 	protected void onPostExecute(Void result) {
 		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
@@ -211,6 +244,18 @@ public final class DialogPresentingGridGenerator extends GridGenerator {
 
 	@Override
 	protected void onProgressUpdate(String... values) {
+		if (values.length > 0
+				&& PROGRESS_UPDATE_DEADLINE_EXCEEDED.equals(values[0])) {
+			// Tell the player that building the puzzle takes longer than
+			// usual.
+			mDeadlineExceeded = true;
+			if (mProgressDialog != null && mPuzzleFragmentActivity != null) {
+				mProgressDialog.setMessage(mPuzzleFragmentActivity
+						.getResources().getString(
+								R.string.dialog_building_puzzle_slow_message));
+			}
+			return;
+		}
 		if (DEBUG_GRID_GENERATOR) {
 			if (values.length >= 2 && values[0] != null && values[1] != null) {
 				if (values[0]
@@ -11,4 +11,20 @@ public class GridGeneratingParameters {
 	public int mMaxCageSize;
 	public int mMaxCageResult;
 	public boolean mHideOperators;
+
+	// The number of steps in which the complexity parameters have been relaxed
+	// because the grid could not be generated before the deadline. 0 in case
+	// the parameters have not been relaxed. See GridGenerator for the
+	// relaxation per step.
+	public int mRelaxationLevel;
+
+	// The number of the attempt which resulted in the grid. Together with the
+	// game seed and the relaxation level this attempt reproduces the grid.
+	public int mAttemptNumber;
+
+	// The telemetry of the generation of the grid. Null in case the grid has
+	// not been generated on this device or in case the telemetry is not
+	// available. The telemetry has no influence on the grid but is kept with
+	// the parameters so it can be stored when the grid is stored.
+	public GridGeneratingTelemetry mGridGeneratingTelemetry;
 }
@@ -1,33 +1,77 @@
 package net.cactii.mathdoku.gridGenerating;
 
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import net.cactii.mathdoku.Preferences;
 import net.cactii.mathdoku.developmentHelper.DevelopmentHelper;
 import net.cactii.mathdoku.developmentHelper.DevelopmentHelper.Mode;
+import net.cactii.mathdoku.grid.Cage;
+import net.cactii.mathdoku.grid.CageCell;
 import net.cactii.mathdoku.grid.Grid;
 import net.cactii.mathdoku.grid.GridCage;
 import net.cactii.mathdoku.grid.GridCell;
 import net.cactii.mathdoku.painter.Painter;
 import net.cactii.mathdoku.storage.database.DatabaseHelper;
 import net.cactii.mathdoku.storage.database.GridDatabaseAdapter;
+import net.cactii.mathdoku.storage.database.GridDefinitionFilter;
 import net.cactii.mathdoku.util.Random;
 import net.cactii.mathdoku.util.Util;
 import android.os.AsyncTask;
 import android.util.Log;
 
-import com.srlee.DLX.MathDokuDLX;
+import com.srlee.DLX.SolveBudget;
+import com.srlee.DLX.SolveStatistics;
 
 /**
- * An asynchronous task that generates a grid.
+ * An asynchronous task that generates a grid. The attempts to generate a grid
+ * are run by {@link GridAttemptGenerator}.
  */
-public class GridGenerator extends AsyncTask<Void, String, Void> {
+public class GridGenerator extends AsyncTask<Void, String, Void> implements
+		SolveBudget.CancellationToken,
+		GridAttemptGenerator.GeneratedBeforeChecker {
 	private static final String TAG = "MathDoku.GridGenerator";
 
+	// Maximum number of attempts to generate a grid which are run in
+	// parallel. The actual number is limited by the available processors.
+	private static final int MAX_PARALLEL_ATTEMPTS = 4;
+
+	// Interval at which cancellation of the generator is checked while
+	// waiting for an attempt which runs in parallel.
+	private static final long CANCEL_CHECK_INTERVAL_MILLIS = 100;
+
+	// Default deadline for generating a grid. When the deadline approaches,
+	// the complexity parameters are relaxed step by step so the grid can be
+	// generated faster.
+	public static final long DEFAULT_DEADLINE_MILLIS = 5 * 1000;
+
+	// Relaxation steps which are applied when the deadline approaches. Each
+	// step includes the relaxations of the previous steps. A step is applied
+	// to attempts which are started after the given percentage of the
+	// deadline has elapsed. An attempt which is still running when the next
+	// step applies is stopped, as a new attempt with relaxed parameters is
+	// more likely to succeed. See GridAttemptGenerator for the relaxation of
+	// each step.
+	private static final int[] RELAXATION_LEVEL_DEADLINE_PERCENTAGE = { 50,
+			75, 100 };
+
+	// In case no grid has been generated when this percentage of the deadline
+	// has elapsed, even with the highest relaxation level, a puzzle from the
+	// puzzle pool is used instead. In case the pool does not contain a puzzle
+	// with the same parameters, generating continues at the highest relaxation
+	// level without stopping the attempts anymore.
+	private static final int GIVE_UP_DEADLINE_PERCENTAGE = 300;
+
 	// Remove "&& false" in following line to show debug information about
-	// creating cages when running in development mode.
+	// generating grids when running in development mode. Debug information
+	// about creating cages is enabled in GridAttemptGenerator.
 	public static final boolean DEBUG_GRID_GENERATOR = (DevelopmentHelper.mMode == Mode.DEVELOPMENT) && false;
-	public static final boolean DEBUG_GRID_GENERATOR_FULL = DEBUG_GRID_GENERATOR && false;
 
 	// The parameters use to generate a grid
 	private final GridGeneratingParameters mGridGeneratingParameters;
@@ -37,9 +81,26 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 		VERY_EASY, EASY, NORMAL, DIFFICULT, VERY_DIFFICULT, RANDOM
 	};
 
-	// The complexity of a puzzle will be determined by following factors.
-	private int mMaxCagePermutations;
-	private int mMaximumSingleCellCages;
+	// The complexity of a puzzle will be determined by following factors. The
+	// default values are determined by the puzzle complexity. The values used
+	// by an attempt may be relaxed in case the deadline approaches.
+	private int mDefaultMaxCagePermutations;
+	private int mDefaultMaximumSingleCellCages;
+
+	// The deadline in milliseconds after the start of generating. 0 in case
+	// the parameters may not be relaxed.
+	private long mDeadlineMillis = DEFAULT_DEADLINE_MILLIS;
+
+	// Whether no grid has been generated at GIVE_UP_DEADLINE_PERCENTAGE of the
+	// deadline.
+	private boolean mDeadlineExceeded;
+
+	// The grid which is taken from the puzzle pool in case the deadline has
+	// been exceeded. Null in case the generated grid is used.
+	private Grid mPooledGrid;
+
+	// Whether the background task has generated a grid.
+	private boolean mGenerated;
 
 	// The grid created by the generator
 	private Grid mGrid;
@@ -47,20 +108,16 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 	// The user that'll use the generated grid.
 	protected final GridUser mUser;
 
-	// Random generator
-	public Random mRandom;
-
 	// Size of the grid
 	public int mGridSize;
 
-	// Cell and solution
-	public ArrayList<GridCell> mCells;
-	private int[][] mSolutionMatrix;
+	// Cells and cages of the generated grid
+	private ArrayList<GridCell> mCells;
+	private ArrayList<GridCage> mCages;
 
-	// Cages
-	private CageTypeGenerator mGridCageTypeGenerator;
-	public ArrayList<GridCage> mCages;
-	private int[][] mCageMatrix;
+	// The generator which runs the attempts on the calling thread. Its
+	// parameters are used by the workers which run attempts in parallel.
+	private GridAttemptGenerator mGridAttemptGenerator;
 
 	// Additional option for generating the grid
 	protected GridGeneratorOptions mGridGeneratorOptions;
@@ -69,6 +126,17 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 	long mTimeStarted;
 	long mTimeStartedSolution;
 
+	// Statistics of all uniqueness checks done while generating the grid.
+	private SolveStatistics mSolveStatistics;
+
+	// Telemetry of all attempts done while generating the grid.
+	private GridGeneratingTelemetry mGridGeneratingTelemetry;
+
+	// Whether attempts and the uniqueness check may be split over all
+	// processors. This is disabled for grids which are generated for the
+	// puzzle pool.
+	private boolean mParallelSolve = true;
+
 	// The grid generator options are used in development mode only to generate
 	// fake games.
 	public class GridGeneratorOptions {
@@ -106,9 +174,11 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 	/**
 	 * Creates a new instance of {@link GridGenerator}. Though the signature of
 	 * the constructor suggests otherwise, the singleton classes
-	 * {@link DatabaseHelper}, {@link Painter}, {@link Preferences} and
-	 * {@link Util} all have to be initialised before this generator can be
-	 * used.
+	 * {@link DatabaseHelper} and {@link Preferences} have to be initialised
+	 * before this generator can be used. The {@link Painter} is created on
+	 * first use by the cells of the grid. {@link Util} is only needed when
+	 * the generator is executed as task, as the generated grid is saved
+	 * afterwards. It is not needed by {@link #generateForPool()}.
 	 * 
 	 * @param gridSize
 	 *            The size of the gird to be created.
@@ -137,7 +207,7 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 		mGridGeneratingParameters.mPuzzleComplexity = puzzleComplexity;
 		mGridGeneratingParameters.mHideOperators = hideOperators;
 
-		mMaximumSingleCellCages = mGridSize / 2;
+		mDefaultMaximumSingleCellCages = mGridSize / 2;
 		switch (mGridGeneratingParameters.mPuzzleComplexity) {
 		case VERY_EASY:
 			mGridGeneratingParameters.mMaxCageSize = 2;
@@ -145,14 +215,14 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 			// Overwrite the maximum number of single cell cages which are
 			// allowed for the smaller grid size. This setting is needed to
 			// avoid long generation times because cages do not fit.
-			mMaximumSingleCellCages = Math.min(4, mMaximumSingleCellCages);
+			mDefaultMaximumSingleCellCages = Math.min(4, mDefaultMaximumSingleCellCages);
 
 			mGridGeneratingParameters.mMaxCageResult = 99; // Not used
 															// effectively as
 															// the maximum will
 															// be
 			// 9 * 8 = 72
-			mMaxCagePermutations = 20;
+			mDefaultMaxCagePermutations = 20;
 			break;
 		case EASY:
 			mGridGeneratingParameters.mMaxCageSize = 3;
@@ -161,21 +231,21 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 															// the maximum will
 															// be
 			// 9 * 8 = 648
-			mMaxCagePermutations = 20;
+			mDefaultMaxCagePermutations = 20;
 			break;
 		case NORMAL:
 			mGridGeneratingParameters.mMaxCageSize = 4;
 			mGridGeneratingParameters.mMaxCageResult = 2500; // Real maximum = 9
 																// * 9 * 8 * 8 =
 																// 5,184
-			mMaxCagePermutations = 40;
+			mDefaultMaxCagePermutations = 40;
 			break;
 		case DIFFICULT:
 			mGridGeneratingParameters.mMaxCageSize = 5;
 			mGridGeneratingParameters.mMaxCageResult = 9999; // Real maximum = 9
 																// * 9 * 9 * 8 *
 																// 8 = 46,656
-			mMaxCagePermutations = 80;
+			mDefaultMaxCagePermutations = 80;
 			break;
 		case VERY_DIFFICULT:
 			mGridGeneratingParameters.mMaxCageSize = 6;
@@ -183,7 +253,7 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 																// 9 * 9 * 9 * 8
 																// * 8 * 8 =
 			// 373,248
-			mMaxCagePermutations = 120;
+			mDefaultMaxCagePermutations = 120;
 			break;
 		}
 
@@ -196,6 +266,22 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 		setGridGeneratorOptions(null);
 	}
 
+	/**
+	 * Sets the deadline for generating the grid. When the deadline approaches,
+	 * the complexity parameters are relaxed step by step. The relaxation is
+	 * stored in the grid generating parameters. In case no grid has been
+	 * generated at GIVE_UP_DEADLINE_PERCENTAGE of the deadline, a puzzle from
+	 * the puzzle pool is used if available. Otherwise generating continues at
+	 * the highest relaxation level until a grid has been generated.
+	 * 
+	 * @param deadlineMillis
+	 *            The deadline in milliseconds after the start of generating.
+	 *            Use 0 in case the parameters may never be relaxed.
+	 */
+	public void setDeadline(long deadlineMillis) {
+		mDeadlineMillis = deadlineMillis;
+	}
+
 	/**
 	 * Sets the additional options for the grid generator. Only to be used in
 	 * development mode.
@@ -228,8 +314,20 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 	 */
 	@Override
 	protected Void doInBackground(Void... params) {
+		mGenerated = generate();
+		return null;
+	}
+
+	/**
+	 * Generates a grid on the calling thread. The grid is neither created nor
+	 * saved.
+	 * 
+	 * @return True in case a grid has been generated. False in case
+	 *         generating has been cancelled or aborted.
+	 */
+	private boolean generate() {
 		if (mGridSize < 3) {
-			return null;
+			return false;
 		}
 
 		mTimeStarted = System.currentTimeMillis();
@@ -238,966 +336,604 @@ public class GridGenerator extends AsyncTask<Void, String, Void> {
 		mGrid = new Grid();
 		mGrid.setGridSize(mGridSize);
 
-		boolean hasUniqueSolution = false;
-		int num_attempts = 0;
-
-		// Use the game seed to initialize the randomize which is used to
-		// generate the game. Overwrite this game seed with the fixed value of a
-		// given game in case you want to recreate the same grid. All you need
-		// to ensure is that you the correct revision of this GridGenerator
-		// module. Please be aware that in case the implementation of the random
-		// method changes, it will not be possible to recreate the grids!
-		mRandom = new Random(mGridGeneratingParameters.mGameSeed);
+		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+			if (mGridGeneratorOptions.createFakeUserGameFiles) {
+				generateFakeUserGames();
+				return false;
+			}
+		}
 
-		do {
-			// Check whether the generating process should be aborted due to
-			// cancellation of the grid dialog.
-			if (isCancelled()) {
-				return null;
+		mGridAttemptGenerator = createGridAttemptGenerator();
+		mGridAttemptGenerator.setParallelSolve(mParallelSolve);
+		mSolveStatistics = mGridAttemptGenerator.getSolveStatistics();
+		mGridGeneratingTelemetry = mGridAttemptGenerator
+				.getGridGeneratingTelemetry();
+
+		boolean generated = (mGridAttemptGenerator.usesAttemptSeeds() ? generateWithParallelAttempts()
+				: generateWithSingleRandom());
+		if (generated) {
+			mGridGeneratingTelemetry.mElapsedMillis = System
+					.currentTimeMillis() - mTimeStarted;
+			mGridGeneratingParameters.mGridGeneratingTelemetry = mGridGeneratingTelemetry;
+			if (DEBUG_GRID_GENERATOR) {
+				Log.i(TAG, "Solver statistics for " + mGridSize + "x"
+						+ mGridSize + " grid: " + mSolveStatistics);
+				Log.i(TAG, "Telemetry: " + mGridGeneratingTelemetry);
 			}
+		}
+		return generated;
+	}
 
-			num_attempts++;
+	/**
+	 * Creates the generator which runs the attempts for the current grid
+	 * generating parameters.
+	 * 
+	 * @return The attempt generator.
+	 */
+	private GridAttemptGenerator createGridAttemptGenerator() {
+		GridAttemptGenerator gridAttemptGenerator = new GridAttemptGenerator(
+				mGridSize, mGridGeneratingParameters.mGeneratorRevisionNumber,
+				mGridGeneratingParameters.mGameSeed,
+				mGridGeneratingParameters.mMaxCageSize,
+				mGridGeneratingParameters.mMaxCageResult,
+				mGridGeneratingParameters.mHideOperators,
+				mDefaultMaxCagePermutations, mDefaultMaximumSingleCellCages);
+		gridAttemptGenerator.setCancellationToken(this);
+		gridAttemptGenerator.setGeneratedBeforeChecker(this);
+		return gridAttemptGenerator;
+	}
 
-			mTimeStartedSolution = System.currentTimeMillis();
+	/**
+	 * Generates a grid on the calling thread for the puzzle pool. Attempts are
+	 * run one after another and the uniqueness check is not split over
+	 * processors, so generating does not compete with the foreground for
+	 * processors. The grid is not inserted into the database.
+	 * 
+	 * @return The generated grid. Null in case generating has been cancelled
+	 *         or aborted.
+	 */
+	public Grid generateForPool() {
+		mParallelSolve = false;
 
-			handleNewAttemptStarted(num_attempts);
+		// Puzzles in the pool are generated in the background, so there is no
+		// need to relax the complexity.
+		mDeadlineMillis = 0;
+		if (!generate()) {
+			return null;
+		}
+		mGrid.build(mGridSize, mCells, mCages, true, mGridGeneratingParameters);
 
-			mCells = new ArrayList<GridCell>();
-			int cellnum = 0;
-			for (int i = 0; i < mGridSize * mGridSize; i++) {
-				mCells.add(new GridCell(mGrid, cellnum++));
-			}
+		return mGrid;
+	}
+
+	/**
+	 * Generates and saves the number of games specified in the grid generator
+	 * options. The faked user games files do not require a unique solution
+	 * which results in much faster generation time. Only to be used in
+	 * development mode.
+	 */
+	private void generateFakeUserGames() {
+		if (DevelopmentHelper.mMode != Mode.DEVELOPMENT) {
+			return;
+		}
 
-			randomiseGrid();
+		int num_attempts = 0;
+		GridAttemptGenerator gridAttemptGenerator = createGridAttemptGenerator();
 
+		while (num_attempts < mGridGeneratorOptions.numberOfGamesToGenerate) {
 			// Check whether the generating process should be aborted due to
 			// cancellation of the grid dialog.
 			if (isCancelled()) {
-				return null;
+				return;
 			}
 
-			// Create the cages.
-			this.mCages = new ArrayList<GridCage>();
-			if (createCages(mGridGeneratingParameters.mHideOperators) == false
-					&& isCancelled() == false) {
+			num_attempts++;
+
+			handleNewAttemptStarted(num_attempts);
+
+			if (gridAttemptGenerator.generateWithoutUniquenessCheck() == false) {
 				// For some reason the creation of the cages was not successful.
 				// Start over again.
+				num_attempts--;
 				continue;
 			}
+			setCellsAndCages(gridAttemptGenerator);
 
-			// Check whether the generating process should be aborted due to
-			// cancellation of the grid dialog.
-			if (isCancelled()) {
-				return null;
+			// Create the grid object
+			if (!mGrid.create(mGridSize, mCells, mCages, true,
+					mGridGeneratingParameters)) {
+				Log.e(TAG, "Can not create grid.");
+				num_attempts--;
+				continue;
 			}
+			mGrid.save();
 
-			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
-				if (mGridGeneratorOptions.createFakeUserGameFiles) {
-					// The faked user games files do not require a unique
-					// solution which results in much faster generation time.
-
-					// Create the grid object
-					if (!mGrid.create(mGridSize, mCells, mCages, true,
-							mGridGeneratingParameters)) {
-						Log.e(TAG, "Can not create grid.");
-						continue;
-					}
-					mGrid.save();
-
-					publishProgress(
-							DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE,
-							"");
-					publishProgress(DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_PROGRESS);
-
-					// Check if more puzzles have to generated.
-					if (num_attempts < mGridGeneratorOptions.numberOfGamesToGenerate) {
-						// Determine random size and hide operator values of
-						// next grid
-						mGridGeneratingParameters.mGameSeed = (new Random())
-								.nextLong();
-						mRandom = new Random(
-								mGridGeneratingParameters.mGameSeed);
-						if (mGridGeneratorOptions.randomGridSize) {
-							mGridSize = 4 + (new Random().nextInt(6));
-						}
-						if (mGridGeneratorOptions.randomHideOperators) {
-							mGridGeneratingParameters.mHideOperators = new Random()
-									.nextBoolean();
-						}
-						mGrid = new Grid();
-						mGrid.setGridSize(mGridSize);
-
-						// Fake a non unique solution so another grid is
-						// generated.
-						hasUniqueSolution = false;
-						continue;
-					} else {
-						return null;
-					}
-				}
-			}
+			publishProgress(
+					DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE,
+					"");
+			publishProgress(DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_PROGRESS);
 
-			if (DEBUG_GRID_GENERATOR) {
-				publishProgress(
-						DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE,
-						"Verify unique solution");
+			// Determine random size and hide operator values of next grid
+			mGridGeneratingParameters.mGameSeed = (new Random()).nextLong();
+			if (mGridGeneratorOptions.randomGridSize) {
+				mGridSize = 4 + (new Random().nextInt(6));
 			}
-
-			// Determine whether grid has a unique solution.
-			hasUniqueSolution = new MathDokuDLX(mGridSize, mCages)
-					.hasUniqueSolution();
-
-			if (DEBUG_GRID_GENERATOR) {
-				Log.d(TAG, "This grid does not have a unique solution.");
+			if (mGridGeneratorOptions.randomHideOperators) {
+				mGridGeneratingParameters.mHideOperators = new Random()
+						.nextBoolean();
 			}
-
-			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
-				// Sometime grid generation takes too long. Until I have a game
-				// seed which reproduces this problem I can not fix it. If sucg
-				// a game is found in development, an exception will be thrown
-				// to investigate it.
-				if (System.currentTimeMillis() - mTimeStarted > 30 * 1000) {
-					Log.i(TAG,
-							"Game generation takes too long ("
-									+ (int) ((System.currentTimeMillis() - mTimeStarted) / 1000)
-									+ " secs). Please investigate. Grid generating params are:");
-					Log.i(TAG,
-							" - mGeneratorRevisionNumber: "
-									+ mGridGeneratingParameters.mGeneratorRevisionNumber);
-					Log.i(TAG, " - mPuzzleComplexity: "
-							+ mGridGeneratingParameters.mPuzzleComplexity);
-					Log.i(TAG, " - mGameSeed: "
-							+ mGridGeneratingParameters.mGameSeed);
-					Log.i(TAG, " - mMaxCageSize: "
-							+ mGridGeneratingParameters.mMaxCageSize);
-					Log.i(TAG, " - mMaxCageResult: "
-							+ mGridGeneratingParameters.mMaxCageResult);
-					Log.i(TAG, " - mHideOperators: "
-							+ mGridGeneratingParameters.mHideOperators);
-					publishProgress(
-							DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE,
-							"Slow game generation. See LogCat for grid generating parameters which might help to reproduce the problem. Game seed = "
-									+ mGridGeneratingParameters.mGameSeed);
-					try {
-						Thread.sleep(1000);
-					} catch (InterruptedException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					} // Pause a moment to publish message
-						// Force exception by creating a null pointer exception
-					mGrid = null;
-					return null;
-				}
-			}
-		} while (hasUniqueSolution == false);
-		if (DEBUG_GRID_GENERATOR) {
-			Log.d(TAG, "Found puzzle with unique solution in " + num_attempts
-					+ " attempts.");
+			mGrid = new Grid();
+			mGrid.setGridSize(mGridSize);
+			gridAttemptGenerator = createGridAttemptGenerator();
 		}
-		return null;
 	}
 
 	/**
-	 * Handles the generator starting a new attempt. Should be overridden in
-	 * subclass in case special handling is needed.
+	 * Generates a grid with a unique solution in the same way as revisions
+	 * before MIN_REVISION_PARALLEL_ATTEMPTS. The attempts are run one after
+	 * another and all use the randomizer which is seeded with the game seed.
+	 * So the outcome of an attempt depends on all attempts before it. The
+	 * game seed of a grid which was generated by such a revision still
+	 * reproduces the same grid.
 	 * 
-	 * @param attemptCount
-	 *            The number of the attempt already completed plus 1.
+	 * @return True in case a grid has been generated. False in case
+	 *         generating has been cancelled or aborted.
 	 */
-	protected void handleNewAttemptStarted(int attemptCount) {
-	}
-
-	@Override
-	protected void onProgressUpdate(String... values) {
-		if (DEBUG_GRID_GENERATOR) {
-			long timeElapsed = System.currentTimeMillis() - mTimeStarted;
-			if (values.length == 1 && values[0] != null) {
-				if (values[0]
-						.equals(DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_SOLUTION)) {
-					Log.i(TAG,
-							Long.toString(timeElapsed)
-									+ ": found a solution for this puzzle in "
-									+ (System.currentTimeMillis() - mTimeStartedSolution)
-									+ " miliseconds");
-					mTimeStartedSolution = System.currentTimeMillis();
-				}
-			}
-			if (values.length >= 2 && values[0] != null && values[1] != null
-					&& !values[1].equals("")) {
-				Log.i(TAG, Long.toString(timeElapsed) + ": " + values[1]);
+	private boolean generateWithSingleRandom() {
+		int attemptNumber = 0;
+		do {
+			if (isCancelled() || isGenerationTooSlow()) {
+				return false;
 			}
+			attemptNumber++;
+			handleNewAttemptStarted(attemptNumber);
+			mTimeStartedSolution = System.currentTimeMillis();
+		} while (!mGridAttemptGenerator.runAttempt(attemptNumber, 0,
+				Long.MAX_VALUE));
+		if (isCancelled()) {
+			return false;
 		}
+		setCellsAndCages(mGridAttemptGenerator);
+		mGridGeneratingParameters.mRelaxationLevel = 0;
+		mGridGeneratingParameters.mAttemptNumber = attemptNumber;
+		return true;
 	}
 
 	/**
-	 * Callback for the DLX algorithm in case a solution is found for a puzzle.
-	 */
-	public void publishProgressGridSolutionFound() {
-		publishProgress(DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE);
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see android.os.AsyncTask#onPostExecute(java.lang.Object)
-	 */
-	@Override
-	protected void onPostExecute(Void result) {
-		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
-			// catch null pointer exception created in background proces
-			if (mGrid == null) {
-				throw new RuntimeException(
-						"Investigate slow game generation. See logcat above for more info.");
-			}
-		}
-
-		// Create the grid object
-		if (mGrid.create(mGridSize, mCells, mCages, true,
-				mGridGeneratingParameters)) {
-			mUser.useCreatedGrid(mGrid);
-		}
-	}
-
-	/*
-	 * Fills the grid with random numbers, per the rules:
+	 * Generates a grid with a unique solution. Each attempt to generate a grid
+	 * uses its own randomizer which is seeded with the game seed and the
+	 * attempt number. Attempts do not depend on each other and are run in
+	 * parallel by a number of worker generators. The attempt with the lowest
+	 * attempt number which results in a unique solution is used, even in case
+	 * an attempt with a higher number finished earlier. So the game seed
+	 * reproduces the same grid regardless of the number of workers. Grids of
+	 * at least PARALLEL_SOLVE_MIN_GRID_SIZE run one attempt at a time and
+	 * split the uniqueness check instead.
 	 * 
-	 * - 1 to <rowsize> on every row and column - No duplicates in any row or
-	 * column.
+	 * @return True in case a grid has been generated. False in case
+	 *         generating has been cancelled or aborted, or in case a puzzle
+	 *         from the puzzle pool is used instead.
 	 */
-	private void randomiseGrid() {
-		int attempts;
-		mSolutionMatrix = new int[this.mGridSize][this.mGridSize];
-		for (int value = 1; value < this.mGridSize + 1; value++) {
-			for (int row = 0; row < this.mGridSize; row++) {
-				attempts = 20;
-				GridCell cell;
-				int column;
-				while (true) {
-					column = this.mRandom.nextInt(this.mGridSize);
-					cell = getCellAt(row, column);
-					if (--attempts == 0)
-						break;
-					if (cell.getCorrectValue() != 0)
-						continue;
-					if (valueInColumn(column, value))
-						continue;
-					break;
-				}
-				if (attempts == 0) {
-					this.clearValue(value--);
-					break;
+	private boolean generateWithParallelAttempts() {
+		int parallelAttempts = (mParallelSolve
+				&& mGridSize < GridAttemptGenerator.PARALLEL_SOLVE_MIN_GRID_SIZE ? Math
+				.max(1, Math.min(MAX_PARALLEL_ATTEMPTS, Runtime.getRuntime()
+						.availableProcessors())) : 1);
+		if (parallelAttempts == 1) {
+			// Run the attempts on the calling thread. The uniqueness check of
+			// big grids is split over all processors by the attempt
+			// generator.
+			int attemptNumber = 0;
+			int relaxationLevel;
+			do {
+				if (isCancelled() || isReplacedByPooledGrid()
+						|| isGenerationTooSlow()) {
+					return false;
 				}
-				cell.setCorrectValue(value);
-				mSolutionMatrix[row][column] = value;
+				attemptNumber++;
+				relaxationLevel = getRelaxationLevel();
+				handleNewAttemptStarted(attemptNumber);
+				mTimeStartedSolution = System.currentTimeMillis();
+			} while (!mGridAttemptGenerator.runAttempt(attemptNumber,
+					relaxationLevel, getAttemptStopTime(relaxationLevel)));
+			if (isCancelled()) {
+				return false;
 			}
+			setCellsAndCages(mGridAttemptGenerator);
+			mGridGeneratingParameters.mRelaxationLevel = relaxationLevel;
+			mGridGeneratingParameters.mAttemptNumber = attemptNumber;
+			return true;
 		}
-	}
-
-	/**
-	 * Creates cages for the current grid which is already filled with numbers.
-	 * 
-	 * @param hideOperators
-	 *            True in case cages should hide the operator. False in
-	 *            operators should be visible.
-	 * @return True in case the cages have been created successfully.
-	 */
-	private boolean createCages(boolean hideOperators) {
-		this.mGridCageTypeGenerator = CageTypeGenerator.getInstance();
-
-		boolean restart;
-		int attempts = 0;
-		do {
-			restart = false;
-			attempts++;
-			mCageMatrix = new int[this.mGridSize][this.mGridSize];
-			for (int row = 0; row < this.mGridSize; row++) {
-				for (int col = 0; col < this.mGridSize; col++) {
-					mCageMatrix[row][col] = -1;
-				}
-			}
-
-			if (mGridGeneratingParameters.mMaxCageSize >= CageTypeGenerator.MAX_CAGE_SIZE) {
-				// Drop a first (bigger) cage type somewhere in the grid.
-				int remaingAttemptsToPlaceBigCageType = 10;
-				while (remaingAttemptsToPlaceBigCageType > 0) {
-					// Check whether the generating process should be aborted
-					// due to cancellation of the grid dialog.
-					if (isCancelled()) {
-						return false;
-					}
-
-					GridCageType gridCageType = mGridCageTypeGenerator
-							.getRandomCageType(
-									mGridGeneratingParameters.mMaxCageSize,
-									mGridSize, mGridSize, mRandom);
-					if (gridCageType != null) {
-						// Determine a random row and column at which the mask
-						// will be placed. Use +1 in calls to randomizer to
-						// prevent exceptions in case the entire height and/or
-						// width is needed for the cagetype.
-						int startRow = mRandom
-								.nextInt((mGridSize - gridCageType.getHeight()) + 1);
-						int startCol = mRandom
-								.nextInt((mGridSize - gridCageType.getWidth()) + 1);
-
-						// Determine the origin cell of the cage type in case
-						// the cagetype mask is put at the randomly determined
-						// position.
-						int[] coordinatesTopLeft = gridCageType
-								.getOriginCoordinates(startRow, startCol);
-
-						// Get coordinates for the cage cells and add the cage.
-						// Note: no checking is done on the maximum permutations
-						// for the first cage.
-						int[][] cageTypeCoords = gridCageType
-								.getCellCoordinates(getCellAt(
-										coordinatesTopLeft[0],
-										coordinatesTopLeft[1]));
-						GridCage firstCage = createCage(cageTypeCoords,
-								4 * mMaxCagePermutations);
-						if (firstCage != null) {
-							this.mCages.add(firstCage);
-							for (GridCell cellinCage : firstCage.mCells) {
-								mCageMatrix[cellinCage.getRow()][cellinCage
-										.getColumn()] = firstCage.mId;
-							}
-							break;
-						}
-					}
-
-					// Try another time to drop a big cage type unless maximum
-					// number of tries has been reached.
-					remaingAttemptsToPlaceBigCageType--;
-				}
-			}
 
-			// Fill remainder of grid
-			int countSingles = 0;
-			for (GridCell cell : this.mCells) {
-				if (cell.cellInAnyCage()) {
-					continue; // Cell already in a cage, skip
+		final GridAttemptGenerator[] workers = new GridAttemptGenerator[parallelAttempts];
+		@SuppressWarnings("unchecked")
+		Future<Boolean>[] attempts = new Future[parallelAttempts];
+		int[] relaxationLevels = new int[parallelAttempts];
+		ExecutorService executorService = Executors
+				.newFixedThreadPool(parallelAttempts);
+		try {
+			// Attempt n is always run by worker (n - 1) % parallelAttempts.
+			int nextAttemptNumber = 1;
+			for (int i = 0; i < parallelAttempts; i++) {
+				workers[i] = new GridAttemptGenerator(mGridAttemptGenerator);
+				relaxationLevels[i] = getRelaxationLevel();
+				attempts[i] = submitAttempt(executorService, workers[i],
+						nextAttemptNumber++, relaxationLevels[i],
+						getAttemptStopTime(relaxationLevels[i]));
+			}
+
+			// Wait for the attempts in order of their attempt number.
+			int attemptNumber = 1;
+			while (true) {
+				int worker = (attemptNumber - 1) % parallelAttempts;
+				handleNewAttemptStarted(attemptNumber);
+				Boolean hasUniqueSolution = waitForAttempt(attempts[worker]);
+				if (hasUniqueSolution == null || isGenerationTooSlow()) {
+					return false;
 				}
-
-				// Determine a random cage which will start at this cell.
-				GridCage cage = selectRandomCageType(cell);
-
-				if (cage.mCells.size() == 1) {
-					countSingles++;
-					if (countSingles > mMaximumSingleCellCages) {
-						if (DEBUG_GRID_GENERATOR) {
-							// Too many singles
-							publishProgress(
-									DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE,
-									"Found more single cell cages than allowed ("
-											+ mMaximumSingleCellCages
-											+ ") in attempt " + attempts);
-						}
-						clearAllCages();
-						restart = true;
-						break;
+				mSolveStatistics.add(workers[worker].getSolveStatistics());
+				mGridGeneratingTelemetry.add(workers[worker]
+						.getGridGeneratingTelemetry());
+
+				if (hasUniqueSolution) {
+					// Use the grid of this attempt. Attempts with a higher
+					// attempt number are no longer needed.
+					setCellsAndCages(workers[worker]);
+					mGridGeneratingParameters.mRelaxationLevel = relaxationLevels[worker];
+					mGridGeneratingParameters.mAttemptNumber = attemptNumber;
+					if (DEBUG_GRID_GENERATOR) {
+						Log.d(TAG, "Found puzzle with unique solution in "
+								+ attemptNumber + " attempts using "
+								+ parallelAttempts + " workers.");
 					}
+					return true;
 				}
 
-				// Add the cage to the grid
-				this.mCages.add(cage);
-				for (GridCell cellinCage : cage.mCells) {
-					mCageMatrix[cellinCage.getRow()][cellinCage.getColumn()] = cage.mId;
+				// Let the worker which is now idle start the next attempt.
+				if (isReplacedByPooledGrid()) {
+					return false;
 				}
-			}
-
-			// If a valid grid is generated check if it was not generated
-			// before.
-			if (!restart) {
-				if (isGeneratedBefore(mCells, mCages, hideOperators)) {
-					clearAllCages();
-					restart = true;
-					if (DEBUG_GRID_GENERATOR) {
-						publishProgress(
-								DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE,
-								"Grid has been generated before " + attempts);
-					}
-					continue;
+				relaxationLevels[worker] = getRelaxationLevel();
+				attempts[worker] = submitAttempt(executorService,
+						workers[worker], nextAttemptNumber++,
+						relaxationLevels[worker],
+						getAttemptStopTime(relaxationLevels[worker]));
+				attemptNumber++;
+			}
+		} finally {
+			for (GridAttemptGenerator worker : workers) {
+				if (worker != null) {
+					worker.cancel();
 				}
 			}
-
-			// If not succeeded in 20 attempts then stop and try all over again.
-			if (attempts >= 20) {
-				return false;
-			}
-		} while (restart);
-
-		if (DEBUG_GRID_GENERATOR) {
-			printCageCreationDebugInformation(null);
+			executorService.shutdown();
 		}
+	}
 
-		return true;
+	/**
+	 * Lets the given worker run an attempt on the given executor service. The
+	 * solver statistics and the telemetry of the worker are reset so they only
+	 * contain the statistics of this attempt.
+	 */
+	private static Future<Boolean> submitAttempt(
+			ExecutorService executorService, final GridAttemptGenerator worker,
+			final int attemptNumber, final int relaxationLevel,
+			final long attemptStopTime) {
+		return executorService.submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				worker.clearStatistics();
+				return worker.runAttempt(attemptNumber, relaxationLevel,
+						attemptStopTime);
+			}
+		});
 	}
 
 	/**
-	 * Create a new cage which originates at the given cell. The cage type for
-	 * this cage will be randomly determined.
+	 * Converts the grid of the last attempt of the given attempt generator to
+	 * the cells and cages of the grid which is created by this generator.
 	 * 
-	 * @param origin
-	 *            The cell at which the cage originates.
-	 * @return The selected grid cage type.
+	 * @param gridAttemptGenerator
+	 *            The attempt generator which generated the grid.
 	 */
-	private GridCage selectRandomCageType(GridCell origin) {
-		if (DEBUG_GRID_GENERATOR_FULL) {
-			Log.i(TAG, "Determine valid cages for cell[" + origin.getRow()
-					+ "," + origin.getColumn() + "]");
+	private void setCellsAndCages(GridAttemptGenerator gridAttemptGenerator) {
+		int[][] solutionMatrix = gridAttemptGenerator.getSolutionMatrix();
+		mCells = new ArrayList<GridCell>();
+		for (int i = 0; i < mGridSize * mGridSize; i++) {
+			GridCell cell = new GridCell(mGrid, i);
+			cell.setCorrectValue(solutionMatrix[cell.getRow()][cell.getColumn()]);
+			mCells.add(cell);
 		}
 
-		// Store indexes of all defined cages types, except cage type 0 which is
-		// a single cell, in a temporary list of available cages.
-		ArrayList<Integer> availableCages = new ArrayList<Integer>();
-		for (int i = 1; i < mGridCageTypeGenerator
-				.size(mGridGeneratingParameters.mMaxCageSize); i++) {
-			availableCages.add(i);
+		mCages = new ArrayList<GridCage>();
+		for (Cage cage : gridAttemptGenerator.getCages()) {
+			GridCage gridCage = new GridCage(mGrid, cage.isOperatorHidden());
+			for (CageCell cageCell : cage.mCells) {
+				gridCage.mCells.add(mCells.get(cageCell.getCellNumber()));
+			}
+			gridCage.setCageResults(cage.mResult, cage.mAction,
+					cage.isOperatorHidden());
+			gridCage.setCageId(cage.mId);
+			mCages.add(gridCage);
 		}
+	}
 
-		GridCageType selectedGridCageType;
-		boolean cageIsValid;
-		do {
-			// Check whether the generating process should be aborted
-			// due to cancellation of the grid dialog.
-			if (isCancelled()) {
+	/**
+	 * Waits for an attempt to finish. While waiting, it is checked
+	 * regularly whether the generator has been cancelled.
+	 * 
+	 * @param attempt
+	 *            The attempt to wait for.
+	 * @return True in case the attempt resulted in a grid with a unique
+	 *         solution. False in case it did not. Null in case the generator
+	 *         has been cancelled.
+	 */
+	private Boolean waitForAttempt(Future<Boolean> attempt) {
+		while (!isCancelled()) {
+			try {
+				return attempt.get(CANCEL_CHECK_INTERVAL_MILLIS,
+						TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Check for cancellation and continue waiting.
+			} catch (InterruptedException e) {
+				// The generator is cancelled while waiting. Restore the
+				// interrupt so the caller can see it as well.
+				Thread.currentThread().interrupt();
 				return null;
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
 			}
-
-			cageIsValid = true;
-
-			// Randomly select any cage from the list of available cages. As
-			// soon as a cage type is selected, it is removed from the list of
-			// available cage types so it will not be selected again.
-			int randomIndex = this.mRandom.nextInt(availableCages.size());
-			int cageTypeToBeChecked = availableCages.get(randomIndex);
-			availableCages.remove(randomIndex);
-			selectedGridCageType = mGridCageTypeGenerator
-					.getCageType(cageTypeToBeChecked);
-
-			// Get coordinates of all cells involved when this cage type is
-			// placed at this origin.
-			int[][] cageTypeCoords = selectedGridCageType
-					.getCellCoordinates(origin);
-
-			// Build mask for this cage
-			boolean[][] maskNewCage = new boolean[this.mGridSize][this.mGridSize];
-			int[] maskNewCageRowCount = new int[this.mGridSize];
-			int[] maskNewCageColCount = new int[this.mGridSize];
-			for (int coord_num = 0; coord_num < cageTypeCoords.length; coord_num++) {
-				int row = cageTypeCoords[coord_num][0];
-				int col = cageTypeCoords[coord_num][1];
-
-				if (row < 0 || row >= this.mGridSize || col < 0
-						|| col >= this.mGridSize) {
-					// Coordinates of this cell in cage falls outside the
-					// grid.
-					cageIsValid = false;
-					break;
-				} else if (mCageMatrix[row][col] >= 0) {
-					// Cell is already used in another cage
-					cageIsValid = false;
-					break;
-				} else {
-					// Cell can be used for this new cage.
-					maskNewCage[row][col] = true;
-					maskNewCageRowCount[row]++;
-					maskNewCageColCount[col]++;
-				}
-			}
-			if (!cageIsValid) {
-				continue;
-			}
-
-			if (DEBUG_GRID_GENERATOR_FULL) {
-				// Print solution, cage matrix and makskNewCage
-				printCageCreationDebugInformation(maskNewCage);
-			}
-
-			if (hasOverlappingSubsetOfValuesInColumns(maskNewCage,
-					maskNewCageColCount)) {
-				cageIsValid = false;
-				continue;
-			}
-
-			if (hasOverlappingSubsetOfValuesInRows(maskNewCage,
-					maskNewCageRowCount)) {
-				cageIsValid = false;
-				continue;
-			}
-
-			if (cageIsValid) {
-				GridCage cage = createCage(cageTypeCoords, mMaxCagePermutations);
-				if (cage == null) {
-					// No cage created due to too many permutations.
-					continue;
-				}
-
-				// As we randomly check available cages, we can stop as soon as
-				// a valid cage is found which does fit on this position.
-				return cage;
-			}
-
-			// Check next cage
-		} while (availableCages.size() > 0);
-
-		// No cage, other than a single cell, does fit on this position in the
-		// grid.
-		if (DEBUG_GRID_GENERATOR_FULL) {
-			// Print solution, cage matrix and makskNewCage
-			boolean[][] maskNewCage = new boolean[this.mGridSize][this.mGridSize];
-			maskNewCage[origin.getRow()][origin.getColumn()] = true;
-			printCageCreationDebugInformation(maskNewCage);
 		}
-
-		// Create the new cage for a single cell.
-		return createCage(mGridCageTypeGenerator.getSingleCellCageType()
-				.getCellCoordinates(origin), 0);
+		return null;
 	}
 
 	/**
-	 * Create the cage at the given coordinates.
+	 * Get the relaxation level for an attempt which is started now. The level
+	 * depends on the part of the deadline which has elapsed.
 	 * 
-	 * @param cageTypeCoords
-	 *            The coordinates to be used for the cage.
-	 * @param maxPermutations
-	 *            The maximum permutations allowed to create the cage. Use 0 in
-	 *            case no checking on the number of permutations needs to be
-	 *            done.
-	 * @return The grid cage which is created. Null in case the cage has too
-	 *         many permutations.
+	 * @return The relaxation level.
 	 */
-	private GridCage createCage(int[][] cageTypeCoords, int maxPermutations) {
-		GridCage cage = new GridCage(mGrid,
-				mGridGeneratingParameters.mHideOperators);
-		int newCageId = this.mCages.size();
-		for (int coord_num = 0; coord_num < cageTypeCoords.length; coord_num++) {
-			int row = cageTypeCoords[coord_num][0];
-			int col = cageTypeCoords[coord_num][1];
-			cage.mCells.add(getCellAt(row, col));
+	private int getRelaxationLevel() {
+		if (mDeadlineMillis <= 0) {
+			return 0;
 		}
-		setArithmetic(cage);
-		if (maxPermutations > 0
-				&& cage.getPossibleNums().size() > maxPermutations) {
-			// This cage has too many permutations which fulfill the
-			// cage requirements. As this reduces the chance to find a
-			// solution for the puzzle too much, the cage type will not
-			// returned.
-			if (DEBUG_GRID_GENERATOR_FULL) {
-				Log.i(TAG, "This cage type has been rejected as it has more "
-						+ "than " + maxPermutations + " initial "
-						+ "permutations which fulfill the cage requirement.");
-			}
-
-			// Clear the cage result from the cage and the top left cell of the
-			// cage.
-			cage.clearCageResult();
-
-			return null;
+		long elapsedPercentage = (System.currentTimeMillis() - mTimeStarted)
+				* 100 / mDeadlineMillis;
+		int relaxationLevel = 0;
+		while (relaxationLevel < RELAXATION_LEVEL_DEADLINE_PERCENTAGE.length
+				&& elapsedPercentage >= RELAXATION_LEVEL_DEADLINE_PERCENTAGE[relaxationLevel]) {
+			relaxationLevel++;
 		}
-
-		// Set cage id in cage (and indirectly in all cells in the cage as well)
-		cage.setCageId(newCageId);
-
-		return cage;
+		return relaxationLevel;
 	}
 
 	/**
-	 * Print debug information for create cage process to logging.
+	 * Get the time at which an attempt with the given relaxation level has to
+	 * be stopped. This is the time at which the next relaxation level applies
+	 * or, for the highest relaxation level, the time at which a puzzle from
+	 * the puzzle pool is used instead. Once that time has passed, attempts are
+	 * no longer stopped.
 	 * 
-	 * @param maskNewCage
-	 *            Mask of cage type which is currently processed.
+	 * @param relaxationLevel
+	 *            The relaxation level of the attempt.
+	 * @return The time at which the attempt has to be stopped. Long.MAX_VALUE
+	 *         in case the attempt may run until it is finished.
 	 */
-	private void printCageCreationDebugInformation(boolean[][] maskNewCage) {
-		Log.i(TAG, "   Checking cage type");
-		String cageIdFormat = "%d";
-		String emptyCell = ".";
-		String usedCell = "X";
-		if (this.mCages.size() > 100) {
-			cageIdFormat = "%03d";
-			emptyCell = "  .";
-			usedCell = "  X";
-		} else if (this.mCages.size() > 10) {
-			cageIdFormat = "%02d";
-			emptyCell = " .";
-			usedCell = " X";
+	private long getAttemptStopTime(int relaxationLevel) {
+		if (mDeadlineMillis <= 0 || mDeadlineExceeded) {
+			return Long.MAX_VALUE;
 		}
-		for (int row = 0; row < this.mGridSize; row++) {
-			String line = "      ";
-			for (int col = 0; col < this.mGridSize; col++) {
-				line += " " + mSolutionMatrix[row][col];
-			}
-			line += "   ";
-			for (int col = 0; col < this.mGridSize; col++) {
-				line += " "
-						+ (mCageMatrix[row][col] == -1 ? emptyCell : String
-								.format(cageIdFormat, mCageMatrix[row][col]));
-			}
-			if (maskNewCage != null) {
-				line += "   ";
-				for (int col = 0; col < this.mGridSize; col++) {
-					line += " "
-							+ (maskNewCage[row][col] ? usedCell : emptyCell);
-				}
-			}
-			Log.i(TAG, line);
+		int deadlinePercentage = GIVE_UP_DEADLINE_PERCENTAGE;
+		if (relaxationLevel < RELAXATION_LEVEL_DEADLINE_PERCENTAGE.length) {
+			deadlinePercentage = RELAXATION_LEVEL_DEADLINE_PERCENTAGE[relaxationLevel];
 		}
+		return mTimeStarted + mDeadlineMillis * deadlinePercentage / 100;
 	}
 
 	/**
-	 * Determine whether the given new cage contains a subset of values in its
-	 * columns which is also used in the columns of another cage.
+	 * Checks whether generating has to be stopped as a puzzle from the puzzle
+	 * pool is used instead. The pool is checked once, as soon as no grid has
+	 * been generated at GIVE_UP_DEADLINE_PERCENTAGE of the deadline. In case
+	 * the pool does not contain a puzzle with the same parameters, generating
+	 * continues and the subclass is informed that the deadline has been
+	 * exceeded.
 	 * 
-	 * @param maskNewCage
-	 *            A mask of the new cage. Cells which are in use by this cage
-	 *            have value 1. Cells not used have a value -1.
-	 * @param maskNewCageColCount
-	 *            The number of rows per column in use by this new cage.
-	 * @return
+	 * @return True in case generating has to be stopped.
 	 */
-	private boolean hasOverlappingSubsetOfValuesInColumns(
-			boolean[][] maskNewCage, int[] maskNewCageColCount) {
-		for (int newCageCol = 0; newCageCol < this.mGridSize; newCageCol++) {
-			if (maskNewCageColCount[newCageCol] > 1) {
-				// This column in the new cage has more than one row and
-				// therefore needs to be checked with columns of other cages.
-
-				// Compare the column in which the new cage is placed with cages
-				// in other columns of the grid.
-				for (int col = 0; col < this.mGridSize; col++) {
-					if (col != newCageCol) {
-
-						// Cages which are already checked during processing of
-						// this column of the new cage, can be skipped.
-						ArrayList<Integer> cagesChecked = new ArrayList<Integer>();
-
-						// Iterate all cells in the column from top to bottom.
-						for (int row = 0; row < this.mGridSize; row++) {
-							int otherCageId = mCageMatrix[row][col];
-							if (otherCageId >= 0
-									&& maskNewCage[row][newCageCol]
-									&& !cagesChecked.contains(otherCageId)) {
-								// Cell[row][col] is used in a cage which is not
-								// yet checked. This is the first row for which
-								// the new cage and the other cage has a cell in
-								// the columns which are compared.
-								cagesChecked.add(otherCageId);
-
-								// Check all remaining rows if the checked
-								// columns contain a cell for the new cage and
-								// the other cage.
-								int[] valuesUsed = new int[this.mGridSize];
-								for (int row2 = row; row2 < this.mGridSize; row2++) {
-									if (mCageMatrix[row2][col] == otherCageId
-											&& maskNewCage[row2][newCageCol]) {
-										// Both cages contain a cell on the same
-										// row. Remember values used in those
-										// cells.
-										valuesUsed[mSolutionMatrix[row2][col] - 1]++;
-										valuesUsed[mSolutionMatrix[row2][newCageCol] - 1]++;
-									}
-								}
-
-								// Determine which values are used in both cages
-								ArrayList<Integer> duplicateValues = new ArrayList<Integer>();
-								for (int i = 0; i < this.mGridSize; i++) {
-									if (valuesUsed[i] > 1) {
-										// Value (i+1) has been used in both
-										// columns of the new cage and the other
-										// cage.
-										duplicateValues.add(i + 1);
-									}
-								}
-								if (duplicateValues.size() > 1) {
-									// At least two values have been found which
-									// are used in both columns of the new cage
-									// and the other cage. As this would result
-									// in a non-unique solution, the cage is not
-									// valid.
-									if (DEBUG_GRID_GENERATOR_FULL) {
-										Log.i(TAG,
-												"         This cage type will result in a "
-														+ "non-unique solution. The new cage "
-														+ "contains values "
-														+ duplicateValues
-																.toString()
-														+ " in column "
-														+ newCageCol
-														+ " which are also used in column "
-														+ col + " within cage "
-														+ otherCageId + ".");
-									}
-									return true;
-								}
-							}
-						}
-					}
-				}
-			}
+	private boolean isReplacedByPooledGrid() {
+		if (mDeadlineMillis <= 0 || mDeadlineExceeded) {
+			return false;
 		}
-
-		// No overlapping subset found
+		if (System.currentTimeMillis() - mTimeStarted < mDeadlineMillis
+				* GIVE_UP_DEADLINE_PERCENTAGE / 100) {
+			return false;
+		}
+		mDeadlineExceeded = true;
+		mPooledGrid = takePooledGrid();
+		if (DEBUG_GRID_GENERATOR) {
+			Log.d(TAG, "No grid generated within "
+					+ GIVE_UP_DEADLINE_PERCENTAGE
+					+ "% of the deadline. "
+					+ (mPooledGrid == null ? "Continue generating."
+							: "Use puzzle from pool."));
+		}
+		if (mPooledGrid != null) {
+			return true;
+		}
+		handleDeadlineExceeded();
 		return false;
 	}
 
 	/**
-	 * Determine whether the given new cage contains a subset of values in its
-	 * rows which is also used in the rows of another cage.
+	 * Takes a puzzle with the parameters of the grid which is being generated
+	 * from the puzzle pool. This method runs in the background thread. By
+	 * default no puzzle is taken.
 	 * 
-	 * @param maskNewCage
-	 *            A mask of the new cage. Cells which are in use by this cage
-	 *            have value 1. Cells not used have a value -1.
-	 * @param maskNewCageRowCount
-	 *            The number of columns per row in use by this new cage.
-	 * @return
+	 * @return The grid which is taken from the pool. Null in case no puzzle is
+	 *         available.
 	 */
-	private boolean hasOverlappingSubsetOfValuesInRows(boolean[][] maskNewCage,
-			int[] maskNewCageRowCount) {
-		for (int newCageRow = 0; newCageRow < this.mGridSize; newCageRow++) {
-			if (maskNewCageRowCount[newCageRow] > 1) {
-				// This row in the new cage has more than one column and
-				// therefore needs to be checked with rows of other cages.
-
-				// Compare the row in which the new cage is placed with cages
-				// in other rows of the grid.
-				for (int row = 0; row < this.mGridSize; row++) {
-					if (row != newCageRow) {
-
-						// Cages which are already checked during processing of
-						// this row of the new cage, can be skipped.
-						ArrayList<Integer> cagesChecked = new ArrayList<Integer>();
-
-						// Iterate all cells in the row from left to right.
-						for (int col = 0; col < this.mGridSize; col++) {
-							int otherCageId = mCageMatrix[row][col];
-							if (otherCageId >= 0
-									&& maskNewCage[newCageRow][col]
-									&& !cagesChecked.contains(otherCageId)) {
-								// Cell[row][col] is used in a cage which is not
-								// yet checked. This is the first column for
-								// which
-								// the new cage and the other cage has a cell in
-								// the rows which are compared.
-								cagesChecked.add(otherCageId);
-
-								// Check all remaining columns if the checked
-								// rows contain a cell for the new cage and
-								// the other cage.
-								int[] valuesUsed = new int[this.mGridSize];
-								for (int cols2 = col; cols2 < this.mGridSize; cols2++) {
-									if (mCageMatrix[row][cols2] == otherCageId
-											&& maskNewCage[newCageRow][cols2]) {
-										// Both cages contain a cell on the same
-										// columns. Remember values used in
-										// those
-										// cells.
-										valuesUsed[mSolutionMatrix[row][cols2] - 1]++;
-										valuesUsed[mSolutionMatrix[newCageRow][cols2] - 1]++;
-									}
-								}
-
-								// Determine which values are used in both cages
-								ArrayList<Integer> duplicateValues = new ArrayList<Integer>();
-								for (int i = 0; i < this.mGridSize; i++) {
-									if (valuesUsed[i] > 1) {
-										// Value (i+1) has been used in both
-										// columns of the new cage and the other
-										// cage.
-										duplicateValues.add(i + 1);
-									}
-								}
-								if (duplicateValues.size() > 1) {
-									// At least two values have been found which
-									// are used in both rows of the new cage
-									// and the other cage. As this would result
-									// in a non-unique solution, the cage is not
-									// valid.
-									if (DEBUG_GRID_GENERATOR_FULL) {
-										Log.i(TAG,
-												"         This cage type will result in a "
-														+ "non-unique solution. The new cage "
-														+ "contains values "
-														+ duplicateValues
-																.toString()
-														+ " in row "
-														+ newCageRow
-														+ " which are also used in row "
-														+ row + " within cage "
-														+ otherCageId + ".");
-									}
-									return true;
-								}
-							}
-						}
-					}
-				}
-			}
-		}
+	protected Grid takePooledGrid() {
+		return null;
+	}
 
-		// No overlapping subset found
-		return false;
+	/**
+	 * Handles exceeding GIVE_UP_DEADLINE_PERCENTAGE of the deadline in case no
+	 * puzzle from the puzzle pool could be used instead. Generating continues
+	 * afterwards. This method runs in the background thread.
+	 */
+	protected void handleDeadlineExceeded() {
 	}
 
 	/**
-	 * Generates the arithmetic for the cage, semi-randomly.
+	 * Checks whether generating the grid takes too long. Only used in
+	 * development mode.
 	 * 
-	 * @param cage
-	 *            The cage for which the arithmetic has to be generated.
+	 * @return True in case generating has to be aborted.
 	 */
-	private void setArithmetic(GridCage cage) {
-		// A cage consisting of one single cell has no operator.
-		if (cage.mCells.size() == 1) {
-			// Single cell cage have an empty operator which is never hidden. IN
-			// this way it can be prevented that for a single cage cell it
-			// operator can be revealed using the context menu.
-			cage.setCageResults(cage.mCells.get(0).getCorrectValue(),
-					GridCage.ACTION_NONE, false);
-			return;
-		}
-
-		// For cages of size 2 and bigger a weight (i.e. the chance on choosing
-		// that operator) will be determined.
-		int divisionWeight;
-		int subtractionWeight;
-		int addWeight;
-		int multiplyWeight;
-		int divisionCageResult = -1;
-		int subtractionCageResult = -1;
-
-		// A cage consisting of two cells can have any operator but we give
-		// divide and subtraction a little extra weight because those operators
-		// will not be used in bigger cages. Of course division can not always
-		// be used.
-		if (cage.mCells.size() == 2) {
-			int higher;
-			int lower;
-			if (cage.mCells.get(0).getCorrectValue() > cage.mCells.get(1)
-					.getCorrectValue()) {
-				higher = cage.mCells.get(0).getCorrectValue();
-				lower = cage.mCells.get(1).getCorrectValue();
-			} else {
-				higher = cage.mCells.get(1).getCorrectValue();
-				lower = cage.mCells.get(0).getCorrectValue();
+	private boolean isGenerationTooSlow() {
+		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+			// Sometime grid generation takes too long. Until I have a game
+			// seed which reproduces this problem I can not fix it. If sucg
+			// a game is found in development, an exception will be thrown
+			// to investigate it.
+			if (System.currentTimeMillis() - mTimeStarted > 30 * 1000) {
+				Log.i(TAG,
+						"Game generation takes too long ("
+								+ (int) ((System.currentTimeMillis() - mTimeStarted) / 1000)
+								+ " secs). Please investigate. Grid generating params are:");
+				Log.i(TAG,
+						" - mGeneratorRevisionNumber: "
+								+ mGridGeneratingParameters.mGeneratorRevisionNumber);
+				Log.i(TAG, " - mPuzzleComplexity: "
+						+ mGridGeneratingParameters.mPuzzleComplexity);
+				Log.i(TAG, " - mGameSeed: "
+						+ mGridGeneratingParameters.mGameSeed);
+				Log.i(TAG, " - mMaxCageSize: "
+						+ mGridGeneratingParameters.mMaxCageSize);
+				Log.i(TAG, " - mMaxCageResult: "
+						+ mGridGeneratingParameters.mMaxCageResult);
+				Log.i(TAG, " - mHideOperators: "
+						+ mGridGeneratingParameters.mHideOperators);
+				publishProgress(
+						DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE,
+						"Slow game generation. See LogCat for grid generating parameters which might help to reproduce the problem. Game seed = "
+								+ mGridGeneratingParameters.mGameSeed);
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException e) {
+					// TODO Auto-generated catch block
+					e.printStackTrace();
+				} // Pause a moment to publish message
+					// Force exception by creating a null pointer exception
+				mGrid = null;
+				return true;
 			}
-			// As division is less often possible compared to subtraction, it is
-			// given a bit more weight.
-			divisionWeight = ((higher % lower == 0) ? 50 : 0);
-			subtractionWeight = 30;
-			addWeight = 15;
-			multiplyWeight = 15;
-			// Also calculate the cage results for division and subtraction
-			divisionCageResult = higher / lower;
-			subtractionCageResult = higher - lower;
-		} else {
-			// Cage has three or more cells. Division and substration are not
-			// allowed as operators.
-			divisionWeight = 0;
-			subtractionWeight = 0;
-			addWeight = 50;
-			multiplyWeight = 50;
 		}
+		return false;
+	}
 
-		// Determine a random number in the range of the total weight of the
-		// operator available.
-		int totalWeight = divisionWeight + subtractionWeight + addWeight
-				+ multiplyWeight;
-		double index = mRandom.nextInt(totalWeight);
+	/**
+	 * Get the statistics of all uniqueness checks done while generating the
+	 * grid.
+	 * 
+	 * @return The aggregated solver statistics.
+	 */
+	public SolveStatistics getSolveStatistics() {
+		return mSolveStatistics;
+	}
 
-		// Check whether the division operator has to be applied
-		if (index < divisionWeight) {
-			cage.setCageResults(divisionCageResult, GridCage.ACTION_DIVIDE,
-					mGridGeneratingParameters.mHideOperators);
-			return;
-		}
-		index -= divisionWeight;
+	/**
+	 * Handles the generator starting a new attempt. Should be overridden in
+	 * subclass in case special handling is needed.
+	 * 
+	 * @param attemptCount
+	 *            The number of the attempt already completed plus 1.
+	 */
+	protected void handleNewAttemptStarted(int attemptCount) {
+	}
 
-		// Check whether the subtraction operator has to be applied
-		if (index < subtractionWeight) {
-			cage.setCageResults(subtractionCageResult,
-					GridCage.ACTION_SUBTRACT,
-					mGridGeneratingParameters.mHideOperators);
-			return;
-		}
-		index -= subtractionWeight;
-
-		// Check whether the multiply operator has to and can be applied. If
-		// not, than add is chosen.
-		if (index < multiplyWeight) {
-			int total = 1;
-			for (GridCell cell : cage.mCells) {
-				total *= cell.getCorrectValue();
+	@Override
+	protected void onProgressUpdate(String... values) {
+		if (DEBUG_GRID_GENERATOR) {
+			long timeElapsed = System.currentTimeMillis() - mTimeStarted;
+			if (values.length == 1 && values[0] != null) {
+				if (values[0]
+						.equals(DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_SOLUTION)) {
+					Log.i(TAG,
+							Long.toString(timeElapsed)
+									+ ": found a solution for this puzzle in "
+									+ (System.currentTimeMillis() - mTimeStartedSolution)
+									+ " miliseconds");
+					mTimeStartedSolution = System.currentTimeMillis();
+				}
 			}
-			if (total <= mGridGeneratingParameters.mMaxCageResult) {
-				cage.setCageResults(total, GridCage.ACTION_MULTIPLY,
-						mGridGeneratingParameters.mHideOperators);
-				return;
+			if (values.length >= 2 && values[0] != null && values[1] != null
+					&& !values[1].equals("")) {
+				Log.i(TAG, Long.toString(timeElapsed) + ": " + values[1]);
 			}
-			Log.i(TAG, "GameSeed: " + mGridGeneratingParameters.mGameSeed
-					+ " cage result " + total + " is rejected");
-			// Multplication leads to a cage value that is too big to be
-			// displayed on this device. Instead of multiplication the add
-			// operator will be used for this cage which leads to a small cage
-			// outcome.
-		}
-
-		// Use ADD in all other cases.
-		int total = 0;
-		for (GridCell cell : cage.mCells) {
-			total += cell.getCorrectValue();
-		}
-		cage.setCageResults(total, GridCage.ACTION_ADD,
-				mGridGeneratingParameters.mHideOperators);
-	}
-
-	private void clearAllCages() {
-		for (GridCell cell : this.mCells) {
-			cell.clearCage();
 		}
-		this.mCages = new ArrayList<GridCage>();
 	}
 
-	/* Clear any cells containing the given number. */
-	private void clearValue(int value) {
-		for (GridCell cell : this.mCells)
-			if (cell.getCorrectValue() == value)
-				cell.setCorrectValue(0);
+	/**
+	 * Callback for the DLX algorithm in case a solution is found for a puzzle.
+	 */
+	public void publishProgressGridSolutionFound() {
+		publishProgress(DevelopmentHelper.GRID_GENERATOR_PROGRESS_UPDATE_MESSAGE);
 	}
 
-	/* Determine if the given value is in the given column */
-	private boolean valueInColumn(int column, int value) {
-		for (int row = 0; row < mGridSize; row++)
-			if (this.mCells.get(column + row * mGridSize).getCorrectValue() == value)
-				return true;
-		return false;
-	}
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see android.os.AsyncTask#onPostExecute(java.lang.Object)
+	 */
+	@Override
+	protected void onPostExecute(Void result) {
+		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+			// catch null pointer exception created in background proces
+			if (mGrid == null) {
+				throw new RuntimeException(
+						"Investigate slow game generation. See logcat above for more info.");
+			}
+		}
 
-	/* Fetch the cell at the given row, column */
-	private GridCell getCellAt(int row, int column) {
-		if (row < 0 || row >= mGridSize)
-			return null;
-		if (column < 0 || column >= mGridSize)
-			return null;
+		if (!mGenerated) {
+			if (mPooledGrid != null) {
+				// No grid could be generated in time. A puzzle from the pool
+				// is used instead.
+				mUser.useCreatedGrid(mPooledGrid);
+				return;
+			}
+			mUser.onCancelGridGeneration();
+			return;
+		}
 
-		return mCells.get(column + row * mGridSize);
+		// Create the grid object
+		if (mGrid.create(mGridSize, mCells, mCages, true,
+				mGridGeneratingParameters)) {
+			mUser.useCreatedGrid(mGrid);
+		}
 	}
 
-	/**
-	 * Checks if a grid with same definition has been generated before.
+	/*
+	 * (non-Javadoc)
 	 * 
-	 * @param cells
-	 *            The cells included in the grid.
-	 * @param cages
-	 *            The cages included in the grid.
-	 * @return True in case no grid exists with this definition. False
-	 *         otherwise.
+	 * @see net.cactii.mathdoku.gridGenerating.GridAttemptGenerator.
+	 * GeneratedBeforeChecker#isGeneratedBefore(int[], java.util.ArrayList)
 	 */
-	public boolean isGeneratedBefore(ArrayList<GridCell> cells,
-			ArrayList<GridCage> cages, boolean hideOperators) {
-		// Check if this grid definition is unique
-		GridDatabaseAdapter gridDatabaseAdapter = new GridDatabaseAdapter();
-		return (gridDatabaseAdapter
-				.getByGridDefinition(Grid.toGridDefinitionString(cells, cages,
-						mGridGeneratingParameters)) != null);
+	@Override
+	public boolean isGeneratedBefore(int[] cageIds, ArrayList<Cage> cages) {
+		// Check if this grid definition is unique. Almost all candidates are
+		// rejected by the in-memory set of definition hashes. Only in case the
+		// hash is found, the definition string is built and checked against
+		// the database as the hash may collide.
+		long definitionHash = Grid.toGridDefinitionHash(cageIds, cages,
+				mGridGeneratingParameters);
+		if (!GridDefinitionFilter.getInstance().mightContain(definitionHash)) {
+			return false;
+		}
+		return new GridDatabaseAdapter().existsGridDefinition(definitionHash,
+				Grid.toGridDefinitionString(cageIds, cages,
+						mGridGeneratingParameters));
 	}
 
 	@Override
@@ -0,0 +1,209 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import java.util.ArrayList;
+
+import net.cactii.mathdoku.Preferences;
+import net.cactii.mathdoku.developmentHelper.DevelopmentHelper;
+import net.cactii.mathdoku.developmentHelper.DevelopmentHelper.Mode;
+import net.cactii.mathdoku.grid.Grid;
+import net.cactii.mathdoku.gridGenerating.GridGenerator.PuzzleComplexity;
+import net.cactii.mathdoku.storage.database.PuzzlePoolDatabaseAdapter;
+import net.cactii.mathdoku.storage.database.PuzzlePoolRow;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * The puzzle pool keeps a small number of pre-generated puzzles for each set
+ * of parameters (grid size, visibility of operators and complexity) which has
+ * recently been used to start a new game. Taking a puzzle from the pool is
+ * much faster than generating a new puzzle. The pool is refilled by the
+ * {@link PuzzlePoolService} which only runs while the device is charging or
+ * idle.
+ */
+public class PuzzlePool {
+	private static final String TAG = "MathDoku.PuzzlePool";
+
+	// The maximum number of puzzles kept in the pool for a single set of
+	// parameters.
+	public static final int MAX_POOL_DEPTH = 2;
+
+	// The maximum number of recently used sets of parameters for which puzzles
+	// are kept in the pool.
+	public static final int MAX_PARAMETER_SETS = 3;
+
+	// Delimiters used to store the sets of parameters in the preferences.
+	private static final String PARAMETER_SET_DELIMITER = ";";
+	private static final String PARAMETER_DELIMITER = ",";
+
+	// Ids of the jobs which refill the pool. The constraints of a single job
+	// have to be met all, so a separate job is needed for each condition in
+	// which the pool may be refilled.
+	private static final int JOB_ID_REFILL_WHILE_CHARGING = 1;
+	private static final int JOB_ID_REFILL_WHILE_IDLE = 2;
+
+	/**
+	 * A set of parameters for which puzzles are kept in the pool.
+	 */
+	public static class ParameterSet {
+		public final int mGridSize;
+		public final boolean mHideOperators;
+		public final PuzzleComplexity mPuzzleComplexity;
+
+		public ParameterSet(int gridSize, boolean hideOperators,
+				PuzzleComplexity puzzleComplexity) {
+			mGridSize = gridSize;
+			mHideOperators = hideOperators;
+			mPuzzleComplexity = puzzleComplexity;
+		}
+
+		/**
+		 * Create a string representation of the parameter set which can be
+		 * used to store the parameter set.
+		 * 
+		 * @return A string representation of the parameter set.
+		 */
+		public String toStorageString() {
+			return mGridSize + PARAMETER_DELIMITER + mHideOperators
+					+ PARAMETER_DELIMITER + mPuzzleComplexity.toString();
+		}
+
+		/**
+		 * Creates a parameter set from a storage string which was created with
+		 * {@link #toStorageString()} before.
+		 * 
+		 * @param storageString
+		 *            The storage string to be converted.
+		 * @return The parameter set. Null in case the storage string is not
+		 *         valid.
+		 */
+		public static ParameterSet fromStorageString(String storageString) {
+			String[] parameters = storageString.split(PARAMETER_DELIMITER);
+			if (parameters.length != 3) {
+				return null;
+			}
+			try {
+				return new ParameterSet(Integer.parseInt(parameters[0]),
+						Boolean.parseBoolean(parameters[1]),
+						PuzzleComplexity.valueOf(parameters[2]));
+			} catch (IllegalArgumentException e) {
+				// Also catches the NumberFormatException.
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Takes a puzzle with the given parameters from the pool. The puzzle is
+	 * inserted into the database as a new grid. Regardless whether a puzzle is
+	 * available, the parameters are remembered as recently used and a refill
+	 * of the pool is scheduled.
+	 * 
+	 * @param context
+	 *            The context in which the pool is used.
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @param hideOperators
+	 *            True in case the operators are hidden.
+	 * @param puzzleComplexity
+	 *            The complexity of the puzzle.
+	 * @param generatorRevisionNumber
+	 *            The revision number of the generator which would be used to
+	 *            generate the grid in case no puzzle is available.
+	 * @return The grid which is taken from the pool. Null in case the pool
+	 *         does not contain a puzzle with the given parameters.
+	 */
+	public static Grid take(Context context, int gridSize,
+			boolean hideOperators, PuzzleComplexity puzzleComplexity,
+			int generatorRevisionNumber) {
+		addParameterSet(new ParameterSet(gridSize, hideOperators,
+				puzzleComplexity));
+
+		PuzzlePoolRow puzzlePoolRow = new PuzzlePoolDatabaseAdapter().take(
+				gridSize, hideOperators, puzzleComplexity,
+				generatorRevisionNumber);
+		scheduleRefill(context);
+		if (puzzlePoolRow == null) {
+			return null;
+		}
+
+		Grid grid = new Grid();
+		if (!grid.create(puzzlePoolRow)) {
+			Log.e(TAG, "Can not create grid from puzzle pool.");
+			return null;
+		}
+		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+			Log.i(TAG, "Took puzzle " + puzzlePoolRow.mId + " from pool.");
+		}
+		return grid;
+	}
+
+	/**
+	 * Get the sets of parameters for which puzzles are kept in the pool. The
+	 * most recently used set of parameters is returned first.
+	 * 
+	 * @return The sets of parameters for which puzzles are kept in the pool.
+	 */
+	public static ArrayList<ParameterSet> getParameterSets() {
+		ArrayList<ParameterSet> parameterSets = new ArrayList<ParameterSet>();
+		String storageString = Preferences.getInstance()
+				.getPuzzlePoolParameterSets();
+		if (storageString.isEmpty()) {
+			return parameterSets;
+		}
+		for (String parameterSetStorageString : storageString
+				.split(PARAMETER_SET_DELIMITER)) {
+			ParameterSet parameterSet = ParameterSet
+					.fromStorageString(parameterSetStorageString);
+			if (parameterSet != null) {
+				parameterSets.add(parameterSet);
+			}
+		}
+		return parameterSets;
+	}
+
+	/**
+	 * Marks the given set of parameters as the most recently used set of
+	 * parameters. Only the {@value #MAX_PARAMETER_SETS} most recently used sets
+	 * of parameters are remembered.
+	 */
+	private static void addParameterSet(ParameterSet parameterSet) {
+		String newStorageString = parameterSet.toStorageString();
+		StringBuilder storageString = new StringBuilder(newStorageString);
+		int count = 1;
+		for (ParameterSet oldParameterSet : getParameterSets()) {
+			String oldStorageString = oldParameterSet.toStorageString();
+			if (count < MAX_PARAMETER_SETS
+					&& !oldStorageString.equals(newStorageString)) {
+				storageString.append(PARAMETER_SET_DELIMITER + oldStorageString);
+				count++;
+			}
+		}
+		Preferences.getInstance().setPuzzlePoolParameterSets(
+				storageString.toString());
+	}
+
+	/**
+	 * Schedules the jobs which refill the pool. The pool is refilled as soon as
+	 * the device is either charging or idle.
+	 * 
+	 * @param context
+	 *            The context in which the jobs are scheduled.
+	 */
+	public static void scheduleRefill(Context context) {
+		JobScheduler jobScheduler = (JobScheduler) context
+				.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+		if (jobScheduler == null) {
+			return;
+		}
+		ComponentName puzzlePoolService = new ComponentName(context,
+				PuzzlePoolService.class);
+		jobScheduler.schedule(new JobInfo.Builder(
+				JOB_ID_REFILL_WHILE_CHARGING, puzzlePoolService)
+				.setRequiresCharging(true).build());
+		jobScheduler.schedule(new JobInfo.Builder(JOB_ID_REFILL_WHILE_IDLE,
+				puzzlePoolService).setRequiresDeviceIdle(true).build());
+	}
+}
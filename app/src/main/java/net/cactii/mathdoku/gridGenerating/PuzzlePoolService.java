@@ -0,0 +1,146 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import net.cactii.mathdoku.Preferences;
+import net.cactii.mathdoku.developmentHelper.DevelopmentHelper;
+import net.cactii.mathdoku.developmentHelper.DevelopmentHelper.Mode;
+import net.cactii.mathdoku.grid.Grid;
+import net.cactii.mathdoku.gridGenerating.PuzzlePool.ParameterSet;
+import net.cactii.mathdoku.painter.Painter;
+import net.cactii.mathdoku.storage.database.DatabaseHelper;
+import net.cactii.mathdoku.storage.database.PuzzlePoolDatabaseAdapter;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.content.pm.PackageInfo;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * The service which refills the {@link PuzzlePool}. Puzzles are generated one
+ * at a time on a background thread with a low priority. The service is started
+ * by the job scheduler while the device is charging or idle and stops
+ * generating as soon as the job is stopped.
+ */
+public class PuzzlePoolService extends JobService {
+	private static final String TAG = "MathDoku.PuzzlePoolService";
+
+	// Only one refill runs at a time, even when both the job for charging and
+	// the job for idle are started.
+	private static final Object mRefillLock = new Object();
+	private static boolean mRefillRunning = false;
+
+	// The generator which is currently generating a puzzle for the pool.
+	private volatile GridGenerator mGridGenerator;
+
+	// Whether the job has been stopped by the job scheduler.
+	private volatile boolean mStopped;
+
+	@Override
+	public boolean onStartJob(final JobParameters jobParameters) {
+		synchronized (mRefillLock) {
+			if (mRefillRunning) {
+				// The pool is already refilled by the other job.
+				return false;
+			}
+			mRefillRunning = true;
+		}
+
+		// Initialize global objects (singleton instances) in case the app is
+		// not running. The painter is needed by the cells of the generated
+		// grids.
+		Preferences.getInstance(this);
+		DatabaseHelper.getInstance(this);
+		Painter.getInstance();
+
+		// A plain thread is used instead of an AsyncTask as the AsyncTasks of
+		// the app are executed serially. A refill of the pool may never delay
+		// a puzzle which is generated on request of the user.
+		mStopped = false;
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+				boolean completed = refill();
+				synchronized (mRefillLock) {
+					mRefillRunning = false;
+				}
+				if (!mStopped) {
+					jobFinished(jobParameters, !completed);
+				}
+			}
+		}).start();
+
+		return true;
+	}
+
+	@Override
+	public boolean onStopJob(JobParameters jobParameters) {
+		mStopped = true;
+		GridGenerator gridGenerator = mGridGenerator;
+		if (gridGenerator != null) {
+			gridGenerator.cancel(false);
+		}
+
+		// Retry as soon as the device is charging or idle again.
+		return true;
+	}
+
+	/**
+	 * Generates puzzles until the pool contains the maximum number of puzzles
+	 * for each recently used set of parameters.
+	 * 
+	 * @return True in case the pool has been refilled. False in case the refill
+	 *         has been stopped before completion.
+	 */
+	private boolean refill() {
+		int generatorRevisionNumber = getGeneratorRevisionNumber();
+		PuzzlePoolDatabaseAdapter puzzlePoolDatabaseAdapter = new PuzzlePoolDatabaseAdapter();
+		puzzlePoolDatabaseAdapter.deleteOtherRevisions(generatorRevisionNumber);
+
+		for (ParameterSet parameterSet : PuzzlePool.getParameterSets()) {
+			while (puzzlePoolDatabaseAdapter.count(parameterSet.mGridSize,
+					parameterSet.mHideOperators,
+					parameterSet.mPuzzleComplexity, generatorRevisionNumber) < PuzzlePool.MAX_POOL_DEPTH) {
+				mGridGenerator = new GridGenerator(parameterSet.mGridSize,
+						parameterSet.mHideOperators,
+						parameterSet.mPuzzleComplexity,
+						generatorRevisionNumber, null);
+				if (mStopped) {
+					return false;
+				}
+				Grid grid = mGridGenerator.generateForPool();
+				mGridGenerator = null;
+				if (grid == null) {
+					return false;
+				}
+				if (puzzlePoolDatabaseAdapter.insert(grid) < 0) {
+					// Do not retry as the next puzzle can most likely not be
+					// inserted either.
+					Log.e(TAG, "Can not insert puzzle into pool.");
+					return true;
+				}
+				if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+					Log.i(TAG, "Added " + parameterSet.toStorageString()
+							+ " puzzle to pool.");
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the revision number of the generator, which equals the version
+	 * number of the app. The version number can not be retrieved from
+	 * {@link net.cactii.mathdoku.util.Util} as it is only initialized by an
+	 * activity.
+	 */
+	private int getGeneratorRevisionNumber() {
+		try {
+			PackageInfo packageInfo = getPackageManager().getPackageInfo(
+					getPackageName(), 0);
+			return packageInfo.versionCode;
+		} catch (Exception e) {
+			Log.e(TAG, "Package not found", e);
+			return -1;
+		}
+	}
+}
@@ -102,7 +102,7 @@ public class Painter {
 	 * 
 	 * @return The singleton reference to the GridPainter object.
 	 */
-	public static Painter getInstance() {
+	public static synchronized Painter getInstance() {
 		if (mPainterSingletonInstance == null) {
 			// Only the first time this method is called, the object will be
 			// created.
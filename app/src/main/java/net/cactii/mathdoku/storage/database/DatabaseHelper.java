@@ -170,6 +170,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 		GridDatabaseAdapter.create(db);
 		SolvingAttemptDatabaseAdapter.create(db);
 		StatisticsDatabaseAdapter.create(db);
+		PuzzlePoolDatabaseAdapter.create(db);
+		GridGeneratingTelemetryDatabaseAdapter.create(db);
 
 		// Enable foreign key constraints
 		db.execSQL("PRAGMA foreign_keys=ON;");
@@ -180,12 +182,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 		GridDatabaseAdapter.upgrade(db, oldVersion, newVersion);
 		SolvingAttemptDatabaseAdapter.upgrade(db, oldVersion, newVersion);
 		StatisticsDatabaseAdapter.upgrade(db, oldVersion, newVersion);
+		PuzzlePoolDatabaseAdapter.upgrade(db, oldVersion, newVersion);
+		GridGeneratingTelemetryDatabaseAdapter.upgrade(db, oldVersion,
+				newVersion);
 	}
 
 	public static boolean hasChangedTableDefinitions() {
 		return new GridDatabaseAdapter().isTableDefinitionChanged()
 				|| new StatisticsDatabaseAdapter().isTableDefinitionChanged()
 				|| new SolvingAttemptDatabaseAdapter()
+						.isTableDefinitionChanged()
+				|| new PuzzlePoolDatabaseAdapter().isTableDefinitionChanged()
+				|| new GridGeneratingTelemetryDatabaseAdapter()
 						.isTableDefinitionChanged();
 	}
 
@@ -39,11 +39,18 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 	protected static final String KEY_HIDE_OPERATORS = "hide_operators";
 	protected static final String KEY_MAX_CAGE_RESULT = "max_cage_result";
 	protected static final String KEY_MAX_CAGE_SIZE = "max_cage_size";
+	protected static final String KEY_DEFINITION_HASH = "definition_hash";
+	protected static final String KEY_RELAXATION_LEVEL = "relaxation_level";
+	protected static final String KEY_ATTEMPT_NUMBER = "attempt_number";
+
+	// Index on the hash of the definition
+	private static final String INDEX_DEFINITION_HASH = "grid_definition_hash";
 
 	private static final String[] allColumns = { KEY_ROWID, KEY_DEFINITION,
 			KEY_GRID_SIZE, KEY_DATE_CREATED, KEY_GAME_SEED,
 			KEY_GENERATOR_REVISION_NUMBER, KEY_PUZZLE_COMPLEXITY,
-			KEY_HIDE_OPERATORS, KEY_MAX_CAGE_RESULT, KEY_MAX_CAGE_SIZE };
+			KEY_HIDE_OPERATORS, KEY_MAX_CAGE_RESULT, KEY_MAX_CAGE_SIZE,
+			KEY_RELAXATION_LEVEL, KEY_ATTEMPT_NUMBER };
 
 	// Columns used in result of function getLatestSolvingAttemptsPerGrid
 	public static final int LATEST_SOLVING_ATTEMPT_PER_GRID__GRID_ID = 0;
@@ -86,7 +93,29 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 				createColumn(KEY_PUZZLE_COMPLEXITY, "string", null),
 				createColumn(KEY_HIDE_OPERATORS, "string", null),
 				createColumn(KEY_MAX_CAGE_RESULT, "integer", null),
-				createColumn(KEY_MAX_CAGE_SIZE, "integer", null));
+				createColumn(KEY_MAX_CAGE_SIZE, "integer", null),
+				// The hash of the definition is used to check quickly whether
+				// a definition exists. This column has to be the last column
+				// as it has been added with an alter table statement.
+				createColumn(KEY_DEFINITION_HASH, "long", null),
+				// The relaxation level and attempt number are needed to
+				// reproduce a grid which has been generated close to the
+				// deadline. These columns have been added with an alter table
+				// statement as well.
+				createColumn(KEY_RELAXATION_LEVEL, "integer", null),
+				createColumn(KEY_ATTEMPT_NUMBER, "integer", null));
+	}
+
+	/**
+	 * Builds the SQL create statement for the index on the hash of the
+	 * definition.
+	 * 
+	 * @return The SQL create statement for the index.
+	 */
+	private static String buildCreateIndexDefinitionHashSQL() {
+		return "CREATE INDEX " + stringBetweenBackTicks(INDEX_DEFINITION_HASH)
+				+ " ON " + stringBetweenBackTicks(TABLE) + " ("
+				+ stringBetweenBackTicks(KEY_DEFINITION_HASH) + ")";
 	}
 
 	/*
@@ -113,6 +142,7 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 
 		// Execute create statement
 		db.execSQL(sql);
+		db.execSQL(buildCreateIndexDefinitionHashSQL());
 	}
 
 	/**
@@ -139,6 +169,42 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 			}
 			create(db);
 		}
+		if (oldVersion >= 432 && oldVersion < 603 && newVersion >= 603) {
+			// Add the hash of the definition. The statement is built in such
+			// a way that the resulting table definition equals the table
+			// definition of a newly created table.
+			db.execSQL("ALTER TABLE " + stringBetweenBackTicks(TABLE)
+					+ " ADD COLUMN "
+					+ createColumn(KEY_DEFINITION_HASH, "long", null));
+			db.execSQL(buildCreateIndexDefinitionHashSQL());
+
+			// Compute the hash for all existing grids.
+			Cursor cursor = db.query(TABLE, new String[] { KEY_ROWID,
+					KEY_DEFINITION }, null, null, null, null, null);
+			try {
+				if (cursor.moveToFirst()) {
+					do {
+						ContentValues contentValues = new ContentValues();
+						contentValues.put(KEY_DEFINITION_HASH, Grid
+								.toGridDefinitionHash(cursor.getString(1)));
+						db.update(TABLE, contentValues,
+								KEY_ROWID + " = " + cursor.getInt(0), null);
+					} while (cursor.moveToNext());
+				}
+			} finally {
+				cursor.close();
+			}
+		}
+		if (oldVersion >= 432 && oldVersion < 605 && newVersion >= 605) {
+			// Add the relaxation level and the attempt number. Both columns
+			// will be null for existing grids.
+			db.execSQL("ALTER TABLE " + stringBetweenBackTicks(TABLE)
+					+ " ADD COLUMN "
+					+ createColumn(KEY_RELAXATION_LEVEL, "integer", null));
+			db.execSQL("ALTER TABLE " + stringBetweenBackTicks(TABLE)
+					+ " ADD COLUMN "
+					+ createColumn(KEY_ATTEMPT_NUMBER, "integer", null));
+		}
 	}
 
 	/**
@@ -163,8 +229,10 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 			throw new InvalidParameterException(
 					"Definition of grid is not unique.");
 		}
+		long gridDefinitionHash = Grid.toGridDefinitionHash(gridDefinition);
 		ContentValues initialValues = new ContentValues();
 		initialValues.put(KEY_DEFINITION, gridDefinition);
+		initialValues.put(KEY_DEFINITION_HASH, gridDefinitionHash);
 		initialValues.put(KEY_GRID_SIZE, grid.getGridSize());
 		initialValues.put(KEY_DATE_CREATED,
 				toSQLiteTimestamp(grid.getDateCreated()));
@@ -181,6 +249,10 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 				gridGeneratingParameters.mMaxCageResult);
 		initialValues.put(KEY_MAX_CAGE_SIZE,
 				gridGeneratingParameters.mMaxCageSize);
+		initialValues.put(KEY_RELAXATION_LEVEL,
+				gridGeneratingParameters.mRelaxationLevel);
+		initialValues.put(KEY_ATTEMPT_NUMBER,
+				gridGeneratingParameters.mAttemptNumber);
 
 		try {
 			id = (int) mSqliteDatabase
@@ -191,6 +263,16 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 			ipe.initCause(e);
 			throw ipe;
 		}
+		if (id >= 0) {
+			GridDefinitionFilter.onGridInserted(gridDefinitionHash);
+
+			// Store the telemetry of the generation in case it is available.
+			// Failing to store the telemetry does not affect the grid.
+			if (gridGeneratingParameters.mGridGeneratingTelemetry != null) {
+				new GridGeneratingTelemetryDatabaseAdapter().insert(id,
+						gridGeneratingParameters.mGridGeneratingTelemetry);
+			}
+		}
 		return id;
 	}
 
@@ -249,6 +331,67 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 		return gridRow;
 	}
 
+	/**
+	 * Checks whether a grid with the given definition exists. The hash of the
+	 * definition is used to find the grid using the index on the hash.
+	 * 
+	 * @param definitionHash
+	 *            The hash of the grid definition.
+	 * @param definition
+	 *            The grid definition.
+	 * @return True in case a grid with the given definition exists. False
+	 *         otherwise.
+	 */
+	public boolean existsGridDefinition(long definitionHash, String definition) {
+		Cursor cursor = null;
+		try {
+			cursor = mSqliteDatabase.query(TABLE, new String[] { KEY_ROWID },
+					KEY_DEFINITION_HASH + " = " + definitionHash + " AND "
+							+ KEY_DEFINITION + " = "
+							+ stringBetweenQuotes(definition), null, null,
+					null, null, "1");
+			return cursor.moveToFirst();
+		} catch (SQLiteException e) {
+			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+				e.printStackTrace();
+			}
+			return false;
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+	}
+
+	/**
+	 * Get the hashes of the definitions of all grids.
+	 * 
+	 * @return The hashes of the definitions of all grids.
+	 */
+	public long[] getGridDefinitionHashes() {
+		long[] hashes = new long[0];
+		Cursor cursor = null;
+		try {
+			cursor = mSqliteDatabase.query(TABLE,
+					new String[] { KEY_DEFINITION_HASH }, KEY_DEFINITION_HASH
+							+ " IS NOT NULL", null, null, null, null);
+			hashes = new long[cursor.getCount()];
+			int i = 0;
+			while (cursor.moveToNext()) {
+				hashes[i++] = cursor.getLong(0);
+			}
+		} catch (SQLiteException e) {
+			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+				e.printStackTrace();
+			}
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+		return hashes;
+	}
+
 	/**
 	 * Convert first record in the given cursor to a GridRow object.
 	 * 
@@ -289,6 +432,10 @@ public class GridDatabaseAdapter extends DatabaseAdapter {
 				.getColumnIndexOrThrow(KEY_MAX_CAGE_RESULT));
 		gridRow.mGridGeneratingParameters.mMaxCageSize = cursor.getInt(cursor
 				.getColumnIndexOrThrow(KEY_MAX_CAGE_SIZE));
+		gridRow.mGridGeneratingParameters.mRelaxationLevel = cursor
+				.getInt(cursor.getColumnIndexOrThrow(KEY_RELAXATION_LEVEL));
+		gridRow.mGridGeneratingParameters.mAttemptNumber = cursor.getInt(cursor
+				.getColumnIndexOrThrow(KEY_ATTEMPT_NUMBER));
 
 		return gridRow;
 	}
@@ -0,0 +1,148 @@
+package net.cactii.mathdoku.storage.database;
+
+/**
+ * In-memory set of the hashes of all grid definitions stored in the database.
+ * The grid generator checks each candidate grid against this set so the
+ * database only has to be queried in case the hash of the candidate is found.
+ * As a hash can collide, a hit in this set only means that the definition
+ * might exist in the database.
+ * 
+ * The hashes are stored in an open addressing table of primitive longs to
+ * avoid boxing each hash.
+ */
+public class GridDefinitionFilter {
+
+	// Minimum capacity of the hash table. Must be a power of 2.
+	private static final int MIN_CAPACITY = 256;
+
+	// Hash 0 is used to mark an empty slot in the table. The hash 0 itself is
+	// tracked separately.
+	private static final long EMPTY = 0L;
+
+	// The singleton instance. Null as long as the hashes have not been loaded.
+	private static GridDefinitionFilter mGridDefinitionFilterSingletonInstance = null;
+
+	// The hash table
+	private long[] mTable;
+	private int mMask;
+	private int mCount;
+	private boolean mContainsEmpty;
+
+	/**
+	 * Creates a new instance of {@link GridDefinitionFilter} containing the
+	 * given hashes.
+	 */
+	private GridDefinitionFilter(long[] hashes) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < hashes.length * 2) {
+			capacity *= 2;
+		}
+		mTable = new long[capacity];
+		mMask = capacity - 1;
+		mCount = 0;
+		mContainsEmpty = false;
+		for (long hash : hashes) {
+			add(hash);
+		}
+	}
+
+	/**
+	 * Gets the singleton reference to the filter. The hashes are loaded from
+	 * the database when the filter is used for the first time. So the first
+	 * call should not be made on the UI thread.
+	 * 
+	 * @return The filter containing the hashes of all grid definitions.
+	 */
+	public static synchronized GridDefinitionFilter getInstance() {
+		if (mGridDefinitionFilterSingletonInstance == null) {
+			mGridDefinitionFilterSingletonInstance = new GridDefinitionFilter(
+					new GridDatabaseAdapter().getGridDefinitionHashes());
+		}
+		return mGridDefinitionFilterSingletonInstance;
+	}
+
+	/**
+	 * Registers the hash of a grid definition which has been inserted into the
+	 * database. Nothing has to be done in case the filter has not yet been
+	 * loaded as the hash will be loaded from the database later.
+	 * 
+	 * @param hash
+	 *            The hash of the grid definition.
+	 */
+	static synchronized void onGridInserted(long hash) {
+		if (mGridDefinitionFilterSingletonInstance != null) {
+			mGridDefinitionFilterSingletonInstance.add(hash);
+		}
+	}
+
+	/**
+	 * Discards the loaded hashes. The hashes will be reloaded from the
+	 * database when the filter is used again.
+	 */
+	public static synchronized void reset() {
+		mGridDefinitionFilterSingletonInstance = null;
+	}
+
+	/**
+	 * Checks whether a grid definition with the given hash might exist in the
+	 * database.
+	 * 
+	 * @param hash
+	 *            The hash of the grid definition.
+	 * @return False in case no grid definition with this hash exists. True in
+	 *         case a grid definition with this hash might exist.
+	 */
+	public synchronized boolean mightContain(long hash) {
+		if (hash == EMPTY) {
+			return mContainsEmpty;
+		}
+		for (int slot = getSlot(hash);; slot = (slot + 1) & mMask) {
+			if (mTable[slot] == hash) {
+				return true;
+			}
+			if (mTable[slot] == EMPTY) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Adds a hash to the table.
+	 */
+	private synchronized void add(long hash) {
+		if (hash == EMPTY) {
+			mContainsEmpty = true;
+			return;
+		}
+		int slot = getSlot(hash);
+		while (mTable[slot] != EMPTY) {
+			if (mTable[slot] == hash) {
+				return;
+			}
+			slot = (slot + 1) & mMask;
+		}
+		mTable[slot] = hash;
+		mCount++;
+
+		// Keep the table at most half full so a lookup hardly ever needs more
+		// than one or two probes.
+		if (mCount * 2 > mTable.length) {
+			long[] oldTable = mTable;
+			mTable = new long[oldTable.length * 2];
+			mMask = mTable.length - 1;
+			mCount = 0;
+			for (long oldHash : oldTable) {
+				if (oldHash != EMPTY) {
+					add(oldHash);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the first slot in the table to be probed for the given hash.
+	 */
+	private int getSlot(long hash) {
+		return (int) (hash ^ (hash >>> 32)) & mMask;
+	}
+}
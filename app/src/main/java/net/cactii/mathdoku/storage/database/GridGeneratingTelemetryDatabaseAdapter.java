@@ -0,0 +1,356 @@
+package net.cactii.mathdoku.storage.database;
+
+import net.cactii.mathdoku.developmentHelper.DevelopmentHelper;
+import net.cactii.mathdoku.developmentHelper.DevelopmentHelper.Mode;
+import net.cactii.mathdoku.gridGenerating.GridGeneratingTelemetry;
+import net.cactii.mathdoku.storage.database.Projection.Aggregation;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.util.Log;
+
+/**
+ * The database adapter for the grid generating telemetry table. For each grid
+ * which has been generated on this device at most one telemetry record exists.
+ * No telemetry exists for historic grids and for grids generated before the
+ * telemetry was introduced.
+ */
+public class GridGeneratingTelemetryDatabaseAdapter extends DatabaseAdapter {
+	private static final String TAG = "MathDoku.GridGeneratingTelemetryDatabaseAdapter";
+
+	public static final boolean DEBUG_SQL = (DevelopmentHelper.mMode == Mode.DEVELOPMENT) && false;
+
+	// Columns for table grid generating telemetry
+	private static final String TABLE = "grid_generating_telemetry";
+	private static final String KEY_GRID_ID = "grid_id";
+	private static final String KEY_ATTEMPTS = "attempts";
+	private static final String KEY_RANDOMISE_GRID_NANOS = "randomise_grid_nanos";
+	private static final String KEY_CREATE_CAGES_NANOS = "create_cages_nanos";
+	private static final String KEY_UNIQUE_SOLUTION_NANOS = "unique_solution_nanos";
+	private static final String KEY_REJECTED_TOO_MANY_SINGLE_CELL_CAGES = "rejected_too_many_single_cell_cages";
+	private static final String KEY_REJECTED_OVERLAPPING_SUBSET = "rejected_overlapping_subset";
+	private static final String KEY_REJECTED_TOO_MANY_PERMUTATIONS = "rejected_too_many_permutations";
+	private static final String KEY_REJECTED_GENERATED_BEFORE = "rejected_generated_before";
+	private static final String KEY_NO_UNIQUE_SOLUTION = "no_unique_solution";
+	private static final String KEY_AMBIGUITY_REPAIRS = "ambiguity_repairs";
+	private static final String KEY_SOLVER_NODES_VISITED = "solver_nodes_visited";
+	private static final String KEY_SOLVER_BACKTRACKS = "solver_backtracks";
+	private static final String KEY_ELAPSED_MILLIS = "elapsed_millis";
+
+	private static final String[] allColumns = { KEY_GRID_ID, KEY_ATTEMPTS,
+			KEY_RANDOMISE_GRID_NANOS, KEY_CREATE_CAGES_NANOS,
+			KEY_UNIQUE_SOLUTION_NANOS, KEY_REJECTED_TOO_MANY_SINGLE_CELL_CAGES,
+			KEY_REJECTED_OVERLAPPING_SUBSET,
+			KEY_REJECTED_TOO_MANY_PERMUTATIONS, KEY_REJECTED_GENERATED_BEFORE,
+			KEY_NO_UNIQUE_SOLUTION, KEY_AMBIGUITY_REPAIRS,
+			KEY_SOLVER_NODES_VISITED, KEY_SOLVER_BACKTRACKS,
+			KEY_ELAPSED_MILLIS };
+
+	// Columns which are averaged and columns which are summed in the summary
+	// of the telemetry.
+	private static final String[] summaryAverageColumns = { KEY_ATTEMPTS,
+			KEY_ELAPSED_MILLIS, KEY_RANDOMISE_GRID_NANOS,
+			KEY_CREATE_CAGES_NANOS, KEY_UNIQUE_SOLUTION_NANOS,
+			KEY_SOLVER_NODES_VISITED };
+	private static final String[] summarySumColumns = {
+			KEY_REJECTED_TOO_MANY_SINGLE_CELL_CAGES,
+			KEY_REJECTED_OVERLAPPING_SUBSET,
+			KEY_REJECTED_TOO_MANY_PERMUTATIONS, KEY_REJECTED_GENERATED_BEFORE,
+			KEY_NO_UNIQUE_SOLUTION, KEY_AMBIGUITY_REPAIRS };
+
+	@Override
+	protected String getTableName() {
+		return TABLE;
+	}
+
+	/**
+	 * Builds the SQL create statement for this table.
+	 * 
+	 * @return The SQL create statement for this table.
+	 */
+	protected static String buildCreateSQL() {
+		return createTable(
+				TABLE,
+				createColumn(KEY_GRID_ID, "integer", "primary key"),
+				createColumn(KEY_ATTEMPTS, "integer", "not null"),
+				createColumn(KEY_RANDOMISE_GRID_NANOS, "long", "not null"),
+				createColumn(KEY_CREATE_CAGES_NANOS, "long", "not null"),
+				createColumn(KEY_UNIQUE_SOLUTION_NANOS, "long", "not null"),
+				createColumn(KEY_REJECTED_TOO_MANY_SINGLE_CELL_CAGES,
+						"integer", "not null"),
+				createColumn(KEY_REJECTED_OVERLAPPING_SUBSET, "integer",
+						"not null"),
+				createColumn(KEY_REJECTED_TOO_MANY_PERMUTATIONS, "integer",
+						"not null"),
+				createColumn(KEY_REJECTED_GENERATED_BEFORE, "integer",
+						"not null"),
+				createColumn(KEY_NO_UNIQUE_SOLUTION, "integer", "not null"),
+				createColumn(KEY_AMBIGUITY_REPAIRS, "integer", "not null"),
+				createColumn(KEY_SOLVER_NODES_VISITED, "long", "not null"),
+				createColumn(KEY_SOLVER_BACKTRACKS, "long", "not null"),
+				createColumn(KEY_ELAPSED_MILLIS, "long", "not null"),
+				createForeignKey(KEY_GRID_ID, GridDatabaseAdapter.TABLE,
+						GridDatabaseAdapter.KEY_ROWID));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.cactii.mathdoku.storage.database.DatabaseAdapter#getCreateSQL()
+	 */
+	@Override
+	protected String getCreateSQL() {
+		return buildCreateSQL();
+	}
+
+	/**
+	 * Creates the table.
+	 * 
+	 * @param db
+	 *            The database in which the table has to be created.
+	 */
+	protected static void create(SQLiteDatabase db) {
+		String sql = buildCreateSQL();
+		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+			Log.i(TAG, sql);
+		}
+
+		// Execute create statement
+		db.execSQL(sql);
+	}
+
+	/**
+	 * Upgrades the table to an other version.
+	 * 
+	 * @param db
+	 *            The database in which the table has to be updated.
+	 * @param oldVersion
+	 *            The old version of the database. Use the app revision number
+	 *            to identify the database version.
+	 * @param newVersion
+	 *            The new version of the database. Use the app revision number
+	 *            to identify the database version.
+	 */
+	protected static void upgrade(SQLiteDatabase db, int oldVersion,
+			int newVersion) {
+		if (oldVersion < 606 && newVersion >= 606) {
+			// The table did not exist before this version.
+			create(db);
+		}
+	}
+
+	/**
+	 * Inserts the telemetry for a grid into the database.
+	 * 
+	 * @param gridId
+	 *            The id of the grid for which the telemetry is inserted.
+	 * @param gridGeneratingTelemetry
+	 *            The telemetry of the generation of the grid.
+	 * @return True in case the telemetry has been inserted. False otherwise.
+	 */
+	public boolean insert(int gridId,
+			GridGeneratingTelemetry gridGeneratingTelemetry) {
+		ContentValues initialValues = new ContentValues();
+		initialValues.put(KEY_GRID_ID, gridId);
+		initialValues.put(KEY_ATTEMPTS, gridGeneratingTelemetry.mAttempts);
+		initialValues.put(KEY_RANDOMISE_GRID_NANOS,
+				gridGeneratingTelemetry.mRandomiseGridNanos);
+		initialValues.put(KEY_CREATE_CAGES_NANOS,
+				gridGeneratingTelemetry.mCreateCagesNanos);
+		initialValues.put(KEY_UNIQUE_SOLUTION_NANOS,
+				gridGeneratingTelemetry.mUniqueSolutionNanos);
+		initialValues.put(KEY_REJECTED_TOO_MANY_SINGLE_CELL_CAGES,
+				gridGeneratingTelemetry.mRejectedTooManySingleCellCages);
+		initialValues.put(KEY_REJECTED_OVERLAPPING_SUBSET,
+				gridGeneratingTelemetry.mRejectedOverlappingSubset);
+		initialValues.put(KEY_REJECTED_TOO_MANY_PERMUTATIONS,
+				gridGeneratingTelemetry.mRejectedTooManyPermutations);
+		initialValues.put(KEY_REJECTED_GENERATED_BEFORE,
+				gridGeneratingTelemetry.mRejectedGeneratedBefore);
+		initialValues.put(KEY_NO_UNIQUE_SOLUTION,
+				gridGeneratingTelemetry.mNoUniqueSolution);
+		initialValues.put(KEY_AMBIGUITY_REPAIRS,
+				gridGeneratingTelemetry.mAmbiguityRepairs);
+		initialValues.put(KEY_SOLVER_NODES_VISITED,
+				gridGeneratingTelemetry.mSolverNodesVisited);
+		initialValues.put(KEY_SOLVER_BACKTRACKS,
+				gridGeneratingTelemetry.mSolverBacktracks);
+		initialValues.put(KEY_ELAPSED_MILLIS,
+				gridGeneratingTelemetry.mElapsedMillis);
+
+		try {
+			return (mSqliteDatabase.insertOrThrow(TABLE, null, initialValues) >= 0);
+		} catch (SQLiteException e) {
+			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+				e.printStackTrace();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Get the telemetry for the given grid.
+	 * 
+	 * @param gridId
+	 *            The id of the grid for which the telemetry has to be
+	 *            retrieved.
+	 * @return The telemetry of the grid. Null in case no telemetry exists for
+	 *         the grid or in case of an error.
+	 */
+	public GridGeneratingTelemetry get(int gridId) {
+		Cursor cursor = null;
+		try {
+			cursor = mSqliteDatabase.query(true, TABLE, allColumns,
+					KEY_GRID_ID + "=" + gridId, null, null, null, null, null);
+			if (cursor == null || !cursor.moveToFirst()) {
+				return null;
+			}
+
+			GridGeneratingTelemetry gridGeneratingTelemetry = new GridGeneratingTelemetry();
+			gridGeneratingTelemetry.mAttempts = cursor.getInt(cursor
+					.getColumnIndexOrThrow(KEY_ATTEMPTS));
+			gridGeneratingTelemetry.mRandomiseGridNanos = cursor
+					.getLong(cursor
+							.getColumnIndexOrThrow(KEY_RANDOMISE_GRID_NANOS));
+			gridGeneratingTelemetry.mCreateCagesNanos = cursor.getLong(cursor
+					.getColumnIndexOrThrow(KEY_CREATE_CAGES_NANOS));
+			gridGeneratingTelemetry.mUniqueSolutionNanos = cursor
+					.getLong(cursor
+							.getColumnIndexOrThrow(KEY_UNIQUE_SOLUTION_NANOS));
+			gridGeneratingTelemetry.mRejectedTooManySingleCellCages = cursor
+					.getInt(cursor
+							.getColumnIndexOrThrow(KEY_REJECTED_TOO_MANY_SINGLE_CELL_CAGES));
+			gridGeneratingTelemetry.mRejectedOverlappingSubset = cursor
+					.getInt(cursor
+							.getColumnIndexOrThrow(KEY_REJECTED_OVERLAPPING_SUBSET));
+			gridGeneratingTelemetry.mRejectedTooManyPermutations = cursor
+					.getInt(cursor
+							.getColumnIndexOrThrow(KEY_REJECTED_TOO_MANY_PERMUTATIONS));
+			gridGeneratingTelemetry.mRejectedGeneratedBefore = cursor
+					.getInt(cursor
+							.getColumnIndexOrThrow(KEY_REJECTED_GENERATED_BEFORE));
+			gridGeneratingTelemetry.mNoUniqueSolution = cursor.getInt(cursor
+					.getColumnIndexOrThrow(KEY_NO_UNIQUE_SOLUTION));
+			gridGeneratingTelemetry.mAmbiguityRepairs = cursor.getInt(cursor
+					.getColumnIndexOrThrow(KEY_AMBIGUITY_REPAIRS));
+			gridGeneratingTelemetry.mSolverNodesVisited = cursor
+					.getLong(cursor
+							.getColumnIndexOrThrow(KEY_SOLVER_NODES_VISITED));
+			gridGeneratingTelemetry.mSolverBacktracks = cursor.getLong(cursor
+					.getColumnIndexOrThrow(KEY_SOLVER_BACKTRACKS));
+			gridGeneratingTelemetry.mElapsedMillis = cursor.getLong(cursor
+					.getColumnIndexOrThrow(KEY_ELAPSED_MILLIS));
+			return gridGeneratingTelemetry;
+		} catch (SQLiteException e) {
+			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+				e.printStackTrace();
+			}
+			return null;
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+	}
+
+	/**
+	 * Get a summary of the telemetry per grid size and puzzle complexity. For
+	 * each combination the number of grids, the average effort and the total
+	 * number of rejections are listed. Only to be used in development mode.
+	 * 
+	 * @return The summary of the telemetry. Null in case of an error.
+	 */
+	public String getSummary() {
+		Projection projection = new Projection();
+		projection.put(GridDatabaseAdapter.KEY_GRID_SIZE,
+				GridDatabaseAdapter.TABLE, GridDatabaseAdapter.KEY_GRID_SIZE);
+		projection.put(GridDatabaseAdapter.KEY_PUZZLE_COMPLEXITY,
+				GridDatabaseAdapter.TABLE,
+				GridDatabaseAdapter.KEY_PUZZLE_COMPLEXITY);
+		projection.put(Aggregation.COUNT, TABLE, KEY_GRID_ID);
+		for (String column : summaryAverageColumns) {
+			projection.put(Aggregation.AVG, TABLE, column);
+		}
+		for (String column : summarySumColumns) {
+			projection.put(Aggregation.SUM, TABLE, column);
+		}
+
+		SQLiteQueryBuilder sqliteQueryBuilder = new SQLiteQueryBuilder();
+		sqliteQueryBuilder.setProjectionMap(projection);
+		sqliteQueryBuilder.setTables(GridDatabaseAdapter.TABLE
+				+ " INNER JOIN "
+				+ TABLE
+				+ " ON "
+				+ GridDatabaseAdapter
+						.getPrefixedColumnName(GridDatabaseAdapter.KEY_ROWID)
+				+ " = " + TABLE + "." + KEY_GRID_ID);
+		String groupBy = GridDatabaseAdapter
+				.getPrefixedColumnName(GridDatabaseAdapter.KEY_GRID_SIZE)
+				+ ", "
+				+ GridDatabaseAdapter
+						.getPrefixedColumnName(GridDatabaseAdapter.KEY_PUZZLE_COMPLEXITY);
+
+		if (DEBUG_SQL) {
+			String sql = sqliteQueryBuilder.buildQuery(
+					projection.getAllColumnNames(), null, groupBy, null,
+					groupBy, null);
+			Log.i(TAG, sql);
+		}
+
+		StringBuilder summary = new StringBuilder();
+		Cursor cursor = null;
+		try {
+			cursor = sqliteQueryBuilder.query(mSqliteDatabase,
+					projection.getAllColumnNames(), null, null, groupBy, null,
+					groupBy);
+			if (cursor == null || !cursor.moveToFirst()) {
+				return "No telemetry available. Generate some games first.";
+			}
+			do {
+				summary.append(cursor.getInt(cursor
+						.getColumnIndexOrThrow(GridDatabaseAdapter.KEY_GRID_SIZE)));
+				summary.append("x");
+				summary.append(cursor.getInt(cursor
+						.getColumnIndexOrThrow(GridDatabaseAdapter.KEY_GRID_SIZE)));
+				summary.append(" ");
+				summary.append(cursor.getString(cursor
+						.getColumnIndexOrThrow(GridDatabaseAdapter.KEY_PUZZLE_COMPLEXITY)));
+				summary.append(": ");
+				summary.append(cursor.getInt(cursor
+						.getColumnIndexOrThrow(projection.getAggregatedKey(
+								Aggregation.COUNT, KEY_GRID_ID))));
+				summary.append(" grids\n");
+				for (String column : summaryAverageColumns) {
+					summary.append(" - avg ");
+					summary.append(column);
+					summary.append(": ");
+					summary.append(cursor.getLong(cursor
+							.getColumnIndexOrThrow(projection
+									.getAggregatedKey(Aggregation.AVG, column))));
+					summary.append("\n");
+				}
+				for (String column : summarySumColumns) {
+					summary.append(" - total ");
+					summary.append(column);
+					summary.append(": ");
+					summary.append(cursor.getLong(cursor
+							.getColumnIndexOrThrow(projection
+									.getAggregatedKey(Aggregation.SUM, column))));
+					summary.append("\n");
+				}
+			} while (cursor.moveToNext());
+		} catch (SQLiteException e) {
+			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+				e.printStackTrace();
+			}
+			return null;
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+		return summary.toString();
+	}
+}
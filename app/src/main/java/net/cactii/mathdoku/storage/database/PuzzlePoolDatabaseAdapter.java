@@ -0,0 +1,341 @@
+package net.cactii.mathdoku.storage.database;
+
+import net.cactii.mathdoku.developmentHelper.DevelopmentHelper;
+import net.cactii.mathdoku.developmentHelper.DevelopmentHelper.Mode;
+import net.cactii.mathdoku.grid.Grid;
+import net.cactii.mathdoku.gridGenerating.GridGeneratingParameters;
+import net.cactii.mathdoku.gridGenerating.GridGeneratingTelemetry;
+import net.cactii.mathdoku.gridGenerating.GridGenerator.PuzzleComplexity;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+/**
+ * The database adapter for the puzzle pool table. The puzzle pool contains
+ * puzzles which are generated in the background before they are requested by
+ * the user. A puzzle is removed from the pool as soon as it is taken. At that
+ * moment it is inserted into the grid table just like a puzzle which is
+ * generated on request of the user.
+ */
+public class PuzzlePoolDatabaseAdapter extends DatabaseAdapter {
+	private static final String TAG = "MathDoku.PuzzlePoolDatabaseAdapter";
+
+	// Remove "&& false" in following line to show the SQL-statements in the
+	// debug information
+	public static final boolean DEBUG_SQL = (DevelopmentHelper.mMode == Mode.DEVELOPMENT) && false;
+
+	// Columns for table puzzle pool
+	protected static final String TABLE = "puzzle_pool";
+	protected static final String KEY_ROWID = "_id";
+	protected static final String KEY_GRID_SIZE = "grid_size";
+	protected static final String KEY_DATE_CREATED = "date_created";
+	protected static final String KEY_GAME_SEED = "game_seed";
+	protected static final String KEY_GENERATOR_REVISION_NUMBER = "generator_revision_number";
+	protected static final String KEY_PUZZLE_COMPLEXITY = "puzzle_complexity";
+	protected static final String KEY_HIDE_OPERATORS = "hide_operators";
+	protected static final String KEY_MAX_CAGE_RESULT = "max_cage_result";
+	protected static final String KEY_MAX_CAGE_SIZE = "max_cage_size";
+	protected static final String KEY_RELAXATION_LEVEL = "relaxation_level";
+	protected static final String KEY_ATTEMPT_NUMBER = "attempt_number";
+	protected static final String KEY_GRID_GENERATING_TELEMETRY = "grid_generating_telemetry";
+	protected static final String KEY_DATA = "data";
+
+	private static final String[] allColumns = { KEY_ROWID, KEY_GRID_SIZE,
+			KEY_DATE_CREATED, KEY_GAME_SEED, KEY_GENERATOR_REVISION_NUMBER,
+			KEY_PUZZLE_COMPLEXITY, KEY_HIDE_OPERATORS, KEY_MAX_CAGE_RESULT,
+			KEY_MAX_CAGE_SIZE, KEY_RELAXATION_LEVEL, KEY_ATTEMPT_NUMBER,
+			KEY_GRID_GENERATING_TELEMETRY, KEY_DATA };
+
+	@Override
+	protected String getTableName() {
+		return TABLE;
+	}
+
+	/**
+	 * Builds the SQL create statement for this table.
+	 * 
+	 * @return The SQL create statement for this table.
+	 */
+	protected static String buildCreateSQL() {
+		return createTable(
+				TABLE,
+				createColumn(KEY_ROWID, "integer", "primary key autoincrement"),
+				createColumn(KEY_GRID_SIZE, "integer", " not null"),
+				createColumn(KEY_DATE_CREATED, "datetime", "not null"),
+				createColumn(KEY_GAME_SEED, "long", "not null"),
+				createColumn(KEY_GENERATOR_REVISION_NUMBER, "integer",
+						"not null"),
+				createColumn(KEY_PUZZLE_COMPLEXITY, "string", "not null"),
+				createColumn(KEY_HIDE_OPERATORS, "string", "not null"),
+				createColumn(KEY_MAX_CAGE_RESULT, "integer", "not null"),
+				createColumn(KEY_MAX_CAGE_SIZE, "integer", "not null"),
+				createColumn(KEY_RELAXATION_LEVEL, "integer", "not null"),
+				createColumn(KEY_ATTEMPT_NUMBER, "integer", "not null"),
+				// The telemetry is stored with the puzzle so it can be stored
+				// with the grid as soon as the puzzle is taken from the pool.
+				createColumn(KEY_GRID_GENERATING_TELEMETRY, "string", null),
+				createColumn(KEY_DATA, "string", "not null"));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.cactii.mathdoku.storage.database.DatabaseAdapter#getCreateSQL()
+	 */
+	@Override
+	protected String getCreateSQL() {
+		return buildCreateSQL();
+	}
+
+	/**
+	 * Creates the table.
+	 * 
+	 * @param db
+	 *            The database in which the table has to be created.
+	 */
+	protected static void create(SQLiteDatabase db) {
+		String sql = buildCreateSQL();
+		if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+			Log.i(TAG, sql);
+		}
+
+		// Execute create statement
+		db.execSQL(sql);
+	}
+
+	/**
+	 * Upgrades the table to an other version.
+	 * 
+	 * @param db
+	 *            The database in which the table has to be updated.
+	 * @param oldVersion
+	 *            The old version of the database. Use the app revision number
+	 *            to identify the database version.
+	 * @param newVersion
+	 *            The new version of the database. Use the app revision number
+	 *            to identify the database version.
+	 */
+	protected static void upgrade(SQLiteDatabase db, int oldVersion,
+			int newVersion) {
+		// The pool only contains puzzles which can be regenerated at any time.
+		// On each upgrade the table is simply dropped and recreated so that
+		// puzzles generated by an older version of the generator are
+		// discarded.
+		try {
+			String sql = "DROP TABLE " + TABLE;
+			if (DEBUG_SQL) {
+				Log.i(TAG, sql);
+			}
+			db.execSQL(sql);
+		} catch (SQLiteException e) {
+			// Table does not exist
+		}
+		create(db);
+	}
+
+	/**
+	 * Inserts a new puzzle into the pool.
+	 * 
+	 * @param grid
+	 *            The grid which has to be inserted into the pool. The grid may
+	 *            not yet have been inserted into the grid table.
+	 * @return The unique rowid of the puzzle created. -1 in case of an error.
+	 */
+	public int insert(Grid grid) {
+		ContentValues initialValues = new ContentValues();
+		initialValues.put(KEY_GRID_SIZE, grid.getGridSize());
+		initialValues.put(KEY_DATE_CREATED,
+				toSQLiteTimestamp(grid.getDateCreated()));
+		GridGeneratingParameters gridGeneratingParameters = grid
+				.getGridGeneratingParameters();
+		initialValues.put(KEY_GAME_SEED, gridGeneratingParameters.mGameSeed);
+		initialValues.put(KEY_GENERATOR_REVISION_NUMBER,
+				gridGeneratingParameters.mGeneratorRevisionNumber);
+		initialValues.put(KEY_PUZZLE_COMPLEXITY,
+				gridGeneratingParameters.mPuzzleComplexity.toString());
+		initialValues.put(KEY_HIDE_OPERATORS,
+				toSQLiteBoolean(gridGeneratingParameters.mHideOperators));
+		initialValues.put(KEY_MAX_CAGE_RESULT,
+				gridGeneratingParameters.mMaxCageResult);
+		initialValues.put(KEY_MAX_CAGE_SIZE,
+				gridGeneratingParameters.mMaxCageSize);
+		initialValues.put(KEY_RELAXATION_LEVEL,
+				gridGeneratingParameters.mRelaxationLevel);
+		initialValues.put(KEY_ATTEMPT_NUMBER,
+				gridGeneratingParameters.mAttemptNumber);
+		if (gridGeneratingParameters.mGridGeneratingTelemetry != null) {
+			initialValues.put(KEY_GRID_GENERATING_TELEMETRY,
+					gridGeneratingParameters.mGridGeneratingTelemetry
+							.toStorageString());
+		}
+		initialValues.put(KEY_DATA, grid.toStorageString());
+
+		try {
+			return (int) mSqliteDatabase.insertOrThrow(TABLE, null,
+					initialValues);
+		} catch (SQLiteException e) {
+			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+				e.printStackTrace();
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Counts the puzzles in the pool which are generated with the given
+	 * parameters.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @param hideOperators
+	 *            True in case the operators are hidden.
+	 * @param puzzleComplexity
+	 *            The complexity of the puzzle.
+	 * @param generatorRevisionNumber
+	 *            The revision number of the generator.
+	 * @return The number of puzzles in the pool with the given parameters.
+	 */
+	public int count(int gridSize, boolean hideOperators,
+			PuzzleComplexity puzzleComplexity, int generatorRevisionNumber) {
+		try {
+			return (int) DatabaseUtils.queryNumEntries(
+					mSqliteDatabase,
+					TABLE,
+					getParametersSelectionString(gridSize, hideOperators,
+							puzzleComplexity, generatorRevisionNumber));
+		} catch (SQLiteException e) {
+			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+				e.printStackTrace();
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Takes the oldest puzzle from the pool which is generated with the given
+	 * parameters. The puzzle is removed from the pool.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @param hideOperators
+	 *            True in case the operators are hidden.
+	 * @param puzzleComplexity
+	 *            The complexity of the puzzle.
+	 * @param generatorRevisionNumber
+	 *            The revision number of the generator.
+	 * @return The puzzle taken from the pool. Null in case the pool does not
+	 *         contain a puzzle with the given parameters.
+	 */
+	public PuzzlePoolRow take(int gridSize, boolean hideOperators,
+			PuzzleComplexity puzzleComplexity, int generatorRevisionNumber) {
+		PuzzlePoolRow puzzlePoolRow = null;
+		Cursor cursor = null;
+		try {
+			cursor = mSqliteDatabase.query(TABLE, allColumns,
+					getParametersSelectionString(gridSize, hideOperators,
+							puzzleComplexity, generatorRevisionNumber), null,
+					null, null, KEY_ROWID, "1");
+			puzzlePoolRow = toPuzzlePoolRow(cursor);
+		} catch (SQLiteException e) {
+			if (DevelopmentHelper.mMode == Mode.DEVELOPMENT) {
+				e.printStackTrace();
+			}
+			return null;
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+
+		// Only return the puzzle in case it has been removed from the pool.
+		// Otherwise the same puzzle could be taken twice.
+		if (puzzlePoolRow != null
+				&& mSqliteDatabase.delete(TABLE, KEY_ROWID + "="
+						+ puzzlePoolRow.mId, null) != 1) {
+			return null;
+		}
+		return puzzlePoolRow;
+	}
+
+	/**
+	 * Deletes all puzzles from the pool which are not generated with the given
+	 * revision of the generator.
+	 * 
+	 * @param generatorRevisionNumber
+	 *            The revision number of the generator for which the puzzles
+	 *            have to be kept.
+	 * @return The number of puzzles deleted.
+	 */
+	public int deleteOtherRevisions(int generatorRevisionNumber) {
+		return mSqliteDatabase.delete(TABLE, KEY_GENERATOR_REVISION_NUMBER
+				+ "<>" + generatorRevisionNumber, null);
+	}
+
+	/**
+	 * Get the selection string to select puzzles with the given parameters.
+	 */
+	private String getParametersSelectionString(int gridSize,
+			boolean hideOperators, PuzzleComplexity puzzleComplexity,
+			int generatorRevisionNumber) {
+		return KEY_GRID_SIZE + "=" + gridSize + " AND " + KEY_HIDE_OPERATORS
+				+ "=" + stringBetweenQuotes(toSQLiteBoolean(hideOperators))
+				+ " AND " + KEY_PUZZLE_COMPLEXITY + "="
+				+ stringBetweenQuotes(puzzleComplexity.toString()) + " AND "
+				+ KEY_GENERATOR_REVISION_NUMBER + "=" + generatorRevisionNumber;
+	}
+
+	/**
+	 * Convert first record in the given cursor to a PuzzlePoolRow object.
+	 * 
+	 * @param cursor
+	 *            The cursor to be converted.
+	 * 
+	 * @return A PuzzlePoolRow object for the first puzzle record stored in the
+	 *         given cursor. Null in case of an error.
+	 */
+	private PuzzlePoolRow toPuzzlePoolRow(Cursor cursor) {
+		if (cursor == null || !cursor.moveToFirst()) {
+			// Record can not be processed.
+			return null;
+		}
+
+		// Convert cursor record to a puzzle pool row object.
+		PuzzlePoolRow puzzlePoolRow = new PuzzlePoolRow();
+		puzzlePoolRow.mId = cursor.getInt(cursor
+				.getColumnIndexOrThrow(KEY_ROWID));
+		puzzlePoolRow.mGridSize = cursor.getInt(cursor
+				.getColumnIndexOrThrow(KEY_GRID_SIZE));
+		puzzlePoolRow.mDateCreated = valueOfSQLiteTimestamp(cursor
+				.getString(cursor.getColumnIndexOrThrow(KEY_DATE_CREATED)));
+		puzzlePoolRow.mData = cursor.getString(cursor
+				.getColumnIndexOrThrow(KEY_DATA));
+
+		puzzlePoolRow.mGridGeneratingParameters = new GridGeneratingParameters();
+		puzzlePoolRow.mGridGeneratingParameters.mGameSeed = cursor
+				.getLong(cursor.getColumnIndexOrThrow(KEY_GAME_SEED));
+		puzzlePoolRow.mGridGeneratingParameters.mGeneratorRevisionNumber = cursor
+				.getInt(cursor
+						.getColumnIndexOrThrow(KEY_GENERATOR_REVISION_NUMBER));
+		puzzlePoolRow.mGridGeneratingParameters.mPuzzleComplexity = PuzzleComplexity
+				.valueOf(cursor.getString(cursor
+						.getColumnIndexOrThrow(KEY_PUZZLE_COMPLEXITY)));
+		puzzlePoolRow.mGridGeneratingParameters.mHideOperators = valueOfSQLiteBoolean(cursor
+				.getString(cursor.getColumnIndexOrThrow(KEY_HIDE_OPERATORS)));
+		puzzlePoolRow.mGridGeneratingParameters.mMaxCageResult = cursor
+				.getInt(cursor.getColumnIndexOrThrow(KEY_MAX_CAGE_RESULT));
+		puzzlePoolRow.mGridGeneratingParameters.mMaxCageSize = cursor
+				.getInt(cursor.getColumnIndexOrThrow(KEY_MAX_CAGE_SIZE));
+		puzzlePoolRow.mGridGeneratingParameters.mRelaxationLevel = cursor
+				.getInt(cursor.getColumnIndexOrThrow(KEY_RELAXATION_LEVEL));
+		puzzlePoolRow.mGridGeneratingParameters.mAttemptNumber = cursor
+				.getInt(cursor.getColumnIndexOrThrow(KEY_ATTEMPT_NUMBER));
+		puzzlePoolRow.mGridGeneratingParameters.mGridGeneratingTelemetry = GridGeneratingTelemetry
+				.fromStorageString(cursor.getString(cursor
+						.getColumnIndexOrThrow(KEY_GRID_GENERATING_TELEMETRY)));
+
+		return puzzlePoolRow;
+	}
+}
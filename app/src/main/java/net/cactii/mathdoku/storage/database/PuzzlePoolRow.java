@@ -0,0 +1,26 @@
+package net.cactii.mathdoku.storage.database;
+
+import net.cactii.mathdoku.gridGenerating.GridGeneratingParameters;
+
+/**
+ * Mapping for records in database table PuzzlePool
+ * 
+ */
+public class PuzzlePoolRow {
+
+	// Unique row id for the puzzle in the database.
+	public int mId;
+
+	// Size of the grid
+	public int mGridSize;
+
+	// Timestamp of creation
+	public long mDateCreated;
+
+	// Parameters used to generate the grid.
+	public GridGeneratingParameters mGridGeneratingParameters;
+
+	// The grid (cells and cages) in the same format as the data of a solving
+	// attempt.
+	public String mData;
+}
@@ -11,6 +11,7 @@ import net.cactii.mathdoku.grid.Grid;
 import net.cactii.mathdoku.grid.InvalidGridException;
 import net.cactii.mathdoku.gridGenerating.DialogPresentingGridGenerator;
 import net.cactii.mathdoku.gridGenerating.GridGenerator.PuzzleComplexity;
+import net.cactii.mathdoku.gridGenerating.PuzzlePool;
 import net.cactii.mathdoku.painter.Painter;
 import net.cactii.mathdoku.storage.GameFileConverter;
 import net.cactii.mathdoku.storage.database.GridDatabaseAdapter;
@@ -417,6 +418,16 @@ public class PuzzleFragmentActivity extends AppFragmentActivity implements
 			mPuzzleFragment.prepareLoadNewGame();
 		}
 
+		// Use a pre-generated puzzle in case the puzzle pool contains a puzzle
+		// with the specified parameters. The pool will be refilled in the
+		// background.
+		Grid pooledGrid = PuzzlePool.take(this, gridSize, hideOperators,
+				puzzleComplexity, Util.getPackageVersionNumber());
+		if (pooledGrid != null) {
+			onNewGridReady(pooledGrid);
+			return;
+		}
+
 		// Start a background task to generate the new grid. As soon as the new
 		// grid is created, the method onNewGridReady will be called.
 		mDialogPresentingGridGenerator = new DialogPresentingGridGenerator(
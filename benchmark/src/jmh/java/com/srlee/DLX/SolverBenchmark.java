@@ -0,0 +1,76 @@
+package com.srlee.DLX;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import net.cactii.mathdoku.grid.Cage;
+import net.cactii.mathdoku.gridGenerating.BatchGridGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the uniqueness check on a fixed corpus of seeded grids per grid
+ * size. The corpus is created with the batch grid generator using the presets
+ * of complexity NORMAL. As in the grid generator, a single DLX solver is reset
+ * for each grid, so building the exact cover matrix is included. The DLX
+ * solver is measured both on the calling thread and split over the common
+ * fork join pool, and is compared with the constraint propagation solver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SolverBenchmark {
+	// Number of grids in the corpus per grid size.
+	private static final int CORPUS_SIZE = 20;
+
+	// Index of complexity NORMAL in BatchGridGenerator.COMPLEXITY_NAMES.
+	private static final int COMPLEXITY_NORMAL = 2;
+
+	@Param({ "4", "5", "6", "7", "8", "9" })
+	public int mGridSize;
+
+	@Param({ "DLX", "PARALLEL_DLX", "PROPAGATION" })
+	public String mSolver;
+
+	private ArrayList<ArrayList<Cage>> mCorpus;
+	private MathDokuDLX mMathDokuDLX;
+
+	@Setup
+	public void setUp() {
+		BatchGridGenerator batchGridGenerator = new BatchGridGenerator();
+		mCorpus = new ArrayList<ArrayList<Cage>>();
+		for (int i = 0; i < CORPUS_SIZE; i++) {
+			mCorpus.add(batchGridGenerator.generate(mGridSize,
+					COMPLEXITY_NORMAL, i).getCages());
+		}
+		mMathDokuDLX = new MathDokuDLX(mGridSize, mCorpus.get(0));
+		mMathDokuDLX.setParallelSolve(mSolver.equals("PARALLEL_DLX") ? ForkJoinPool
+				.commonPool() : null);
+	}
+
+	/**
+	 * Checks all grids in the corpus for a unique solution.
+	 */
+	@Benchmark
+	public void hasUniqueSolution(Blackhole blackhole) {
+		boolean propagation = mSolver.equals("PROPAGATION");
+		for (ArrayList<Cage> cages : mCorpus) {
+			if (propagation) {
+				blackhole.consume(new MathDokuPropagationSolver(mGridSize,
+						cages).hasUniqueSolution(null));
+			} else {
+				mMathDokuDLX.reset(mGridSize, cages);
+				blackhole.consume(mMathDokuDLX.hasUniqueSolution());
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package net.cactii.mathdoku.grid;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the computation of the combinations of digits which satisfy the
+ * arithmetic of a cage, per operator and cage size. For each operator a
+ * result is used which has many combinations.
+ * 
+ * The benchmarks named after an operator bypass the cache so the actual
+ * computation is measured instead of the lookup. The getPossibleNums
+ * benchmarks measure {@link Cage#getPossibleNums()} as used by the solvers,
+ * i.e. the cache lookup and the removal of permutations which use a digit
+ * twice in a row or column of the cage. A new cage is created for each call
+ * as the cage keeps its permutations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CagePermutationBenchmark {
+	/**
+	 * Cages with an add or a multiply operator which can have any number of
+	 * cells.
+	 */
+	@State(Scope.Benchmark)
+	public static class MultipleCellCage {
+		@Param({ "4", "6", "9" })
+		public int mGridSize;
+
+		@Param({ "2", "3", "4", "5", "6" })
+		public int mCellCount;
+
+		int mSum;
+		int mProduct;
+		CageCell[] mCells;
+
+		@Setup
+		public void setUp() {
+			// The sum in the middle of the range of possible sums has the most
+			// combinations.
+			mSum = mCellCount * (mGridSize + 1) / 2;
+
+			mProduct = 1;
+			for (int i = 0; i < mCellCount; i++) {
+				mProduct *= 1 + (i % mGridSize);
+			}
+
+			mCells = getStaircaseCells(mGridSize, mCellCount);
+		}
+	}
+
+	/**
+	 * Cages with a subtract or a divide operator which always have two cells.
+	 */
+	@State(Scope.Benchmark)
+	public static class TwoCellCage {
+		@Param({ "4", "6", "9" })
+		public int mGridSize;
+
+		CageCell[] mCells;
+
+		@Setup
+		public void setUp() {
+			mCells = getStaircaseCells(mGridSize, 2);
+		}
+	}
+
+	/**
+	 * Get the cells of a cage which runs diagonally from the top left corner
+	 * like a staircase. Each cell is in the same row or column as the cells
+	 * before and after it, so part of the permutations use a digit twice in a
+	 * row or column.
+	 */
+	static CageCell[] getStaircaseCells(int gridSize, int cellCount) {
+		CageCell[] cells = new CageCell[cellCount];
+		for (int i = 0; i < cellCount; i++) {
+			cells[i] = new CageCell(gridSize, ((i + 1) / 2) * gridSize + i / 2);
+		}
+		return cells;
+	}
+
+	/**
+	 * Creates a new cage with the given cells, operator and result.
+	 */
+	private static Cage newCage(int gridSize, CageCell[] cells, int action,
+			int result, boolean hideOperator) {
+		Cage cage = new Cage(gridSize);
+		for (CageCell cell : cells) {
+			cage.mCells.add(cell);
+		}
+		cage.setCageResults(result, action, hideOperator);
+		return cage;
+	}
+
+	@Benchmark
+	public long[] add(MultipleCellCage cage) {
+		return CagePermutationCache.getInstance().computePermutations(
+				CagePermutationCache.ACTION_ADD, cage.mSum, cage.mCellCount,
+				cage.mGridSize);
+	}
+
+	@Benchmark
+	public long[] multiply(MultipleCellCage cage) {
+		return CagePermutationCache.getInstance().computePermutations(
+				CagePermutationCache.ACTION_MULTIPLY, cage.mProduct,
+				cage.mCellCount, cage.mGridSize);
+	}
+
+	@Benchmark
+	public long[] none(MultipleCellCage cage) {
+		return CagePermutationCache.getInstance().computePermutations(
+				CagePermutationCache.ACTION_NONE, cage.mSum, cage.mCellCount,
+				cage.mGridSize);
+	}
+
+	@Benchmark
+	public long[] subtract(TwoCellCage cage) {
+		return CagePermutationCache.getInstance().computePermutations(
+				CagePermutationCache.ACTION_SUBTRACT, 1, 2, cage.mGridSize);
+	}
+
+	@Benchmark
+	public long[] divide(TwoCellCage cage) {
+		return CagePermutationCache.getInstance().computePermutations(
+				CagePermutationCache.ACTION_DIVIDE, 2, 2, cage.mGridSize);
+	}
+
+	@Benchmark
+	public long[] addPossibleNums(MultipleCellCage cage) {
+		return newCage(cage.mGridSize, cage.mCells,
+				CagePermutationCache.ACTION_ADD, cage.mSum, false)
+				.getPossibleNums();
+	}
+
+	@Benchmark
+	public long[] multiplyPossibleNums(MultipleCellCage cage) {
+		return newCage(cage.mGridSize, cage.mCells,
+				CagePermutationCache.ACTION_MULTIPLY, cage.mProduct, false)
+				.getPossibleNums();
+	}
+
+	@Benchmark
+	public long[] hiddenPossibleNums(MultipleCellCage cage) {
+		return newCage(cage.mGridSize, cage.mCells,
+				CagePermutationCache.ACTION_ADD, cage.mSum, true)
+				.getPossibleNums();
+	}
+
+	@Benchmark
+	public long[] subtractPossibleNums(TwoCellCage cage) {
+		return newCage(cage.mGridSize, cage.mCells,
+				CagePermutationCache.ACTION_SUBTRACT, 1, false)
+				.getPossibleNums();
+	}
+
+	@Benchmark
+	public long[] dividePossibleNums(TwoCellCage cage) {
+		return newCage(cage.mGridSize, cage.mCells,
+				CagePermutationCache.ACTION_DIVIDE, 2, false).getPossibleNums();
+	}
+}
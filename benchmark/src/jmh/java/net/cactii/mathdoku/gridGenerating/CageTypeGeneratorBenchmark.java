@@ -0,0 +1,84 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the construction of the cage types and the random selection of
+ * cage types while filling a grid with cages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CageTypeGeneratorBenchmark {
+	/**
+	 * Loads the cage types from the precompiled catalog as is done when the
+	 * {@link CageTypeGenerator} is constructed.
+	 */
+	@Benchmark
+	public ArrayList<GridCageType>[] readCatalog() {
+		return CageTypeCatalog.read(CageTypeGenerator.MAX_CAGE_SIZE);
+	}
+
+	/**
+	 * Generates all cage types from scratch as is done when the
+	 * {@link CageTypeGenerator} is constructed without a catalog. This takes
+	 * long, so each invocation is measured separately.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ArrayList<GridCageType>[] generateCageTypes() {
+		return CageTypeGenerator
+				.generateCageTypes(CageTypeGenerator.MAX_CAGE_SIZE);
+	}
+
+	/**
+	 * Attempt generator which fills grids with cages for a grid size and
+	 * complexity.
+	 */
+	@State(Scope.Thread)
+	public static class CageFiller {
+		@Param({ "4", "6", "9" })
+		public int mGridSize;
+
+		@Param({ "VERY_EASY", "NORMAL", "VERY_DIFFICULT" })
+		public String mComplexity;
+
+		GridAttemptGenerator mGridAttemptGenerator;
+
+		@Setup
+		public void setUp() {
+			int complexity = Arrays.asList(BatchGridGenerator.COMPLEXITY_NAMES)
+					.indexOf(mComplexity);
+			mGridAttemptGenerator = new GridAttemptGenerator(mGridSize,
+					GridAttemptGenerator.MIN_REVISION_PARALLEL_ATTEMPTS, 0,
+					BatchGridGenerator.COMPLEXITY_MAX_CAGE_SIZE[complexity],
+					BatchGridGenerator.COMPLEXITY_MAX_CAGE_RESULT[complexity],
+					false,
+					BatchGridGenerator.COMPLEXITY_MAX_CAGE_PERMUTATIONS[complexity],
+					BatchGridGenerator.getMaximumSingleCellCages(mGridSize,
+							complexity));
+		}
+	}
+
+	/**
+	 * Builds a Latin square and fills it with cages by selecting a random cage
+	 * type at each free cell, as is done by each attempt of the grid
+	 * generator. The uniqueness of the solution is not checked.
+	 */
+	@Benchmark
+	public boolean createCages(CageFiller cageFiller) {
+		return cageFiller.mGridAttemptGenerator
+				.generateWithoutUniquenessCheck();
+	}
+}
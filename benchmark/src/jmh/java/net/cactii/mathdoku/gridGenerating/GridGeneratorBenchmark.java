@@ -0,0 +1,47 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the generation of a grid with a unique solution per grid size
+ * and complexity by the {@link BatchGridGenerator}. Each invocation uses the
+ * next seed, so the average over a fixed sequence of grids is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class GridGeneratorBenchmark {
+	@Param({ "4", "5", "6", "7", "8", "9" })
+	public int mGridSize;
+
+	@Param({ "VERY_EASY", "EASY", "NORMAL", "DIFFICULT", "VERY_DIFFICULT" })
+	public String mComplexity;
+
+	private BatchGridGenerator mBatchGridGenerator;
+	private int mComplexityIndex;
+	private long mSeed;
+
+	@Setup
+	public void setUp() {
+		mBatchGridGenerator = new BatchGridGenerator();
+		mComplexityIndex = Arrays.asList(BatchGridGenerator.COMPLEXITY_NAMES)
+				.indexOf(mComplexity);
+		mSeed = 0;
+	}
+
+	@Benchmark
+	public GridAttemptGenerator generate() {
+		return mBatchGridGenerator.generate(mGridSize, mComplexityIndex,
+				mSeed++);
+	}
+}
@@ -0,0 +1,1094 @@
+package com.srlee.DLX;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+import com.srlee.DLX.DLX.SolveType;
+
+/**
+ * Array based implementation of the Dancing Links algorithm. Functionally this
+ * class is identical to {@link DLX}, but instead of creating an object for
+ * each column header and each node, all links are kept in flat int arrays.
+ * Index 0 of those arrays is the root, indexes 1 to numcols are the column
+ * headers and all remaining indexes are the nodes of the matrix.
+ */
+public class ArrayDLX {
+	private static final String TAG = "MathDoku.ArrayDLX";
+
+	// Index of the root header in the link arrays.
+	private static final int ROOT = 0;
+
+	/**
+	 * Result of a solve in case the search was aborted because its budget was
+	 * exhausted or because it was cancelled.
+	 */
+	public static final int BUDGET_EXHAUSTED = -2;
+
+	/**
+	 * Visitor which is called for each solution found while enumerating the
+	 * solutions of the matrix.
+	 */
+	public interface SolutionVisitor {
+		/**
+		 * Handles a solution. The rows are passed as a view on the internal
+		 * state of the search. The view is only valid during this call and
+		 * may not be altered.
+		 *
+		 * @param rows
+		 *            The row indexes of the solution as passed to AddNode.
+		 *            Only the first numberOfRows elements are valid.
+		 * @param numberOfRows
+		 *            The number of rows in the solution.
+		 * @return True in case the enumeration has to continue. False in
+		 *         case the enumeration has to stop.
+		 */
+		public boolean visit(int[] rows, int numberOfRows);
+	}
+
+	// A parallel search is split into at least this number of subtrees per
+	// thread to balance the load between the threads. The search tree is not
+	// split beyond the maximum split depth.
+	private static final int PARALLEL_SUBTREES_PER_THREAD = 4;
+	private static final int PARALLEL_MAX_SPLIT_DEPTH = 8;
+
+	// Links to the left, right, upper and lower neighbor of each header/node.
+	private int[] mLeft;
+	private int[] mRight;
+	private int[] mUp;
+	private int[] mDown;
+
+	// The column header to which a node belongs. For column headers this
+	// refers to the column header itself.
+	private int[] mColumn;
+
+	// The row index of a node as passed to AddNode.
+	private int[] mRowIdx;
+
+	// Number of nodes per column, indexed by the column header.
+	private int[] mSize;
+
+	// Number of uncovered columns which do not contain any node.
+	private int mEmptyColumns;
+
+	private int numcols, numrows, numnodes;
+
+	// Index of the last node which was added to the matrix.
+	private int lastnodeadded;
+	private int prev_rowidx = -1;
+
+	// Stack of rows tried in the current branch of the search and the rows of
+	// the last two solutions found.
+	private int[] trysolution;
+	private int[] foundsolution;
+	private int foundsolutionsize;
+	private int[] previoussolution;
+	private int previoussolutionsize;
+
+	// Column chosen and the node of the row which is currently tried at each
+	// level of the search.
+	private int[] colstack;
+	private int[] rowstack;
+
+	private int NumSolns;
+	protected boolean isValid;
+	private SolveType solvetype;
+	protected int complexity;
+
+	// Counters of the search which is currently running.
+	private long mColumnsCovered;
+	private long mColumnsUncovered;
+	private long mBacktracks;
+	private int mMaxDepth;
+
+	// Time needed to build the matrix before the next solve.
+	private long mBuildTimeNanos;
+
+	// Statistics of the last solve.
+	private SolveStatistics mSolveStatistics;
+
+	// The visitor to which the solutions are passed while enumerating. Null
+	// in case the solutions are counted only.
+	private SolutionVisitor mSolutionVisitor;
+
+	// The index of the subtree in case this is a copy which searches a
+	// subtree of a parallel search.
+	private int mSubtree;
+
+	public ArrayDLX() {
+		isValid = true;
+	}
+
+	public ArrayDLX(int nc, int nr, int nn) {
+		this();
+		Init(nc, nr, nn);
+	}
+
+	/**
+	 * Creates a copy of the cover state of the given {@link ArrayDLX} which can
+	 * be searched independently of the original. The arrays which are not
+	 * altered while searching are shared with the original.
+	 *
+	 * @param original
+	 *            The DLX to be copied.
+	 */
+	private ArrayDLX(ArrayDLX original) {
+		isValid = original.isValid;
+		numcols = original.numcols;
+		numrows = original.numrows;
+		numnodes = original.numnodes;
+		int totalLinks = 1 + numcols + numnodes;
+		mLeft = Arrays.copyOf(original.mLeft, totalLinks);
+		mRight = Arrays.copyOf(original.mRight, totalLinks);
+		mUp = Arrays.copyOf(original.mUp, totalLinks);
+		mDown = Arrays.copyOf(original.mDown, totalLinks);
+		mSize = Arrays.copyOf(original.mSize, numcols + 1);
+		mEmptyColumns = original.mEmptyColumns;
+		mColumn = original.mColumn;
+		mRowIdx = original.mRowIdx;
+		trysolution = new int[numcols + 1];
+		foundsolution = new int[numcols + 1];
+		previoussolution = new int[numcols + 1];
+		colstack = new int[numcols + 1];
+		rowstack = new int[numcols + 1];
+	}
+
+	/**
+	 * Prepares an empty matrix. The arrays of a previous matrix are reused in
+	 * case they are big enough, so a DLX can be refilled many times without
+	 * allocating new memory.
+	 *
+	 * @param nc
+	 *            The number of columns.
+	 * @param nr
+	 *            The number of rows.
+	 * @param nn
+	 *            The number of nodes.
+	 */
+	protected void Init(int nc, int nr, int nn) {
+		numcols = nc;
+		numnodes = 0; // None allocated
+		numrows = 0; // None allocated
+		prev_rowidx = -1;
+
+		int totalLinks = 1 + nc + nn;
+		if (mLeft == null || mLeft.length < totalLinks) {
+			mLeft = new int[totalLinks];
+			mRight = new int[totalLinks];
+			mUp = new int[totalLinks];
+			mDown = new int[totalLinks];
+			mColumn = new int[totalLinks];
+			mRowIdx = new int[totalLinks];
+		}
+		if (mSize == null || mSize.length < nc + 1) {
+			mSize = new int[nc + 1];
+		} else {
+			Arrays.fill(mSize, 0, nc + 1, 0);
+		}
+
+		// Link the root and the column headers in a circular list. Each column
+		// header is initially an empty vertical circular list.
+		for (int i = 0; i <= numcols; i++) {
+			mLeft[i] = (i == 0 ? numcols : i - 1);
+			mRight[i] = (i == numcols ? ROOT : i + 1);
+			mUp[i] = i;
+			mDown[i] = i;
+			mColumn[i] = i;
+		}
+
+		// Each row in a solution covers at least one column. So a solution can
+		// never contain more rows than the number of columns.
+		if (trysolution == null || trysolution.length < numcols + 1) {
+			trysolution = new int[numcols + 1];
+			foundsolution = new int[numcols + 1];
+			previoussolution = new int[numcols + 1];
+			colstack = new int[numcols + 1];
+			rowstack = new int[numcols + 1];
+		}
+		foundsolutionsize = 0;
+		previoussolutionsize = 0;
+	}
+
+	public int GetRowsInSolution() {
+		return foundsolutionsize;
+	}
+
+	public int GetSolutionRow(int row) {
+		return foundsolution[row - 1];
+	}
+
+	public int GetRowsInPreviousSolution() {
+		return previoussolutionsize;
+	}
+
+	public int GetPreviousSolutionRow(int row) {
+		return previoussolution[row - 1];
+	}
+
+	/**
+	 * Registers a solution which has been found. The solution found before
+	 * is kept as previous solution.
+	 *
+	 * @param solution
+	 *            The rows of the solution.
+	 * @param size
+	 *            The number of rows in the solution.
+	 */
+	private void storeSolution(int[] solution, int size) {
+		int[] previous = previoussolution;
+		previoussolution = foundsolution;
+		previoussolutionsize = foundsolutionsize;
+		foundsolution = previous;
+		System.arraycopy(solution, 0, foundsolution, 0, size);
+		foundsolutionsize = size;
+	}
+
+	private void CoverCol(int coverCol) {
+		int i, j;
+		mColumnsCovered++;
+		mLeft[mRight[coverCol]] = mLeft[coverCol];
+		mRight[mLeft[coverCol]] = mRight[coverCol];
+		if (mSize[coverCol] == 0) {
+			mEmptyColumns--;
+		}
+
+		i = mDown[coverCol];
+		while (i != coverCol) {
+			j = mRight[i];
+			while (j != i) {
+				mUp[mDown[j]] = mUp[j];
+				mDown[mUp[j]] = mDown[j];
+				if (--mSize[mColumn[j]] == 0) {
+					mEmptyColumns++;
+				}
+				j = mRight[j];
+			}
+			i = mDown[i];
+		}
+	}
+
+	private void UncoverCol(int uncoverCol) {
+		int i, j;
+		mColumnsUncovered++;
+
+		i = mUp[uncoverCol];
+		while (i != uncoverCol) {
+			j = mLeft[i];
+			while (j != i) {
+				if (mSize[mColumn[j]]++ == 0) {
+					mEmptyColumns--;
+				}
+				mUp[mDown[j]] = j;
+				mDown[mUp[j]] = j;
+				j = mLeft[j];
+			}
+			i = mUp[i];
+		}
+		mLeft[mRight[uncoverCol]] = uncoverCol;
+		mRight[mLeft[uncoverCol]] = uncoverCol;
+		if (mSize[uncoverCol] == 0) {
+			mEmptyColumns++;
+		}
+	}
+
+	/**
+	 * Counts the uncovered columns which do not contain any node. The count
+	 * has to be determined before each solve as nodes may have been added
+	 * since the previous solve.
+	 */
+	private void countEmptyColumns() {
+		mEmptyColumns = 0;
+		for (int col = mRight[ROOT]; col != ROOT; col = mRight[col]) {
+			if (mSize[col] == 0) {
+				mEmptyColumns++;
+			}
+		}
+	}
+
+	/**
+	 * Selects the leftmost column with the least number of nodes.
+	 *
+	 * @return The index of the column header. -1 in case the column with the
+	 *         least number of nodes is empty.
+	 */
+	private int ChooseMinCol() {
+		// An empty column can not be covered by any row. As the number of
+		// empty columns is maintained while covering and uncovering, this
+		// dead end is detected without scanning the columns.
+		if (mEmptyColumns > 0) {
+			return -1;
+		}
+
+		// As no column is empty, the first column containing a single node is
+		// the leftmost column with the least number of nodes. In this case
+		// the remaining columns do not need to be scanned.
+		int minsize = Integer.MAX_VALUE;
+		int search, mincol;
+
+		mincol = search = mRight[ROOT];
+
+		while (search != ROOT) {
+			if (mSize[search] < minsize) {
+				mincol = search;
+				minsize = mSize[search];
+				if (minsize == 1) {
+					break;
+				}
+			}
+			search = mRight[search];
+		}
+		return mincol;
+	}
+
+	public void AddNode(int colidx, int rowidx) {
+		int node = numcols + (++numnodes);
+		mColumn[node] = colidx;
+		mRowIdx[node] = rowidx;
+
+		// Add the node at the bottom of the column.
+		mUp[node] = mUp[colidx];
+		mDown[node] = colidx;
+		mDown[mUp[colidx]] = node;
+		mUp[colidx] = node;
+		mSize[colidx]++;
+
+		if (prev_rowidx == rowidx) {
+			mLeft[node] = lastnodeadded;
+			mRight[node] = mRight[lastnodeadded];
+			mRight[lastnodeadded] = node;
+			mLeft[mRight[node]] = node;
+		} else {
+			prev_rowidx = rowidx;
+			numrows++;
+			mLeft[node] = node;
+			mRight[node] = node;
+		}
+		lastnodeadded = node;
+	}
+
+	/**
+	 * Determines the number of solutions that can be found for this grid.
+	 *
+	 * @param solveType
+	 *            The solve type to be used to determine the number of
+	 *            solutions.
+	 * @return The number of solutions, given the solution type, that can be
+	 *         found for this grid.
+	 */
+	protected int Solve(SolveType solveType) {
+		return Solve(solveType, null);
+	}
+
+	/**
+	 * Determines the number of solutions that can be found for this grid
+	 * within the given budget.
+	 *
+	 * @param solveType
+	 *            The solve type to be used to determine the number of
+	 *            solutions.
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited.
+	 * @return The number of solutions, given the solution type, that can be
+	 *         found for this grid. {@link #BUDGET_EXHAUSTED} in case the
+	 *         search was aborted because the budget was exhausted or the
+	 *         solve was cancelled.
+	 */
+	protected int Solve(SolveType solveType, SolveBudget solveBudget) {
+		return Solve(solveType, solveBudget, null);
+	}
+
+	/**
+	 * Determines the number of solutions that can be found for this grid
+	 * within the given budget. In case a fork join pool is given, the search
+	 * tree is split into subtrees which are searched in parallel.
+	 *
+	 * @param solveType
+	 *            The solve type to be used to determine the number of
+	 *            solutions.
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited.
+	 * @param forkJoinPool
+	 *            The pool in which the subtrees are searched. Null in case the
+	 *            search has to run on the calling thread only.
+	 * @return The number of solutions, given the solution type, that can be
+	 *         found for this grid. {@link #BUDGET_EXHAUSTED} in case the
+	 *         search was aborted because the budget was exhausted or the
+	 *         solve was cancelled.
+	 */
+	protected int Solve(SolveType solveType, SolveBudget solveBudget,
+			ForkJoinPool forkJoinPool) {
+		if (!isValid)
+			return -1;
+
+		long timeStarted = System.nanoTime();
+		solvetype = solveType;
+		NumSolns = 0;
+		complexity = 0;
+		foundsolutionsize = 0;
+		previoussolutionsize = 0;
+		mColumnsCovered = 0;
+		mColumnsUncovered = 0;
+		mBacktracks = 0;
+		mMaxDepth = 0;
+		if (solveBudget != null) {
+			solveBudget.start();
+		}
+		countEmptyColumns();
+
+		int result;
+		if (forkJoinPool != null && forkJoinPool.getParallelism() > 1) {
+			result = solveParallel(solveBudget, forkJoinPool);
+		} else if (!search(0, solveBudget, null)) {
+			result = BUDGET_EXHAUSTED;
+		} else {
+			result = NumSolns;
+		}
+
+		mSolveStatistics = new SolveStatistics();
+		mSolveStatistics.mSolves = 1;
+		mSolveStatistics.mNodesVisited = complexity;
+		mSolveStatistics.mColumnsCovered = mColumnsCovered;
+		mSolveStatistics.mColumnsUncovered = mColumnsUncovered;
+		mSolveStatistics.mMaxDepth = mMaxDepth;
+		mSolveStatistics.mBacktracks = mBacktracks;
+		mSolveStatistics.mMatrixRows = numrows;
+		mSolveStatistics.mMatrixNodes = numnodes;
+		mSolveStatistics.mMatrixColumns = numcols;
+		mSolveStatistics.mBuildTimeNanos = mBuildTimeNanos;
+		mSolveStatistics.mSearchTimeNanos = System.nanoTime() - timeStarted;
+
+		return result;
+	}
+
+	/**
+	 * Enumerates the solutions of the matrix. Each solution is passed to the
+	 * visitor without copying it, so no memory is allocated per solution.
+	 *
+	 * @param solutionVisitor
+	 *            The visitor to which each solution is passed. The
+	 *            enumeration stops as soon as the visitor returns false.
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited.
+	 * @return The number of solutions passed to the visitor.
+	 *         {@link #BUDGET_EXHAUSTED} in case the search was aborted
+	 *         because the budget was exhausted or the solve was cancelled.
+	 */
+	protected int Solve(SolutionVisitor solutionVisitor,
+			SolveBudget solveBudget) {
+		mSolutionVisitor = solutionVisitor;
+		try {
+			return Solve(SolveType.ALL, solveBudget, null);
+		} finally {
+			mSolutionVisitor = null;
+		}
+	}
+
+	/**
+	 * Registers the time which was needed to build the matrix. This time is
+	 * included in the statistics of the next solve.
+	 *
+	 * @param buildTimeNanos
+	 *            The time needed to build the matrix.
+	 */
+	protected void setBuildTime(long buildTimeNanos) {
+		mBuildTimeNanos = buildTimeNanos;
+	}
+
+	/**
+	 * Get the statistics of the last solve.
+	 *
+	 * @return The statistics of the last solve. Null in case no solve has been
+	 *         done yet.
+	 */
+	public SolveStatistics getSolveStatistics() {
+		return mSolveStatistics;
+	}
+
+	/**
+	 * Searches for solutions. Instead of recursing per level of the search
+	 * tree, the chosen column and the current row of each level are kept on
+	 * an explicit stack so the search can be aborted at any node.
+	 *
+	 * @param basedepth
+	 *            The depth at which the search starts. Rows at lower levels
+	 *            have already been selected and are not altered by the search.
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited.
+	 * @param parallelSolve
+	 *            The state shared between all subtrees of a parallel search.
+	 *            Null in case of a sequential search.
+	 * @return False in case the search was aborted before it was completed.
+	 *         True otherwise.
+	 */
+	private boolean search(int basedepth, SolveBudget solveBudget,
+			ParallelSolve parallelSolve) {
+		int k = basedepth;
+		int chosenCol;
+		int r, j;
+
+		while (true) {
+			// A solution is found in case all columns are covered
+			if (mRight[ROOT] == ROOT) {
+				NumSolns++;
+				if (DLX.DEBUG_DLX) {
+					Logger.getLogger(TAG).info("Solution " + NumSolns
+							+ " found which consists of following moves: "
+							+ Arrays.toString(Arrays.copyOf(trysolution, k)));
+				}
+				if (mSolutionVisitor != null) {
+					// The solution is passed to the visitor without copying
+					// it. The visitor decides when to stop.
+					if (!mSolutionVisitor.visit(trysolution, k)) {
+						return true;
+					}
+				} else {
+					storeSolution(trysolution, k);
+					if (parallelSolve != null) {
+						if (parallelSolve
+								.addSolution(mSubtree, foundsolution, k, complexity)) {
+							// Enough solutions have been found by this subtree
+							// and the preceding subtrees together.
+							return true;
+						}
+					} else {
+						if (solvetype == SolveType.ONE && NumSolns > 0) {
+							// Stop as soon as we find 1 solution
+							return true;
+						}
+						if (solvetype == SolveType.MULTIPLE && NumSolns > 1) {
+							// Stop as soon as we find multiple solutions
+							return true;
+						}
+					}
+				}
+			} else {
+				// In case no solution is yet found, select the next column to
+				// be covered. Now two things can happen. Either such a column
+				// can be found, and the puzzle solving will be taken one level
+				// deeper. Or such a column can not be found in which case a
+				// backtrack will be done. The more often a permutation is
+				// tried, the harder to solve the puzzle is.
+				complexity++;
+				if (parallelSolve != null) {
+					if (!parallelSolve.allows(mSubtree, complexity)) {
+						return false;
+					}
+				} else if (solveBudget != null
+						&& !solveBudget.allows(complexity)) {
+					return false;
+				}
+
+				chosenCol = ChooseMinCol();
+				if (chosenCol >= 0) {
+					CoverCol(chosenCol);
+					r = mDown[chosenCol];
+					colstack[k] = chosenCol;
+					rowstack[k] = r;
+					trysolution[k] = mRowIdx[r];
+					j = mRight[r];
+					while (j != r) {
+						CoverCol(mColumn[j]);
+						j = mRight[j];
+					}
+					k++;
+					if (k > mMaxDepth) {
+						mMaxDepth = k;
+					}
+					continue;
+				}
+			}
+
+			// Backtrack to the deepest level at which another row can be
+			// tried.
+			while (true) {
+				if (k == basedepth) {
+					// The entire (sub)tree has been processed.
+					return true;
+				}
+				k--;
+				mBacktracks++;
+				r = rowstack[k];
+				j = mLeft[r];
+				while (j != r) {
+					UncoverCol(mColumn[j]);
+					j = mLeft[j];
+				}
+				r = mDown[r];
+				chosenCol = colstack[k];
+				if (r != chosenCol) {
+					rowstack[k] = r;
+					trysolution[k] = mRowIdx[r];
+					j = mRight[r];
+					while (j != r) {
+						CoverCol(mColumn[j]);
+						j = mRight[j];
+					}
+					k++;
+					break;
+				}
+				UncoverCol(chosenCol);
+			}
+		}
+	}
+
+	/**
+	 * State which is shared between the subtrees of a parallel search. The
+	 * subtrees are numbered in the order in which the sequential search would
+	 * visit them. A subtree stops searching as soon as enough solutions have
+	 * been found in this subtree and the preceding subtrees. In this way the
+	 * same solutions are found as with the sequential search.
+	 *
+	 * The node limit of the budget is applied as if the subtrees were searched
+	 * one after another. For each subtree the number of nodes visited by the
+	 * sequential search before the subtree is started is known once the
+	 * preceding subtrees are finished. A solution only counts in case the
+	 * sequential search would have found it within the node limit. So the
+	 * outcome does not depend on how the subtrees are scheduled. Only the time
+	 * limit and cancellation can abort both searches at different points.
+	 */
+	private class ParallelSolve {
+		// Number of solutions after which the search stops.
+		private final int mMaxSolutions;
+
+		private final SolveBudget mSolveBudget;
+
+		// The number of solutions found per subtree and the rows of the
+		// solutions which are kept per subtree.
+		private final int[] mSubtreeSolutions;
+		private final int[][][] mSubtreeSolutionRows;
+
+		// The subtrees starting at this index stop searching as enough
+		// solutions have been found in the preceding subtrees.
+		private volatile int mStopFrom;
+
+		// Per subtree the number of nodes visited by the expansion of the
+		// search tree which precede the subtree in the sequential search, and
+		// the total number of nodes visited by the expansion.
+		private final int[] mSubtreeOffsets;
+		private final long mExpansionNodes;
+
+		// Per subtree the number of nodes visited so far. It is updated in
+		// batches while searching and set to the final number as soon as the
+		// subtree is finished.
+		private final AtomicLongArray mSubtreeNodes;
+
+		// Per subtree the node at which each of the kept solutions was found
+		// and whether the search of the subtree was completed.
+		private final long[][] mSubtreeSolutionNodes;
+		private final boolean[] mSubtreeCompleted;
+
+		// Set as soon as all subtrees have to stop because the budget is
+		// exhausted.
+		private volatile boolean mAborted;
+
+		public ParallelSolve(SolveType solveType, SolveBudget solveBudget,
+				ArrayList<Integer> subtreeOffsets, long expansionNodes) {
+			int numberOfSubtrees = subtreeOffsets.size();
+			switch (solveType) {
+			case ONE:
+				mMaxSolutions = 1;
+				break;
+			case MULTIPLE:
+				mMaxSolutions = 2;
+				break;
+			default:
+				mMaxSolutions = Integer.MAX_VALUE;
+				break;
+			}
+			mSolveBudget = solveBudget;
+			mSubtreeSolutions = new int[numberOfSubtrees];
+			mSubtreeSolutionRows = new int[numberOfSubtrees][2][];
+			mStopFrom = numberOfSubtrees;
+			mSubtreeOffsets = new int[numberOfSubtrees];
+			for (int i = 0; i < numberOfSubtrees; i++) {
+				mSubtreeOffsets[i] = subtreeOffsets.get(i);
+			}
+			mExpansionNodes = expansionNodes;
+			mSubtreeNodes = new AtomicLongArray(numberOfSubtrees);
+			mSubtreeSolutionNodes = new long[numberOfSubtrees][2];
+			mSubtreeCompleted = new boolean[numberOfSubtrees];
+		}
+
+		/**
+		 * Registers a solution which is found in one of the subtrees. Per
+		 * subtree the first two solutions are kept. In case all solutions are
+		 * searched, the last two solutions are kept instead.
+		 *
+		 * @param subtree
+		 *            The index of the subtree in which the solution is found.
+		 * @param solution
+		 *            The rows of the solution.
+		 * @param size
+		 *            The number of rows in the solution.
+		 * @param nodes
+		 *            The number of nodes visited by the subtree before the
+		 *            solution was found.
+		 * @return True in case the subtree has to stop searching.
+		 */
+		public synchronized boolean addSolution(int subtree, int[] solution,
+				int size, long nodes) {
+			int[][] solutionRows = mSubtreeSolutionRows[subtree];
+			long[] solutionNodes = mSubtreeSolutionNodes[subtree];
+			int count = mSubtreeSolutions[subtree]++;
+			if (count < solutionRows.length) {
+				solutionRows[count] = Arrays.copyOf(solution, size);
+				solutionNodes[count] = nodes;
+			} else if (mMaxSolutions > solutionRows.length) {
+				solutionRows[0] = solutionRows[1];
+				solutionRows[1] = Arrays.copyOf(solution, size);
+				solutionNodes[0] = solutionNodes[1];
+				solutionNodes[1] = nodes;
+			}
+
+			// Determine the first subtree at which the sequential search would
+			// have found enough solutions.
+			int solutions = 0;
+			for (int i = 0; i < mStopFrom; i++) {
+				solutions += mSubtreeSolutions[i];
+				if (solutions >= mMaxSolutions) {
+					mStopFrom = i;
+					break;
+				}
+			}
+			return (subtree >= mStopFrom);
+		}
+
+		/**
+		 * Checks whether a subtree may continue after it has visited the given
+		 * number of nodes.
+		 *
+		 * @param subtree
+		 *            The index of the subtree.
+		 * @param nodes
+		 *            The number of nodes visited by the subtree.
+		 * @return True in case the subtree may continue. False otherwise.
+		 */
+		public boolean allows(int subtree, long nodes) {
+			if ((nodes & SolveBudget.CHECK_INTERVAL_MASK) == 0
+					&& mSolveBudget != null) {
+				mSubtreeNodes.set(subtree, nodes);
+				if (mSolveBudget.isInterrupted()) {
+					mAborted = true;
+				} else if (mSolveBudget.exceedsNodeLimit(getMinimumNodes(
+						subtree, nodes))) {
+					// The sequential search would have been aborted before it
+					// reached this node. So the succeeding subtrees are not
+					// needed either.
+					stopFrom(subtree + 1);
+					return false;
+				}
+			}
+			return (!mAborted && subtree < mStopFrom);
+		}
+
+		/**
+		 * Get a lower bound for the number of nodes the sequential search
+		 * would have visited when reaching the given node of a subtree. The
+		 * preceding subtrees may not be finished yet.
+		 */
+		private long getMinimumNodes(int subtree, long nodes) {
+			long minimumNodes = mSubtreeOffsets[subtree] + nodes;
+			for (int i = 0; i < subtree; i++) {
+				minimumNodes += mSubtreeNodes.get(i);
+			}
+			return minimumNodes;
+		}
+
+		/**
+		 * Stops the subtrees starting at the given index.
+		 */
+		private synchronized void stopFrom(int subtree) {
+			if (subtree < mStopFrom) {
+				mStopFrom = subtree;
+			}
+		}
+
+		/**
+		 * Registers that the search of a subtree has finished.
+		 *
+		 * @param subtree
+		 *            The index of the subtree.
+		 * @param nodes
+		 *            The number of nodes visited by the subtree.
+		 * @param completed
+		 *            True in case the subtree was searched completely or
+		 *            until enough solutions were found.
+		 */
+		public void setFinished(int subtree, long nodes, boolean completed) {
+			mSubtreeNodes.set(subtree, nodes);
+			mSubtreeCompleted[subtree] = completed;
+		}
+
+		/**
+		 * Checks whether a subtree has to be searched at all.
+		 *
+		 * @param subtree
+		 *            The index of the subtree.
+		 * @return True in case the subtree has to be searched.
+		 */
+		public boolean isNeeded(int subtree) {
+			return (!mAborted && subtree < mStopFrom);
+		}
+
+		/**
+		 * Registers the solutions of all subtrees, in the order of the
+		 * sequential search, as solutions of the parallel search. The
+		 * subtrees are replayed in the order of the sequential search to
+		 * determine whether the sequential search would have exceeded the
+		 * node limit before.
+		 *
+		 * @return The number of solutions found. {@link #BUDGET_EXHAUSTED} in
+		 *         case the search was aborted.
+		 */
+		public int storeSolutions() {
+			// The kept solutions of a subtree are the last ones in case all
+			// solutions are searched. As the sequential search does not stop
+			// at a solution in that case, only the total number of nodes
+			// matters.
+			boolean checkSolutions = (mMaxSolutions <= 2);
+			long nodes = 0;
+			int solutions = 0;
+			int stored = 0;
+			for (int subtree = 0; subtree < mSubtreeSolutions.length;
+					subtree++) {
+				int[][] solutionRows = mSubtreeSolutionRows[subtree];
+				int kept = Math.min(mSubtreeSolutions[subtree],
+						solutionRows.length);
+				for (int i = 0; i < kept && stored < mMaxSolutions; i++) {
+					if (checkSolutions
+							&& mSolveBudget != null
+							&& mSolveBudget.isNodeLimitExceeded(mSubtreeOffsets[subtree]
+									+ nodes + mSubtreeSolutionNodes[subtree][i])) {
+						return BUDGET_EXHAUSTED;
+					}
+					storeSolution(solutionRows[i], solutionRows[i].length);
+					stored++;
+				}
+				solutions += mSubtreeSolutions[subtree];
+				if (solutions >= mMaxSolutions) {
+					return mMaxSolutions;
+				}
+				if (!mSubtreeCompleted[subtree]) {
+					return BUDGET_EXHAUSTED;
+				}
+				nodes += mSubtreeNodes.get(subtree);
+			}
+			if (mSolveBudget != null
+					&& mSolveBudget.isNodeLimitExceeded(mExpansionNodes + nodes)) {
+				return BUDGET_EXHAUSTED;
+			}
+			return solutions;
+		}
+	}
+
+	/**
+	 * Splits the search tree into subtrees which are searched in parallel. The
+	 * search tree is expanded on the calling thread until enough subtrees are
+	 * available to keep the pool busy. Each subtree is searched on its own
+	 * copy of the cover state.
+	 *
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited.
+	 * @param forkJoinPool
+	 *            The pool in which the subtrees are searched.
+	 * @return The number of solutions, given the solution type, that can be
+	 *         found for this grid. {@link #BUDGET_EXHAUSTED} in case the
+	 *         search was aborted.
+	 */
+	private int solveParallel(SolveBudget solveBudget, ForkJoinPool forkJoinPool) {
+		// Determine the subtrees by expanding the search tree level by level
+		// until enough subtrees are found. Levels at which only one row can be
+		// chosen do not add subtrees, so the number of levels needed varies.
+		int minSubtrees = PARALLEL_SUBTREES_PER_THREAD
+				* forkJoinPool.getParallelism();
+		ArrayList<int[]> subtrees = new ArrayList<int[]>();
+		ArrayList<Integer> subtreeOffsets = new ArrayList<Integer>();
+		for (int depth = 1; depth <= PARALLEL_MAX_SPLIT_DEPTH; depth++) {
+			subtrees.clear();
+			subtreeOffsets.clear();
+			complexity = 0;
+			int[] prefix = new int[depth];
+			expand(0, prefix, subtrees, subtreeOffsets);
+			if (subtrees.size() >= minSubtrees || subtrees.isEmpty()) {
+				break;
+			}
+		}
+
+		final ParallelSolve parallelSolve = new ParallelSolve(solvetype,
+				solveBudget, subtreeOffsets, complexity);
+		long nodes = complexity;
+		ArrayList<Callable<ArrayDLX>> tasks = new ArrayList<Callable<ArrayDLX>>();
+		for (int i = 0; i < subtrees.size(); i++) {
+			final int subtreeIndex = i;
+			final int[] prefix = subtrees.get(i);
+			tasks.add(new Callable<ArrayDLX>() {
+				@Override
+				public ArrayDLX call() {
+					if (!parallelSolve.isNeeded(subtreeIndex)) {
+						return null;
+					}
+					ArrayDLX subtree = new ArrayDLX(ArrayDLX.this);
+					subtree.solvetype = solvetype;
+					subtree.mSubtree = subtreeIndex;
+					subtree.selectRows(prefix);
+					boolean completed = subtree.search(prefix.length, null,
+							parallelSolve);
+					parallelSolve.setFinished(subtreeIndex, subtree.complexity,
+							completed);
+					return subtree;
+				}
+			});
+		}
+		try {
+			for (Future<ArrayDLX> future : forkJoinPool.invokeAll(tasks)) {
+				ArrayDLX subtree = future.get();
+				if (subtree != null) {
+					nodes += subtree.complexity;
+					mColumnsCovered += subtree.mColumnsCovered;
+					mColumnsUncovered += subtree.mColumnsUncovered;
+					mBacktracks += subtree.mBacktracks;
+					mMaxDepth = Math.max(mMaxDepth, subtree.mMaxDepth);
+				}
+			}
+		} catch (InterruptedException e) {
+			// Restore the interrupt so the caller can see why the search was
+			// stopped.
+			Thread.currentThread().interrupt();
+			return BUDGET_EXHAUSTED;
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		complexity = (int) nodes;
+
+		int solutions = parallelSolve.storeSolutions();
+		if (solutions == BUDGET_EXHAUSTED) {
+			return BUDGET_EXHAUSTED;
+		}
+		NumSolns = solutions;
+		return NumSolns;
+	}
+
+	/**
+	 * Expands the search tree until the given depth. The path to each node at
+	 * this depth is registered as a subtree. The path to a solution found
+	 * before the given depth is reached is registered as a subtree as well, so
+	 * the order of the solutions is kept. The cover state is restored when
+	 * finished.
+	 *
+	 * @param k
+	 *            The current depth.
+	 * @param prefix
+	 *            The nodes of the rows selected at each level up to the
+	 *            current depth. The length of the array determines the depth
+	 *            at which the subtrees start.
+	 * @param subtrees
+	 *            The list to which the subtrees are added.
+	 * @param subtreeOffsets
+	 *            The list to which the number of nodes visited before each
+	 *            subtree is added.
+	 */
+	private void expand(int k, int[] prefix, ArrayList<int[]> subtrees,
+			ArrayList<Integer> subtreeOffsets) {
+		if (mRight[ROOT] == ROOT) {
+			subtrees.add(Arrays.copyOf(prefix, k));
+			subtreeOffsets.add(complexity);
+			return;
+		}
+		if (k == prefix.length) {
+			subtrees.add(prefix.clone());
+			subtreeOffsets.add(complexity);
+			return;
+		}
+
+		complexity++;
+		int chosenCol = ChooseMinCol();
+		if (chosenCol < 0) {
+			return;
+		}
+		CoverCol(chosenCol);
+		mMaxDepth = Math.max(mMaxDepth, k + 1);
+		for (int r = mDown[chosenCol]; r != chosenCol; r = mDown[r]) {
+			prefix[k] = r;
+			trysolution[k] = mRowIdx[r];
+			for (int j = mRight[r]; j != r; j = mRight[j]) {
+				CoverCol(mColumn[j]);
+			}
+			expand(k + 1, prefix, subtrees, subtreeOffsets);
+			for (int j = mLeft[r]; j != r; j = mLeft[j]) {
+				UncoverCol(mColumn[j]);
+			}
+		}
+		UncoverCol(chosenCol);
+	}
+
+	/**
+	 * Selects the given rows as if they were chosen by the search.
+	 *
+	 * @param prefix
+	 *            The node of the row to be selected at each level.
+	 */
+	private void selectRows(int[] prefix) {
+		for (int k = 0; k < prefix.length; k++) {
+			int r = prefix[k];
+			CoverCol(mColumn[r]);
+			trysolution[k] = mRowIdx[r];
+			for (int j = mRight[r]; j != r; j = mRight[j]) {
+				CoverCol(mColumn[j]);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of columns in the matrix.
+	 */
+	int getNumberOfColumns() {
+		return numcols;
+	}
+
+	/**
+	 * Get the number of rows added to the matrix.
+	 */
+	int getNumberOfRows() {
+		return numrows;
+	}
+
+	/**
+	 * Get the number of nodes added to the matrix.
+	 */
+	int getNumberOfNodes() {
+		return numnodes;
+	}
+
+	/**
+	 * Get the column index of the given node as it was passed to
+	 * {@link #AddNode(int, int)}.
+	 *
+	 * @param node
+	 *            The sequence number (1 based) of the node.
+	 */
+	int getNodeColumn(int node) {
+		return mColumn[numcols + node];
+	}
+
+	/**
+	 * Get the row index of the given node as it was passed to
+	 * {@link #AddNode(int, int)}.
+	 *
+	 * @param node
+	 *            The sequence number (1 based) of the node.
+	 */
+	int getNodeRow(int node) {
+		return mRowIdx[numcols + node];
+	}
+}
@@ -1,12 +1,16 @@
 package com.srlee.DLX;
 
 import java.util.ArrayList;
-
-import android.util.Log;
+import java.util.logging.Logger;
 
 public class DLX extends Object {
 	private static final String TAG = "MathDoku.DLX";
 
+	// Remove "&& false" in following line to log the solutions found by the
+	// DLX engines. The engines do not depend on Android, so they log through
+	// java.util.logging which is forwarded to logcat on Android.
+	static final boolean DEBUG_DLX = true && false;
+
 	public enum SolveType {
 		ONE, MULTIPLE, ALL
 	};
@@ -169,8 +173,8 @@ public class DLX extends Object {
 		if (root.GetRight() == root) {
 			NumSolns++;
 			foundsolution = new ArrayList<Integer>(trysolution);
-			if (MathDokuDLX.DEBUG_DLX) {
-				Log.i(TAG, "Solution " + NumSolns
+			if (DEBUG_DLX) {
+				Logger.getLogger(TAG).info("Solution " + NumSolns
 						+ " found which consists of following moves: "
 						+ trysolution.toString());
 			}
@@ -0,0 +1,727 @@
+package com.srlee.DLX;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import net.cactii.mathdoku.grid.AbstractGridCage;
+import net.cactii.mathdoku.grid.CagePermutationCache;
+import net.cactii.mathdoku.grid.CellPosition;
+
+import com.srlee.DLX.DLX.SolveType;
+
+public class MathDokuDLX extends ArrayDLX implements MathDokuSolver {
+	private static final String TAG = "MathDoku.MathDokuDLX";
+
+	// Remove "&& false" in following line to show debug information about
+	// filling the DLX data structure.
+	public static final boolean DEBUG_DLX = true && false;
+
+	private int mGridSize;
+	private int mTotalMoves;
+
+	// The list of cages for which the solution has to be checked
+	private ArrayList<? extends AbstractGridCage<?>> mCages;
+
+	// Additional data structure in case the solution has to be uncovered.
+	private class Move {
+		protected int mCageId;
+		protected int mSolutionRow;
+		protected int mCellRow;
+		protected int mCellCol;
+		protected int mCellValue;
+
+		public Move(int cageId, int solutionRow, int cellRow, int cellCol,
+				int cellValue) {
+			mCageId = cageId;
+			mSolutionRow = solutionRow;
+			mCellRow = cellRow;
+			mCellCol = cellCol;
+			mCellValue = cellValue;
+		}
+	}
+
+	private ArrayList<Move> mMoves;
+
+	// The permutations per cage which remain after the permutations which can
+	// not be part of any solution have been removed. The cages are indexed on
+	// their position in mCages and only the first mCageMovesCount[i] elements
+	// of mCageMoves[i] are valid. As long as no permutation of a cage is
+	// removed, the array of the cage itself is used. Otherwise the remaining
+	// permutations are copied to the buffer of the cage. The buffers are kept
+	// when this instance is reused for another grid.
+	private long[][] mCageMoves;
+	private int[] mCageMovesCount;
+	private long[][] mCageMovesBuffer;
+
+	// The values forced by the remaining permutations while reducing the
+	// moves. Kept when this instance is reused for another grid.
+	private int[][] mForcedValue;
+	private int[] mForcedInRow;
+	private int[] mForcedInColumn;
+
+	// The indexes of the cages in the order in which their permutations are
+	// added to the matrix and the first row of the permutations of each cage.
+	private int[] mSortedCages;
+	private int[] mFirstMoveOfCage;
+
+	// Number of solutions found by the last check on a unique solution.
+	private int mSolutions;
+
+	// The pool in which the uniqueness check is run in parallel. Null in case
+	// the check has to run on the calling thread only.
+	private ForkJoinPool mForkJoinPool;
+
+	/**
+	 * Creates a new instance of {@see MathDokuDLX}.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @param cages
+	 */
+	public MathDokuDLX(int gridSize,
+			ArrayList<? extends AbstractGridCage<?>> cages) {
+		mGridSize = gridSize;
+		mCages = cages;
+	}
+
+	/**
+	 * Reuses this instance for another grid. The storage of the exact cover
+	 * matrix is kept and will only grow in case the matrix for the new grid
+	 * is bigger. In this way a generator which checks many grids does not
+	 * need to allocate a new matrix for each grid.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @param cages
+	 *            The cages of the grid.
+	 */
+	public void reset(int gridSize,
+			ArrayList<? extends AbstractGridCage<?>> cages) {
+		mGridSize = gridSize;
+		mCages = cages;
+		mSolutions = 0;
+	}
+
+	/**
+	 * Fills the exact cover matrix for the cages of this grid.
+	 * 
+	 * @param uncoverSolution
+	 *            True in case the moves have to be registered so the solution
+	 *            can be uncovered after solving.
+	 */
+	void initialize(boolean uncoverSolution) {
+		long timeStarted = System.nanoTime();
+		int gridSizeSquare = mGridSize * mGridSize;
+		int totalCages = mCages.size();
+
+		// Number of columns = number of constraints =
+		// BOARD * BOARD (for columns) +
+		// BOARD * BOARD (for rows) +
+		// Num cages (each cage has to be filled once and only once)
+		// Number of rows = number of "moves" =
+		// Sum of all the possible cage combinations
+		// Number of nodes = sum of each move:
+		// num_cells column constraints +
+		// num_cells row constraints +
+		// 1 (cage constraint)
+		reduceMoves();
+		mTotalMoves = 0;
+		int total_nodes = 0;
+		for (int c = 0; c < totalCages; c++) {
+			int possibleMovesInCage = mCageMovesCount[c];
+			mTotalMoves += possibleMovesInCage;
+			total_nodes += possibleMovesInCage
+					* (2 * mCages.get(c).mCells.size() + 1);
+		}
+		Init(totalCages + 2 * gridSizeSquare, mTotalMoves, total_nodes);
+
+		// Reorder cages based on the number of possible moves for the cage
+		// because this has a major impact on the time it will take to find a
+		// solution. Cage should be ordered on increasing number of possible
+		// moves.
+		sortCagesOnNumberOfMoves();
+		if (mFirstMoveOfCage == null
+				|| mFirstMoveOfCage.length < totalCages + 1) {
+			mFirstMoveOfCage = new int[totalCages + 1];
+		}
+		if (DEBUG_DLX) {
+			for (int c = 0; c < totalCages; c++) {
+				AbstractGridCage<?> gridCage = mCages.get(mSortedCages[c]);
+				Logger.getLogger(TAG).info("Cage " + gridCage.mId + " has "
+						+ mCageMovesCount[mSortedCages[c]]
+						+ " permutations with " + gridCage.mCells.size()
+						+ " cells");
+			}
+		}
+
+		// In case the solution has to be uncovered, which is needed in case
+		// puzzle are shared, register details of all moves. Maybe all relevant
+		// data is already stored but I can't find out how.
+		if (uncoverSolution) {
+			mMoves = new ArrayList<Move>();
+		} else {
+			mMoves = null;
+		}
+
+		int constraint_num;
+		int move_idx = 0;
+		for (int cage_count = 0; cage_count < totalCages; cage_count++) {
+			mFirstMoveOfCage[cage_count] = move_idx;
+			AbstractGridCage<?> gridCage = mCages.get(mSortedCages[cage_count]);
+			long[] allmoves = mCageMoves[mSortedCages[cage_count]];
+			int movesInCage = mCageMovesCount[mSortedCages[cage_count]];
+			for (int m = 0; m < movesInCage; m++) {
+				long onemove = allmoves[m];
+				if (DEBUG_DLX) {
+					Logger.getLogger(TAG).info("Move " + move_idx + " - Cage "
+							+ gridCage.mId + " with " + gridCage.mCells.size()
+							+ " cells");
+				}
+
+				// Is this permutation used for cage "cage_count"? The cage
+				// constraint is put upfront. As the cage have been sorted on
+				// the number of possible permutations this has a positive
+				// influence on the solving time.
+				constraint_num = cage_count + 1;
+				AddNode(constraint_num, move_idx); // Cage constraint
+
+				// Apply the permutation of "onemove" to the cells in the cages
+				for (int i = 0; i < gridCage.mCells.size(); i++) {
+					CellPosition gridCell = gridCage.mCells.get(i);
+					int value = CagePermutationCache.getDigit(onemove, i);
+
+					// Fill data structure for DLX algorithm
+
+					// Is digit "value" used in column getColumn()?
+					constraint_num = totalCages + mGridSize * (value - 1)
+							+ gridCell.getColumn() + 1;
+					AddNode(constraint_num, move_idx); // Column constraint
+
+					// Is digit "value" used in row getRow()?
+					constraint_num = totalCages + gridSizeSquare + mGridSize
+							* (value - 1) + gridCell.getRow() + 1;
+					AddNode(constraint_num, move_idx); // Row constraint
+
+					// Fill data structure for uncovering solution if needed
+					if (uncoverSolution) {
+						mMoves.add(new Move(gridCage.mId, move_idx, gridCell
+								.getRow(), gridCell.getColumn(), value));
+					}
+					if (DEBUG_DLX) {
+						Logger.getLogger(TAG).info("  Cell "
+								+ gridCell.getCellNumber() + " row =" + gridCell.getRow() + " col = "
+								+ gridCell.getColumn() + " value = "
+								+ value);
+					}
+				}
+
+				// Proceed with next permutation for this or for the next cage
+				move_idx++;
+			}
+		}
+		mFirstMoveOfCage[totalCages] = move_idx;
+
+		setBuildTime(System.nanoTime() - timeStarted);
+	}
+
+	/**
+	 * Determines the permutations of each cage which have to be put in the
+	 * exact cover matrix. A cell for which all remaining permutations of its
+	 * cage use the same value is forced to that value. Permutations which use
+	 * a forced value in another cell of the same row or column can not be part
+	 * of any solution and are removed. As this may force other cells, this is
+	 * repeated until no more permutations can be removed. The number of
+	 * solutions is not affected but both the matrix and the search tree will
+	 * be smaller.
+	 */
+	private void reduceMoves() {
+		int totalCages = mCages.size();
+		if (mCageMoves == null || mCageMoves.length < totalCages) {
+			mCageMoves = new long[totalCages][];
+			mCageMovesCount = new int[totalCages];
+			long[][] cageMovesBuffer = new long[totalCages][];
+			if (mCageMovesBuffer != null) {
+				System.arraycopy(mCageMovesBuffer, 0, cageMovesBuffer, 0,
+						mCageMovesBuffer.length);
+			}
+			mCageMovesBuffer = cageMovesBuffer;
+		}
+		for (int c = 0; c < totalCages; c++) {
+			mCageMoves[c] = mCages.get(c).getPossibleNums();
+			mCageMovesCount[c] = mCageMoves[c].length;
+		}
+
+		if (mForcedValue == null || mForcedValue.length < mGridSize) {
+			mForcedValue = new int[mGridSize][mGridSize];
+			mForcedInRow = new int[mGridSize];
+			mForcedInColumn = new int[mGridSize];
+		}
+		int[][] forcedValue = mForcedValue;
+		int[] forcedInRow = mForcedInRow;
+		int[] forcedInColumn = mForcedInColumn;
+		int removedMoves = 0;
+		boolean movesRemoved;
+		do {
+			// Determine the forced values based on the remaining permutations.
+			for (int i = 0; i < mGridSize; i++) {
+				forcedInRow[i] = 0;
+				forcedInColumn[i] = 0;
+			}
+			for (int c = 0; c < totalCages; c++) {
+				AbstractGridCage<?> gridCage = mCages.get(c);
+				long[] moves = mCageMoves[c];
+				int movesCount = mCageMovesCount[c];
+				for (int i = 0; i < gridCage.mCells.size(); i++) {
+					int usedValues = 0;
+					for (int m = 0; m < movesCount; m++) {
+						usedValues |= (1 << CagePermutationCache.getDigit(
+								moves[m], i));
+					}
+					CellPosition gridCell = gridCage.mCells.get(i);
+					int row = gridCell.getRow();
+					int column = gridCell.getColumn();
+					if (Integer.bitCount(usedValues) == 1) {
+						forcedValue[row][column] = Integer
+								.numberOfTrailingZeros(usedValues);
+						forcedInRow[row] |= usedValues;
+						forcedInColumn[column] |= usedValues;
+					} else {
+						forcedValue[row][column] = 0;
+					}
+				}
+			}
+
+			// Remove permutations which conflict with a forced value of a cell
+			// in another cage. The permutations of the cage itself may not be
+			// altered. So as soon as the first permutation of a cage is
+			// removed, the remaining permutations are copied to the buffer of
+			// the cage. Once in the buffer, they are compacted in place.
+			movesRemoved = false;
+			for (int c = 0; c < totalCages; c++) {
+				AbstractGridCage<?> gridCage = mCages.get(c);
+				long[] moves = mCageMoves[c];
+				int movesCount = mCageMovesCount[c];
+				long[] remainingMoves = (moves == mCageMovesBuffer[c] ? moves
+						: null);
+				int remaining = 0;
+				for (int m = 0; m < movesCount; m++) {
+					long move = moves[m];
+					boolean conflicting = false;
+					for (int i = 0; i < gridCage.mCells.size(); i++) {
+						CellPosition gridCell = gridCage.mCells.get(i);
+						int row = gridCell.getRow();
+						int column = gridCell.getColumn();
+						int value = CagePermutationCache.getDigit(move, i);
+						int forced = forcedInRow[row] | forcedInColumn[column];
+						if ((forced & (1 << value)) != 0
+								&& forcedValue[row][column] != value) {
+							conflicting = true;
+							break;
+						}
+					}
+					if (conflicting) {
+						if (remainingMoves == null) {
+							remainingMoves = getCageMovesBuffer(c, movesCount);
+							System.arraycopy(moves, 0, remainingMoves, 0, m);
+							remaining = m;
+						}
+						removedMoves++;
+						movesRemoved = true;
+					} else if (remainingMoves != null) {
+						remainingMoves[remaining++] = move;
+					} else {
+						remaining++;
+					}
+				}
+				mCageMoves[c] = (remainingMoves != null ? remainingMoves
+						: moves);
+				mCageMovesCount[c] = remaining;
+			}
+		} while (movesRemoved);
+
+		if (DEBUG_DLX) {
+			Logger.getLogger(TAG).info("Removed " + removedMoves
+					+ " permutations which conflict with forced values");
+		}
+	}
+
+	/**
+	 * Get the buffer in which the remaining permutations of a cage can be
+	 * stored. The buffer only grows in case it is too small.
+	 * 
+	 * @param cage
+	 *            The index of the cage in the list of cages.
+	 * @param size
+	 *            The minimum number of permutations the buffer has to hold.
+	 * @return The buffer of the cage.
+	 */
+	private long[] getCageMovesBuffer(int cage, int size) {
+		if (mCageMovesBuffer[cage] == null
+				|| mCageMovesBuffer[cage].length < size) {
+			mCageMovesBuffer[cage] = new long[size];
+		}
+		return mCageMovesBuffer[cage];
+	}
+
+	/**
+	 * Sorts the indexes of the cages based on the number of possible moves,
+	 * the number of cells in the cage and/or the cage id. This order of the
+	 * cages determine how efficient the puzzle solving will be. As the number
+	 * of cages is small, an insertion sort is used which does not need to
+	 * allocate any memory.
+	 */
+	private void sortCagesOnNumberOfMoves() {
+		int totalCages = mCages.size();
+		if (mSortedCages == null || mSortedCages.length < totalCages) {
+			mSortedCages = new int[totalCages];
+		}
+		for (int c = 0; c < totalCages; c++) {
+			int i = c;
+			while (i > 0 && compareCages(mSortedCages[i - 1], c) > 0) {
+				mSortedCages[i] = mSortedCages[i - 1];
+				i--;
+			}
+			mSortedCages[i] = c;
+		}
+	}
+
+	/**
+	 * Compares two cages on the number of possible moves. In case of equality
+	 * the number of cells in the cage and finally the cage id's are compared.
+	 */
+	private int compareCages(int cage1, int cage2) {
+		int difference = mCageMovesCount[cage1] - mCageMovesCount[cage2];
+		if (difference == 0) {
+			// Both cages have the same number of possible permutation. Next
+			// compare the number of cells in the cage.
+			AbstractGridCage<?> gridCage1 = mCages.get(cage1);
+			AbstractGridCage<?> gridCage2 = mCages.get(cage2);
+			difference = gridCage1.mCells.size() - gridCage2.mCells.size();
+			if (difference == 0) {
+				// Also the number of cells is equal. Finally compare the
+				// id's.
+				difference = gridCage1.mId - gridCage2.mId;
+			}
+		}
+		return difference;
+	}
+
+	/**
+	 * Lets the uniqueness check split its search tree over the threads of the
+	 * given pool. The outcome of the check is identical to the sequential
+	 * check, also in case the node limit of the budget is reached. Only the
+	 * time limit and cancellation may abort both checks at different points.
+	 * 
+	 * @param forkJoinPool
+	 *            The pool to be used. Null in case the check has to run on the
+	 *            calling thread only.
+	 */
+	public void setParallelSolve(ForkJoinPool forkJoinPool) {
+		mForkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Checks whether a unique solution can be found for this grid.
+	 * 
+	 * @return True in case exactly one solution exists for this grid.
+	 */
+	public boolean hasUniqueSolution() {
+		return hasUniqueSolution(null);
+	}
+
+	/**
+	 * Checks whether a unique solution can be found for this grid within the
+	 * given budget.
+	 * 
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited. Use {@link SolveBudget#isExhausted()} to check
+	 *            whether a negative result was caused by exhausting the budget.
+	 * @return True in case exactly one solution exists for this grid. False in
+	 *         case no or multiple solutions exist or in case the uniqueness
+	 *         could not be determined within the budget.
+	 */
+	public boolean hasUniqueSolution(SolveBudget solveBudget) {
+		if (DEBUG_DLX) {
+			initialize(true); // Needed to compute complexity in development
+								// mode
+
+			// Search for multiple solutions (but stop as soon as the second
+			// solution has been found).
+			mSolutions = Solve(SolveType.MULTIPLE, solveBudget, mForkJoinPool);
+			if (mSolutions == 1) {
+				// Only one solution has been found. The real complexity of the
+				// puzzle is computed based on this solution.
+
+				getPuzzleComplexity();
+				return true;
+			} else {
+				return false;
+			}
+		} else {
+			initialize(false);
+			mSolutions = Solve(SolveType.MULTIPLE, solveBudget, mForkJoinPool);
+			return (mSolutions == 1);
+		}
+	}
+
+	/**
+	 * Get two different solutions of the grid which were found by the last
+	 * check on a unique solution.
+	 * 
+	 * @return An array containing two different solution grids. Null in case
+	 *         the last check did not find multiple solutions.
+	 */
+	public int[][][] getAmbiguousSolutionGrids() {
+		if (mSolutions < 2 || GetRowsInPreviousSolution() == 0) {
+			return null;
+		}
+
+		int[] solutionRows = new int[GetRowsInSolution()];
+		for (int i = 1; i <= solutionRows.length; i++) {
+			solutionRows[i - 1] = GetSolutionRow(i);
+		}
+		int[] previousSolutionRows = new int[GetRowsInPreviousSolution()];
+		for (int i = 1; i <= previousSolutionRows.length; i++) {
+			previousSolutionRows[i - 1] = GetPreviousSolutionRow(i);
+		}
+		return new int[][][] { toSolutionGrid(previousSolutionRows),
+				toSolutionGrid(solutionRows) };
+	}
+
+	/**
+	 * Converts the rows of a solution to a solution grid. Each row is mapped
+	 * back to the cage and permutation from which it was created.
+	 * 
+	 * @param solutionRows
+	 *            The rows of the solution.
+	 * @return The solution grid.
+	 */
+	private int[][] toSolutionGrid(int[] solutionRows) {
+		int[][] solutionGrid = new int[mGridSize][mGridSize];
+		for (int solutionRow : solutionRows) {
+			int cage = 0;
+			while (mFirstMoveOfCage[cage + 1] <= solutionRow) {
+				cage++;
+			}
+			AbstractGridCage<?> gridCage = mCages.get(mSortedCages[cage]);
+			long move = mCageMoves[mSortedCages[cage]][solutionRow
+					- mFirstMoveOfCage[cage]];
+			for (int i = 0; i < gridCage.mCells.size(); i++) {
+				CellPosition gridCell = gridCage.mCells.get(i);
+				solutionGrid[gridCell.getRow()][gridCell.getColumn()] = CagePermutationCache
+						.getDigit(move, i);
+			}
+		}
+		return solutionGrid;
+	}
+
+	/**
+	 * Enumerates the solutions of this grid. Each solution is passed to the
+	 * visitor as the indexes of the cage permutations which are used in the
+	 * solution. The array passed to the visitor is reused for all solutions.
+	 * 
+	 * @param solutionVisitor
+	 *            The visitor to which each solution is passed. The
+	 *            enumeration stops as soon as the visitor returns false.
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited.
+	 * @return The number of solutions passed to the visitor.
+	 *         {@link ArrayDLX#BUDGET_EXHAUSTED} in case the search was aborted.
+	 */
+	public int visitSolutions(SolutionVisitor solutionVisitor,
+			SolveBudget solveBudget) {
+		initialize(false);
+		return Solve(solutionVisitor, solveBudget);
+	}
+
+	/**
+	 * Determines the unique solution for this grid.
+	 * 
+	 * @return The solution of the grid if and oly if the grid has exactly one
+	 *         unique solution. NULL otherwise.
+	 */
+	public int[][] getSolutionGrid() {
+		initialize(true);
+
+		// Check if a single unique solution can be determined.
+		if (mMoves == null || Solve(SolveType.MULTIPLE) != 1) {
+			return null;
+		}
+
+		// Determine which rows are included in the solution.
+		boolean[] rowInSolution = new boolean[mTotalMoves];
+		for (int i = 0; i < mTotalMoves; i++) {
+			rowInSolution[i] = false;
+		}
+		for (int i = 1; i <= GetRowsInSolution(); i++) {
+			rowInSolution[GetSolutionRow(i)] = true;
+		}
+
+		// Now rebuild the solution
+		int[][] solutionGrid = new int[mGridSize][mGridSize];
+		for (Move move : mMoves) {
+			if (rowInSolution[move.mSolutionRow]) {
+				solutionGrid[move.mCellRow][move.mCellCol] = move.mCellValue;
+			}
+		}
+
+		if (DEBUG_DLX) {
+			for (int row = 0; row < this.mGridSize; row++) {
+				String line = "";
+				for (int col = 0; col < this.mGridSize; col++) {
+					line += " " + solutionGrid[row][col];
+				}
+				Logger.getLogger(TAG).info(line);
+			}
+		}
+
+		return solutionGrid;
+	}
+
+	/**
+	 * Determines the complexity of a grid by analysing its solution.
+	 * 
+	 * @return The complexity of a grid.
+	 */
+	private int getPuzzleComplexity() {
+		if (DEBUG_DLX) {
+			// ///////////////////////////////////////////////////////////////////////
+			// NOT READY FOR PRODUCTION MODE YET.
+			//
+			// Be sure to call initialize(true) before calling this method
+			//
+			// The method computes a complexity and prints log messages. It is
+			// not yet clear whether the computed complexity match with
+			// subjective difficulty.
+			// ///////////////////////////////////////////////////////////////////////
+
+			if (DEBUG_DLX) {
+				Logger.getLogger(TAG).info("Determine puzzle complexitiy");
+			}
+			int[][] solutionGrid = new int[mGridSize][mGridSize];
+			int moveCount = 1;
+			int previousCageId = -1;
+			int puzzleComplexity = 1;
+			for (int i = 1; i <= GetRowsInSolution(); i++) {
+				// Each solution row corresponds with one cage in the grid. The
+				// order in which the cages are resolved is important. As soon a
+				// the
+				// next cage has to be resolved, it is determined which cage has
+				// the
+				// least possible number of permutations available at that
+				// moment.
+				int solutionRow = GetSolutionRow(i);
+
+				for (Move move : mMoves) {
+					if (move.mSolutionRow == solutionRow) {
+						if (move.mCageId != previousCageId) {
+							// This is the first cell of the next cage to be
+							// filled.
+							// Determine the number of move for this cage which
+							// are
+							// still possible with the partially filled grid.
+							AbstractGridCage<?> gridCage = mCages
+									.get(move.mCageId);
+							long[] cageMoves = gridCage.getPossibleNums();
+							int possiblePermutations = 0;
+							for (long cageMove : cageMoves) {
+								boolean validMove = true;
+								// Test whether this cage move could be applied
+								// to
+								// the cells of the cage.
+								for (int j = 0; j < gridCage.mCells.size(); j++) {
+									// Check if value is already used in this
+									// row
+									int cellValue = CagePermutationCache
+											.getDigit(cageMove, j);
+									int cellRow = gridCage.mCells.get(j)
+											.getRow();
+									for (int col = 0; col < mGridSize; col++) {
+										if (solutionGrid[cellRow][col] == cellValue) {
+											// The value is already used on this
+											// row.
+											validMove = false;
+											break;
+										}
+									}
+									if (validMove == false) {
+										break;
+									}
+
+									// Check if value is already used in this
+									// row
+									int cellColumn = gridCage.mCells.get(j)
+											.getColumn();
+									for (int row = 0; row < mGridSize; row++) {
+										if (solutionGrid[row][cellColumn] == cellValue) {
+											// The value is already used in this
+											// column.
+											validMove = false;
+											break;
+										}
+									}
+									if (validMove == false) {
+										break;
+									}
+								}
+								if (validMove) {
+									// All values of the cageMove could be
+									// placed in
+									// their respective cells. So this is really
+									// a
+									// permutation which still can be place into
+									// the
+									// cage.
+									possiblePermutations++;
+								}
+							}
+							// The complexity of the puzzle has to be multiplied
+							// with the number of possible permutations of this
+							// cage
+							// as their is not deductive way to reduce the
+							// number of
+							// possible combinations any further. At this moment
+							// a
+							// combination has to be chosen at random to check
+							// to
+							// see if it fails.
+							if (DEBUG_DLX) {
+								Logger.getLogger(TAG).info("Select cage "
+										+ move.mCageId + " with complexity "
+										+ possiblePermutations);
+							}
+							puzzleComplexity *= possiblePermutations;
+							previousCageId = move.mCageId;
+						}
+
+						// Fill the grid solution with the correct value.
+						solutionGrid[move.mCellRow][move.mCellCol] = move.mCellValue;
+
+					}
+				}
+				if (DEBUG_DLX) {
+					Logger.getLogger(TAG).info("*********** MOVE "
+							+ (moveCount++) + " ***********");
+					for (int row = 0; row < this.mGridSize; row++) {
+						String line = "";
+						for (int col = 0; col < this.mGridSize; col++) {
+							line += " " + solutionGrid[row][col];
+						}
+						Logger.getLogger(TAG).info(line);
+					}
+				}
+			}
+			if (DEBUG_DLX) {
+				Logger.getLogger(TAG).info("Total complexity of puzzle "
+						+ puzzleComplexity + " (or " + complexity + "??)");
+			}
+
+			return puzzleComplexity;
+		}
+
+		return 0;
+	}
+}
\ No newline at end of file
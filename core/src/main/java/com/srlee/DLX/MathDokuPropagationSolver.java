@@ -0,0 +1,662 @@
+package com.srlee.DLX;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.cactii.mathdoku.grid.AbstractGridCage;
+import net.cactii.mathdoku.grid.CellPosition;
+
+/**
+ * Solver for MathDoku grids based on constraint propagation. Contrary to
+ * {@link MathDokuDLX} the permutations of the cages are not enumerated.
+ * Instead the possible values of each cell are kept in a bit mask. Values are
+ * removed from those masks by the row and column constraints and by checking
+ * whether the arithmetic of the cage can still be satisfied. In case no more
+ * values can be removed, the cell with the least possible values is chosen to
+ * branch on.
+ */
+public class MathDokuPropagationSolver implements MathDokuSolver {
+	private final int mGridSize;
+	private final int mNumberOfCells;
+
+	// The cages of the grid. For each cage the cell numbers, the operator, the
+	// result and whether the operator is unknown to the solver are stored.
+	private final int[][] mCageCells;
+	private final int[] mCageAction;
+	private final int[] mCageResult;
+	private final boolean[] mCageOperatorHidden;
+
+	// The cage to which each cell belongs.
+	private final int[] mCellCage;
+
+	// For each cell of a cage, a bit mask of the preceding cells of the same
+	// cage which are in the same row or column.
+	private final int[][] mCageConflicts;
+
+	// Cages for which the cells have changed since the cage arithmetic was
+	// checked.
+	private final boolean[] mCageChanged;
+
+	// For each value of each cell of a cage the last combination of values
+	// found which satisfies the arithmetic of the cage and uses this value.
+	// The values of a combination are packed in 4 bits per cell. As long as
+	// all values of this combination are still possible, the value is known
+	// to be supported without searching the combinations again. 0 in case no
+	// combination is known.
+	private final int[][] mResidualCombinations;
+
+	// Work arrays for searching a combination of values satisfying the
+	// arithmetic of a cage. For each cell of the cage the value currently
+	// tried and the minimum and maximum sum and product of the remaining
+	// cells.
+	private final int[] mTried;
+	private final int[] mMinSum;
+	private final int[] mMaxSum;
+	private final int[] mMinProduct;
+	private final int[] mMaxProduct;
+	private final int[] mSupported;
+
+	// The possible values per cell and the values assigned to the cells for
+	// each depth of the search. Bit v of a mask is set in case value v is
+	// still possible for the cell. A value of 0 means that no value has been
+	// assigned yet.
+	private int[][] mMasks;
+	private int[][] mValues;
+
+	// The search which is currently running.
+	private SolveBudget mSolveBudget;
+	private int mMaxSolutions;
+	private int mSolutions;
+	private boolean mAborted;
+
+	// The values of the cells of the first and second solution found.
+	private int[] mSolution;
+	private int[] mSecondSolution;
+	private SolveStatistics mSolveStatistics;
+
+	/**
+	 * Creates a new instance of {@link MathDokuPropagationSolver}.
+	 *
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @param cages
+	 *            The cages of the grid.
+	 */
+	public MathDokuPropagationSolver(int gridSize,
+			ArrayList<? extends AbstractGridCage<?>> cages) {
+		mGridSize = gridSize;
+		mNumberOfCells = gridSize * gridSize;
+
+		int numberOfCages = cages.size();
+		mCageCells = new int[numberOfCages][];
+		mCageAction = new int[numberOfCages];
+		mCageResult = new int[numberOfCages];
+		mCageOperatorHidden = new boolean[numberOfCages];
+		mCellCage = new int[mNumberOfCells];
+		mCageConflicts = new int[numberOfCages][];
+		mCageChanged = new boolean[numberOfCages];
+		mResidualCombinations = new int[numberOfCages][];
+		int maxCageSize = 0;
+		for (int cage = 0; cage < numberOfCages; cage++) {
+			AbstractGridCage<?> gridCage = cages.get(cage);
+			int cageSize = gridCage.mCells.size();
+			maxCageSize = Math.max(maxCageSize, cageSize);
+			mCageCells[cage] = new int[cageSize];
+			mCageConflicts[cage] = new int[cageSize];
+			mResidualCombinations[cage] = new int[cageSize * 16];
+			for (int i = 0; i < cageSize; i++) {
+				CellPosition gridCell = gridCage.mCells.get(i);
+				mCageCells[cage][i] = gridCell.getRow() * gridSize
+						+ gridCell.getColumn();
+				mCellCage[mCageCells[cage][i]] = cage;
+				for (int j = 0; j < i; j++) {
+					CellPosition otherCell = gridCage.mCells.get(j);
+					if (otherCell.getRow() == gridCell.getRow()
+							|| otherCell.getColumn() == gridCell.getColumn()) {
+						mCageConflicts[cage][i] |= (1 << j);
+					}
+				}
+			}
+			mCageAction[cage] = gridCage.mAction;
+			mCageResult[cage] = gridCage.mResult;
+			mCageOperatorHidden[cage] = gridCage.isOperatorHidden()
+					|| (gridCage.mAction == AbstractGridCage.ACTION_NONE
+							&& gridCage.mCells.size() > 1);
+		}
+
+		mSupported = new int[maxCageSize];
+		mTried = new int[maxCageSize];
+		mMinSum = new int[maxCageSize + 1];
+		mMaxSum = new int[maxCageSize + 1];
+		mMinProduct = new int[maxCageSize + 1];
+		mMaxProduct = new int[maxCageSize + 1];
+	}
+
+	@Override
+	public boolean hasUniqueSolution(SolveBudget solveBudget) {
+		return (solve(2, solveBudget) == 1);
+	}
+
+	@Override
+	public int[][] getSolutionGrid() {
+		if (solve(2, null) != 1) {
+			return null;
+		}
+
+		return toSolutionGrid(mSolution);
+	}
+
+	@Override
+	public int[][][] getAmbiguousSolutionGrids() {
+		if (mSecondSolution == null) {
+			return null;
+		}
+		return new int[][][] { toSolutionGrid(mSolution),
+				toSolutionGrid(mSecondSolution) };
+	}
+
+	/**
+	 * Converts the values of the cells of a solution to a solution grid.
+	 */
+	private int[][] toSolutionGrid(int[] solution) {
+		int[][] solutionGrid = new int[mGridSize][mGridSize];
+		for (int cell = 0; cell < mNumberOfCells; cell++) {
+			solutionGrid[cell / mGridSize][cell % mGridSize] = solution[cell];
+		}
+		return solutionGrid;
+	}
+
+	@Override
+	public SolveStatistics getSolveStatistics() {
+		return mSolveStatistics;
+	}
+
+	/**
+	 * Searches for solutions of the grid.
+	 *
+	 * @param maxSolutions
+	 *            The number of solutions after which the search stops.
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited.
+	 * @return The number of solutions found. {@link ArrayDLX#BUDGET_EXHAUSTED}
+	 *         in case the search was aborted.
+	 */
+	private int solve(int maxSolutions, SolveBudget solveBudget) {
+		long timeStarted = System.nanoTime();
+		mSolveBudget = solveBudget;
+		mMaxSolutions = maxSolutions;
+		mSolutions = 0;
+		mAborted = false;
+		mSolution = null;
+		mSecondSolution = null;
+		mSolveStatistics = new SolveStatistics();
+		mSolveStatistics.mSolves = 1;
+		if (solveBudget != null) {
+			solveBudget.start();
+		}
+
+		// Each level of the search assigns at least one cell.
+		mMasks = new int[mNumberOfCells + 1][mNumberOfCells];
+		mValues = new int[mNumberOfCells + 1][mNumberOfCells];
+		int allValues = (1 << (mGridSize + 1)) - 2;
+		for (int cell = 0; cell < mNumberOfCells; cell++) {
+			mMasks[0][cell] = allValues;
+		}
+		Arrays.fill(mCageChanged, true);
+		if (propagate(mMasks[0], mValues[0])) {
+			search(0);
+		}
+
+		mSolveStatistics.mSearchTimeNanos = System.nanoTime() - timeStarted;
+		return (mAborted ? ArrayDLX.BUDGET_EXHAUSTED : mSolutions);
+	}
+
+	/**
+	 * Searches the subtree at the given depth. The state at this depth has
+	 * already been propagated.
+	 *
+	 * @param depth
+	 *            The depth of the search.
+	 * @return True in case the search has to stop.
+	 */
+	private boolean search(int depth) {
+		mSolveStatistics.mNodesVisited++;
+		mSolveStatistics.mMaxDepth = Math.max(mSolveStatistics.mMaxDepth,
+				depth);
+		if (mSolveBudget != null
+				&& !mSolveBudget.allows(mSolveStatistics.mNodesVisited)) {
+			mAborted = true;
+			return true;
+		}
+
+		int[] masks = mMasks[depth];
+		int[] values = mValues[depth];
+
+		// Choose the unassigned cell with the least possible values.
+		int chosenCell = -1;
+		int minCount = Integer.MAX_VALUE;
+		for (int cell = 0; cell < mNumberOfCells; cell++) {
+			if (values[cell] == 0) {
+				int count = Integer.bitCount(masks[cell]);
+				if (count < minCount) {
+					chosenCell = cell;
+					minCount = count;
+				}
+			}
+		}
+		if (chosenCell < 0) {
+			// All cells have been assigned.
+			mSolutions++;
+			if (mSolution == null) {
+				mSolution = values.clone();
+			} else if (mSecondSolution == null) {
+				mSecondSolution = values.clone();
+			}
+			return (mSolutions >= mMaxSolutions);
+		}
+
+		int[] nextMasks = mMasks[depth + 1];
+		int[] nextValues = mValues[depth + 1];
+		int remaining = masks[chosenCell];
+		while (remaining != 0) {
+			int value = Integer.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+
+			System.arraycopy(masks, 0, nextMasks, 0, mNumberOfCells);
+			System.arraycopy(values, 0, nextValues, 0, mNumberOfCells);
+			Arrays.fill(mCageChanged, false);
+			if (assign(nextMasks, nextValues, chosenCell, value)
+					&& propagate(nextMasks, nextValues)) {
+				if (search(depth + 1)) {
+					return true;
+				}
+			}
+			mSolveStatistics.mBacktracks++;
+		}
+		return false;
+	}
+
+	/**
+	 * Assigns a value to a cell and removes the value from the other cells in
+	 * the same row and column.
+	 *
+	 * @return False in case the assignment conflicts with another cell.
+	 */
+	private boolean assign(int[] masks, int[] values, int cell, int value) {
+		int bit = 1 << value;
+		values[cell] = value;
+		masks[cell] = bit;
+		mCageChanged[mCellCage[cell]] = true;
+
+		int row = cell / mGridSize;
+		int column = cell % mGridSize;
+		for (int i = 0; i < mGridSize; i++) {
+			int peer = row * mGridSize + i;
+			if (peer != cell && !removeValue(masks, values, peer, bit)) {
+				return false;
+			}
+			peer = i * mGridSize + column;
+			if (peer != cell && !removeValue(masks, values, peer, bit)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a value from the possible values of a cell.
+	 *
+	 * @return False in case no value is possible anymore for the cell.
+	 */
+	private boolean removeValue(int[] masks, int[] values, int cell, int bit) {
+		if (values[cell] != 0) {
+			return (masks[cell] != bit);
+		}
+		if ((masks[cell] & bit) != 0) {
+			masks[cell] &= ~bit;
+			mCageChanged[mCellCage[cell]] = true;
+		}
+		return (masks[cell] != 0);
+	}
+
+	/**
+	 * Removes values which can not be part of a solution until no more values
+	 * can be removed. Cells for which only one value remains are assigned.
+	 *
+	 * @return False in case the state can not lead to a solution.
+	 */
+	private boolean propagate(int[] masks, int[] values) {
+		boolean changed;
+		do {
+			changed = false;
+
+			// Assign cells having a single possible value.
+			for (int cell = 0; cell < mNumberOfCells; cell++) {
+				if (values[cell] == 0) {
+					if (masks[cell] == 0) {
+						return false;
+					}
+					if (Integer.bitCount(masks[cell]) == 1) {
+						if (!assign(masks, values, cell,
+								Integer.numberOfTrailingZeros(masks[cell]))) {
+							return false;
+						}
+						changed = true;
+					}
+				}
+			}
+
+			// Each value has to be used exactly once in each row and column.
+			for (int line = 0; line < mGridSize; line++) {
+				int result = propagateLine(masks, values, line * mGridSize, 1);
+				if (result < 0) {
+					return false;
+				}
+				if (result == 0) {
+					result = propagateLine(masks, values, line, mGridSize);
+				}
+				if (result < 0) {
+					return false;
+				}
+				if (result > 0) {
+					changed = true;
+				}
+			}
+
+			// Remove the values which can not satisfy the cage arithmetic.
+			// Only cages of which the cells have changed have to be checked
+			// again.
+			for (int cage = 0; cage < mCageCells.length; cage++) {
+				if (!mCageChanged[cage]) {
+					continue;
+				}
+				mCageChanged[cage] = false;
+				int result = propagateCage(masks, values, cage);
+				if (result < 0) {
+					return false;
+				}
+				if (result > 0) {
+					changed = true;
+				}
+			}
+		} while (changed);
+
+		return true;
+	}
+
+	/**
+	 * Assigns values which can only be placed in one cell of a row or column.
+	 *
+	 * @param first
+	 *            The first cell of the row or column.
+	 * @param step
+	 *            The distance between two cells of the row or column.
+	 * @return -1 in case a value can not be placed at all, 1 in case a cell
+	 *         has been assigned, 0 otherwise.
+	 */
+	private int propagateLine(int[] masks, int[] values, int first, int step) {
+		int seenOnce = 0;
+		int seenTwice = 0;
+		for (int i = 0, cell = first; i < mGridSize; i++, cell += step) {
+			seenTwice |= seenOnce & masks[cell];
+			seenOnce |= masks[cell];
+		}
+		if (seenOnce != (1 << (mGridSize + 1)) - 2) {
+			return -1;
+		}
+
+		int single = seenOnce & ~seenTwice;
+		int result = 0;
+		for (int i = 0, cell = first; i < mGridSize; i++, cell += step) {
+			if (values[cell] == 0 && (masks[cell] & single) != 0) {
+				if (!assign(masks, values, cell,
+						Integer.numberOfTrailingZeros(masks[cell] & single))) {
+					return -1;
+				}
+				result = 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes values of the cells of a cage which are not part of any
+	 * combination of values satisfying the arithmetic of the cage.
+	 *
+	 * @return -1 in case the cage can not be satisfied, 1 in case a value has
+	 *         been removed, 0 otherwise.
+	 */
+	private int propagateCage(int[] masks, int[] values, int cage) {
+		int[] cells = mCageCells[cage];
+		int cageSize = cells.length;
+		if (cageSize == 1) {
+			int mask = masks[cells[0]] & valueToMask(mCageResult[cage]);
+			if (mask == 0) {
+				return -1;
+			}
+			if (mask != masks[cells[0]]) {
+				masks[cells[0]] = mask;
+				return 1;
+			}
+			return 0;
+		}
+
+		// Determine the bounds of the sum and product of the cells from each
+		// cell up to the last cell of the cage.
+		mMinSum[cageSize] = 0;
+		mMaxSum[cageSize] = 0;
+		mMinProduct[cageSize] = 1;
+		mMaxProduct[cageSize] = 1;
+		for (int i = cageSize - 1; i >= 0; i--) {
+			int mask = masks[cells[i]];
+			int minValue = Integer.numberOfTrailingZeros(mask);
+			int maxValue = 31 - Integer.numberOfLeadingZeros(mask);
+			mMinSum[i] = mMinSum[i + 1] + minValue;
+			mMaxSum[i] = mMaxSum[i + 1] + maxValue;
+			mMinProduct[i] = mMinProduct[i + 1] * minValue;
+			mMaxProduct[i] = mMaxProduct[i + 1] * maxValue;
+			mSupported[i] = 0;
+		}
+
+		// Find a supporting combination for each value of each cell. A
+		// combination found supports the values of all cells in it.
+		int[] residualCombinations = mResidualCombinations[cage];
+		for (int i = 0; i < cageSize; i++) {
+			int remaining = masks[cells[i]] & ~mSupported[i];
+			while (remaining != 0) {
+				int value = Integer.numberOfTrailingZeros(remaining);
+				remaining &= remaining - 1;
+				if ((mSupported[i] & (1 << value)) != 0) {
+					continue;
+				}
+
+				int combination = residualCombinations[i * 16 + value];
+				if (combination == 0
+						|| !isPossibleCombination(masks, cells, combination)) {
+					mTried[i] = value;
+					if (!findCombination(masks, cage, i)) {
+						continue;
+					}
+					combination = 0;
+					for (int j = cageSize - 1; j >= 0; j--) {
+						combination = (combination << 4) | mTried[j];
+					}
+					for (int j = 0; j < cageSize; j++) {
+						residualCombinations[j * 16 + mTried[j]] = combination;
+					}
+				}
+				for (int j = 0; j < cageSize; j++) {
+					mSupported[j] |= 1 << ((combination >>> (4 * j)) & 0xF);
+				}
+			}
+		}
+
+		// Remove all values which are not supported.
+		boolean changed = false;
+		for (int i = 0; i < cageSize; i++) {
+			int cell = cells[i];
+			if (mSupported[i] == 0) {
+				return -1;
+			}
+			if (mSupported[i] != masks[cell]) {
+				masks[cell] = mSupported[i];
+				changed = true;
+			}
+		}
+		return (changed ? 1 : 0);
+	}
+
+	/**
+	 * Checks whether all values of a packed combination are still possible.
+	 */
+	private boolean isPossibleCombination(int[] masks, int[] cells,
+			int combination) {
+		for (int j = 0; j < cells.length; j++) {
+			if ((masks[cells[j]] & (1 << ((combination >>> (4 * j)) & 0xF))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Searches a combination of values satisfying the arithmetic of a cage
+	 * given the value in mTried for the fixed cell.
+	 *
+	 * @return True in case a combination is found. The values of the
+	 *         combination are stored in mTried.
+	 */
+	private boolean findCombination(int[] masks, int cage, int fixedIndex) {
+		if (!mCageOperatorHidden[cage]) {
+			return findCombination(masks, cage, mCageAction[cage], fixedIndex,
+					0, 0, 1);
+		}
+
+		// Any operator may be used. Cages with more than two cells can only
+		// be used for additions and multiplications.
+		int fixedValue = mTried[fixedIndex];
+		if (findCombination(masks, cage, AbstractGridCage.ACTION_ADD,
+				fixedIndex, 0, 0, 1)) {
+			return true;
+		}
+		mTried[fixedIndex] = fixedValue;
+		if (findCombination(masks, cage, AbstractGridCage.ACTION_MULTIPLY,
+				fixedIndex, 0, 0, 1)) {
+			return true;
+		}
+		if (mCageCells[cage].length == 2) {
+			mTried[fixedIndex] = fixedValue;
+			if (findCombination(masks, cage, AbstractGridCage.ACTION_SUBTRACT,
+					fixedIndex, 0, 0, 1)) {
+				return true;
+			}
+			mTried[fixedIndex] = fixedValue;
+			if (findCombination(masks, cage, AbstractGridCage.ACTION_DIVIDE,
+					fixedIndex, 0, 0, 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tries the combinations of values for the cells of a cage starting at the
+	 * given cell, given the values already chosen for the preceding cells.
+	 *
+	 * @param action
+	 *            The operator to be checked.
+	 * @param fixedIndex
+	 *            The index of the cell of which the value is fixed to the
+	 *            value in mTried.
+	 * @param index
+	 *            The index of the next cell in the cage.
+	 * @param sum
+	 *            The sum of the values chosen for the preceding cells.
+	 * @param product
+	 *            The product of the values chosen for the preceding cells.
+	 * @return True in case a combination is found.
+	 */
+	private boolean findCombination(int[] masks, int cage, int action,
+			int fixedIndex, int index, int sum, int product) {
+		int[] cells = mCageCells[cage];
+		int result = mCageResult[cage];
+		if (index == cells.length) {
+			switch (action) {
+			case AbstractGridCage.ACTION_ADD:
+				return (sum == result);
+			case AbstractGridCage.ACTION_MULTIPLY:
+				return (product == result);
+			case AbstractGridCage.ACTION_SUBTRACT:
+				return (mTried[0] - mTried[1] == result || mTried[1]
+						- mTried[0] == result);
+			case AbstractGridCage.ACTION_DIVIDE:
+				return (mTried[0] == mTried[1] * result || mTried[1] == mTried[0]
+						* result);
+			}
+			return false;
+		}
+
+		// Stop in case the remaining cells can not reach the result.
+		if (action == AbstractGridCage.ACTION_ADD
+				&& (sum + mMinSum[index] > result || sum + mMaxSum[index] < result)) {
+			return false;
+		}
+		if (action == AbstractGridCage.ACTION_MULTIPLY
+				&& (result % product != 0
+						|| product * mMinProduct[index] > result || product
+						* mMaxProduct[index] < result)) {
+			return false;
+		}
+
+		int remaining;
+		if (index == fixedIndex) {
+			remaining = 1 << mTried[index];
+		} else {
+			remaining = masks[cells[index]];
+		}
+		if (index == cells.length - 1) {
+			// The value of the last cell of an addition or multiplication is
+			// determined by the values of the other cells.
+			if (action == AbstractGridCage.ACTION_ADD) {
+				remaining &= valueToMask(result - sum);
+			} else if (action == AbstractGridCage.ACTION_MULTIPLY) {
+				remaining &= valueToMask(result / product);
+			}
+		}
+		while (remaining != 0) {
+			int value = Integer.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+
+			// Cells of a cage in the same row or column need different values.
+			boolean conflict = false;
+			int conflicts = mCageConflicts[cage][index];
+			while (conflicts != 0) {
+				int other = Integer.numberOfTrailingZeros(conflicts);
+				conflicts &= conflicts - 1;
+				if (mTried[other] == value) {
+					conflict = true;
+					break;
+				}
+			}
+			if (conflict) {
+				continue;
+			}
+
+			mTried[index] = value;
+			if (findCombination(masks, cage, action, fixedIndex, index + 1,
+					sum + value, product * value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Converts a value to a bit mask. Values outside the grid result in an
+	 * empty mask.
+	 */
+	private int valueToMask(int value) {
+		return (value > 0 && value <= mGridSize ? 1 << value : 0);
+	}
+}
@@ -0,0 +1,46 @@
+package com.srlee.DLX;
+
+/**
+ * Common interface of the engines which can check and solve a MathDoku grid.
+ */
+public interface MathDokuSolver {
+	/**
+	 * Checks whether a unique solution can be found for the grid within the
+	 * given budget.
+	 *
+	 * @param solveBudget
+	 *            The budget which limits the search. Null in case the search
+	 *            is not limited. Use {@link SolveBudget#isExhausted()} to check
+	 *            whether a negative result was caused by exhausting the budget.
+	 * @return True in case exactly one solution exists for the grid. False in
+	 *         case no or multiple solutions exist or in case the uniqueness
+	 *         could not be determined within the budget.
+	 */
+	public boolean hasUniqueSolution(SolveBudget solveBudget);
+
+	/**
+	 * Determines the unique solution of the grid.
+	 *
+	 * @return A two dimensional array containing the solution in case the grid
+	 *         has a unique solution. Null otherwise.
+	 */
+	public int[][] getSolutionGrid();
+
+	/**
+	 * Get two different solutions of the grid which were found by the last
+	 * check on a unique solution. The cells in which both solutions differ
+	 * point to the cages which make the grid ambiguous.
+	 *
+	 * @return An array containing two different solution grids. Null in case
+	 *         the last check did not find multiple solutions.
+	 */
+	public int[][][] getAmbiguousSolutionGrids();
+
+	/**
+	 * Get the statistics of the last solve.
+	 *
+	 * @return The statistics of the last solve. Null in case no solve has been
+	 *         done yet.
+	 */
+	public SolveStatistics getSolveStatistics();
+}
@@ -0,0 +1,161 @@
+package com.srlee.DLX;
+
+/**
+ * Limits the amount of work a single solve of the DLX algorithm may take. A
+ * solve is aborted as soon as either the maximum number of search nodes has
+ * been visited, the maximum time has elapsed or the cancellation token reports
+ * that the solve is no longer needed.
+ */
+public class SolveBudget {
+	/**
+	 * Value to be used for the maximum number of nodes or the maximum time in
+	 * case no limit has to be applied.
+	 */
+	public static final long UNLIMITED = 0;
+
+	// The time and cancellation token are only checked once per this number
+	// of nodes as reading the clock is relatively expensive.
+	static final int CHECK_INTERVAL_MASK = 0x3FF;
+
+	/**
+	 * A token which is checked regularly while solving to determine whether
+	 * the solve has to be aborted.
+	 */
+	public interface CancellationToken {
+		/**
+		 * Checks whether the solve has to be aborted.
+		 *
+		 * @return True in case the solve has to be aborted.
+		 */
+		public boolean isCancelled();
+	}
+
+	private final long mMaxNodes;
+	private final long mMaxMillis;
+	private final CancellationToken mCancellationToken;
+
+	// Deadline of the solve which is currently running.
+	private long mDeadline;
+
+	// Outcome of the last solve. As a parallel solve checks the budget from
+	// multiple threads, those flags are volatile.
+	private volatile boolean mExhausted;
+	private volatile boolean mCancelled;
+
+	/**
+	 * Creates a new instance of {@link SolveBudget}.
+	 *
+	 * @param maxNodes
+	 *            The maximum number of search nodes which may be visited. Use
+	 *            {@link #UNLIMITED} in case the number of nodes is not limited.
+	 * @param maxMillis
+	 *            The maximum number of milliseconds the solve may take. Use
+	 *            {@link #UNLIMITED} in case the time is not limited.
+	 * @param cancellationToken
+	 *            The token which is checked to determine whether the solve has
+	 *            been cancelled. Null in case the solve can not be cancelled.
+	 */
+	public SolveBudget(long maxNodes, long maxMillis,
+			CancellationToken cancellationToken) {
+		mMaxNodes = maxNodes;
+		mMaxMillis = maxMillis;
+		mCancellationToken = cancellationToken;
+	}
+
+	/**
+	 * Starts the budget for a new solve.
+	 */
+	void start() {
+		mDeadline = (mMaxMillis > UNLIMITED ? System.currentTimeMillis()
+				+ mMaxMillis : Long.MAX_VALUE);
+		mExhausted = false;
+		mCancelled = false;
+	}
+
+	/**
+	 * Checks whether the solve may continue after the given number of nodes
+	 * has been visited.
+	 *
+	 * @param nodes
+	 *            The number of nodes visited so far.
+	 * @return True in case the solve may continue. False in case the solve has
+	 *         to be aborted.
+	 */
+	boolean allows(long nodes) {
+		if (isNodeLimitExceeded(nodes)) {
+			return false;
+		}
+		if ((nodes & CHECK_INTERVAL_MASK) == 0) {
+			return !isInterrupted();
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the solve has been cancelled or its time has elapsed.
+	 * Contrary to {@link #allows(long)} this check can be used by multiple
+	 * threads working on the same solve.
+	 *
+	 * @return True in case the solve has to be aborted.
+	 */
+	boolean isInterrupted() {
+		if (mCancellationToken != null && mCancellationToken.isCancelled()) {
+			mCancelled = true;
+			return true;
+		}
+		if (System.currentTimeMillis() > mDeadline) {
+			mExhausted = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the given total number of nodes visited exceeds the
+	 * maximum number of nodes.
+	 *
+	 * @param nodes
+	 *            The total number of nodes visited.
+	 * @return True in case the maximum number of nodes is exceeded.
+	 */
+	boolean isNodeLimitExceeded(long nodes) {
+		if (exceedsNodeLimit(nodes)) {
+			mExhausted = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the given total number of nodes visited exceeds the
+	 * maximum number of nodes. Contrary to {@link #isNodeLimitExceeded(long)}
+	 * the outcome of the solve is not altered.
+	 *
+	 * @param nodes
+	 *            The total number of nodes visited.
+	 * @return True in case the maximum number of nodes is exceeded.
+	 */
+	boolean exceedsNodeLimit(long nodes) {
+		return (mMaxNodes > UNLIMITED && nodes > mMaxNodes);
+	}
+
+	/**
+	 * Checks whether the last solve was aborted because the maximum number of
+	 * nodes or the maximum time was exceeded.
+	 *
+	 * @return True in case the last solve was aborted because the budget was
+	 *         exhausted.
+	 */
+	public boolean isExhausted() {
+		return mExhausted;
+	}
+
+	/**
+	 * Checks whether the last solve was aborted because of cancellation.
+	 *
+	 * @return True in case the last solve was cancelled.
+	 */
+	public boolean isCancelled() {
+		return mCancelled;
+	}
+}
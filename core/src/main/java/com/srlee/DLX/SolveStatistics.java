@@ -0,0 +1,68 @@
+package com.srlee.DLX;
+
+/**
+ * Statistics of a solve of the DLX algorithm. The statistics of multiple
+ * solves can be added up to see where the solver spends its time.
+ */
+public class SolveStatistics {
+	// Number of solves included in these statistics.
+	public int mSolves;
+
+	// Number of nodes in the search tree which have been visited.
+	public long mNodesVisited;
+
+	// Number of times a column has been covered or uncovered.
+	public long mColumnsCovered;
+	public long mColumnsUncovered;
+
+	// Maximum depth of the search tree which has been reached.
+	public int mMaxDepth;
+
+	// Number of times the search returned to a lower level in the search
+	// tree.
+	public long mBacktracks;
+
+	// Size of the exact cover matrix.
+	public long mMatrixRows;
+	public long mMatrixNodes;
+	public long mMatrixColumns;
+
+	// Time needed to build the exact cover matrix and time needed to search
+	// the matrix for solutions.
+	public long mBuildTimeNanos;
+	public long mSearchTimeNanos;
+
+	/**
+	 * Adds the statistics of another solve to these statistics. The maximum
+	 * depth is the maximum of both statistics.
+	 *
+	 * @param solveStatistics
+	 *            The statistics to be added.
+	 */
+	public void add(SolveStatistics solveStatistics) {
+		mSolves += solveStatistics.mSolves;
+		mNodesVisited += solveStatistics.mNodesVisited;
+		mColumnsCovered += solveStatistics.mColumnsCovered;
+		mColumnsUncovered += solveStatistics.mColumnsUncovered;
+		mMaxDepth = Math.max(mMaxDepth, solveStatistics.mMaxDepth);
+		mBacktracks += solveStatistics.mBacktracks;
+		mMatrixRows += solveStatistics.mMatrixRows;
+		mMatrixNodes += solveStatistics.mMatrixNodes;
+		mMatrixColumns += solveStatistics.mMatrixColumns;
+		mBuildTimeNanos += solveStatistics.mBuildTimeNanos;
+		mSearchTimeNanos += solveStatistics.mSearchTimeNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "solves: " + mSolves + ", nodes visited: " + mNodesVisited
+				+ ", columns covered: " + mColumnsCovered
+				+ ", columns uncovered: " + mColumnsUncovered
+				+ ", max depth: " + mMaxDepth + ", backtracks: "
+				+ mBacktracks + ", matrix rows: " + mMatrixRows
+				+ ", matrix nodes: " + mMatrixNodes + ", matrix columns: "
+				+ mMatrixColumns + ", build time: "
+				+ (mBuildTimeNanos / 1000000) + " ms, search time: "
+				+ (mSearchTimeNanos / 1000000) + " ms";
+	}
+}
@@ -0,0 +1,185 @@
+package net.cactii.mathdoku.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The arithmetic of a cage and the cells it contains. This part of a cage is
+ * shared by the cages of the app, which add the state needed to play a grid,
+ * and the cages which are used by the grid generator and the solvers.
+ * 
+ * @param <C>
+ *            The type of the cells of the cage.
+ */
+public abstract class AbstractGridCage<C extends CellPosition> {
+	public static final int ACTION_NONE = CagePermutationCache.ACTION_NONE;
+	public static final int ACTION_ADD = CagePermutationCache.ACTION_ADD;
+	public static final int ACTION_SUBTRACT = CagePermutationCache.ACTION_SUBTRACT;
+	public static final int ACTION_MULTIPLY = CagePermutationCache.ACTION_MULTIPLY;
+	public static final int ACTION_DIVIDE = CagePermutationCache.ACTION_DIVIDE;
+
+	// Action for the cage
+	public int mAction;
+
+	// Number the action results in
+	public int mResult;
+	// Flag to indicate whether operator (+,-,x,/) is hidden.
+	protected boolean mHideOperator;
+
+	// List of cage's cells
+	public ArrayList<C> mCells;
+	// Id of the cage
+	public int mId;
+
+	// Cached list of numbers which satisfy the cage's arithmetic. Each
+	// permutation is packed as described in CagePermutationCache.
+	private long[] mPossibles;
+
+	/**
+	 * Creates a new instance of {@link AbstractGridCage} without cells.
+	 */
+	protected AbstractGridCage() {
+		mPossibles = null;
+		mCells = new ArrayList<C>();
+	}
+
+	/**
+	 * Get the size of the grid in which the cage is defined.
+	 * 
+	 * @return The size of the grid.
+	 */
+	protected abstract int getGridSize();
+
+	@Override
+	public String toString() {
+		String retStr = "";
+		retStr += "Cage id: " + this.mId + ", Size: "
+				+ (this.mCells == null ? 0 : this.mCells.size());
+		retStr += ", Action: ";
+		switch (this.mAction) {
+		case ACTION_NONE:
+			retStr += "None";
+			break;
+		case ACTION_ADD:
+			retStr += "Add";
+			break;
+		case ACTION_SUBTRACT:
+			retStr += "Subtract";
+			break;
+		case ACTION_MULTIPLY:
+			retStr += "Multiply";
+			break;
+		case ACTION_DIVIDE:
+			retStr += "Divide";
+			break;
+		}
+		retStr += ", Result: " + this.mResult;
+		retStr += ", cells: ";
+		for (C cell : this.mCells)
+			retStr += cell.getCellNumber() + ", ";
+		return retStr;
+	}
+
+	public boolean isOperatorHidden() {
+		return mHideOperator;
+	}
+
+	/**
+	 * Get all permutations of cell values for this cage. Each permutation is
+	 * packed into a single long. Use
+	 * {@link CagePermutationCache#getDigit(long, int)} to get the value of a
+	 * cell. The returned array may not be altered.
+	 * 
+	 * @return The packed permutations of cell values which can be used for
+	 *         this cage.
+	 */
+	public long[] getPossibleNums() {
+		if (mPossibles == null) {
+			int action = (mHideOperator ? ACTION_NONE : mAction);
+			mPossibles = setPossibleNums(action);
+		}
+		return mPossibles;
+	}
+
+	/**
+	 * Get all permutations of cell values for this cage. The combinations of
+	 * digits which satisfy the cage's arithmetic are retrieved from the
+	 * {@link CagePermutationCache}. Only the combinations which also satisfy
+	 * the MathDoku constraints for the cells of this cage, i.e. a digit can
+	 * only appear once in a column/row, are kept.
+	 * 
+	 * @param action
+	 *            The operator of the cage or {@link #ACTION_NONE} in case the
+	 *            operator is hidden.
+	 * @return The packed permutations of cell values which can be used for
+	 *         this cage.
+	 */
+	private long[] setPossibleNums(int action) {
+		long[] combinations = getCombinations(action);
+		int[] conflicts = getConflicts();
+
+		long[] AllResults = new long[combinations.length];
+		int count = 0;
+		for (long combination : combinations) {
+			if (CagePermutationCache.satisfiesConflicts(combination, conflicts)) {
+				AllResults[count++] = combination;
+			}
+		}
+		return (count == AllResults.length ? AllResults : Arrays.copyOf(
+				AllResults, count));
+	}
+
+	/**
+	 * Counts the permutations of cell values for this cage. Contrary to
+	 * {@link #getPossibleNums()} no list of permutations is built or cached
+	 * and counting stops as soon as the given limit is exceeded. This is
+	 * intended for rejecting cages with too many permutations before their
+	 * permutations are actually needed.
+	 * 
+	 * @param limit
+	 *            The maximum number of permutations which is of interest.
+	 * @return The exact number of permutations of this cage in case it does
+	 *         not exceed the limit. Otherwise limit + 1.
+	 */
+	public int countPossibleNums(int limit) {
+		if (mPossibles != null) {
+			return Math.min(mPossibles.length, limit + 1);
+		}
+
+		return CagePermutationCache.getInstance().countPermutations(
+				mHideOperator ? ACTION_NONE : mAction, mResult, mCells.size(),
+				getGridSize(), getConflicts(), limit);
+	}
+
+	/**
+	 * Get the combinations of digits which satisfy the cage's arithmetic
+	 * regardless of the shape of the cage.
+	 */
+	private long[] getCombinations(int action) {
+		return CagePermutationCache.getInstance().getPermutations(action,
+				mResult, mCells.size(), getGridSize());
+	}
+
+	/**
+	 * For each cell determine which of the preceding cells in the cage are in
+	 * the same row or column. Those cells can not contain the same digit.
+	 * 
+	 * @return For each cell a bit mask of the preceding cells in the same row
+	 *         or column.
+	 */
+	private int[] getConflicts() {
+		int cellCount = mCells.size();
+		int[] conflicts = new int[cellCount];
+		for (int i = 1; i < cellCount; i++) {
+			C cell = mCells.get(i);
+			for (int j = 0; j < i; j++) {
+				C otherCell = mCells.get(j);
+				if (cell.getRow() == otherCell.getRow()
+						|| cell.getColumn() == otherCell.getColumn()) {
+					conflicts[i] |= (1 << j);
+				}
+			}
+		}
+		return conflicts;
+	}
+}
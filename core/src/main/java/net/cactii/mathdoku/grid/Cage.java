@@ -0,0 +1,44 @@
+package net.cactii.mathdoku.grid;
+
+/**
+ * A cage as used by the grid generator and the solvers. Contrary to the
+ * GridCage of the app, it has no state which is needed to play the grid and
+ * it does not depend on Android.
+ */
+public class Cage extends AbstractGridCage<CageCell> {
+	// Size of the grid in which the cage is defined
+	private final int mGridSize;
+
+	/**
+	 * Creates a new instance of {@link Cage} without cells.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid in which the cage is defined.
+	 */
+	public Cage(int gridSize) {
+		mGridSize = gridSize;
+	}
+
+	@Override
+	protected int getGridSize() {
+		return mGridSize;
+	}
+
+	/**
+	 * Set the result and operator for this cage.
+	 * 
+	 * @param resultValue
+	 *            The resulting value of the cage when applying the given action
+	 *            on the cell values in the cage.
+	 * @param action
+	 *            The action to be applied on the cell values in this cage.
+	 * @param hideOperator
+	 *            True in case the operator of this cage can be hidden but the
+	 *            puzzle can still be solved.
+	 */
+	public void setCageResults(int resultValue, int action, boolean hideOperator) {
+		mResult = resultValue;
+		mAction = action;
+		mHideOperator = hideOperator;
+	}
+}
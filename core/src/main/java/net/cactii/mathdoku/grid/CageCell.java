@@ -0,0 +1,42 @@
+package net.cactii.mathdoku.grid;
+
+/**
+ * A cell of a {@link Cage}. Only the position of the cell is known.
+ */
+public class CageCell implements CellPosition {
+	// Index of the cell (left to right, top to bottom, zero-indexed)
+	private final int mCellNumber;
+	// X grid position, zero indexed
+	private final int mColumn;
+	// Y grid position, zero indexed
+	private final int mRow;
+
+	/**
+	 * Creates a new instance of {@link CageCell}.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid in which the cell is defined.
+	 * @param cellNumber
+	 *            The index of the cell.
+	 */
+	public CageCell(int gridSize, int cellNumber) {
+		mCellNumber = cellNumber;
+		mColumn = cellNumber % gridSize;
+		mRow = cellNumber / gridSize;
+	}
+
+	@Override
+	public int getCellNumber() {
+		return mCellNumber;
+	}
+
+	@Override
+	public int getRow() {
+		return mRow;
+	}
+
+	@Override
+	public int getColumn() {
+		return mColumn;
+	}
+}
@@ -0,0 +1,614 @@
+package net.cactii.mathdoku.grid;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Process wide cache of the combinations of digits which satisfy the
+ * arithmetic of a cage. The combinations only depend on the operator, the
+ * result, the number of cells in the cage and the size of the grid. Whether
+ * the digits can actually be placed in the cells of the cage depends on the
+ * shape of the cage and is checked by the GridCage on top of the cached
+ * combinations.
+ * 
+ * Each combination is packed into a single long. The digit of the i-th cell of
+ * the cage is stored in bits 4*i to 4*i+3. As a cage has at most
+ * {@value #MAX_CELLS} cells and digits range from 1 to 9, this fits in 64
+ * bits. Use {@link #getDigit(long, int)} to unpack a digit.
+ * 
+ * The cache is shared by the grid generator, the solver and the loading of
+ * shared puzzles. The least recently used combinations are evicted as soon as
+ * the total number of cached combinations exceeds the maximum.
+ */
+public class CagePermutationCache {
+	// Number of bits used to store a single digit in a packed combination.
+	private static final int BITS_PER_DIGIT = 4;
+	private static final long DIGIT_MASK = (1L << BITS_PER_DIGIT) - 1;
+
+	// Operators of a cage. The operators of GridCage refer to these values.
+	public static final int ACTION_NONE = 0;
+	public static final int ACTION_ADD = 1;
+	public static final int ACTION_SUBTRACT = 2;
+	public static final int ACTION_MULTIPLY = 3;
+	public static final int ACTION_DIVIDE = 4;
+
+	// Maximum number of cells of a cage which can be packed in a combination.
+	public static final int MAX_CELLS = 64 / BITS_PER_DIGIT;
+
+	// Maximum number of combinations, summed over all entries, which are kept
+	// in the cache.
+	private static final int MAX_CACHED_PERMUTATIONS = 200000;
+
+	// Singleton reference to the cache.
+	private static CagePermutationCache mCagePermutationCacheSingletonInstance = null;
+
+	// The cached combinations in order of last access.
+	private final LinkedHashMap<Long, long[]> mPermutations;
+
+	// Total number of combinations in the cache.
+	private int mCachedPermutations;
+
+	// Statistics of the cache.
+	private int mHits;
+	private int mMisses;
+
+	/**
+	 * Get the singleton instance of the cage permutation cache.
+	 * 
+	 * @return The singleton instance of the cage permutation cache.
+	 */
+	public static synchronized CagePermutationCache getInstance() {
+		if (mCagePermutationCacheSingletonInstance == null) {
+			mCagePermutationCacheSingletonInstance = new CagePermutationCache();
+		}
+		return mCagePermutationCacheSingletonInstance;
+	}
+
+	/**
+	 * Creates a new instance of {@link CagePermutationCache}.
+	 */
+	private CagePermutationCache() {
+		mPermutations = new LinkedHashMap<Long, long[]>(64, 0.75f, true);
+	}
+
+	/**
+	 * Get all combinations of digits which satisfy the given arithmetic,
+	 * regardless of the shape of the cage. The returned array is shared and may
+	 * not be altered.
+	 * 
+	 * @param action
+	 *            The operator of the cage. Use {@link #ACTION_NONE}
+	 *            for a cage with more than one cell in case the operator is
+	 *            hidden.
+	 * @param result
+	 *            The result of the cage.
+	 * @param cellCount
+	 *            The number of cells in the cage.
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @return The packed combinations of digits satisfying the arithmetic.
+	 */
+	public long[] getPermutations(int action, int result, int cellCount,
+			int gridSize) {
+		Long key = Long.valueOf(((long) result << 16) | (action << 8)
+				| (cellCount << 4) | gridSize);
+		synchronized (this) {
+			long[] permutations = mPermutations.get(key);
+			if (permutations != null) {
+				mHits++;
+				return permutations;
+			}
+			mMisses++;
+		}
+
+		// Compute the combinations outside the lock so other threads can use
+		// the cache in the meantime.
+		return addPermutations(key, computePermutations(action, result,
+				cellCount, gridSize));
+	}
+
+	/**
+	 * Adds the combinations for the given key to the cache. In case another
+	 * thread has added the combinations for this key in the meantime, those
+	 * combinations are kept.
+	 * 
+	 * @return The cached combinations for the key.
+	 */
+	private synchronized long[] addPermutations(Long key, long[] permutations) {
+		long[] cachedPermutations = mPermutations.get(key);
+		if (cachedPermutations != null) {
+			return cachedPermutations;
+		}
+
+		// Evict the least recently used combinations. The new combinations are
+		// always kept, even if they exceed the maximum on their own.
+		mPermutations.put(key, permutations);
+		mCachedPermutations += permutations.length;
+		Iterator<long[]> iterator = mPermutations.values().iterator();
+		while (mCachedPermutations > MAX_CACHED_PERMUTATIONS
+				&& mPermutations.size() > 1) {
+			mCachedPermutations -= iterator.next().length;
+			iterator.remove();
+		}
+
+		return permutations;
+	}
+
+	/**
+	 * Counts the combinations of digits which satisfy the given arithmetic and
+	 * in which a digit is not used more than once in cells which are in the
+	 * same row or column. In case the combinations are not cached, they are
+	 * counted without building and caching them. Counting stops as soon as the
+	 * limit is exceeded.
+	 * 
+	 * @param action
+	 *            The operator of the cage. Use {@link #ACTION_NONE} for a cage
+	 *            with more than one cell in case the operator is hidden.
+	 * @param result
+	 *            The result of the cage.
+	 * @param cellCount
+	 *            The number of cells in the cage.
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @param conflicts
+	 *            For each cell a bit mask of the preceding cells in the cage
+	 *            which are in the same row or column.
+	 * @param limit
+	 *            The maximum number of combinations which is of interest.
+	 * @return The number of combinations in case it does not exceed the limit.
+	 *         Otherwise limit + 1.
+	 */
+	public int countPermutations(int action, int result, int cellCount,
+			int gridSize, int[] conflicts, int limit) {
+		long[] permutations;
+		synchronized (this) {
+			permutations = mPermutations.get(Long.valueOf(((long) result << 16)
+					| (action << 8) | (cellCount << 4) | gridSize));
+		}
+		if (permutations != null) {
+			int count = 0;
+			for (long permutation : permutations) {
+				if (satisfiesConflicts(permutation, conflicts)
+						&& ++count > limit) {
+					break;
+				}
+			}
+			return count;
+		}
+
+		return new PermutationCounter(gridSize, conflicts, limit).count(
+				action, result, cellCount);
+	}
+
+	/**
+	 * Get the number of lookups which were answered from the cache.
+	 * 
+	 * @return The number of cache hits.
+	 */
+	public synchronized int getHits() {
+		return mHits;
+	}
+
+	/**
+	 * Get the number of lookups for which the combinations had to be
+	 * computed.
+	 * 
+	 * @return The number of cache misses.
+	 */
+	public synchronized int getMisses() {
+		return mMisses;
+	}
+
+	/**
+	 * Computes all combinations of digits which satisfy the given arithmetic
+	 * without using the cache.
+	 * 
+	 * @param action
+	 *            The operator of the cage.
+	 * @param result
+	 *            The result of the cage.
+	 * @param cellCount
+	 *            The number of cells in the cage.
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @return The packed combinations of digits satisfying the arithmetic.
+	 */
+	long[] computePermutations(int action, int result, int cellCount,
+			int gridSize) {
+		return new PermutationBuilder().build(action, result, cellCount,
+				gridSize);
+	}
+
+	/**
+	 * Get the digit of a cell from a packed combination.
+	 * 
+	 * @param permutation
+	 *            The packed combination of digits.
+	 * @param cell
+	 *            The index of the cell in the cage.
+	 * @return The digit of the cell.
+	 */
+	public static int getDigit(long permutation, int cell) {
+		return (int) ((permutation >>> (cell * BITS_PER_DIGIT)) & DIGIT_MASK);
+	}
+
+	/**
+	 * Packs the given digits into a single long.
+	 * 
+	 * @param digits
+	 *            The digits of the cells of the cage.
+	 * @return The packed combination of digits.
+	 */
+	public static long pack(int... digits) {
+		long permutation = 0;
+		for (int cell = digits.length - 1; cell >= 0; cell--) {
+			permutation = (permutation << BITS_PER_DIGIT) | digits[cell];
+		}
+		return permutation;
+	}
+
+	/**
+	 * Checks whether a digit is not used more than once in cells which are in
+	 * the same row or column.
+	 * 
+	 * @param permutation
+	 *            The packed combination of digits.
+	 * @param conflicts
+	 *            For each cell a bit mask of the preceding cells in the cage
+	 *            which are in the same row or column.
+	 * @return True in case the combination satisfies the conflicts.
+	 */
+	public static boolean satisfiesConflicts(long permutation, int[] conflicts) {
+		for (int i = 1; i < conflicts.length; i++) {
+			int conflict = conflicts[i];
+			int digit = getDigit(permutation, i);
+			while (conflict != 0) {
+				int j = Integer.numberOfTrailingZeros(conflict);
+				if (digit == getDigit(permutation, j))
+					return false;
+				conflict &= conflict - 1;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes all combinations of digits which satisfy an arithmetic. All
+	 * state is local to the builder so computing does not need the lock of
+	 * the cache.
+	 */
+	private static class PermutationBuilder {
+		private long[] mResultSet = new long[16];
+		private int mResultSetSize;
+		private long[] mMaxProducts;
+
+		long[] build(int action, int result, int cellCount, int gridSize) {
+			if (cellCount == 1) {
+				addResult(result);
+			} else if (action == ACTION_NONE) {
+				getAllCombosNoOperator(gridSize, result, cellCount);
+			} else if (action == ACTION_ADD) {
+				getAllAddCombos(gridSize, result, cellCount);
+			} else if (action == ACTION_MULTIPLY) {
+				getAllMultiplyCombos(gridSize, result, cellCount);
+			} else {
+				getAllTwoCellCombos(action, gridSize, result);
+			}
+			return Arrays.copyOf(mResultSet, mResultSetSize);
+		}
+
+		/**
+		 * Adds a packed combination to the result set.
+		 */
+		private void addResult(long permutation) {
+			if (mResultSetSize == mResultSet.length) {
+				mResultSet = Arrays.copyOf(mResultSet, 2 * mResultSetSize);
+			}
+			mResultSet[mResultSetSize++] = permutation;
+		}
+
+		/**
+		 * Get all combinations of two digits which satisfy the given subtraction
+		 * or division.
+		 */
+		private void getAllTwoCellCombos(int action, int gridSize, int result) {
+			for (int i1 = 1; i1 <= gridSize; i1++) {
+				for (int i2 = i1 + 1; i2 <= gridSize; i2++) {
+					if (action == ACTION_SUBTRACT ? (i2 - i1 == result || i1
+							- i2 == result)
+							: (result * i1 == i2 || result * i2 == i1)) {
+						addResult(pack(i1, i2));
+						addResult(pack(i2, i1));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Get all combinations of digits which satisfy the result with any of the
+		 * operators allowed for the given number of cells.
+		 */
+		private void getAllCombosNoOperator(int gridSize, int result,
+				int cellCount) {
+			// Cages of size two can contain any operation
+			if (cellCount == 2) {
+				for (int i1 = 1; i1 <= gridSize; i1++) {
+					for (int i2 = i1 + 1; i2 <= gridSize; i2++) {
+						if (i2 - i1 == result || i1 - i2 == result
+								|| result * i1 == i2 || result * i2 == i1
+								|| i1 + i2 == result || i1 * i2 == result) {
+							addResult(pack(i1, i2));
+							addResult(pack(i2, i1));
+						}
+					}
+				}
+				return;
+			}
+
+			// Cages of size three and above can only contain an add or a multiply
+			// operation
+			getAllAddCombos(gridSize, result, cellCount);
+			int addResults = mResultSetSize;
+			HashSet<Long> addResultSet = new HashSet<Long>(2 * addResults);
+			for (int i = 0; i < addResults; i++) {
+				addResultSet.add(mResultSet[i]);
+			}
+			getAllMultiplyCombos(gridSize, result, cellCount);
+
+			// Combine Add & Multiply result sets by removing the multiply results
+			// which were already found as add result.
+			int combinedResults = addResults;
+			for (int i = addResults; i < mResultSetSize; i++) {
+				if (!addResultSet.contains(mResultSet[i])) {
+					mResultSet[combinedResults++] = mResultSet[i];
+				}
+			}
+			mResultSetSize = combinedResults;
+		}
+
+		private void getAllAddCombos(int max_val, int target_sum, int n_cells) {
+			if (target_sum >= n_cells && target_sum <= n_cells * max_val) {
+				getAddCombos(max_val, target_sum, n_cells, 0);
+			}
+		}
+
+		/*
+		 * Recursive method to calculate all combinations of digits which add up to
+		 * target. A digit is only selected in case the remaining sum can still be
+		 * reached with the remaining cells, i.e. each remaining cell needs at
+		 * least value 1 and at most value max_val.
+		 * 
+		 * @param max_val maximum permitted value of digit (= dimension of grid)
+		 * 
+		 * @param target_sum the value which all the digits should add up to
+		 * 
+		 * @param n_cells number of digits still to select
+		 * 
+		 * @param digits the packed digits which are already selected
+		 */
+		private void getAddCombos(int max_val, int target_sum, int n_cells,
+				long digits) {
+			if (n_cells == 1) {
+				// The target is always within bounds of the last digit.
+				addResult(digits | target_sum);
+				return;
+			}
+
+			int remaining_cells = n_cells - 1;
+			int remaining_max = remaining_cells * max_val;
+			int shift = remaining_cells * BITS_PER_DIGIT;
+			for (int n = 1; n <= max_val; n++) {
+				int remaining_sum = target_sum - n;
+				if (remaining_sum < remaining_cells) {
+					// A higher digit will leave even less for the remaining cells.
+					break;
+				}
+				if (remaining_sum > remaining_max) {
+					continue;
+				}
+				getAddCombos(max_val, remaining_sum, remaining_cells, digits
+						| ((long) n << shift));
+			}
+		}
+
+		private void getAllMultiplyCombos(int max_val, int target_sum, int n_cells) {
+			mMaxProducts = new long[n_cells + 1];
+			mMaxProducts[0] = 1;
+			for (int i = 1; i <= n_cells; i++) {
+				mMaxProducts[i] = mMaxProducts[i - 1] * max_val;
+			}
+			if (target_sum >= 1 && target_sum <= mMaxProducts[n_cells]) {
+				getMultiplyCombos(max_val, target_sum, n_cells, 0);
+			}
+		}
+
+		/*
+		 * Recursive method to calculate all combinations of digits which multiply
+		 * up to target. A digit is only selected in case it divides the target and
+		 * the remaining product can still be reached with the remaining cells.
+		 * 
+		 * @param max_val maximum permitted value of digit (= dimension of grid)
+		 * 
+		 * @param target_sum the value which all the digits should multiply up to
+		 * 
+		 * @param n_cells number of digits still to select
+		 * 
+		 * @param digits the packed digits which are already selected
+		 */
+		private void getMultiplyCombos(int max_val, int target_sum, int n_cells,
+				long digits) {
+			if (n_cells == 1) {
+				// The target is always within bounds of the last digit.
+				addResult(digits | target_sum);
+				return;
+			}
+
+			int remaining_cells = n_cells - 1;
+			long remaining_max = mMaxProducts[remaining_cells];
+			int shift = remaining_cells * BITS_PER_DIGIT;
+			for (int n = 1; n <= max_val && n <= target_sum; n++) {
+				if (target_sum % n != 0 || target_sum / n > remaining_max)
+					continue;
+
+				getMultiplyCombos(max_val, target_sum / n, remaining_cells, digits
+						| ((long) n << shift));
+			}
+		}
+	}
+
+	/**
+	 * Counts combinations of digits in the same order as they are computed for
+	 * the cache. Digits are selected from the last cell to the first cell. A
+	 * digit is rejected as soon as it equals the digit of an already selected
+	 * cell in the same row or column. All state is local to the counter so
+	 * counting does not need the lock of the cache.
+	 */
+	private static class PermutationCounter {
+		private final int mMaxValue;
+		private final int mLimit;
+
+		// For each cell a bit mask of the succeeding cells in the cage which
+		// are in the same row or column.
+		private final int[] mLaterConflicts;
+
+		private long[] mMaxProducts;
+
+		// In case not 0, combinations of which the digits add up to this sum
+		// are not counted.
+		private int mExcludedSum;
+
+		private int mCount;
+
+		PermutationCounter(int maxValue, int[] conflicts, int limit) {
+			mMaxValue = maxValue;
+			mLimit = limit;
+			mLaterConflicts = new int[conflicts.length];
+			for (int i = 1; i < conflicts.length; i++) {
+				int conflict = conflicts[i];
+				while (conflict != 0) {
+					int j = Integer.numberOfTrailingZeros(conflict);
+					mLaterConflicts[j] |= (1 << i);
+					conflict &= conflict - 1;
+				}
+			}
+		}
+
+		int count(int action, int result, int cellCount) {
+			if (cellCount == 1) {
+				return 1;
+			}
+			if (action == ACTION_ADD) {
+				countAddCombos(result, cellCount);
+			} else if (action == ACTION_MULTIPLY) {
+				countMultiplyCombos(result, cellCount);
+			} else if (action == ACTION_NONE && cellCount > 2) {
+				// The combinations which satisfy the multiplication and also
+				// add up to the result were already counted as add
+				// combination.
+				countAddCombos(result, cellCount);
+				mExcludedSum = result;
+				countMultiplyCombos(result, cellCount);
+			} else {
+				countTwoCellCombos(action, result);
+			}
+			return Math.min(mCount, mLimit + 1);
+		}
+
+		private void countTwoCellCombos(int action, int result) {
+			for (int i1 = 1; i1 <= mMaxValue && mCount <= mLimit; i1++) {
+				for (int i2 = i1 + 1; i2 <= mMaxValue; i2++) {
+					boolean subtract = (i2 - i1 == result || i1 - i2 == result);
+					boolean divide = (result * i1 == i2 || result * i2 == i1);
+					if (action == ACTION_SUBTRACT ? subtract
+							: action == ACTION_DIVIDE ? divide : subtract
+									|| divide || i1 + i2 == result
+									|| i1 * i2 == result) {
+						// The digits differ, so both orders satisfy the
+						// conflicts.
+						mCount += 2;
+					}
+				}
+			}
+		}
+
+		private void countAddCombos(int targetSum, int cellCount) {
+			if (targetSum >= cellCount && targetSum <= cellCount * mMaxValue) {
+				countAddCombos(targetSum, cellCount, 0);
+			}
+		}
+
+		private void countAddCombos(int targetSum, int cellCount, long digits) {
+			int cell = cellCount - 1;
+			if (cell == 0) {
+				if (isAllowed(targetSum, cell, digits)) {
+					mCount++;
+				}
+				return;
+			}
+
+			int remainingMax = cell * mMaxValue;
+			for (int n = 1; n <= mMaxValue && mCount <= mLimit; n++) {
+				int remainingSum = targetSum - n;
+				if (remainingSum < cell) {
+					break;
+				}
+				if (remainingSum > remainingMax || !isAllowed(n, cell, digits)) {
+					continue;
+				}
+				countAddCombos(remainingSum, cell, digits
+						| ((long) n << (cell * BITS_PER_DIGIT)));
+			}
+		}
+
+		private void countMultiplyCombos(int targetProduct, int cellCount) {
+			mMaxProducts = new long[cellCount + 1];
+			mMaxProducts[0] = 1;
+			for (int i = 1; i <= cellCount; i++) {
+				mMaxProducts[i] = mMaxProducts[i - 1] * mMaxValue;
+			}
+			if (targetProduct >= 1 && targetProduct <= mMaxProducts[cellCount]) {
+				countMultiplyCombos(targetProduct, cellCount, 0, 0);
+			}
+		}
+
+		private void countMultiplyCombos(int targetProduct, int cellCount,
+				long digits, int sum) {
+			int cell = cellCount - 1;
+			if (cell == 0) {
+				if (isAllowed(targetProduct, cell, digits)
+						&& (mExcludedSum == 0 || sum + targetProduct != mExcludedSum)) {
+					mCount++;
+				}
+				return;
+			}
+
+			long remainingMax = mMaxProducts[cell];
+			for (int n = 1; n <= mMaxValue && n <= targetProduct
+					&& mCount <= mLimit; n++) {
+				if (targetProduct % n != 0 || targetProduct / n > remainingMax
+						|| !isAllowed(n, cell, digits))
+					continue;
+
+				countMultiplyCombos(targetProduct / n, cell, digits
+						| ((long) n << (cell * BITS_PER_DIGIT)), sum + n);
+			}
+		}
+
+		/**
+		 * Checks whether the digit can be placed in the cell given the digits
+		 * which are already selected for the succeeding cells.
+		 */
+		private boolean isAllowed(int digit, int cell, long digits) {
+			int conflict = mLaterConflicts[cell];
+			while (conflict != 0) {
+				if (getDigit(digits, Integer.numberOfTrailingZeros(conflict)) == digit) {
+					return false;
+				}
+				conflict &= conflict - 1;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package net.cactii.mathdoku.grid;
+
+/**
+ * The position of a cell in a grid. This is all the solvers and the grid
+ * generator need to know about a cell of a cage.
+ */
+public interface CellPosition {
+	/**
+	 * Get the index of the cell (left to right, top to bottom, zero based).
+	 * 
+	 * @return The index of the cell.
+	 */
+	public int getCellNumber();
+
+	/**
+	 * Get the row (zero based) of the cell.
+	 * 
+	 * @return The row of the cell.
+	 */
+	public int getRow();
+
+	/**
+	 * Get the column (zero based) of the cell.
+	 * 
+	 * @return The column of the cell.
+	 */
+	public int getColumn();
+}
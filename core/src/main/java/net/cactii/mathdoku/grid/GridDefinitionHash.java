@@ -0,0 +1,86 @@
+package net.cactii.mathdoku.grid;
+
+/**
+ * Computes the 64-bit FNV-1a hash of a grid definition. The hash can either be
+ * computed from the definition string or be built part by part from the
+ * values of which the definition string consists. Both ways result in the
+ * same hash, so the hash of a generated grid can be computed without building
+ * its definition string.
+ */
+public class GridDefinitionHash {
+	// Parameters of the 64-bit FNV-1a hash
+	public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long PRIME = 0x100000001b3L;
+
+	/**
+	 * Get the hash of the given grid definition.
+	 * 
+	 * @param gridDefinition
+	 *            The grid definition.
+	 * @return The 64-bit hash of the grid definition.
+	 */
+	public static long hash(String gridDefinition) {
+		long hash = OFFSET_BASIS;
+		for (int i = 0; i < gridDefinition.length(); i++) {
+			hash = hashChar(hash, gridDefinition.charAt(i));
+		}
+		return hash;
+	}
+
+	/**
+	 * Adds a single character of a grid definition to the hash.
+	 * 
+	 * @param hash
+	 *            The hash of the part of the definition before the character.
+	 * @param c
+	 *            The character to be added.
+	 * @return The hash including the character.
+	 */
+	public static long hashChar(long hash, char c) {
+		return (hash ^ c) * PRIME;
+	}
+
+	/**
+	 * Adds the decimal representation of a value of a grid definition to the
+	 * hash. The result equals adding the characters of Integer.toString(value)
+	 * one by one.
+	 * 
+	 * @param hash
+	 *            The hash of the part of the definition before the value.
+	 * @param value
+	 *            The value to be added.
+	 * @return The hash including the value.
+	 */
+	public static long hashInt(long hash, int value) {
+		long remainder = value;
+		if (remainder < 0) {
+			hash = hashChar(hash, '-');
+			remainder = -remainder;
+		}
+		long divisor = 1;
+		while (divisor * 10 <= remainder) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			hash = hashChar(hash, (char) ('0' + (remainder / divisor) % 10));
+		}
+		return hash;
+	}
+
+	/**
+	 * Adds the cage id of a cell to the hash. The result equals adding the
+	 * characters of String.format("%02d", cageId) one by one.
+	 * 
+	 * @param hash
+	 *            The hash of the part of the definition before the cage id.
+	 * @param cageId
+	 *            The cage id to be added.
+	 * @return The hash including the cage id.
+	 */
+	public static long hashCageId(long hash, int cageId) {
+		if (cageId >= 0 && cageId < 10) {
+			hash = hashChar(hash, '0');
+		}
+		return hashInt(hash, cageId);
+	}
+}
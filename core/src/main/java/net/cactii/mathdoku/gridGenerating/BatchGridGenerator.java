@@ -0,0 +1,241 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import net.cactii.mathdoku.grid.AbstractGridCage;
+import net.cactii.mathdoku.grid.Cage;
+import net.cactii.mathdoku.grid.CageCell;
+import net.cactii.mathdoku.util.Random;
+
+/**
+ * Headless batch generator which can be run on a desktop JVM to measure and
+ * profile the grid generator. For each grid size and complexity a number of
+ * grids are generated and written to a file. Afterwards the number of grids
+ * per second and the latency percentiles are reported.
+ * 
+ * The grids are generated by the {@link GridAttemptGenerator} which is also
+ * used by the app. So this includes building the Latin square, creating the
+ * cages, choosing the operators and checking the uniqueness of the solution.
+ * The attempts are run one after another without a deadline, in the same way
+ * as grids are generated for the puzzle pool of the app. Grids are not
+ * checked against grids which have been generated before.
+ * 
+ * Usage: BatchGridGenerator output-file [grids-per-size-and-complexity [seed]]
+ */
+public class BatchGridGenerator {
+	// Default number of grids to generate per grid size and complexity.
+	private static final int DEFAULT_GRIDS = 100;
+
+	// Grid sizes for which grids are generated.
+	private static final int MIN_GRID_SIZE = 4;
+	private static final int MAX_GRID_SIZE = 9;
+
+	// Complexities for which grids are generated. The maximum cage size, the
+	// maximum cage result and the maximum number of permutations per cage
+	// are equal to the presets of the complexities in the GridGenerator of
+	// the app.
+	static final String[] COMPLEXITY_NAMES = { "VERY_EASY", "EASY",
+			"NORMAL", "DIFFICULT", "VERY_DIFFICULT" };
+	static final int[] COMPLEXITY_MAX_CAGE_SIZE = { 2, 3, 4, 5, 6 };
+	static final int[] COMPLEXITY_MAX_CAGE_RESULT = { 99, 999, 2500, 9999,
+			99999 };
+	static final int[] COMPLEXITY_MAX_CAGE_PERMUTATIONS = { 20, 20, 40,
+			80, 120 };
+
+	// Percentiles of the latency which are reported.
+	private static final int[] PERCENTILES = { 50, 90, 99 };
+
+	/**
+	 * Generates the grids for all grid sizes and complexities.
+	 * 
+	 * @param writer
+	 *            The writer to which the grids are written. One grid is
+	 *            written per line.
+	 * @param grids
+	 *            The number of grids per grid size and complexity.
+	 * @param seed
+	 *            The seed from which the seeds of the grids are derived.
+	 * @return The report containing the throughput and latency per grid size
+	 *         and complexity.
+	 * @throws IOException
+	 *             In case the grids can not be written.
+	 */
+	public String run(Writer writer, int grids, long seed) throws IOException {
+		Random seedRandom = new Random(seed);
+		StringBuilder report = new StringBuilder();
+		long[] latencies = new long[grids];
+		long totalNanos = 0;
+		int totalGrids = 0;
+		for (int gridSize = MIN_GRID_SIZE; gridSize <= MAX_GRID_SIZE; gridSize++) {
+			for (int complexity = 0; complexity < COMPLEXITY_NAMES.length; complexity++) {
+				long timeStarted = System.nanoTime();
+				for (int i = 0; i < grids; i++) {
+					long gridSeed = seedRandom.nextLong();
+					long timeStartedGrid = System.nanoTime();
+					GridAttemptGenerator gridAttemptGenerator = generate(
+							gridSize, complexity, gridSeed);
+					latencies[i] = System.nanoTime() - timeStartedGrid;
+					writer.write(gridSize + " " + COMPLEXITY_NAMES[complexity]
+							+ " " + gridSeed + " "
+							+ toGridString(gridAttemptGenerator) + "\n");
+				}
+				long elapsedNanos = System.nanoTime() - timeStarted;
+				totalNanos += elapsedNanos;
+				totalGrids += grids;
+				report.append(gridSize + "x" + gridSize + " "
+						+ COMPLEXITY_NAMES[complexity] + ": "
+						+ toReportLine(grids, elapsedNanos, latencies) + "\n");
+			}
+		}
+		report.append("Total: " + totalGrids + " grids, "
+				+ String.format("%.1f", totalGrids * 1e9 / totalNanos)
+				+ " grids/sec");
+		return report.toString();
+	}
+
+	/**
+	 * Generates a single grid with a unique solution. Attempts are run until
+	 * a grid with a unique solution is found.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @param complexity
+	 *            The index of the complexity in COMPLEXITY_NAMES.
+	 * @param seed
+	 *            The game seed of the grid.
+	 * @return The attempt generator which contains the generated grid.
+	 */
+	public GridAttemptGenerator generate(int gridSize, int complexity,
+			long seed) {
+		GridAttemptGenerator gridAttemptGenerator = new GridAttemptGenerator(
+				gridSize, GridAttemptGenerator.MIN_REVISION_PARALLEL_ATTEMPTS,
+				seed, COMPLEXITY_MAX_CAGE_SIZE[complexity],
+				COMPLEXITY_MAX_CAGE_RESULT[complexity], false,
+				COMPLEXITY_MAX_CAGE_PERMUTATIONS[complexity],
+				getMaximumSingleCellCages(gridSize, complexity));
+		int attemptNumber = 1;
+		while (!gridAttemptGenerator.runAttempt(attemptNumber, 0,
+				Long.MAX_VALUE)) {
+			attemptNumber++;
+		}
+		return gridAttemptGenerator;
+	}
+
+	/**
+	 * Get the maximum number of single cell cages in the same way as the
+	 * presets of the complexities in the GridGenerator of the app.
+	 */
+	static int getMaximumSingleCellCages(int gridSize, int complexity) {
+		int maximumSingleCellCages = gridSize / 2;
+		return (complexity == 0 ? Math.min(4, maximumSingleCellCages)
+				: maximumSingleCellCages);
+	}
+
+	/**
+	 * Converts the grid of the given attempt generator to a string.
+	 * 
+	 * @param gridAttemptGenerator
+	 *            The attempt generator which contains the generated grid.
+	 * @return The grid as string. The number of attempts is followed by the
+	 *         solution listed row by row and the cages. Each cage is
+	 *         represented by its operator, its result and the indexes of its
+	 *         cells.
+	 */
+	public static String toGridString(GridAttemptGenerator gridAttemptGenerator) {
+		StringBuilder grid = new StringBuilder();
+		grid.append(gridAttemptGenerator.getGridGeneratingTelemetry().mAttempts
+				+ " ");
+		for (int[] row : gridAttemptGenerator.getSolutionMatrix()) {
+			for (int value : row) {
+				grid.append(value);
+			}
+		}
+		for (Cage cage : gridAttemptGenerator.getCages()) {
+			grid.append(" " + toCageString(cage));
+		}
+		return grid.toString();
+	}
+
+	/**
+	 * Converts the cage to a string containing the operator and the result
+	 * followed by the indexes of the cells.
+	 */
+	private static String toCageString(Cage cage) {
+		String operator = "";
+		switch (cage.mAction) {
+		case AbstractGridCage.ACTION_ADD:
+			operator = "+";
+			break;
+		case AbstractGridCage.ACTION_SUBTRACT:
+			operator = "-";
+			break;
+		case AbstractGridCage.ACTION_MULTIPLY:
+			operator = "x";
+			break;
+		case AbstractGridCage.ACTION_DIVIDE:
+			operator = "/";
+			break;
+		}
+		StringBuilder cells = new StringBuilder();
+		for (CageCell cell : cage.mCells) {
+			cells.append("," + cell.getCellNumber());
+		}
+		return operator + cage.mResult + ":" + cells.substring(1);
+	}
+
+	/**
+	 * Converts the throughput and latency of a batch of grids to a line in the
+	 * report.
+	 */
+	private static String toReportLine(int grids, long elapsedNanos,
+			long[] latencies) {
+		long[] sortedLatencies = Arrays.copyOf(latencies, grids);
+		Arrays.sort(sortedLatencies);
+		StringBuilder line = new StringBuilder(String.format("%.1f",
+				grids * 1e9 / elapsedNanos) + " grids/sec");
+		for (int percentile : PERCENTILES) {
+			int index = Math.max(0,
+					(int) Math.ceil(percentile / 100.0 * grids) - 1);
+			line.append(", p" + percentile + ": "
+					+ String.format("%.3f", sortedLatencies[index] / 1e6)
+					+ " ms");
+		}
+		line.append(", max: "
+				+ String.format("%.3f", sortedLatencies[grids - 1] / 1e6)
+				+ " ms");
+		return line.toString();
+	}
+
+	/**
+	 * Generates the grids and writes them to the file given as first
+	 * argument. The number of grids per grid size and complexity and the seed
+	 * can be given as second and third argument.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: BatchGridGenerator output-file "
+					+ "[grids-per-size-and-complexity [seed]]");
+			System.exit(1);
+		}
+		int grids = (args.length > 1 ? Integer.parseInt(args[1])
+				: DEFAULT_GRIDS);
+		if (grids < 1) {
+			System.err.println("The number of grids should be at least 1.");
+			System.exit(1);
+		}
+		long seed = (args.length > 2 ? Long.parseLong(args[2]) : System
+				.currentTimeMillis());
+
+		Writer writer = new BufferedWriter(new FileWriter(args[0]));
+		try {
+			System.out.println(new BatchGridGenerator().run(writer, grids,
+					seed));
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+/**
+ * The catalog of all cage types is a compact binary file which is packaged
+ * with the app as a java resource. Loading the catalog is much faster than
+ * generating all cage types on the device.
+ * 
+ * The catalog starts with a header consisting of a magic number, the format
+ * version and the maximum cage size. Next, for each cage size starting at 1 the
+ * number of cage types of this size is stored, followed by the width, height,
+ * column origin offset and shape mask of each cage type. The cage types are
+ * stored in the order in which they are generated by the
+ * {@link CageTypeGenerator} as the index of a cage type is used for random
+ * selections.
+ * 
+ * The catalog has to be rebuilt in case the maximum cage size or the cage type
+ * generation is changed. Run the gradle task writeCageTypeCatalog of the core
+ * module to rewrite the resource file.
+ */
+public class CageTypeCatalog {
+	// Name of the resource containing the catalog.
+	static final String RESOURCE_NAME = "cage_types.bin";
+
+	// Magic number ("MDCT") and version of the file format.
+	private static final int MAGIC = 0x4D444354;
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Reads the catalog which is packaged with the app.
+	 * 
+	 * @param maxCageSize
+	 *            The maximum cage size which is expected in the catalog.
+	 * @return The cage types per size (index 0 contains the cage types of size
+	 *         1). Null in case the catalog is not available or not valid.
+	 */
+	static ArrayList<GridCageType>[] read(int maxCageSize) {
+		InputStream inputStream = CageTypeCatalog.class
+				.getResourceAsStream(RESOURCE_NAME);
+		if (inputStream == null) {
+			return null;
+		}
+		try {
+			return read(inputStream, maxCageSize);
+		} catch (IOException e) {
+			return null;
+		} finally {
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+	}
+
+	/**
+	 * Reads a catalog from the given stream.
+	 * 
+	 * @param inputStream
+	 *            The stream containing the catalog.
+	 * @param maxCageSize
+	 *            The maximum cage size which is expected in the catalog.
+	 * @return The cage types per size (index 0 contains the cage types of size
+	 *         1). Null in case the catalog is not valid.
+	 * @throws IOException
+	 *             In case the stream can not be read.
+	 */
+	static ArrayList<GridCageType>[] read(InputStream inputStream,
+			int maxCageSize) throws IOException {
+		DataInputStream dataInputStream = new DataInputStream(
+				new BufferedInputStream(inputStream));
+		if (dataInputStream.readInt() != MAGIC
+				|| dataInputStream.readUnsignedByte() != FORMAT_VERSION
+				|| dataInputStream.readUnsignedByte() != maxCageSize) {
+			return null;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		ArrayList<GridCageType>[] cageTypes = new ArrayList[maxCageSize];
+		for (int size = 1; size <= maxCageSize; size++) {
+			int count = dataInputStream.readUnsignedShort();
+			cageTypes[size - 1] = new ArrayList<GridCageType>(count);
+			for (int i = 0; i < count; i++) {
+				int width = dataInputStream.readUnsignedByte();
+				int height = dataInputStream.readUnsignedByte();
+				int colOriginOffset = dataInputStream.readUnsignedByte();
+				long shapeMask = dataInputStream.readLong();
+
+				GridCageType gridCageType = new GridCageType();
+				if (!gridCageType.setShapeMask(width, height, colOriginOffset,
+						shapeMask) || gridCageType.cellsUsed() != size) {
+					return null;
+				}
+				cageTypes[size - 1].add(gridCageType);
+			}
+		}
+		return cageTypes;
+	}
+
+	/**
+	 * Writes a catalog to the given stream.
+	 * 
+	 * @param cageTypes
+	 *            The cage types per size (index 0 contains the cage types of
+	 *            size 1).
+	 * @param outputStream
+	 *            The stream to which the catalog is written.
+	 * @throws IOException
+	 *             In case the stream can not be written.
+	 */
+	static void write(ArrayList<GridCageType>[] cageTypes,
+			OutputStream outputStream) throws IOException {
+		DataOutputStream dataOutputStream = new DataOutputStream(
+				new BufferedOutputStream(outputStream));
+		dataOutputStream.writeInt(MAGIC);
+		dataOutputStream.writeByte(FORMAT_VERSION);
+		dataOutputStream.writeByte(cageTypes.length);
+		for (ArrayList<GridCageType> cageTypesOfSize : cageTypes) {
+			dataOutputStream.writeShort(cageTypesOfSize.size());
+			for (GridCageType gridCageType : cageTypesOfSize) {
+				dataOutputStream.writeByte(gridCageType.getWidth());
+				dataOutputStream.writeByte(gridCageType.getHeight());
+				dataOutputStream.writeByte(gridCageType.getColOriginOffset());
+				dataOutputStream.writeLong(gridCageType.getShapeMask());
+			}
+		}
+		dataOutputStream.flush();
+	}
+
+	/**
+	 * Generates all cage types and writes the catalog to the file given as
+	 * first argument.
+	 */
+	public static void main(String[] args) throws IOException {
+		ArrayList<GridCageType>[] cageTypes = CageTypeGenerator
+				.generateCageTypes(CageTypeGenerator.MAX_CAGE_SIZE);
+		FileOutputStream fileOutputStream = new FileOutputStream(args[0]);
+		try {
+			write(cageTypes, fileOutputStream);
+		} finally {
+			fileOutputStream.close();
+		}
+	}
+}
@@ -1,33 +1,38 @@
 package net.cactii.mathdoku.gridGenerating;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.logging.Logger;
 
 import net.cactii.mathdoku.util.Random;
 
-import android.util.Log;
-
 public class CageTypeGenerator {
 	public static final String TAG = "MathDoku.CageTypeGenerator";
 
+	// Remove "&& false" in following line to log the number of cage types per
+	// size.
+	private static final boolean DEBUG_CAGE_TYPE_GENERATOR = true && false;
+
 	/**
-	 * Size of largest cages to be generated. Be careful with adjusting this
-	 * value as the number of cage types growth exponentially. Generating ALL
-	 * cage types for a given size can take long.
+	 * Size of largest cages in the catalog of cage types. The catalog has to
+	 * be rebuilt with {@link CageTypeCatalog} after adjusting this value. Be
+	 * careful with adjusting this value as the number of cage types growth
+	 * exponentially. Generating ALL cage types for a given size can take long.
 	 * 
 	 * <pre>
 	 * 	MaxSize    #cage_types     #cumulative
 	 *        1              1               1
 	 *        2              2               3 
-	 *        3              6               6
-	 *        4             19              29
-	 *        5             63              92
-	 *        6            216             308
-	 *        7            760           1,068
-	 *        8          2,725           3,793
-	 *        9          9,910          13,703
+	 *        3              6               9
+	 *        4             19              28
+	 *        5             63              91
+	 *        6            216             307
+	 *        7            760           1,067
+	 *        8          2,725           3,792
+	 *        9          9,910          13,702
 	 * </pre>
 	 */
-	public static final int MAX_CAGE_SIZE = 5;
+	public static final int MAX_CAGE_SIZE = 7;
 
 	// Singleton reference for the cage type generator.
 	private static CageTypeGenerator mCageTypeGeneratorSingletonInstance = null;
@@ -45,7 +50,7 @@ public class CageTypeGenerator {
 	 * 
 	 * @return The singleton instance for the cage type generator.
 	 */
-	public static CageTypeGenerator getInstance() {
+	public static synchronized CageTypeGenerator getInstance() {
 		if (mCageTypeGeneratorSingletonInstance == null) {
 			mCageTypeGeneratorSingletonInstance = new CageTypeGenerator();
 		}
@@ -59,23 +64,56 @@ public class CageTypeGenerator {
 	 * {@link #getRandomCageType(int, Random)}.
 	 */
 	private CageTypeGenerator() {
+		// Load the precompiled catalog of cage types. The cage types are only
+		// generated in case the catalog is not available.
+		mCageTypes = CageTypeCatalog.read(MAX_CAGE_SIZE);
+		if (mCageTypes == null) {
+			Logger.getLogger(TAG).warning("Cage type catalog is not available.");
+			mCageTypes = generateCageTypes(MAX_CAGE_SIZE);
+		}
+		mSingleCellCageType = mCageTypes[0].get(0);
+
+		// Report number of cage types found
+		if (DEBUG_CAGE_TYPE_GENERATOR) {
+			for (int i = 0; i < mCageTypes.length; i++) {
+				if (mCageTypes[i] != null) {
+					Logger.getLogger(TAG).info("Number of cage type with " + (i + 1)
+							+ " cells: " + mCageTypes[i].size());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Generates all cage types having minimum 1 and maximum the given number of
+	 * cells.
+	 * 
+	 * @param maxCageSize
+	 *            The maximum number of cells of the cage types.
+	 * @return The cage types per size (index 0 contains the cage types of size
+	 *         1).
+	 */
+	@SuppressWarnings("unchecked")
+	static ArrayList<GridCageType>[] generateCageTypes(int maxCageSize) {
 		// Initialize all cage type array lists
-		mCageTypes = new ArrayList[MAX_CAGE_SIZE];
-		for (int i = 0; i < MAX_CAGE_SIZE; i++) {
-			mCageTypes[i] = new ArrayList<GridCageType>();
+		ArrayList<GridCageType>[] cageTypes = new ArrayList[maxCageSize];
+		for (int i = 0; i < maxCageSize; i++) {
+			cageTypes[i] = new ArrayList<GridCageType>();
 		}
 
+		// The keys of the shapes of all cage types found are used to check in
+		// constant time whether a cage type already exists.
+		HashSet<Long> shapeKeys = new HashSet<Long>();
+
 		// Start with a cage consisting of a single cell.
 		boolean singleCageTypeMatrix[][] = new boolean[1][1];
 		singleCageTypeMatrix[0][0] = true;
-		if (addCageTypeIfNotExists(singleCageTypeMatrix)) {
-			mSingleCellCageType = mCageTypes[0].get(0);
-		}
+		addCageTypeIfNotExists(cageTypes, shapeKeys, singleCageTypeMatrix);
 
 		// The other cage types (size n) can be generated by adding one
 		// additional cell to any cage having one cell less (size n-1).
-		for (int smallerCageSize = 1; smallerCageSize < MAX_CAGE_SIZE; smallerCageSize++) {
-			for (GridCageType cageType : mCageTypes[smallerCageSize - 1]) {
+		for (int smallerCageSize = 1; smallerCageSize < maxCageSize; smallerCageSize++) {
+			for (GridCageType cageType : cageTypes[smallerCageSize - 1]) {
 				// Add a cell to each existing cage type having just one cell
 				// less than size of the grid type that we need to be create
 				// now.
@@ -96,27 +134,31 @@ public class CageTypeGenerator {
 							// Check above current occupied cell
 							if (!newCageTypeMatrix[row - 1][col]) {
 								newCageTypeMatrix[row - 1][col] = true;
-								addCageTypeIfNotExists(newCageTypeMatrix);
+								addCageTypeIfNotExists(cageTypes, shapeKeys,
+										newCageTypeMatrix);
 								newCageTypeMatrix[row - 1][col] = false;
 							}
 
 							// Check to right of current occupied cell
 							if (!newCageTypeMatrix[row][col + 1]) {
 								newCageTypeMatrix[row][col + 1] = true;
-								addCageTypeIfNotExists(newCageTypeMatrix);
+								addCageTypeIfNotExists(cageTypes, shapeKeys,
+										newCageTypeMatrix);
 								newCageTypeMatrix[row][col + 1] = false;
 							}
 							// Check below current occupied cell
 							if (!newCageTypeMatrix[row + 1][col]) {
 								newCageTypeMatrix[row + 1][col] = true;
-								addCageTypeIfNotExists(newCageTypeMatrix);
+								addCageTypeIfNotExists(cageTypes, shapeKeys,
+										newCageTypeMatrix);
 								newCageTypeMatrix[row + 1][col] = false;
 							}
 
 							// Check to left of current occupied cell
 							if (!newCageTypeMatrix[row][col - 1]) {
 								newCageTypeMatrix[row][col - 1] = true;
-								addCageTypeIfNotExists(newCageTypeMatrix);
+								addCageTypeIfNotExists(cageTypes, shapeKeys,
+										newCageTypeMatrix);
 								newCageTypeMatrix[row][col - 1] = false;
 							}
 						}
@@ -125,44 +167,35 @@ public class CageTypeGenerator {
 			}
 		}
 
-		// Report number of cage types found
-		if (GridGenerator.DEBUG_GRID_GENERATOR_FULL) {
-			for (int i = 0; i < mCageTypes.length; i++) {
-				if (mCageTypes[i] != null) {
-					Log.i(TAG, "Number of cage type with " + (i + 1)
-							+ " cells: " + mCageTypes[i].size());
-				}
-			}
-		}
+		return cageTypes;
 	}
 
 	/**
 	 * Adds a new cage type to the list of cage types in case it is not yet on
 	 * this list.
 	 * 
+	 * @param cageTypes
+	 *            The cage types per size found so far.
+	 * @param shapeKeys
+	 *            The keys of the shapes of all cage types found so far.
 	 * @param newCageTypeMatrix
 	 *            The cage type matrix which has to be added to the list of
 	 *            available cage types.
 	 * @return True in case the cage type is added. False otherwise.
 	 */
-	private boolean addCageTypeIfNotExists(boolean[][] newCageTypeMatrix) {
+	private static boolean addCageTypeIfNotExists(
+			ArrayList<GridCageType>[] cageTypes, HashSet<Long> shapeKeys,
+			boolean[][] newCageTypeMatrix) {
 		GridCageType newPossibleCageType = new GridCageType();
 		newPossibleCageType.setMatrix(newCageTypeMatrix);
 
-		int sizeCageType = newPossibleCageType.cellsUsed();
-
 		// Check if this cage type was not yet defined.
-		if (mCageTypes[sizeCageType - 1].contains(newPossibleCageType)) {
+		if (!shapeKeys.add(newPossibleCageType.getShapeKey())) {
 			return false;
 		}
 
 		// This cage type does not yet exist.
-		mCageTypes[sizeCageType - 1].add(newPossibleCageType);
-
-		if (GridGenerator.DEBUG_GRID_GENERATOR_FULL) {
-			Log.i(TAG,
-					"Found a new cage type:\n" + newPossibleCageType.toString());
-		}
+		cageTypes[newPossibleCageType.cellsUsed() - 1].add(newPossibleCageType);
 
 		return true;
 	}
@@ -224,6 +257,10 @@ public class CageTypeGenerator {
 	 * 
 	 * @param cellsUsed
 	 *            The number of cells the cage consists of.
+	 * @param maxPredefinedCageSize
+	 *            The maximum size of the predefined cage types which may be
+	 *            used. Cage types of a bigger size are derived from a
+	 *            predefined cage type of this size.
 	 * @param maxWidth
 	 *            The maximum width 0f the cell. Use 0 in case width does not
 	 *            matter.
@@ -234,8 +271,9 @@ public class CageTypeGenerator {
 	 *            The random generator to use for randomized decisions.
 	 * @return A cage type.
 	 */
-	public GridCageType getRandomCageType(int cellsUsed, int maxWidth,
-			int maxHeight, Random random) {
+	public GridCageType getRandomCageType(int cellsUsed,
+			int maxPredefinedCageSize, int maxWidth, int maxHeight,
+			Random random) {
 		assert (cellsUsed > 0);
 		assert (maxWidth >= 0);
 		assert (maxHeight >= 0);
@@ -246,8 +284,9 @@ public class CageTypeGenerator {
 		}
 
 		// Determine which cageTypeArray to use
-		ArrayList<GridCageType> gridCageTypes = (cellsUsed - 1 < mCageTypes.length ? mCageTypes[cellsUsed - 1]
-				: mCageTypes[mCageTypes.length - 1]);
+		maxPredefinedCageSize = Math.min(maxPredefinedCageSize, MAX_CAGE_SIZE);
+		ArrayList<GridCageType> gridCageTypes = (cellsUsed - 1 < maxPredefinedCageSize ? mCageTypes[cellsUsed - 1]
+				: mCageTypes[maxPredefinedCageSize - 1]);
 		assert (gridCageTypes != null);
 
 		// Choose a random cage type in the array which fits within the given
@@ -259,7 +298,7 @@ public class CageTypeGenerator {
 		} while ((maxWidth > 0 && gridCageType.getWidth() > maxWidth)
 				|| (maxHeight > 0 && gridCageType.getHeight() > maxHeight));
 
-		if (cellsUsed - 1 < mCageTypes.length || gridCageType == null) {
+		if (cellsUsed - 1 < maxPredefinedCageSize || gridCageType == null) {
 			// Return the already defined grid cage type.
 			return gridCageType;
 		} else {
@@ -0,0 +1,1412 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import net.cactii.mathdoku.grid.Cage;
+import net.cactii.mathdoku.grid.CageCell;
+import net.cactii.mathdoku.util.Random;
+
+import com.srlee.DLX.ArrayDLX;
+import com.srlee.DLX.ArrayDLX.SolutionVisitor;
+import com.srlee.DLX.MathDokuDLX;
+import com.srlee.DLX.MathDokuPropagationSolver;
+import com.srlee.DLX.MathDokuSolver;
+import com.srlee.DLX.SolveBudget;
+import com.srlee.DLX.SolveStatistics;
+
+/**
+ * Runs the attempts to generate a grid with a unique solution. An attempt
+ * fills the grid with a Latin square, divides the grid into cages and checks
+ * whether the cages result in a unique solution. The generator does not
+ * depend on Android. The GridGenerator of the app decides which attempts are
+ * run and converts the grid of the successful attempt to a playable grid.
+ */
+public class GridAttemptGenerator {
+	private static final String TAG = "MathDoku.GridAttemptGenerator";
+
+	// Maximum number of nodes which may be visited while checking whether a
+	// candidate grid has a unique solution. Grids for which uniqueness can not
+	// be determined within this budget are dropped. The budget deliberately
+	// has no time limit: a node limit is reached at the same point on every
+	// device, so a game seed always reproduces the same grid. Slow checks are
+	// still aborted when the attempt is stopped, but such an attempt is
+	// discarded instead of being counted as a grid without unique solution.
+	private static final long MAX_SOLVER_NODES = 100000;
+
+	// For grids of at least this size the attempts are run one after another
+	// and the uniqueness check of each attempt is split over all available
+	// processors. Smaller grids are solved too fast to benefit from it, so
+	// their attempts are run in parallel instead.
+	public static final int PARALLEL_SOLVE_MIN_GRID_SIZE = 7;
+
+	// Grids for which the total number of permutations of all cages exceeds
+	// this limit are checked with the constraint propagation solver instead
+	// of the DLX solver. The exact cover matrix of such grids becomes too big
+	// to be built and searched efficiently. Below this limit, the DLX solver
+	// is faster as the permutations of the cages are already known.
+	private static final int PROPAGATION_SOLVER_MIN_PERMUTATIONS = 4000;
+
+	// Maximum number of times the cages which cause a grid to have multiple
+	// solutions are replaced before the grid is dropped.
+	private static final int MAX_AMBIGUITY_REPAIRS = 3;
+
+	// As of this revision of the generator, each attempt uses its own
+	// randomizer which is seeded with the game seed and the attempt number, so
+	// attempts can run in parallel. Older revisions use a single randomizer
+	// for all attempts, check the uniqueness without a budget and do not
+	// repair ambiguous grids.
+	public static final int MIN_REVISION_PARALLEL_ATTEMPTS = 607;
+
+	// As of this revision of the generator, the solution of the grid is built
+	// as a Latin square with a fixed amount of work. Older revisions placed the
+	// values at random positions.
+	private static final int MIN_REVISION_LATIN_SQUARE_BUILDER = 602;
+
+	// As of this revision of the generator, all cage types of the catalog can
+	// be used. Older revisions only used cage types up to
+	// LEGACY_MAX_PREDEFINED_CAGE_SIZE cells. The catalog lists those cage types
+	// in the order in which they were generated before, so together with the
+	// single randomizer of revisions before MIN_REVISION_PARALLEL_ATTEMPTS the
+	// same cages are selected for a game seed of an older revision.
+	private static final int MIN_REVISION_CAGE_TYPE_CATALOG = 604;
+	private static final int LEGACY_MAX_PREDEFINED_CAGE_SIZE = 5;
+
+	// A first big cage is placed in grids for which the maximum cage size is
+	// at least this size.
+	private static final int MIN_MAX_CAGE_SIZE_FIRST_BIG_CAGE = 5;
+
+	// Maximum number of solutions which are counted in debug mode for a grid
+	// which does not have a unique solution.
+	private static final int DEBUG_MAX_SOLUTIONS_COUNTED = 1000;
+
+	// Remove "&& false" in following line to log debug information about
+	// creating cages.
+	private static final boolean DEBUG_GRID_GENERATOR = true && false;
+	private static final boolean DEBUG_GRID_GENERATOR_FULL = DEBUG_GRID_GENERATOR && false;
+
+	// Checks whether a grid has been generated before.
+	public interface GeneratedBeforeChecker {
+		/**
+		 * Checks whether a grid with the given cages has been generated
+		 * before. This method is called by all attempts which run in parallel.
+		 * 
+		 * @param cageIds
+		 *            The id of the cage of each cell, ordered by cell number.
+		 * @param cages
+		 *            The cages of the grid.
+		 * @return True in case the grid has been generated before. False
+		 *         otherwise.
+		 */
+		public boolean isGeneratedBefore(int[] cageIds, ArrayList<Cage> cages);
+	}
+
+	// The parameters used to generate the grid.
+	private final int mGridSize;
+	private final int mGeneratorRevisionNumber;
+	private final long mGameSeed;
+	private final int mMaxCageSize;
+	private final int mMaxCageResult;
+	private final boolean mHideOperators;
+
+	// The complexity of a puzzle will be determined by following factors. The
+	// default values are determined by the puzzle complexity. The values used
+	// by an attempt may be relaxed in case the deadline approaches.
+	private final int mDefaultMaxCagePermutations;
+	private final int mDefaultMaximumSingleCellCages;
+	private int mMaxCagePermutations;
+	private int mMaximumSingleCellCages;
+	private int mFirstBigCageSize;
+
+	// Random generator
+	private Random mRandom;
+
+	// Cells and solution. The cells only depend on the grid size and are
+	// shared by all cages.
+	private final ArrayList<CageCell> mCells;
+	private int[][] mSolutionMatrix;
+
+	// Cages
+	private final CageTypeGenerator mGridCageTypeGenerator;
+	private ArrayList<Cage> mCages;
+
+	// The cage matrix which is used to reject cage types resulting in a
+	// non-unique solution.
+	private OverlappingSubsetChecker mOverlappingSubsetChecker;
+
+	// Bitboard of the cells which are already used by a cage. See
+	// GridCageType.getOccupancyMasks for the layout of the low and high mask.
+	private long mCageCellsLow;
+	private long mCageCellsHigh;
+
+	// Occupancy masks per cage type index for the size of this grid. The masks
+	// are retrieved from the cage types on first use.
+	private long[][] mCageTypeOccupancyMasks;
+
+	// Indexes of the cage types which still have to be checked while selecting
+	// a random cage type. The array is reused for each origin cell.
+	private int[] mAvailableCageTypes;
+
+	// Workspace of the DLX solver which is shared by all attempts.
+	private MathDokuDLX mMathDokuDLX;
+
+	// Whether the uniqueness check may be split over all processors.
+	private boolean mParallelSolve;
+
+	// Statistics of all uniqueness checks and telemetry of all attempts since
+	// the statistics were cleared.
+	private SolveStatistics mSolveStatistics;
+	private GridGeneratingTelemetry mGridGeneratingTelemetry;
+
+	// The token which is checked to determine whether generating has been
+	// cancelled. Null in case generating can only be cancelled with
+	// cancel().
+	private SolveBudget.CancellationToken mCancellationToken;
+	private volatile boolean mCancelled;
+
+	// The time at which the running attempt has to be stopped. Long.MAX_VALUE
+	// in case the attempt may run until it is finished.
+	private volatile long mAttemptStopTime = Long.MAX_VALUE;
+
+	// The tokens which are checked by the solver to determine whether
+	// generating has been cancelled or whether the running attempt has to be
+	// stopped.
+	private final SolveBudget.CancellationToken mGeneratorCancellationToken = new SolveBudget.CancellationToken() {
+		@Override
+		public boolean isCancelled() {
+			return GridAttemptGenerator.this.isCancelled();
+		}
+	};
+	private final SolveBudget.CancellationToken mAttemptCancellationToken = new SolveBudget.CancellationToken() {
+		@Override
+		public boolean isCancelled() {
+			return isAttemptStopped();
+		}
+	};
+
+	// Checks whether a grid has been generated before. Null in case grids
+	// need not to be checked.
+	private GeneratedBeforeChecker mGeneratedBeforeChecker;
+
+	/**
+	 * Creates a new instance of {@link GridAttemptGenerator}.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid to be created.
+	 * @param generatorRevisionNumber
+	 *            The revision of the generator which determines how the grid
+	 *            is generated for the game seed.
+	 * @param gameSeed
+	 *            The seed from which the grid is generated.
+	 * @param maxCageSize
+	 *            The maximum number of cells in a single cage.
+	 * @param maxCageResult
+	 *            The maximum value for the result of a multiplication cage.
+	 * @param hideOperators
+	 *            True in case the grid should be solvable without using
+	 *            operators.
+	 * @param maxCagePermutations
+	 *            The maximum number of permutations of a cage before the
+	 *            parameters are relaxed.
+	 * @param maximumSingleCellCages
+	 *            The maximum number of single cell cages before the parameters
+	 *            are relaxed.
+	 */
+	public GridAttemptGenerator(int gridSize, int generatorRevisionNumber,
+			long gameSeed, int maxCageSize, int maxCageResult,
+			boolean hideOperators, int maxCagePermutations,
+			int maximumSingleCellCages) {
+		mGridSize = gridSize;
+		mGeneratorRevisionNumber = generatorRevisionNumber;
+		mGameSeed = gameSeed;
+		mMaxCageSize = maxCageSize;
+		mMaxCageResult = maxCageResult;
+		mHideOperators = hideOperators;
+		mDefaultMaxCagePermutations = maxCagePermutations;
+		mDefaultMaximumSingleCellCages = maximumSingleCellCages;
+		applyRelaxationLevel(0);
+
+		// Use the game seed to initialize the randomizer which is shared by
+		// all attempts of revisions before MIN_REVISION_PARALLEL_ATTEMPTS.
+		// Please be aware that in case the implementation of the random method
+		// changes, it will not be possible to recreate the grids!
+		mRandom = new Random(gameSeed);
+
+		mCells = new ArrayList<CageCell>(gridSize * gridSize);
+		for (int i = 0; i < gridSize * gridSize; i++) {
+			mCells.add(new CageCell(gridSize, i));
+		}
+
+		// The cage types are shared by all generators. Create them before
+		// attempts are run in parallel.
+		mGridCageTypeGenerator = CageTypeGenerator.getInstance();
+
+		clearStatistics();
+	}
+
+	/**
+	 * Creates a generator which uses the same parameters as the given
+	 * generator but runs its own attempts. This allows attempts to run in
+	 * parallel. The uniqueness check of the new generator is not split over
+	 * processors as the attempts already keep all processors busy.
+	 * 
+	 * @param gridAttemptGenerator
+	 *            The generator of which the parameters are used.
+	 */
+	public GridAttemptGenerator(GridAttemptGenerator gridAttemptGenerator) {
+		this(gridAttemptGenerator.mGridSize,
+				gridAttemptGenerator.mGeneratorRevisionNumber,
+				gridAttemptGenerator.mGameSeed,
+				gridAttemptGenerator.mMaxCageSize,
+				gridAttemptGenerator.mMaxCageResult,
+				gridAttemptGenerator.mHideOperators,
+				gridAttemptGenerator.mDefaultMaxCagePermutations,
+				gridAttemptGenerator.mDefaultMaximumSingleCellCages);
+		mCancellationToken = gridAttemptGenerator.mCancellationToken;
+		mGeneratedBeforeChecker = gridAttemptGenerator.mGeneratedBeforeChecker;
+	}
+
+	/**
+	 * Sets the token which is checked to determine whether generating has been
+	 * cancelled.
+	 * 
+	 * @param cancellationToken
+	 *            The token to be checked. Null in case generating can only be
+	 *            cancelled with {@link #cancel()}.
+	 */
+	public void setCancellationToken(
+			SolveBudget.CancellationToken cancellationToken) {
+		mCancellationToken = cancellationToken;
+	}
+
+	/**
+	 * Sets the checker which rejects grids which have been generated before.
+	 * 
+	 * @param generatedBeforeChecker
+	 *            The checker to be used. Null in case grids need not to be
+	 *            checked.
+	 */
+	public void setGeneratedBeforeChecker(
+			GeneratedBeforeChecker generatedBeforeChecker) {
+		mGeneratedBeforeChecker = generatedBeforeChecker;
+	}
+
+	/**
+	 * Lets the uniqueness check of grids of at least
+	 * PARALLEL_SOLVE_MIN_GRID_SIZE be split over all processors.
+	 * 
+	 * @param parallelSolve
+	 *            True in case the uniqueness check may be split over all
+	 *            processors. False in case it has to run on the calling
+	 *            thread only.
+	 */
+	public void setParallelSolve(boolean parallelSolve) {
+		mParallelSolve = parallelSolve;
+	}
+
+	/**
+	 * Cancels generating. The running attempt is stopped and all attempts
+	 * which are run afterwards fail immediately.
+	 */
+	public void cancel() {
+		mCancelled = true;
+	}
+
+	/**
+	 * Checks whether generating has been cancelled.
+	 * 
+	 * @return True in case generating has been cancelled.
+	 */
+	public boolean isCancelled() {
+		return mCancelled
+				|| (mCancellationToken != null && mCancellationToken
+						.isCancelled());
+	}
+
+	/**
+	 * Checks whether the revision of the generator uses a separate randomizer
+	 * per attempt.
+	 * 
+	 * @return True in case each attempt uses its own randomizer. False in case
+	 *         all attempts share a single randomizer.
+	 */
+	public boolean usesAttemptSeeds() {
+		return (mGeneratorRevisionNumber >= MIN_REVISION_PARALLEL_ATTEMPTS);
+	}
+
+	/**
+	 * Get the size of the grid.
+	 * 
+	 * @return The size of the grid.
+	 */
+	public int getGridSize() {
+		return mGridSize;
+	}
+
+	/**
+	 * Get the solution of the grid of the last attempt.
+	 * 
+	 * @return The value of each cell, indexed by row and column.
+	 */
+	public int[][] getSolutionMatrix() {
+		return mSolutionMatrix;
+	}
+
+	/**
+	 * Get the cages of the grid of the last attempt. The id of each cage
+	 * equals its index in the list.
+	 * 
+	 * @return The cages of the grid.
+	 */
+	public ArrayList<Cage> getCages() {
+		return mCages;
+	}
+
+	/**
+	 * Get the statistics of all uniqueness checks done since the statistics
+	 * were cleared.
+	 * 
+	 * @return The aggregated solver statistics.
+	 */
+	public SolveStatistics getSolveStatistics() {
+		return mSolveStatistics;
+	}
+
+	/**
+	 * Get the telemetry of all attempts done since the statistics were
+	 * cleared.
+	 * 
+	 * @return The aggregated telemetry.
+	 */
+	public GridGeneratingTelemetry getGridGeneratingTelemetry() {
+		return mGridGeneratingTelemetry;
+	}
+
+	/**
+	 * Replaces the solver statistics and the telemetry with new empty
+	 * instances.
+	 */
+	public void clearStatistics() {
+		mSolveStatistics = new SolveStatistics();
+		mGridGeneratingTelemetry = new GridGeneratingTelemetry();
+	}
+
+	/**
+	 * Get the seed for the randomizer of an attempt. The seed of an attempt
+	 * only depends on the game seed and the attempt number. Consecutive
+	 * attempt numbers are mixed so the seeds of attempts are not correlated.
+	 * 
+	 * @param gameSeed
+	 *            The seed of the game.
+	 * @param attemptNumber
+	 *            The number of the attempt, starting at 1.
+	 * @return The seed for the randomizer of the attempt.
+	 */
+	private static long getAttemptSeed(long gameSeed, int attemptNumber) {
+		long seed = gameSeed + attemptNumber * 0x9E3779B97F4A7C15L;
+		seed = (seed ^ (seed >>> 30)) * 0xBF58476D1CE4E5B9L;
+		seed = (seed ^ (seed >>> 27)) * 0x94D049BB133111EBL;
+		return seed ^ (seed >>> 31);
+	}
+
+	/**
+	 * Checks whether the running attempt has to be stopped, either because
+	 * generating has been cancelled or because the stop time of the attempt
+	 * has passed.
+	 * 
+	 * @return True in case the running attempt has to be stopped.
+	 */
+	private boolean isAttemptStopped() {
+		return isCancelled()
+				|| System.currentTimeMillis() >= mAttemptStopTime;
+	}
+
+	/**
+	 * Sets the complexity parameters for the given relaxation level. The
+	 * parameters only depend on the default parameters and the relaxation
+	 * level. Each level includes the relaxations of the previous levels.
+	 * Level 1: double the maximum number of cage permutations.
+	 * Level 2: allow more single cell cages.
+	 * Level 3: decrease the size of the first big cage and quadruple the
+	 * maximum number of cage permutations.
+	 * 
+	 * @param relaxationLevel
+	 *            The relaxation level.
+	 */
+	private void applyRelaxationLevel(int relaxationLevel) {
+		mMaxCagePermutations = mDefaultMaxCagePermutations;
+		mMaximumSingleCellCages = mDefaultMaximumSingleCellCages;
+		mFirstBigCageSize = mMaxCageSize;
+		if (relaxationLevel >= 1) {
+			mMaxCagePermutations = 2 * mDefaultMaxCagePermutations;
+		}
+		if (relaxationLevel >= 2) {
+			mMaximumSingleCellCages = mDefaultMaximumSingleCellCages
+					+ (mGridSize + 1) / 2;
+		}
+		if (relaxationLevel >= 3) {
+			mMaxCagePermutations = 4 * mDefaultMaxCagePermutations;
+			mFirstBigCageSize = mMaxCageSize - 1;
+		}
+	}
+
+	/**
+	 * Runs a single attempt to generate a grid with a unique solution. As of
+	 * revision MIN_REVISION_PARALLEL_ATTEMPTS, the outcome of the attempt only
+	 * depends on the game seed, the attempt number and the relaxation level.
+	 * Older revisions continue with the randomizer of the previous attempt.
+	 * 
+	 * @param attemptNumber
+	 *            The number of the attempt, starting at 1.
+	 * @param relaxationLevel
+	 *            The relaxation level of the complexity parameters.
+	 * @param attemptStopTime
+	 *            The time at which the attempt has to be stopped.
+	 *            Long.MAX_VALUE in case the attempt may run until it is
+	 *            finished. Revisions before MIN_REVISION_PARALLEL_ATTEMPTS
+	 *            always run until the attempt is finished.
+	 * @return True in case a grid with a unique solution is generated. False
+	 *         otherwise or in case the attempt has been stopped.
+	 */
+	public boolean runAttempt(int attemptNumber, int relaxationLevel,
+			long attemptStopTime) {
+		applyRelaxationLevel(relaxationLevel);
+		if (usesAttemptSeeds()) {
+			mRandom = new Random(getAttemptSeed(mGameSeed, attemptNumber));
+			mAttemptStopTime = attemptStopTime;
+		}
+
+		mGridGeneratingTelemetry.mAttempts++;
+		long timeStartedPhase = System.nanoTime();
+		randomiseGrid();
+		mGridGeneratingTelemetry.mRandomiseGridNanos += System.nanoTime()
+				- timeStartedPhase;
+
+		// Check whether the generating process should be aborted due to
+		// cancellation or the stop time of the attempt.
+		if (isAttemptStopped()) {
+			return false;
+		}
+
+		// Create the cages.
+		mCages = new ArrayList<Cage>();
+		timeStartedPhase = System.nanoTime();
+		boolean cagesCreated = createCages();
+		mGridGeneratingTelemetry.mCreateCagesNanos += System.nanoTime()
+				- timeStartedPhase;
+		if (cagesCreated == false) {
+			// For some reason the creation of the cages was not successful.
+			return false;
+		}
+
+		// Check whether the generating process should be aborted due to
+		// cancellation or the stop time of the attempt.
+		if (isAttemptStopped()) {
+			return false;
+		}
+
+		if (DEBUG_GRID_GENERATOR) {
+			Logger.getLogger(TAG).info("Verify unique solution");
+		}
+
+		timeStartedPhase = System.nanoTime();
+		boolean hasUniqueSolution = checkUniqueSolution(attemptNumber);
+		mGridGeneratingTelemetry.mUniqueSolutionNanos += System.nanoTime()
+				- timeStartedPhase;
+		return hasUniqueSolution;
+	}
+
+	/**
+	 * Regenerates the grid of a single attempt. As of revision
+	 * MIN_REVISION_PARALLEL_ATTEMPTS, the grid which was generated for a game
+	 * seed is fully determined by the game seed and the attempt number and
+	 * relaxation level of the attempt which resulted in the grid. The attempt
+	 * is run until it is finished and the grid is not checked against the
+	 * grids which have been generated before, as the grid itself has been
+	 * generated before.
+	 * 
+	 * @param attemptNumber
+	 *            The number of the attempt, starting at 1.
+	 * @param relaxationLevel
+	 *            The relaxation level of the complexity parameters which was
+	 *            used by the attempt.
+	 * @return True in case the attempt results in a grid with a unique
+	 *         solution. False otherwise or in case generating has been
+	 *         cancelled.
+	 */
+	public boolean replayAttempt(int attemptNumber, int relaxationLevel) {
+		if (!usesAttemptSeeds()) {
+			throw new IllegalStateException("Revision "
+					+ mGeneratorRevisionNumber
+					+ " does not support replaying a single attempt.");
+		}
+
+		GeneratedBeforeChecker generatedBeforeChecker = mGeneratedBeforeChecker;
+		mGeneratedBeforeChecker = null;
+		try {
+			return runAttempt(attemptNumber, relaxationLevel, Long.MAX_VALUE);
+		} finally {
+			mGeneratedBeforeChecker = generatedBeforeChecker;
+		}
+	}
+
+	/**
+	 * Fills the grid with a solution and cages without checking whether the
+	 * cages result in a unique solution. All calls share the randomizer which
+	 * is seeded with the game seed. Only to be used to generate fake games in
+	 * development mode.
+	 * 
+	 * @return True in case the cages have been created successfully.
+	 */
+	public boolean generateWithoutUniquenessCheck() {
+		applyRelaxationLevel(0);
+		randomiseGrid();
+		mCages = new ArrayList<Cage>();
+		return createCages();
+	}
+
+	/**
+	 * Checks whether the current grid has a unique solution.
+	 * 
+	 * @param attemptNumber
+	 *            The number of the attempt which created the grid.
+	 * @return True in case the grid has a unique solution. False otherwise or
+	 *         in case the attempt has been stopped.
+	 */
+	private boolean checkUniqueSolution(int attemptNumber) {
+		// Determine whether grid has a unique solution. The solve is
+		// aborted as soon as the attempt is stopped or in case too many nodes
+		// are needed to check the grid. In case multiple solutions are found, the
+		// cages in which those solutions differ are replaced and the grid is
+		// checked again. Revisions before MIN_REVISION_PARALLEL_ATTEMPTS
+		// neither limit the solve nor repair the grid, as this would change the
+		// grid which is generated for the game seed.
+		boolean hasUniqueSolution;
+		int repairs = 0;
+		int maxRepairs = (usesAttemptSeeds() ? MAX_AMBIGUITY_REPAIRS : 0);
+		while (true) {
+			SolveBudget solveBudget = (usesAttemptSeeds() ? new SolveBudget(
+					MAX_SOLVER_NODES, SolveBudget.UNLIMITED,
+					mAttemptCancellationToken) : new SolveBudget(
+					SolveBudget.UNLIMITED, SolveBudget.UNLIMITED,
+					mGeneratorCancellationToken));
+			MathDokuSolver mathDokuSolver = createSolver();
+			hasUniqueSolution = mathDokuSolver.hasUniqueSolution(solveBudget);
+			SolveStatistics solveStatistics = mathDokuSolver
+					.getSolveStatistics();
+			mSolveStatistics.add(solveStatistics);
+			mGridGeneratingTelemetry.mSolverNodesVisited += solveStatistics.mNodesVisited;
+			mGridGeneratingTelemetry.mSolverBacktracks += solveStatistics.mBacktracks;
+			if (DEBUG_GRID_GENERATOR) {
+				Logger.getLogger(TAG).info(
+						"Attempt " + attemptNumber + ": " + solveStatistics);
+			}
+			if (solveBudget.isCancelled()) {
+				return false;
+			}
+
+			if (!hasUniqueSolution) {
+				mGridGeneratingTelemetry.mNoUniqueSolution++;
+			}
+			if (DEBUG_GRID_GENERATOR && !hasUniqueSolution) {
+				if (solveBudget.isExhausted()) {
+					Logger.getLogger(TAG).info(
+							"Uniqueness of this grid could not be "
+									+ "determined within the solver budget.");
+				} else {
+					Logger.getLogger(TAG).info(
+							"This grid does not have a unique solution. "
+									+ "Number of solutions: "
+									+ countSolutions());
+				}
+			}
+
+			if (hasUniqueSolution || repairs >= maxRepairs
+					|| !repairAmbiguousCages(mathDokuSolver
+							.getAmbiguousSolutionGrids())) {
+				break;
+			}
+			repairs++;
+			mGridGeneratingTelemetry.mAmbiguityRepairs++;
+		}
+
+		return hasUniqueSolution;
+	}
+
+	/**
+	 * Replaces the cages which cause the grid to have multiple solutions. All
+	 * cages containing a cell for which the given solutions have different
+	 * values are removed. The cells of those cages are divided into new cages
+	 * while the other cages remain unchanged.
+	 * 
+	 * @param solutions
+	 *            Two different solutions of the grid. Null in case no
+	 *            solutions are available.
+	 * @return True in case the cages have been replaced. False in case the
+	 *         grid can not be repaired and a new grid has to be generated.
+	 */
+	private boolean repairAmbiguousCages(int[][][] solutions) {
+		if (solutions == null) {
+			return false;
+		}
+
+		// Determine the cages which contain a cell for which the solutions
+		// differ.
+		boolean[] cageToBeReplaced = new boolean[mCages.size()];
+		int cagesToBeReplaced = 0;
+		for (CageCell cell : mCells) {
+			int row = cell.getRow();
+			int col = cell.getColumn();
+			int cageId = mOverlappingSubsetChecker.getCageId(row, col);
+			if (solutions[0][row][col] != solutions[1][row][col]
+					&& !cageToBeReplaced[cageId]) {
+				cageToBeReplaced[cageId] = true;
+				cagesToBeReplaced++;
+			}
+		}
+		if (cagesToBeReplaced == 0 || cagesToBeReplaced == mCages.size()) {
+			return false;
+		}
+		if (DEBUG_GRID_GENERATOR) {
+			Logger.getLogger(TAG).info(
+					"Replace " + cagesToBeReplaced + " of " + mCages.size()
+							+ " cages to repair ambiguous grid.");
+		}
+
+		// Remove the cages and renumber the remaining cages.
+		ArrayList<Cage> remainingCages = new ArrayList<Cage>();
+		for (Cage cage : mCages) {
+			if (!cageToBeReplaced[cage.mId]) {
+				cage.mId = remainingCages.size();
+				remainingCages.add(cage);
+			}
+		}
+		mCages = remainingCages;
+		clearCageMatrix();
+		for (Cage cage : mCages) {
+			addToCageMatrix(cage);
+		}
+
+		// Fill the cells which are no longer used by a cage.
+		for (CageCell cell : mCells) {
+			if (isInAnyCage(cell)) {
+				continue;
+			}
+			Cage cage = selectRandomCageType(cell);
+			if (cage == null) {
+				// Generating has been cancelled.
+				return false;
+			}
+			mCages.add(cage);
+			addToCageMatrix(cage);
+		}
+
+		int countSingles = 0;
+		for (Cage cage : mCages) {
+			if (cage.mCells.size() == 1) {
+				countSingles++;
+			}
+		}
+		if (countSingles > mMaximumSingleCellCages) {
+			mGridGeneratingTelemetry.mRejectedTooManySingleCellCages++;
+			return false;
+		}
+
+		if (isGeneratedBefore()) {
+			mGridGeneratingTelemetry.mRejectedGeneratedBefore++;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the solver which is best suited to check whether the current
+	 * cages result in a unique solution.
+	 * 
+	 * @return The solver for the current cages.
+	 */
+	private MathDokuSolver createSolver() {
+		// The propagation solver does not need the permutations of the cages.
+		// So stop counting as soon as it is clear that it will be used.
+		int permutations = 0;
+		for (Cage cage : mCages) {
+			permutations += cage
+					.countPossibleNums(PROPAGATION_SOLVER_MIN_PERMUTATIONS
+							- permutations);
+			if (permutations > PROPAGATION_SOLVER_MIN_PERMUTATIONS) {
+				return new MathDokuPropagationSolver(mGridSize, mCages);
+			}
+		}
+
+		// The DLX solver is reused for all attempts so its matrix storage
+		// only has to be allocated once.
+		if (mMathDokuDLX == null) {
+			mMathDokuDLX = new MathDokuDLX(mGridSize, mCages);
+		} else {
+			mMathDokuDLX.reset(mGridSize, mCages);
+		}
+		mMathDokuDLX.setParallelSolve(mParallelSolve
+				&& mGridSize >= PARALLEL_SOLVE_MIN_GRID_SIZE
+				&& Runtime.getRuntime().availableProcessors() > 1 ? ForkJoinPool
+				.commonPool() : null);
+		return mMathDokuDLX;
+	}
+
+	/**
+	 * Counts the solutions of the current grid to measure how ambiguous the
+	 * grid is.
+	 * 
+	 * @return The number of solutions of the grid. The count is prefixed with
+	 *         "at least" in case counting was stopped.
+	 */
+	private String countSolutions() {
+		final int[] solutions = new int[1];
+		int result = new MathDokuDLX(mGridSize, mCages).visitSolutions(
+				new SolutionVisitor() {
+					@Override
+					public boolean visit(int[] rows, int numberOfRows) {
+						return (++solutions[0] < DEBUG_MAX_SOLUTIONS_COUNTED);
+					}
+				}, new SolveBudget(MAX_SOLVER_NODES, SolveBudget.UNLIMITED,
+						mGeneratorCancellationToken));
+		return (result == ArrayDLX.BUDGET_EXHAUSTED
+				|| solutions[0] >= DEBUG_MAX_SOLUTIONS_COUNTED ? "at least "
+				: "") + solutions[0];
+	}
+
+	/*
+	 * Fills the grid with random numbers, per the rules:
+	 * 
+	 * - 1 to <rowsize> on every row and column - No duplicates in any row or
+	 * column.
+	 */
+	private void randomiseGrid() {
+		if (mGeneratorRevisionNumber < MIN_REVISION_LATIN_SQUARE_BUILDER) {
+			// Use the old method so the game seed of a grid generated by an
+			// older revision still reproduces the same solution. This only
+			// holds as those revisions also share a single randomizer over
+			// all attempts, see MIN_REVISION_PARALLEL_ATTEMPTS.
+			randomiseGridByRandomPositions();
+			return;
+		}
+
+		mSolutionMatrix = new LatinSquareBuilder(mGridSize, mRandom).build();
+	}
+
+	/*
+	 * Fills the grid with random numbers by placing each value at a random
+	 * position in each row. In case the value can not be placed in a row, all
+	 * occurrences of the value are removed and placing the value starts over.
+	 * Used by generator revisions before
+	 * MIN_REVISION_LATIN_SQUARE_BUILDER.
+	 */
+	private void randomiseGridByRandomPositions() {
+		int attempts;
+		mSolutionMatrix = new int[this.mGridSize][this.mGridSize];
+		for (int value = 1; value < this.mGridSize + 1; value++) {
+			for (int row = 0; row < this.mGridSize; row++) {
+				attempts = 20;
+				int column;
+				while (true) {
+					column = this.mRandom.nextInt(this.mGridSize);
+					if (--attempts == 0)
+						break;
+					if (mSolutionMatrix[row][column] != 0)
+						continue;
+					if (valueInColumn(column, value))
+						continue;
+					break;
+				}
+				if (attempts == 0) {
+					this.clearValue(value--);
+					break;
+				}
+				mSolutionMatrix[row][column] = value;
+			}
+		}
+	}
+
+	/**
+	 * Creates cages for the current grid which is already filled with numbers.
+	 * 
+	 * @return True in case the cages have been created successfully.
+	 */
+	private boolean createCages() {
+		boolean restart;
+		int attempts = 0;
+		do {
+			restart = false;
+			attempts++;
+			clearCageMatrix();
+
+			if (mMaxCageSize >= MIN_MAX_CAGE_SIZE_FIRST_BIG_CAGE) {
+				// Drop a first (bigger) cage type somewhere in the grid.
+				int remaingAttemptsToPlaceBigCageType = 10;
+				while (remaingAttemptsToPlaceBigCageType > 0) {
+					// Check whether the generating process should be aborted
+					// due to cancellation or the stop time of the attempt.
+					if (isAttemptStopped()) {
+						return false;
+					}
+
+					GridCageType gridCageType = mGridCageTypeGenerator
+							.getRandomCageType(mFirstBigCageSize,
+									getMaxPredefinedCageSize(), mGridSize,
+									mGridSize, mRandom);
+					if (gridCageType != null) {
+						// Determine a random row and column at which the mask
+						// will be placed. Use +1 in calls to randomizer to
+						// prevent exceptions in case the entire height and/or
+						// width is needed for the cagetype.
+						int startRow = mRandom
+								.nextInt((mGridSize - gridCageType.getHeight()) + 1);
+						int startCol = mRandom
+								.nextInt((mGridSize - gridCageType.getWidth()) + 1);
+
+						// Determine the origin cell of the cage type in case
+						// the cagetype mask is put at the randomly determined
+						// position.
+						int[] coordinatesTopLeft = gridCageType
+								.getOriginCoordinates(startRow, startCol);
+
+						// Get the cells for the cage and add the cage. Note: no
+						// checking is done on the maximum permutations for the
+						// first cage.
+						long[] occupancyMasks = gridCageType
+								.getOccupancyMasks(mGridSize);
+						int originIndex = coordinatesTopLeft[0] * mGridSize
+								+ coordinatesTopLeft[1];
+						Cage firstCage = createCage(
+								occupancyMasks[2 * originIndex],
+								occupancyMasks[2 * originIndex + 1],
+								4 * mMaxCagePermutations);
+						if (firstCage != null) {
+							this.mCages.add(firstCage);
+							addToCageMatrix(firstCage);
+							break;
+						}
+					}
+
+					// Try another time to drop a big cage type unless maximum
+					// number of tries has been reached.
+					remaingAttemptsToPlaceBigCageType--;
+				}
+			}
+
+			// Fill remainder of grid
+			int countSingles = 0;
+			for (CageCell cell : this.mCells) {
+				if (isInAnyCage(cell)) {
+					continue; // Cell already in a cage, skip
+				}
+
+				// Determine a random cage which will start at this cell.
+				Cage cage = selectRandomCageType(cell);
+				if (cage == null) {
+					// The generator has been cancelled.
+					return false;
+				}
+
+				if (cage.mCells.size() == 1) {
+					countSingles++;
+					if (countSingles > mMaximumSingleCellCages) {
+						mGridGeneratingTelemetry.mRejectedTooManySingleCellCages++;
+						if (DEBUG_GRID_GENERATOR) {
+							// Too many singles
+							Logger.getLogger(TAG).info(
+									"Found more single cell cages than allowed ("
+											+ mMaximumSingleCellCages
+											+ ") in attempt " + attempts);
+						}
+						this.mCages = new ArrayList<Cage>();
+						restart = true;
+						break;
+					}
+				}
+
+				// Add the cage to the grid
+				this.mCages.add(cage);
+				addToCageMatrix(cage);
+			}
+
+			// If a valid grid is generated check if it was not generated
+			// before.
+			if (!restart) {
+				if (isGeneratedBefore()) {
+					mGridGeneratingTelemetry.mRejectedGeneratedBefore++;
+					this.mCages = new ArrayList<Cage>();
+					restart = true;
+					if (DEBUG_GRID_GENERATOR) {
+						Logger.getLogger(TAG).info(
+								"Grid has been generated before " + attempts);
+					}
+					continue;
+				}
+			}
+
+			// If not succeeded in 20 attempts then stop and try all over again.
+			if (attempts >= 20) {
+				return false;
+			}
+		} while (restart);
+
+		if (DEBUG_GRID_GENERATOR) {
+			printCageCreationDebugInformation(null);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Create a new cage which originates at the given cell. The cage type for
+	 * this cage will be randomly determined.
+	 * 
+	 * @param origin
+	 *            The cell at which the cage originates.
+	 * @return The selected grid cage type. Null in case the attempt has been
+	 *         stopped.
+	 */
+	private Cage selectRandomCageType(CageCell origin) {
+		if (DEBUG_GRID_GENERATOR_FULL) {
+			Logger.getLogger(TAG).info(
+					"Determine valid cages for cell[" + origin.getRow() + ","
+							+ origin.getColumn() + "]");
+		}
+
+		int originIndex = origin.getCellNumber();
+
+		// Store indexes of all defined cages types, except cage type 0 which is
+		// a single cell, in the list of available cages.
+		int countAvailableCages = mGridCageTypeGenerator.size(Math.min(
+				mMaxCageSize, getMaxPredefinedCageSize())) - 1;
+		if (mAvailableCageTypes == null
+				|| mAvailableCageTypes.length < countAvailableCages) {
+			mAvailableCageTypes = new int[countAvailableCages];
+		}
+		for (int i = 0; i < countAvailableCages; i++) {
+			mAvailableCageTypes[i] = i + 1;
+		}
+
+		while (countAvailableCages > 0) {
+			// Check whether the generating process should be aborted due to
+			// cancellation or the stop time of the attempt.
+			if (isAttemptStopped()) {
+				return null;
+			}
+
+			// Randomly select any cage from the list of available cages. As
+			// soon as a cage type is selected, it is removed from the list of
+			// available cage types so it will not be selected again. The
+			// remaining cage types are shifted to keep the same order as the
+			// random selections would be different otherwise.
+			int randomIndex = this.mRandom.nextInt(countAvailableCages);
+			int cageTypeToBeChecked = mAvailableCageTypes[randomIndex];
+			countAvailableCages--;
+			System.arraycopy(mAvailableCageTypes, randomIndex + 1,
+					mAvailableCageTypes, randomIndex, countAvailableCages
+							- randomIndex);
+
+			// Get the cells involved when this cage type is placed at this
+			// origin. The cage type can only be used in case all cells are
+			// inside the grid and are not yet used in another cage.
+			long[] occupancyMasks = getOccupancyMasks(cageTypeToBeChecked);
+			long maskNewCageLow = occupancyMasks[2 * originIndex];
+			long maskNewCageHigh = occupancyMasks[2 * originIndex + 1];
+			if ((maskNewCageLow == 0 && maskNewCageHigh == 0)
+					|| (maskNewCageLow & mCageCellsLow) != 0
+					|| (maskNewCageHigh & mCageCellsHigh) != 0) {
+				continue;
+			}
+
+			boolean hasOverlappingSubset = mOverlappingSubsetChecker
+					.hasOverlappingSubset(maskNewCageLow, maskNewCageHigh);
+
+			if (DEBUG_GRID_GENERATOR_FULL) {
+				// Print solution, cage matrix and makskNewCage
+				boolean[][] maskNewCage = new boolean[this.mGridSize][this.mGridSize];
+				for (int row = 0; row < mGridSize; row++) {
+					for (int col = 0; col < mGridSize; col++) {
+						maskNewCage[row][col] = mOverlappingSubsetChecker
+								.isInNewCage(row, col);
+					}
+				}
+				printCageCreationDebugInformation(maskNewCage);
+				if (hasOverlappingSubset) {
+					Logger.getLogger(TAG).info(
+							"         This cage type will result in a "
+									+ "non-unique solution. "
+									+ mOverlappingSubsetChecker
+											.getOverlapDescription());
+				}
+			}
+
+			if (hasOverlappingSubset) {
+				mGridGeneratingTelemetry.mRejectedOverlappingSubset++;
+				continue;
+			}
+
+			Cage cage = createCage(maskNewCageLow, maskNewCageHigh,
+					mMaxCagePermutations);
+			if (cage == null) {
+				// No cage created due to too many permutations.
+				continue;
+			}
+
+			// As we randomly check available cages, we can stop as soon as a
+			// valid cage is found which does fit on this position.
+			return cage;
+		}
+
+		// No cage, other than a single cell, does fit on this position in the
+		// grid.
+		if (DEBUG_GRID_GENERATOR_FULL) {
+			// Print solution, cage matrix and makskNewCage
+			boolean[][] maskNewCage = new boolean[this.mGridSize][this.mGridSize];
+			maskNewCage[origin.getRow()][origin.getColumn()] = true;
+			printCageCreationDebugInformation(maskNewCage);
+		}
+
+		// Create the new cage for a single cell.
+		long[] occupancyMasks = mGridCageTypeGenerator.getSingleCellCageType()
+				.getOccupancyMasks(mGridSize);
+		return createCage(occupancyMasks[2 * originIndex],
+				occupancyMasks[2 * originIndex + 1], 0);
+	}
+
+	/**
+	 * Get the maximum size of the cage types of the catalog which can be used
+	 * by the revision of the generator.
+	 * 
+	 * @return The maximum size of the cage types which can be used.
+	 */
+	private int getMaxPredefinedCageSize() {
+		return (mGeneratorRevisionNumber < MIN_REVISION_CAGE_TYPE_CATALOG ? LEGACY_MAX_PREDEFINED_CAGE_SIZE
+				: CageTypeGenerator.MAX_CAGE_SIZE);
+	}
+
+	/**
+	 * Get the occupancy masks for the cage type with the given index.
+	 * 
+	 * @param cageTypeIndex
+	 *            The index of the cage type.
+	 * @return The occupancy masks of the cage type for the size of this grid.
+	 */
+	private long[] getOccupancyMasks(int cageTypeIndex) {
+		if (mCageTypeOccupancyMasks == null) {
+			mCageTypeOccupancyMasks = new long[mGridCageTypeGenerator
+					.size(CageTypeGenerator.MAX_CAGE_SIZE)][];
+		}
+		long[] occupancyMasks = mCageTypeOccupancyMasks[cageTypeIndex];
+		if (occupancyMasks == null) {
+			occupancyMasks = mGridCageTypeGenerator.getCageType(cageTypeIndex)
+					.getOccupancyMasks(mGridSize);
+			mCageTypeOccupancyMasks[cageTypeIndex] = occupancyMasks;
+		}
+		return occupancyMasks;
+	}
+
+	/**
+	 * Get the cells which are set in the given occupancy masks.
+	 * 
+	 * @param maskLow
+	 *            The mask for cell 0 to 63.
+	 * @param maskHigh
+	 *            The mask for cell 64 to 80.
+	 * @return The cells ordered by row and column.
+	 */
+	private ArrayList<CageCell> getCells(long maskLow, long maskHigh) {
+		ArrayList<CageCell> cells = new ArrayList<CageCell>(
+				Long.bitCount(maskLow) + Long.bitCount(maskHigh));
+		for (long mask = maskLow; mask != 0; mask &= mask - 1) {
+			cells.add(mCells.get(Long.numberOfTrailingZeros(mask)));
+		}
+		for (long mask = maskHigh; mask != 0; mask &= mask - 1) {
+			cells.add(mCells.get(64 + Long.numberOfTrailingZeros(mask)));
+		}
+		return cells;
+	}
+
+	/**
+	 * Checks whether the given cell is already used by a cage.
+	 * 
+	 * @param cell
+	 *            The cell to be checked.
+	 * @return True in case the cell is used by a cage.
+	 */
+	private boolean isInAnyCage(CageCell cell) {
+		int cellIndex = cell.getCellNumber();
+		return (cellIndex < 64 ? (mCageCellsLow & (1L << cellIndex))
+				: (mCageCellsHigh & (1L << (cellIndex - 64)))) != 0;
+	}
+
+	/**
+	 * Clears the cage matrix and the bitboard of cells used by cages.
+	 */
+	private void clearCageMatrix() {
+		if (mOverlappingSubsetChecker == null) {
+			mOverlappingSubsetChecker = new OverlappingSubsetChecker(mGridSize);
+		}
+		mOverlappingSubsetChecker.clear(mSolutionMatrix);
+		mCageCellsLow = 0;
+		mCageCellsHigh = 0;
+	}
+
+	/**
+	 * Registers the cells of the given cage in the cage matrix and the bitboard
+	 * of cells used by cages.
+	 * 
+	 * @param cage
+	 *            The cage which is added to the grid.
+	 */
+	private void addToCageMatrix(Cage cage) {
+		mOverlappingSubsetChecker.startCage(cage.mId);
+		for (CageCell cell : cage.mCells) {
+			mOverlappingSubsetChecker.addCell(cage.mId, cell.getRow(),
+					cell.getColumn());
+			int cellIndex = cell.getCellNumber();
+			if (cellIndex < 64) {
+				mCageCellsLow |= 1L << cellIndex;
+			} else {
+				mCageCellsHigh |= 1L << (cellIndex - 64);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the current grid has been generated before.
+	 * 
+	 * @return True in case the grid has been generated before.
+	 */
+	private boolean isGeneratedBefore() {
+		if (mGeneratedBeforeChecker == null) {
+			return false;
+		}
+		int[] cageIds = new int[mGridSize * mGridSize];
+		for (CageCell cell : mCells) {
+			cageIds[cell.getCellNumber()] = mOverlappingSubsetChecker
+					.getCageId(cell.getRow(), cell.getColumn());
+		}
+		return mGeneratedBeforeChecker.isGeneratedBefore(cageIds, mCages);
+	}
+
+	/**
+	 * Create the cage for the cells in the given occupancy masks.
+	 * 
+	 * @param maskLow
+	 *            The mask for cell 0 to 63 to be used for the cage.
+	 * @param maskHigh
+	 *            The mask for cell 64 to 80 to be used for the cage.
+	 * @param maxPermutations
+	 *            The maximum permutations allowed to create the cage. Use 0 in
+	 *            case no checking on the number of permutations needs to be
+	 *            done.
+	 * @return The grid cage which is created. Null in case the cage has too
+	 *         many permutations.
+	 */
+	private Cage createCage(long maskLow, long maskHigh, int maxPermutations) {
+		Cage cage = new Cage(mGridSize);
+		int newCageId = this.mCages.size();
+		cage.mCells.addAll(getCells(maskLow, maskHigh));
+		setArithmetic(cage);
+		if (maxPermutations > 0
+				&& cage.countPossibleNums(maxPermutations) > maxPermutations) {
+			// This cage has too many permutations which fulfill the
+			// cage requirements. As this reduces the chance to find a
+			// solution for the puzzle too much, the cage type will not
+			// returned.
+			if (DEBUG_GRID_GENERATOR_FULL) {
+				Logger.getLogger(TAG).info(
+						"This cage type has been rejected as it has more "
+								+ "than " + maxPermutations + " initial "
+								+ "permutations which fulfill the cage "
+								+ "requirement.");
+			}
+			mGridGeneratingTelemetry.mRejectedTooManyPermutations++;
+
+			return null;
+		}
+
+		cage.mId = newCageId;
+
+		return cage;
+	}
+
+	/**
+	 * Print debug information for create cage process to logging.
+	 * 
+	 * @param maskNewCage
+	 *            Mask of cage type which is currently processed.
+	 */
+	private void printCageCreationDebugInformation(boolean[][] maskNewCage) {
+		Logger.getLogger(TAG).info("   Checking cage type");
+		String cageIdFormat = "%d";
+		String emptyCell = ".";
+		String usedCell = "X";
+		if (this.mCages.size() > 100) {
+			cageIdFormat = "%03d";
+			emptyCell = "  .";
+			usedCell = "  X";
+		} else if (this.mCages.size() > 10) {
+			cageIdFormat = "%02d";
+			emptyCell = " .";
+			usedCell = " X";
+		}
+		for (int row = 0; row < this.mGridSize; row++) {
+			String line = "      ";
+			for (int col = 0; col < this.mGridSize; col++) {
+				line += " " + mSolutionMatrix[row][col];
+			}
+			line += "   ";
+			for (int col = 0; col < this.mGridSize; col++) {
+				int cageId = mOverlappingSubsetChecker.getCageId(row, col);
+				line += " "
+						+ (cageId == -1 ? emptyCell : String.format(
+								cageIdFormat, cageId));
+			}
+			if (maskNewCage != null) {
+				line += "   ";
+				for (int col = 0; col < this.mGridSize; col++) {
+					line += " "
+							+ (maskNewCage[row][col] ? usedCell : emptyCell);
+				}
+			}
+			Logger.getLogger(TAG).info(line);
+		}
+	}
+
+	/**
+	 * Get the value of the given cell in the solution.
+	 */
+	private int getCorrectValue(CageCell cell) {
+		return mSolutionMatrix[cell.getRow()][cell.getColumn()];
+	}
+
+	/**
+	 * Generates the arithmetic for the cage, semi-randomly.
+	 * 
+	 * @param cage
+	 *            The cage for which the arithmetic has to be generated.
+	 */
+	private void setArithmetic(Cage cage) {
+		// A cage consisting of one single cell has no operator.
+		if (cage.mCells.size() == 1) {
+			// Single cell cage have an empty operator which is never hidden. IN
+			// this way it can be prevented that for a single cage cell it
+			// operator can be revealed using the context menu.
+			cage.setCageResults(getCorrectValue(cage.mCells.get(0)),
+					Cage.ACTION_NONE, false);
+			return;
+		}
+
+		// For cages of size 2 and bigger a weight (i.e. the chance on choosing
+		// that operator) will be determined.
+		int divisionWeight;
+		int subtractionWeight;
+		int addWeight;
+		int multiplyWeight;
+		int divisionCageResult = -1;
+		int subtractionCageResult = -1;
+
+		// A cage consisting of two cells can have any operator but we give
+		// divide and subtraction a little extra weight because those operators
+		// will not be used in bigger cages. Of course division can not always
+		// be used.
+		if (cage.mCells.size() == 2) {
+			int higher;
+			int lower;
+			if (getCorrectValue(cage.mCells.get(0)) > getCorrectValue(cage.mCells
+					.get(1))) {
+				higher = getCorrectValue(cage.mCells.get(0));
+				lower = getCorrectValue(cage.mCells.get(1));
+			} else {
+				higher = getCorrectValue(cage.mCells.get(1));
+				lower = getCorrectValue(cage.mCells.get(0));
+			}
+			// As division is less often possible compared to subtraction, it is
+			// given a bit more weight.
+			divisionWeight = ((higher % lower == 0) ? 50 : 0);
+			subtractionWeight = 30;
+			addWeight = 15;
+			multiplyWeight = 15;
+			// Also calculate the cage results for division and subtraction
+			divisionCageResult = higher / lower;
+			subtractionCageResult = higher - lower;
+		} else {
+			// Cage has three or more cells. Division and substration are not
+			// allowed as operators.
+			divisionWeight = 0;
+			subtractionWeight = 0;
+			addWeight = 50;
+			multiplyWeight = 50;
+		}
+
+		// Determine a random number in the range of the total weight of the
+		// operator available.
+		int totalWeight = divisionWeight + subtractionWeight + addWeight
+				+ multiplyWeight;
+		double index = mRandom.nextInt(totalWeight);
+
+		// Check whether the division operator has to be applied
+		if (index < divisionWeight) {
+			cage.setCageResults(divisionCageResult, Cage.ACTION_DIVIDE,
+					mHideOperators);
+			return;
+		}
+		index -= divisionWeight;
+
+		// Check whether the subtraction operator has to be applied
+		if (index < subtractionWeight) {
+			cage.setCageResults(subtractionCageResult, Cage.ACTION_SUBTRACT,
+					mHideOperators);
+			return;
+		}
+		index -= subtractionWeight;
+
+		// Check whether the multiply operator has to and can be applied. If
+		// not, than add is chosen.
+		if (index < multiplyWeight) {
+			int total = 1;
+			for (CageCell cell : cage.mCells) {
+				total *= getCorrectValue(cell);
+			}
+			if (total <= mMaxCageResult) {
+				cage.setCageResults(total, Cage.ACTION_MULTIPLY,
+						mHideOperators);
+				return;
+			}
+			if (DEBUG_GRID_GENERATOR) {
+				Logger.getLogger(TAG).info(
+						"GameSeed: " + mGameSeed + " cage result " + total
+								+ " is rejected");
+			}
+			// Multplication leads to a cage value that is too big to be
+			// displayed on this device. Instead of multiplication the add
+			// operator will be used for this cage which leads to a small cage
+			// outcome.
+		}
+
+		// Use ADD in all other cases.
+		int total = 0;
+		for (CageCell cell : cage.mCells) {
+			total += getCorrectValue(cell);
+		}
+		cage.setCageResults(total, Cage.ACTION_ADD, mHideOperators);
+	}
+
+	/* Clear any cells containing the given number. */
+	private void clearValue(int value) {
+		for (int row = 0; row < mGridSize; row++)
+			for (int column = 0; column < mGridSize; column++)
+				if (mSolutionMatrix[row][column] == value)
+					mSolutionMatrix[row][column] = 0;
+	}
+
+	/* Determine if the given value is in the given column */
+	private boolean valueInColumn(int column, int value) {
+		for (int row = 0; row < mGridSize; row++)
+			if (mSolutionMatrix[row][column] == value)
+				return true;
+		return false;
+	}
+}
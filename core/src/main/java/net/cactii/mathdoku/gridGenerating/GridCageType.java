@@ -1,7 +1,5 @@
 package net.cactii.mathdoku.gridGenerating;
 
-import net.cactii.mathdoku.grid.GridCell;
-
 public class GridCageType {
 	public static final String TAG = "MathDoku.GridCageType";
 
@@ -21,6 +19,10 @@ public class GridCageType {
 	// type. False in case the cell is unused.
 	public boolean[][] mUsedCells;
 
+	// Occupancy masks of this cage type per grid size. See
+	// getOccupancyMasks.
+	private long[][] mOccupancyMasks;
+
 	/**
 	 * Creates a new instance of {@link CageType}.
 	 */
@@ -79,15 +81,14 @@ public class GridCageType {
 	/**
 	 * Get the cell coordinates if this cage type starts at the given origin.
 	 * 
-	 * @param origin
-	 *            The origin cell where the cage type does start.
+	 * @param rowOrigin
+	 *            The row of the origin cell where the cage type does start.
+	 * @param colOrigin
+	 *            The column of the origin cell where the cage type does start.
 	 * @return An array of coordinates (row,col) of cells involved. The caller
 	 *         needs to check whether all returned coordinates are valid.
 	 */
-	public int[][] getCellCoordinates(GridCell origin) {
-		int rowOrigin = origin.getRow();
-		int colOrigin = origin.getColumn();
-
+	public int[][] getCellCoordinates(int rowOrigin, int colOrigin) {
 		// Get cage type matrix
 		if (mUsedCells == null) {
 			return new int[][] { { rowOrigin, colOrigin } };
@@ -109,6 +110,75 @@ public class GridCageType {
 		return coordinates;
 	}
 
+	/**
+	 * Get the occupancy masks of this cage type for each origin cell in a grid
+	 * of the given size. The cells of the grid are numbered row by row. Cell i
+	 * is represented by bit i of the low mask if i is less than 64 and by bit
+	 * (i - 64) of the high mask otherwise. As a 9x9 grid has 81 cells, two
+	 * longs are sufficient to represent all cells.
+	 * 
+	 * The masks are computed once per grid size.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid.
+	 * @return An array containing the low and high mask for each origin cell.
+	 *         The low mask for the origin cell with index i is stored at index
+	 *         2 * i and the high mask at index 2 * i + 1. Both masks are 0 in
+	 *         case the cage type does not fit inside the grid when starting at
+	 *         this origin.
+	 */
+	public synchronized long[] getOccupancyMasks(int gridSize) {
+		if (mOccupancyMasks == null || mOccupancyMasks.length <= gridSize) {
+			long[][] occupancyMasks = new long[gridSize + 1][];
+			if (mOccupancyMasks != null) {
+				System.arraycopy(mOccupancyMasks, 0, occupancyMasks, 0,
+						mOccupancyMasks.length);
+			}
+			mOccupancyMasks = occupancyMasks;
+		}
+		if (mOccupancyMasks[gridSize] == null) {
+			mOccupancyMasks[gridSize] = createOccupancyMasks(gridSize);
+		}
+		return mOccupancyMasks[gridSize];
+	}
+
+	/**
+	 * Computes the occupancy masks of this cage type for each origin cell in a
+	 * grid of the given size.
+	 */
+	private long[] createOccupancyMasks(int gridSize) {
+		long[] occupancyMasks = new long[2 * gridSize * gridSize];
+		for (int rowOrigin = 0; rowOrigin < gridSize; rowOrigin++) {
+			for (int colOrigin = 0; colOrigin < gridSize; colOrigin++) {
+				int left = colOrigin - mColOriginOffset;
+				if (left < 0 || left + mCols > gridSize
+						|| rowOrigin + mRows > gridSize) {
+					// Cage type does not fit inside the grid.
+					continue;
+				}
+				long low = 0;
+				long high = 0;
+				for (int row = 0; row < mRows; row++) {
+					for (int col = 0; col < mCols; col++) {
+						if (mUsedCells[row][col]) {
+							int cellIndex = (rowOrigin + row) * gridSize + left
+									+ col;
+							if (cellIndex < 64) {
+								low |= 1L << cellIndex;
+							} else {
+								high |= 1L << (cellIndex - 64);
+							}
+						}
+					}
+				}
+				int originIndex = rowOrigin * gridSize + colOrigin;
+				occupancyMasks[2 * originIndex] = low;
+				occupancyMasks[2 * originIndex + 1] = high;
+			}
+		}
+		return occupancyMasks;
+	}
+
 	/**
 	 * Return the coordinates of the origin cell within the cage type in case
 	 * the top left cell of the cage type mask is placed at given offsets.
@@ -174,6 +244,76 @@ public class GridCageType {
 		}
 	}
 
+	/**
+	 * Get the shape of the cage type as a bit mask. The cells of the shape are
+	 * numbered row by row. Cell (row, col) is represented by bit (row * width +
+	 * col). As the shape of a cage type with at most 7 cells fits in a 7x7
+	 * matrix, a long is sufficient to represent the shape.
+	 * 
+	 * @return The shape of the cage type as bit mask.
+	 */
+	public long getShapeMask() {
+		long shapeMask = 0;
+		for (int row = 0; row < mRows; row++) {
+			for (int col = 0; col < mCols; col++) {
+				if (mUsedCells[row][col]) {
+					shapeMask |= 1L << (row * mCols + col);
+				}
+			}
+		}
+		return shapeMask;
+	}
+
+	/**
+	 * Get the column offset of the origin cell in the top row of the shape.
+	 * 
+	 * @return The column offset of the origin cell.
+	 */
+	public int getColOriginOffset() {
+		return mColOriginOffset;
+	}
+
+	/**
+	 * Get a key which uniquely identifies the shape of the cage type. Two cage
+	 * types have the same key if and only if they are equal.
+	 * 
+	 * @return The key of the shape.
+	 */
+	public long getShapeKey() {
+		return getShapeMask() | ((long) mRows << 56) | ((long) mCols << 60);
+	}
+
+	/**
+	 * Sets the cage type to the shape of the given bit mask. See
+	 * {@link #getShapeMask()} for the layout of the bit mask.
+	 * 
+	 * @param width
+	 *            The width of the shape.
+	 * @param height
+	 *            The height of the shape.
+	 * @param colOriginOffset
+	 *            The column offset of the origin cell in the top row.
+	 * @param shapeMask
+	 *            The bit mask of the shape.
+	 * @return True in case the dimensions and the origin of the shape match
+	 *         with the given values. False otherwise.
+	 */
+	public boolean setShapeMask(int width, int height, int colOriginOffset,
+			long shapeMask) {
+		if (width < 1 || height < 1 || width * height > 56 || shapeMask == 0
+				|| (shapeMask >>> (width * height)) != 0) {
+			return false;
+		}
+		boolean[][] cageTypeMatrix = new boolean[height][width];
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				cageTypeMatrix[row][col] = (shapeMask & (1L << (row * width + col))) != 0;
+			}
+		}
+		setMatrix(cageTypeMatrix);
+		return (mCols == width && mRows == height && mColOriginOffset == colOriginOffset);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
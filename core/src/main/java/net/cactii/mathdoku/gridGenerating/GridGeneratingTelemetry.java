@@ -0,0 +1,153 @@
+package net.cactii.mathdoku.gridGenerating;
+
+/**
+ * Telemetry of the generation of a single grid. The telemetry is stored with
+ * the grid so the complexity presets can be tuned based on the actual effort
+ * needed to generate grids. The telemetry of multiple attempts can be added
+ * up.
+ */
+public class GridGeneratingTelemetry {
+	// Delimiter used in the storage string.
+	private static final String FIELD_DELIMITER = ",";
+
+	// Number of fields in the storage string.
+	private static final int FIELDS = 13;
+
+	// Number of attempts which have been run to generate the grid.
+	public int mAttempts;
+
+	// Time spent in the phases of the attempts.
+	public long mRandomiseGridNanos;
+	public long mCreateCagesNanos;
+	public long mUniqueSolutionNanos;
+
+	// Number of times a cage (or the complete set of cages) has been rejected
+	// per reason.
+	public int mRejectedTooManySingleCellCages;
+	public int mRejectedOverlappingSubset;
+	public int mRejectedTooManyPermutations;
+	public int mRejectedGeneratedBefore;
+
+	// Number of uniqueness checks which did not result in a unique solution
+	// and the number of times the ambiguous cages have been replaced.
+	public int mNoUniqueSolution;
+	public int mAmbiguityRepairs;
+
+	// Number of nodes visited and number of backtracks by the solver in all
+	// uniqueness checks.
+	public long mSolverNodesVisited;
+	public long mSolverBacktracks;
+
+	// Total time needed to generate the grid.
+	public long mElapsedMillis;
+
+	/**
+	 * Adds the telemetry of another attempt to this telemetry. The elapsed
+	 * time is not added as attempts may have run in parallel.
+	 * 
+	 * @param gridGeneratingTelemetry
+	 *            The telemetry to be added.
+	 */
+	public void add(GridGeneratingTelemetry gridGeneratingTelemetry) {
+		mAttempts += gridGeneratingTelemetry.mAttempts;
+		mRandomiseGridNanos += gridGeneratingTelemetry.mRandomiseGridNanos;
+		mCreateCagesNanos += gridGeneratingTelemetry.mCreateCagesNanos;
+		mUniqueSolutionNanos += gridGeneratingTelemetry.mUniqueSolutionNanos;
+		mRejectedTooManySingleCellCages += gridGeneratingTelemetry.mRejectedTooManySingleCellCages;
+		mRejectedOverlappingSubset += gridGeneratingTelemetry.mRejectedOverlappingSubset;
+		mRejectedTooManyPermutations += gridGeneratingTelemetry.mRejectedTooManyPermutations;
+		mRejectedGeneratedBefore += gridGeneratingTelemetry.mRejectedGeneratedBefore;
+		mNoUniqueSolution += gridGeneratingTelemetry.mNoUniqueSolution;
+		mAmbiguityRepairs += gridGeneratingTelemetry.mAmbiguityRepairs;
+		mSolverNodesVisited += gridGeneratingTelemetry.mSolverNodesVisited;
+		mSolverBacktracks += gridGeneratingTelemetry.mSolverBacktracks;
+	}
+
+	/**
+	 * Converts the telemetry to a string which can be stored with a puzzle in
+	 * the puzzle pool.
+	 * 
+	 * @return The storage string of the telemetry.
+	 */
+	public String toStorageString() {
+		return mAttempts + FIELD_DELIMITER + mRandomiseGridNanos
+				+ FIELD_DELIMITER + mCreateCagesNanos + FIELD_DELIMITER
+				+ mUniqueSolutionNanos + FIELD_DELIMITER
+				+ mRejectedTooManySingleCellCages + FIELD_DELIMITER
+				+ mRejectedOverlappingSubset + FIELD_DELIMITER
+				+ mRejectedTooManyPermutations + FIELD_DELIMITER
+				+ mRejectedGeneratedBefore + FIELD_DELIMITER
+				+ mNoUniqueSolution + FIELD_DELIMITER + mAmbiguityRepairs
+				+ FIELD_DELIMITER + mSolverNodesVisited + FIELD_DELIMITER
+				+ mSolverBacktracks + FIELD_DELIMITER + mElapsedMillis;
+	}
+
+	/**
+	 * Creates the telemetry from a string which was created with
+	 * {@link #toStorageString()} before.
+	 * 
+	 * @param storageString
+	 *            The storage string to be converted.
+	 * @return The telemetry. Null in case the storage string is not valid.
+	 */
+	public static GridGeneratingTelemetry fromStorageString(
+			String storageString) {
+		if (storageString == null) {
+			return null;
+		}
+		String[] fields = storageString.split(FIELD_DELIMITER);
+		if (fields.length != FIELDS) {
+			return null;
+		}
+		GridGeneratingTelemetry gridGeneratingTelemetry = new GridGeneratingTelemetry();
+		try {
+			int index = 0;
+			gridGeneratingTelemetry.mAttempts = Integer
+					.parseInt(fields[index++]);
+			gridGeneratingTelemetry.mRandomiseGridNanos = Long
+					.parseLong(fields[index++]);
+			gridGeneratingTelemetry.mCreateCagesNanos = Long
+					.parseLong(fields[index++]);
+			gridGeneratingTelemetry.mUniqueSolutionNanos = Long
+					.parseLong(fields[index++]);
+			gridGeneratingTelemetry.mRejectedTooManySingleCellCages = Integer
+					.parseInt(fields[index++]);
+			gridGeneratingTelemetry.mRejectedOverlappingSubset = Integer
+					.parseInt(fields[index++]);
+			gridGeneratingTelemetry.mRejectedTooManyPermutations = Integer
+					.parseInt(fields[index++]);
+			gridGeneratingTelemetry.mRejectedGeneratedBefore = Integer
+					.parseInt(fields[index++]);
+			gridGeneratingTelemetry.mNoUniqueSolution = Integer
+					.parseInt(fields[index++]);
+			gridGeneratingTelemetry.mAmbiguityRepairs = Integer
+					.parseInt(fields[index++]);
+			gridGeneratingTelemetry.mSolverNodesVisited = Long
+					.parseLong(fields[index++]);
+			gridGeneratingTelemetry.mSolverBacktracks = Long
+					.parseLong(fields[index++]);
+			gridGeneratingTelemetry.mElapsedMillis = Long
+					.parseLong(fields[index++]);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return gridGeneratingTelemetry;
+	}
+
+	@Override
+	public String toString() {
+		return "attempts: " + mAttempts + ", elapsed: " + mElapsedMillis
+				+ " ms, randomise grid: " + (mRandomiseGridNanos / 1000000)
+				+ " ms, create cages: " + (mCreateCagesNanos / 1000000)
+				+ " ms, unique solution: " + (mUniqueSolutionNanos / 1000000)
+				+ " ms, rejected (too many single cell cages: "
+				+ mRejectedTooManySingleCellCages + ", overlapping subset: "
+				+ mRejectedOverlappingSubset + ", too many permutations: "
+				+ mRejectedTooManyPermutations + ", generated before: "
+				+ mRejectedGeneratedBefore + "), no unique solution: "
+				+ mNoUniqueSolution + ", ambiguity repairs: "
+				+ mAmbiguityRepairs + ", solver nodes visited: "
+				+ mSolverNodesVisited + ", solver backtracks: "
+				+ mSolverBacktracks;
+	}
+}
@@ -0,0 +1,200 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import net.cactii.mathdoku.util.Random;
+
+/**
+ * Builds a random Latin square with an almost fixed amount of work. Contrary
+ * to placing values at random positions, building the square never has to
+ * start over. A cyclic base square is shuffled by rows, columns and symbols.
+ * As all squares which can be reached by shuffling are isotopic to the cyclic
+ * square, the square is mixed afterwards by a fixed number of moves of the
+ * Jacobson-Matthews Markov chain.
+ * 
+ * The square is represented as an incidence cube in which mCube[row][column]
+ * [symbol] equals 1 in case the cell at the given row and column contains the
+ * symbol. Each line of the cube sums to 1. After a step of the chain the cube
+ * may contain a single -1. Such an improper cube is turned into a proper cube
+ * again by one or a few more steps.
+ */
+public class LatinSquareBuilder {
+	// Size of the square
+	private final int mSize;
+
+	// Random generator
+	private final Random mRandom;
+
+	// The incidence cube of the square
+	private final int[][][] mCube;
+
+	// The position of the -1 in case the cube is improper. The row equals -1
+	// in case the cube is proper.
+	private int mImproperRow;
+	private int mImproperColumn;
+	private int mImproperSymbol;
+
+	/**
+	 * Creates a new instance of {@link LatinSquareBuilder}.
+	 * 
+	 * @param size
+	 *            The size of the square.
+	 * @param random
+	 *            The random generator to be used.
+	 */
+	public LatinSquareBuilder(int size, Random random) {
+		mSize = size;
+		mRandom = random;
+		mCube = new int[size][size][size];
+	}
+
+	/**
+	 * Builds a random Latin square.
+	 * 
+	 * @return The square. The values in the square range from 1 to the size of
+	 *         the square.
+	 */
+	public int[][] build() {
+		// Shuffle the rows, columns and symbols of a cyclic base square.
+		int[] rows = getRandomPermutation();
+		int[] columns = getRandomPermutation();
+		int[] symbols = getRandomPermutation();
+		for (int row = 0; row < mSize; row++) {
+			for (int column = 0; column < mSize; column++) {
+				mCube[rows[row]][columns[column]][symbols[(row + column)
+						% mSize]] = 1;
+			}
+		}
+		mImproperRow = -1;
+
+		// Mix the square by a fixed number of moves. A move starts at a proper
+		// cube and ends as soon as the cube is proper again, which most of the
+		// time only needs a single step. Only the proper cubes are uniformly
+		// distributed, so the number of moves rather than the number of steps
+		// has to be fixed.
+		for (int moves = mSize * mSize * mSize; moves > 0; moves--) {
+			do {
+				step();
+			} while (mImproperRow >= 0);
+		}
+
+		// Convert the incidence cube to the square.
+		int[][] square = new int[mSize][mSize];
+		for (int row = 0; row < mSize; row++) {
+			for (int column = 0; column < mSize; column++) {
+				square[row][column] = getSymbol(row, column) + 1;
+			}
+		}
+		return square;
+	}
+
+	/**
+	 * Executes a single step of the Jacobson-Matthews Markov chain.
+	 */
+	private void step() {
+		int row, column, symbol;
+		int otherRow, otherColumn, otherSymbol;
+		if (mImproperRow < 0) {
+			// Select a random cell and a random symbol which is not used in
+			// that cell. The other row, column and symbol are the unique
+			// positions in the lines through this position which contain a 1.
+			row = mRandom.nextInt(mSize);
+			column = mRandom.nextInt(mSize);
+			otherSymbol = getSymbol(row, column);
+			symbol = mRandom.nextInt(mSize - 1);
+			if (symbol >= otherSymbol) {
+				symbol++;
+			}
+			otherRow = getRow(column, symbol, 0);
+			otherColumn = getColumn(row, symbol, 0);
+		} else {
+			// Start at the position containing the -1. Each line through this
+			// position contains two positions with a 1 of which one is
+			// selected at random.
+			row = mImproperRow;
+			column = mImproperColumn;
+			symbol = mImproperSymbol;
+			otherRow = getRow(column, symbol, mRandom.nextInt(2));
+			otherColumn = getColumn(row, symbol, mRandom.nextInt(2));
+			otherSymbol = getSymbolAt(row, column, mRandom.nextInt(2));
+		}
+
+		mCube[row][column][symbol]++;
+		mCube[row][otherColumn][otherSymbol]++;
+		mCube[otherRow][column][otherSymbol]++;
+		mCube[otherRow][otherColumn][symbol]++;
+		mCube[row][column][otherSymbol]--;
+		mCube[row][otherColumn][symbol]--;
+		mCube[otherRow][column][symbol]--;
+		mCube[otherRow][otherColumn][otherSymbol]--;
+
+		if (mCube[otherRow][otherColumn][otherSymbol] < 0) {
+			mImproperRow = otherRow;
+			mImproperColumn = otherColumn;
+			mImproperSymbol = otherSymbol;
+		} else {
+			mImproperRow = -1;
+		}
+	}
+
+	/**
+	 * Get the symbol used in the given cell of a proper cube.
+	 */
+	private int getSymbol(int row, int column) {
+		return getSymbolAt(row, column, 0);
+	}
+
+	/**
+	 * Get the n-th symbol (counting from 0) for which the cube contains a 1 at
+	 * the given row and column.
+	 */
+	private int getSymbolAt(int row, int column, int n) {
+		for (int symbol = 0; symbol < mSize; symbol++) {
+			if (mCube[row][column][symbol] > 0 && n-- == 0) {
+				return symbol;
+			}
+		}
+		throw new IllegalStateException("Symbol not found.");
+	}
+
+	/**
+	 * Get the n-th row (counting from 0) for which the cube contains a 1 at the
+	 * given column and symbol.
+	 */
+	private int getRow(int column, int symbol, int n) {
+		for (int row = 0; row < mSize; row++) {
+			if (mCube[row][column][symbol] > 0 && n-- == 0) {
+				return row;
+			}
+		}
+		throw new IllegalStateException("Row not found.");
+	}
+
+	/**
+	 * Get the n-th column (counting from 0) for which the cube contains a 1 at
+	 * the given row and symbol.
+	 */
+	private int getColumn(int row, int symbol, int n) {
+		for (int column = 0; column < mSize; column++) {
+			if (mCube[row][column][symbol] > 0 && n-- == 0) {
+				return column;
+			}
+		}
+		throw new IllegalStateException("Column not found.");
+	}
+
+	/**
+	 * Get a random permutation of the numbers 0 to the size of the square.
+	 */
+	private int[] getRandomPermutation() {
+		int[] permutation = new int[mSize];
+		for (int i = 0; i < mSize; i++) {
+			permutation[i] = i;
+		}
+		for (int i = mSize - 1; i > 0; i--) {
+			int j = mRandom.nextInt(i + 1);
+			int swap = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = swap;
+		}
+		return permutation;
+	}
+}
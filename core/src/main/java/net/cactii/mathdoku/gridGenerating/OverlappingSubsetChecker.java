@@ -0,0 +1,350 @@
+package net.cactii.mathdoku.gridGenerating;
+
+/**
+ * Checks whether a new cage uses a subset of values which is also used by
+ * another cage on the same rows or columns. In case two cages share at least
+ * two values in two columns (or rows), those values can be swapped between
+ * the columns (or rows) without violating any cage. Such a cage always
+ * results in a grid with more than one solution.
+ * 
+ * For each cage which is added, the rows used by the cage in each column and
+ * the columns used by the cage in each row are kept as bitmasks. Bit i
+ * represents row or column i.
+ */
+public class OverlappingSubsetChecker {
+	// Size of the grid
+	private final int mGridSize;
+
+	// The solution of the grid
+	private int[][] mSolutionMatrix;
+
+	// The id of the cage for each cell. -1 in case the cell is not yet used
+	// by a cage.
+	private final int[][] mCageMatrix;
+
+	// Per cage id the rows used by the cage in each column and the columns
+	// used by the cage in each row.
+	private final int[][] mCageRowsPerColumn;
+	private final int[][] mCageColumnsPerRow;
+
+	// The rows used in each column and the columns used in each row by the new
+	// cage which is checked.
+	private final int[] mNewCageRowsPerColumn;
+	private final int[] mNewCageColumnsPerRow;
+
+	// Details about the last overlapping subset which was found. Only used for
+	// debug information.
+	private boolean mOverlapInColumns;
+	private int mOverlapNewCageLine;
+	private int mOverlapOtherLine;
+	private int mOverlapOtherCageId;
+	private int mOverlapValues;
+
+	/**
+	 * Creates a new instance of {@link OverlappingSubsetChecker}.
+	 * 
+	 * @param gridSize
+	 *            The size of the grid.
+	 */
+	public OverlappingSubsetChecker(int gridSize) {
+		mGridSize = gridSize;
+		mCageMatrix = new int[gridSize][gridSize];
+
+		// A grid contains at most one cage per cell.
+		mCageRowsPerColumn = new int[gridSize * gridSize][gridSize];
+		mCageColumnsPerRow = new int[gridSize * gridSize][gridSize];
+		mNewCageRowsPerColumn = new int[gridSize];
+		mNewCageColumnsPerRow = new int[gridSize];
+	}
+
+	/**
+	 * Get the size of the grid for which the checker is created.
+	 * 
+	 * @return The size of the grid.
+	 */
+	public int getGridSize() {
+		return mGridSize;
+	}
+
+	/**
+	 * Removes all cages and sets the solution of the grid.
+	 * 
+	 * @param solutionMatrix
+	 *            The solution of the grid. The values range from 1 to the
+	 *            size of the grid.
+	 */
+	public void clear(int[][] solutionMatrix) {
+		mSolutionMatrix = solutionMatrix;
+		for (int row = 0; row < mGridSize; row++) {
+			for (int col = 0; col < mGridSize; col++) {
+				mCageMatrix[row][col] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Starts adding a cage. The cells of the cage have to be added with
+	 * {@link #addCell(int, int, int)}.
+	 * 
+	 * @param cageId
+	 *            The id of the cage.
+	 */
+	public void startCage(int cageId) {
+		for (int i = 0; i < mGridSize; i++) {
+			mCageRowsPerColumn[cageId][i] = 0;
+			mCageColumnsPerRow[cageId][i] = 0;
+		}
+	}
+
+	/**
+	 * Adds a cell to a cage which was started with {@link #startCage(int)}.
+	 * 
+	 * @param cageId
+	 *            The id of the cage.
+	 * @param row
+	 *            The row of the cell.
+	 * @param col
+	 *            The column of the cell.
+	 */
+	public void addCell(int cageId, int row, int col) {
+		mCageMatrix[row][col] = cageId;
+		mCageRowsPerColumn[cageId][col] |= 1 << row;
+		mCageColumnsPerRow[cageId][row] |= 1 << col;
+	}
+
+	/**
+	 * Get the id of the cage which uses the given cell.
+	 * 
+	 * @return The id of the cage. -1 in case the cell is not used by a cage.
+	 */
+	public int getCageId(int row, int col) {
+		return mCageMatrix[row][col];
+	}
+
+	/**
+	 * Determine whether a new cage with the given cells contains a subset of
+	 * values in its columns or rows which is also used in the columns or rows
+	 * of another cage. The new cage is not added.
+	 * 
+	 * @param maskLow
+	 *            The mask for cell 0 to 63 of the new cage. Bit i represents
+	 *            the cell with index i = row * grid size + column.
+	 * @param maskHigh
+	 *            The mask for cell 64 to 80 of the new cage.
+	 * @return True in case the new cage and another cage use at least two
+	 *         identical values on the same rows in two columns or on the same
+	 *         columns in two rows.
+	 */
+	public boolean hasOverlappingSubset(long maskLow, long maskHigh) {
+		// Determine the rows used by the new cage in each column and the
+		// columns used by the new cage in each row.
+		for (int i = 0; i < mGridSize; i++) {
+			mNewCageRowsPerColumn[i] = 0;
+			mNewCageColumnsPerRow[i] = 0;
+		}
+		for (long mask = maskLow; mask != 0; mask &= mask - 1) {
+			addToNewCageMasks(Long.numberOfTrailingZeros(mask));
+		}
+		for (long mask = maskHigh; mask != 0; mask &= mask - 1) {
+			addToNewCageMasks(64 + Long.numberOfTrailingZeros(mask));
+		}
+
+		return hasOverlappingSubsetOfValuesInColumns()
+				|| hasOverlappingSubsetOfValuesInRows();
+	}
+
+	/**
+	 * Checks whether the new cage which was checked last uses the given cell.
+	 * 
+	 * @return True in case the cell is used by the new cage.
+	 */
+	public boolean isInNewCage(int row, int col) {
+		return (mNewCageColumnsPerRow[row] & (1 << col)) != 0;
+	}
+
+	/**
+	 * Adds the cell with the given index to the masks of the new cage.
+	 */
+	private void addToNewCageMasks(int cellIndex) {
+		int row = cellIndex / mGridSize;
+		int col = cellIndex % mGridSize;
+		mNewCageRowsPerColumn[col] |= 1 << row;
+		mNewCageColumnsPerRow[row] |= 1 << col;
+	}
+
+	/**
+	 * Determine whether the new cage contains a subset of values in its
+	 * columns which is also used in the columns of another cage.
+	 * 
+	 * @return True in case the new cage and another cage use at least two
+	 *         identical values on the same rows in two columns.
+	 */
+	private boolean hasOverlappingSubsetOfValuesInColumns() {
+		for (int newCageCol = 0; newCageCol < this.mGridSize; newCageCol++) {
+			int newCageRows = mNewCageRowsPerColumn[newCageCol];
+			if (Integer.bitCount(newCageRows) > 1) {
+				// This column in the new cage has more than one row and
+				// therefore needs to be checked with columns of other cages.
+
+				// Compare the column in which the new cage is placed with cages
+				// in other columns of the grid.
+				for (int col = 0; col < this.mGridSize; col++) {
+					if (col != newCageCol) {
+
+						// Rows of other cages which are already checked during
+						// processing of this column of the new cage, can be
+						// skipped.
+						int rowsChecked = 0;
+
+						// Iterate the rows of the new cage from top to bottom.
+						for (int rows = newCageRows; rows != 0; rows &= rows - 1) {
+							int row = Integer.numberOfTrailingZeros(rows);
+							int otherCageId = mCageMatrix[row][col];
+							if (otherCageId >= 0
+									&& (rowsChecked & (1 << row)) == 0) {
+								// Cell[row][col] is used in a cage which is not
+								// yet checked. Determine all rows for which the
+								// checked columns contain a cell for the new
+								// cage and the other cage.
+								int rowsBothCages = newCageRows
+										& mCageRowsPerColumn[otherCageId][col];
+								rowsChecked |= rowsBothCages;
+
+								// Remember values used in those cells. As each
+								// value is used once per column, a value which
+								// is used by both cages is a duplicate value.
+								int valuesOtherCage = 0;
+								int valuesNewCage = 0;
+								for (int rows2 = rowsBothCages; rows2 != 0; rows2 &= rows2 - 1) {
+									int row2 = Integer.numberOfTrailingZeros(rows2);
+									valuesOtherCage |= 1 << mSolutionMatrix[row2][col];
+									valuesNewCage |= 1 << mSolutionMatrix[row2][newCageCol];
+								}
+								int duplicateValues = valuesOtherCage
+										& valuesNewCage;
+								if (Integer.bitCount(duplicateValues) > 1) {
+									// At least two values have been found which
+									// are used in both columns of the new cage
+									// and the other cage. As this would result
+									// in a non-unique solution, the cage is not
+									// valid.
+									setOverlap(true, newCageCol, col,
+											otherCageId, duplicateValues);
+									return true;
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+
+		// No overlapping subset found
+		return false;
+	}
+
+	/**
+	 * Determine whether the new cage contains a subset of values in its rows
+	 * which is also used in the rows of another cage.
+	 * 
+	 * @return True in case the new cage and another cage use at least two
+	 *         identical values on the same columns in two rows.
+	 */
+	private boolean hasOverlappingSubsetOfValuesInRows() {
+		for (int newCageRow = 0; newCageRow < this.mGridSize; newCageRow++) {
+			int newCageCols = mNewCageColumnsPerRow[newCageRow];
+			if (Integer.bitCount(newCageCols) > 1) {
+				// This row in the new cage has more than one column and
+				// therefore needs to be checked with rows of other cages.
+
+				// Compare the row in which the new cage is placed with cages
+				// in other rows of the grid.
+				for (int row = 0; row < this.mGridSize; row++) {
+					if (row != newCageRow) {
+
+						// Columns of other cages which are already checked
+						// during processing of this row of the new cage, can be
+						// skipped.
+						int colsChecked = 0;
+
+						// Iterate the columns of the new cage from left to
+						// right.
+						for (int cols = newCageCols; cols != 0; cols &= cols - 1) {
+							int col = Integer.numberOfTrailingZeros(cols);
+							int otherCageId = mCageMatrix[row][col];
+							if (otherCageId >= 0
+									&& (colsChecked & (1 << col)) == 0) {
+								// Cell[row][col] is used in a cage which is not
+								// yet checked. Determine all columns for which
+								// the checked rows contain a cell for the new
+								// cage and the other cage.
+								int colsBothCages = newCageCols
+										& mCageColumnsPerRow[otherCageId][row];
+								colsChecked |= colsBothCages;
+
+								// Remember values used in those cells. As each
+								// value is used once per row, a value which is
+								// used by both cages is a duplicate value.
+								int valuesOtherCage = 0;
+								int valuesNewCage = 0;
+								for (int cols2 = colsBothCages; cols2 != 0; cols2 &= cols2 - 1) {
+									int col2 = Integer.numberOfTrailingZeros(cols2);
+									valuesOtherCage |= 1 << mSolutionMatrix[row][col2];
+									valuesNewCage |= 1 << mSolutionMatrix[newCageRow][col2];
+								}
+								int duplicateValues = valuesOtherCage
+										& valuesNewCage;
+								if (Integer.bitCount(duplicateValues) > 1) {
+									// At least two values have been found which
+									// are used in both rows of the new cage
+									// and the other cage. As this would result
+									// in a non-unique solution, the cage is not
+									// valid.
+									setOverlap(false, newCageRow, row,
+											otherCageId, duplicateValues);
+									return true;
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+
+		// No overlapping subset found
+		return false;
+	}
+
+	/**
+	 * Remembers the details of the overlapping subset which was found.
+	 */
+	private void setOverlap(boolean inColumns, int newCageLine, int otherLine,
+			int otherCageId, int values) {
+		mOverlapInColumns = inColumns;
+		mOverlapNewCageLine = newCageLine;
+		mOverlapOtherLine = otherLine;
+		mOverlapOtherCageId = otherCageId;
+		mOverlapValues = values;
+	}
+
+	/**
+	 * Describes the last overlapping subset which was found. Only to be used
+	 * for debug information.
+	 * 
+	 * @return The description of the overlapping subset.
+	 */
+	public String getOverlapDescription() {
+		StringBuilder values = new StringBuilder();
+		for (int value = 1; value <= mGridSize; value++) {
+			if ((mOverlapValues & (1 << value)) != 0) {
+				values.append(values.length() == 0 ? "[" : ", ").append(value);
+			}
+		}
+		values.append("]");
+		String line = (mOverlapInColumns ? "column" : "row");
+		return "The new cage contains values " + values + " in " + line + " "
+				+ mOverlapNewCageLine + " which are also used in " + line
+				+ " " + mOverlapOtherLine + " within cage "
+				+ mOverlapOtherCageId + ".";
+	}
+}
@@ -0,0 +1,305 @@
+package com.srlee.DLX;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import net.cactii.mathdoku.gridGenerating.LatinSquareBuilder;
+import net.cactii.mathdoku.util.Random;
+
+import org.junit.Test;
+
+import com.srlee.DLX.DLX.SolveType;
+
+public class ArrayDLXTest {
+	// Number of Latin squares of order 1 to 4.
+	private static final int[] LATIN_SQUARES = { 1, 2, 12, 576 };
+
+	// Number of partially filled Latin squares for which the parallel search
+	// is compared with the sequential search.
+	private static final int PUZZLES = 40;
+
+	@Test
+	public void solveCountsAllSolutions() {
+		for (int order = 1; order <= LATIN_SQUARES.length; order++) {
+			int[][] givens = new int[order][order];
+			ArrayDLX arrayDLX = new ArrayDLX();
+			initLatinSquare(arrayDLX, givens);
+			assertEquals("Order " + order, LATIN_SQUARES[order - 1],
+					arrayDLX.Solve(SolveType.ALL));
+
+			// The array based implementation has to be identical to the
+			// object based implementation.
+			DLX dlx = new DLX();
+			dlx.Init(3 * order * order, order * order * order, 3 * order
+					* order * order);
+			addLatinSquareRows(dlx, givens);
+			assertEquals("Order " + order, LATIN_SQUARES[order - 1],
+					dlx.Solve(SolveType.ALL));
+		}
+	}
+
+	@Test
+	public void solveStopsAfterEnoughSolutions() {
+		ArrayDLX arrayDLX = new ArrayDLX();
+		initLatinSquare(arrayDLX, new int[4][4]);
+		assertEquals(1, arrayDLX.Solve(SolveType.ONE));
+		assertEquals(16, arrayDLX.GetRowsInSolution());
+
+		initLatinSquare(arrayDLX, new int[4][4]);
+		assertEquals(2, arrayDLX.Solve(SolveType.MULTIPLE));
+		assertEquals(16, arrayDLX.GetRowsInSolution());
+		assertEquals(16, arrayDLX.GetRowsInPreviousSolution());
+	}
+
+	@Test
+	public void solveReturnsZeroWithoutSolution() {
+		// Two identical values in the first row.
+		int[][] givens = new int[4][4];
+		givens[0][0] = 1;
+		givens[0][1] = 1;
+		ArrayDLX arrayDLX = new ArrayDLX();
+		initLatinSquare(arrayDLX, givens);
+		assertEquals(0, arrayDLX.Solve(SolveType.ALL));
+	}
+
+	@Test
+	public void solveIsAbortedWhenNodeLimitIsExceeded() {
+		ArrayDLX arrayDLX = new ArrayDLX();
+		initLatinSquare(arrayDLX, new int[4][4]);
+		assertEquals(576, arrayDLX.Solve(SolveType.ALL));
+		long nodes = arrayDLX.getSolveStatistics().mNodesVisited;
+
+		// The search may visit exactly the maximum number of nodes.
+		SolveBudget solveBudget = new SolveBudget(nodes,
+				SolveBudget.UNLIMITED, null);
+		initLatinSquare(arrayDLX, new int[4][4]);
+		assertEquals(576, arrayDLX.Solve(SolveType.ALL, solveBudget));
+		assertFalse(solveBudget.isExhausted());
+
+		initLatinSquare(arrayDLX, new int[4][4]);
+		solveBudget = new SolveBudget(nodes - 1, SolveBudget.UNLIMITED, null);
+		assertEquals(ArrayDLX.BUDGET_EXHAUSTED,
+				arrayDLX.Solve(SolveType.ALL, solveBudget));
+		assertTrue(solveBudget.isExhausted());
+		assertFalse(solveBudget.isCancelled());
+		assertEquals(nodes, arrayDLX.getSolveStatistics().mNodesVisited);
+	}
+
+	@Test
+	public void solveIsAbortedWhenTimeLimitIsExceeded() {
+		// Enumerating all Latin squares of order 6 takes far more than the
+		// allowed time.
+		SolveBudget solveBudget = new SolveBudget(SolveBudget.UNLIMITED, 1,
+				null);
+		ArrayDLX arrayDLX = new ArrayDLX();
+		initLatinSquare(arrayDLX, new int[6][6]);
+		assertEquals(ArrayDLX.BUDGET_EXHAUSTED,
+				arrayDLX.Solve(SolveType.ALL, solveBudget));
+		assertTrue(solveBudget.isExhausted());
+		assertFalse(solveBudget.isCancelled());
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		try {
+			initLatinSquare(arrayDLX, new int[6][6]);
+			assertEquals(ArrayDLX.BUDGET_EXHAUSTED, arrayDLX.Solve(
+					SolveType.ALL, solveBudget, forkJoinPool));
+			assertTrue(solveBudget.isExhausted());
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Test
+	public void solveIsAbortedWhenCancelled() {
+		CancelAfter cancellationToken = new CancelAfter(3);
+		SolveBudget solveBudget = new SolveBudget(SolveBudget.UNLIMITED,
+				SolveBudget.UNLIMITED, cancellationToken);
+		ArrayDLX arrayDLX = new ArrayDLX();
+		initLatinSquare(arrayDLX, new int[6][6]);
+		assertEquals(ArrayDLX.BUDGET_EXHAUSTED,
+				arrayDLX.Solve(SolveType.ALL, solveBudget));
+		assertTrue(solveBudget.isCancelled());
+		assertFalse(solveBudget.isExhausted());
+
+		// The token is checked once per interval of nodes.
+		assertEquals(3, cancellationToken.mChecks);
+		assertEquals(3 * (SolveBudget.CHECK_INTERVAL_MASK + 1),
+				arrayDLX.getSolveStatistics().mNodesVisited);
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		try {
+			solveBudget = new SolveBudget(SolveBudget.UNLIMITED,
+					SolveBudget.UNLIMITED, new CancelAfter(3));
+			initLatinSquare(arrayDLX, new int[6][6]);
+			assertEquals(ArrayDLX.BUDGET_EXHAUSTED, arrayDLX.Solve(
+					SolveType.ALL, solveBudget, forkJoinPool));
+			assertTrue(solveBudget.isCancelled());
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	/**
+	 * The parallel search has to find the same solutions as the sequential
+	 * search and has to apply the node limit as if the subtrees were searched
+	 * one after another.
+	 */
+	@Test
+	public void parallelSolveEqualsSequentialSolve() {
+		Random random = new Random(1);
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		try {
+			for (int puzzle = 0; puzzle < PUZZLES; puzzle++) {
+				int order = 5 + random.nextInt(2);
+				int[][] givens = getGivens(random, order,
+						order * order / (3 + random.nextInt(3)));
+				for (SolveType solveType : new SolveType[] { SolveType.ONE,
+						SolveType.MULTIPLE, SolveType.ALL }) {
+					if (solveType == SolveType.ALL && order > 5) {
+						// Too many solutions to enumerate.
+						continue;
+					}
+					ArrayDLX sequential = new ArrayDLX();
+					initLatinSquare(sequential, givens);
+					sequential.Solve(solveType);
+					long nodes = sequential.getSolveStatistics().mNodesVisited;
+
+					long[] maxNodes = { SolveBudget.UNLIMITED, 1, nodes / 4,
+							nodes / 2, nodes - 1, nodes, nodes + 1,
+							1 + random.nextInt((int) nodes) };
+					for (long limit : maxNodes) {
+						assertSameSolve("Puzzle " + puzzle + ", " + solveType
+								+ ", node limit " + limit, sequential,
+								givens, solveType, limit, forkJoinPool);
+					}
+				}
+			}
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	/**
+	 * Asserts that a parallel solve with the given node limit results in the
+	 * same outcome and the same solutions as a sequential solve.
+	 */
+	private static void assertSameSolve(String message, ArrayDLX sequential,
+			int[][] givens, SolveType solveType, long maxNodes,
+			ForkJoinPool forkJoinPool) {
+		initLatinSquare(sequential, givens);
+		int expected = sequential.Solve(solveType, new SolveBudget(maxNodes,
+				SolveBudget.UNLIMITED, null));
+
+		ArrayDLX parallel = new ArrayDLX();
+		initLatinSquare(parallel, givens);
+		assertEquals(message, expected, parallel.Solve(solveType,
+				new SolveBudget(maxNodes, SolveBudget.UNLIMITED, null),
+				forkJoinPool));
+		if (expected > 0 && solveType != SolveType.ALL) {
+			assertArrayEquals(message, getSolution(sequential),
+					getSolution(parallel));
+			assertArrayEquals(message, getPreviousSolution(sequential),
+					getPreviousSolution(parallel));
+		}
+	}
+
+	private static int[] getSolution(ArrayDLX arrayDLX) {
+		int[] rows = new int[arrayDLX.GetRowsInSolution()];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = arrayDLX.GetSolutionRow(i + 1);
+		}
+		return rows;
+	}
+
+	private static int[] getPreviousSolution(ArrayDLX arrayDLX) {
+		int[] rows = new int[arrayDLX.GetRowsInPreviousSolution()];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = arrayDLX.GetPreviousSolutionRow(i + 1);
+		}
+		return rows;
+	}
+
+	/**
+	 * Get a random Latin square of which only the given number of cells is
+	 * filled. All other cells contain 0.
+	 */
+	private static int[][] getGivens(Random random, int order, int givens) {
+		int[][] square = new LatinSquareBuilder(order, random).build();
+		int[][] result = new int[order][order];
+		while (givens > 0) {
+			int cell = random.nextInt(order * order);
+			if (result[cell / order][cell % order] == 0) {
+				result[cell / order][cell % order] = square[cell / order][cell
+						% order];
+				givens--;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Fills the DLX with the exact cover matrix of a Latin square in which
+	 * the given cells are filled.
+	 */
+	private static void initLatinSquare(ArrayDLX arrayDLX, int[][] givens) {
+		int order = givens.length;
+		arrayDLX.Init(3 * order * order, order * order * order, 3 * order
+				* order * order);
+		int row = 0;
+		for (int r = 0; r < order; r++) {
+			for (int c = 0; c < order; c++) {
+				for (int v = 0; v < order; v++) {
+					if (givens[r][c] == 0 || givens[r][c] == v + 1) {
+						row++;
+						arrayDLX.AddNode(1 + r * order + c, row);
+						arrayDLX.AddNode(1 + order * order + r * order + v, row);
+						arrayDLX.AddNode(1 + 2 * order * order + c * order + v,
+								row);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fills the object based DLX in the same way as
+	 * {@link #initLatinSquare(ArrayDLX, int[][])}.
+	 */
+	private static void addLatinSquareRows(DLX dlx, int[][] givens) {
+		int order = givens.length;
+		int row = 0;
+		for (int r = 0; r < order; r++) {
+			for (int c = 0; c < order; c++) {
+				for (int v = 0; v < order; v++) {
+					if (givens[r][c] == 0 || givens[r][c] == v + 1) {
+						row++;
+						dlx.AddNode(1 + r * order + c, row);
+						dlx.AddNode(1 + order * order + r * order + v, row);
+						dlx.AddNode(1 + 2 * order * order + c * order + v, row);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cancels the solve at the given check of the token.
+	 */
+	private static class CancelAfter implements SolveBudget.CancellationToken {
+		private final int mCancelAt;
+		private volatile int mChecks;
+
+		CancelAfter(int cancelAt) {
+			mCancelAt = cancelAt;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return (++mChecks >= mCancelAt);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package com.srlee.DLX;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.cactii.mathdoku.grid.AbstractGridCage;
+import net.cactii.mathdoku.grid.Cage;
+import net.cactii.mathdoku.grid.CagePermutationCache;
+import net.cactii.mathdoku.grid.CageCell;
+import net.cactii.mathdoku.gridGenerating.GridAttemptGenerator;
+import net.cactii.mathdoku.util.Random;
+
+import org.junit.Test;
+
+public class MathDokuPropagationSolverTest {
+	// Number of grids which are checked per grid size and cage size.
+	private static final int GRIDS = 40;
+
+	private static final int MIN_GRID_SIZE = 4;
+	private static final int MAX_GRID_SIZE = 7;
+	private static final int[] MAX_CAGE_SIZE = { 2, 4, 6 };
+	private static final int MAX_CAGE_RESULT = 2500;
+	private static final int MAX_CAGE_PERMUTATIONS = 80;
+
+	/**
+	 * The constraint propagation solver has to agree with the DLX solver on
+	 * the uniqueness of the solution. Grids are generated without checking
+	 * the uniqueness so both grids with and without a unique solution are
+	 * checked. Each grid is checked with the operators as generated, with all
+	 * operators hidden and with part of the multi cell cages converted to a
+	 * cage without operator.
+	 */
+	@Test
+	public void hasUniqueSolutionEqualsDLX() {
+		int unique = 0;
+		int notUnique = 0;
+		for (int gridSize = MIN_GRID_SIZE; gridSize <= MAX_GRID_SIZE; gridSize++) {
+			for (int maxCageSize : MAX_CAGE_SIZE) {
+				for (boolean hideOperators : new boolean[] { false, true }) {
+					GridAttemptGenerator gridAttemptGenerator = new GridAttemptGenerator(
+							gridSize,
+							GridAttemptGenerator.MIN_REVISION_PARALLEL_ATTEMPTS,
+							gridSize * 100 + maxCageSize, maxCageSize,
+							MAX_CAGE_RESULT, hideOperators,
+							MAX_CAGE_PERMUTATIONS, gridSize / 2);
+					Random random = new Random(gridSize * 100 + maxCageSize);
+					for (int grid = 0; grid < GRIDS; grid++) {
+						if (!gridAttemptGenerator
+								.generateWithoutUniquenessCheck()) {
+							continue;
+						}
+						String message = "Grid " + grid + " of size "
+								+ gridSize + " with cages up to " + maxCageSize
+								+ " cells"
+								+ (hideOperators ? " and hidden operators" : "");
+						ArrayList<Cage> cages = gridAttemptGenerator.getCages();
+						if (assertSameUniqueness(message, gridSize, cages,
+								gridAttemptGenerator.getSolutionMatrix())) {
+							unique++;
+						} else {
+							notUnique++;
+						}
+
+						ArrayList<Cage> cagesWithoutOperator = withoutOperators(
+								random, gridSize, cages);
+						if (assertSameUniqueness(message
+								+ " and cages without operator", gridSize,
+								cagesWithoutOperator,
+								gridAttemptGenerator.getSolutionMatrix())) {
+							unique++;
+						} else {
+							notUnique++;
+						}
+					}
+				}
+			}
+		}
+
+		// Both outcomes have to be covered by the grids.
+		assertTrue(unique > 0);
+		assertTrue(notUnique > 0);
+	}
+
+	/**
+	 * Asserts that both solvers agree on the uniqueness of the solution of
+	 * the grid. In case the solution is unique, both solvers have to find the
+	 * solution from which the grid was generated. Otherwise both solvers
+	 * have to find two different solutions which satisfy all cages.
+	 *
+	 * @return True in case the grid has a unique solution.
+	 */
+	private static boolean assertSameUniqueness(String message, int gridSize,
+			ArrayList<Cage> cages, int[][] solutionMatrix) {
+		MathDokuDLX mathDokuDLX = new MathDokuDLX(gridSize, cages);
+		boolean expected = mathDokuDLX.hasUniqueSolution();
+		MathDokuPropagationSolver propagationSolver = new MathDokuPropagationSolver(
+				gridSize, cages);
+		assertEquals(message, expected, propagationSolver.hasUniqueSolution(null));
+
+		if (expected) {
+			assertArrayEquals(message, solutionMatrix,
+					propagationSolver.getSolutionGrid());
+			assertArrayEquals(message, solutionMatrix,
+					mathDokuDLX.getSolutionGrid());
+		} else {
+			int[][][] solutionGrids = propagationSolver
+					.getAmbiguousSolutionGrids();
+			assertNotNull(message, solutionGrids);
+			assertSatisfiesCages(message, solutionGrids[0], cages);
+			assertSatisfiesCages(message, solutionGrids[1], cages);
+			assertFalse(message,
+					Arrays.deepEquals(solutionGrids[0], solutionGrids[1]));
+		}
+		return expected;
+	}
+
+	/**
+	 * Asserts that the given solution grid is a Latin square and that the
+	 * values of each cage are one of the permutations of the cage.
+	 */
+	private static void assertSatisfiesCages(String message,
+			int[][] solutionGrid, ArrayList<Cage> cages) {
+		int gridSize = solutionGrid.length;
+		for (int i = 0; i < gridSize; i++) {
+			int valuesInRow = 0;
+			int valuesInColumn = 0;
+			for (int j = 0; j < gridSize; j++) {
+				valuesInRow |= 1 << solutionGrid[i][j];
+				valuesInColumn |= 1 << solutionGrid[j][i];
+			}
+			assertEquals(message, ((1 << gridSize) - 1) << 1, valuesInRow);
+			assertEquals(message, ((1 << gridSize) - 1) << 1, valuesInColumn);
+		}
+
+		for (Cage cage : cages) {
+			boolean found = false;
+			for (long permutation : cage.getPossibleNums()) {
+				boolean matches = true;
+				for (int i = 0; i < cage.mCells.size() && matches; i++) {
+					CageCell cell = cage.mCells.get(i);
+					matches = (solutionGrid[cell.getRow()][cell.getColumn()] == CagePermutationCache
+							.getDigit(permutation, i));
+				}
+				found |= matches;
+			}
+			assertTrue(message + ", cage " + cage.mId, found);
+		}
+	}
+
+	/**
+	 * Copies the cages. About half of the multi cell cages are converted to a
+	 * cage without operator which has the same result.
+	 */
+	private static ArrayList<Cage> withoutOperators(Random random,
+			int gridSize, ArrayList<Cage> cages) {
+		ArrayList<Cage> copies = new ArrayList<Cage>();
+		for (Cage cage : cages) {
+			Cage copy = new Cage(gridSize);
+			copy.mId = cage.mId;
+			copy.mCells.addAll(cage.mCells);
+			int action = cage.mAction;
+			if (cage.mCells.size() > 1 && random.nextInt(2) == 0) {
+				action = AbstractGridCage.ACTION_NONE;
+			}
+			copy.setCageResults(cage.mResult, action, cage.isOperatorHidden());
+			copies.add(copy);
+		}
+		return copies;
+	}
+}
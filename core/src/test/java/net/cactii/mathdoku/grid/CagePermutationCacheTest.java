@@ -0,0 +1,429 @@
+package net.cactii.mathdoku.grid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import net.cactii.mathdoku.util.Random;
+
+import org.junit.Test;
+
+public class CagePermutationCacheTest {
+	private static final int[] ACTIONS = { CagePermutationCache.ACTION_NONE,
+			CagePermutationCache.ACTION_ADD,
+			CagePermutationCache.ACTION_SUBTRACT,
+			CagePermutationCache.ACTION_MULTIPLY,
+			CagePermutationCache.ACTION_DIVIDE };
+
+	// Number of random cage shapes which are checked per combination of
+	// operator, number of cells and grid size.
+	private static final int SHAPES = 8;
+
+	@Test
+	public void packStoresFirstCellInLowestBits() {
+		long permutation = CagePermutationCache.pack(1, 2, 3, 9);
+		assertEquals(0x9321L, permutation);
+		assertEquals(1, CagePermutationCache.getDigit(permutation, 0));
+		assertEquals(2, CagePermutationCache.getDigit(permutation, 1));
+		assertEquals(3, CagePermutationCache.getDigit(permutation, 2));
+		assertEquals(9, CagePermutationCache.getDigit(permutation, 3));
+
+		int[] digits = new int[CagePermutationCache.MAX_CELLS];
+		for (int i = 0; i < digits.length; i++) {
+			digits[i] = 9 - i % 9;
+		}
+		permutation = CagePermutationCache.pack(digits);
+		for (int i = 0; i < digits.length; i++) {
+			assertEquals(digits[i],
+					CagePermutationCache.getDigit(permutation, i));
+		}
+	}
+
+	@Test
+	public void repeatedLookupIsAnsweredFromCache() {
+		CagePermutationCache cache = CagePermutationCache.getInstance();
+		long[] permutations = cache.getPermutations(
+				CagePermutationCache.ACTION_MULTIPLY, 60, 3, 5);
+		int hits = cache.getHits();
+		int misses = cache.getMisses();
+
+		// The same array is shared by all cages with the same arithmetic.
+		assertTrue(permutations == cache.getPermutations(
+				CagePermutationCache.ACTION_MULTIPLY, 60, 3, 5));
+		assertEquals(hits + 1, cache.getHits());
+		assertEquals(misses, cache.getMisses());
+	}
+
+	@Test
+	public void permutationsEqualOldImplementation() {
+		Random random = new Random(1);
+		for (int gridSize = 3; gridSize <= 9; gridSize++) {
+			for (int action : ACTIONS) {
+				int maxCells = (action == CagePermutationCache.ACTION_SUBTRACT
+						|| action == CagePermutationCache.ACTION_DIVIDE ? 2 : 4);
+				for (int cellCount = 2; cellCount <= maxCells; cellCount++) {
+					for (int shape = 0; shape < SHAPES; shape++) {
+						int[][] cells = getRandomCells(random, gridSize,
+								cellCount);
+						for (int result : getResults(action, cellCount,
+								gridSize)) {
+							assertPermutations(action, result, cells,
+									gridSize);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void singleCellPermutationIsResult() {
+		for (int gridSize = 3; gridSize <= 9; gridSize++) {
+			for (int result = 1; result <= gridSize; result++) {
+				assertPermutations(CagePermutationCache.ACTION_NONE, result,
+						new int[][] { { 0, 0 } }, gridSize);
+			}
+		}
+	}
+
+	@Test
+	public void hiddenOperatorMergesAddAndMultiplyWithoutDuplicates() {
+		// 1+2+3 = 1*2*3 = 6 so all permutations of 1, 2 and 3 are found by
+		// both operators. Those may only be returned once, in the order in
+		// which they are found by the add operator.
+		long[] add = CagePermutationCache.getInstance().getPermutations(
+				CagePermutationCache.ACTION_ADD, 6, 3, 6);
+		long[] multiply = CagePermutationCache.getInstance().getPermutations(
+				CagePermutationCache.ACTION_MULTIPLY, 6, 3, 6);
+		long[] none = CagePermutationCache.getInstance().getPermutations(
+				CagePermutationCache.ACTION_NONE, 6, 3, 6);
+		assertArrayEquals(add, Arrays.copyOf(none, add.length));
+
+		HashSet<Long> expected = new HashSet<Long>();
+		for (long permutation : add) {
+			expected.add(permutation);
+		}
+		for (long permutation : multiply) {
+			expected.add(permutation);
+		}
+		HashSet<Long> actual = new HashSet<Long>();
+		for (long permutation : none) {
+			assertTrue(actual.add(permutation));
+		}
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void countPermutationsEqualsNumberOfValidPermutations() {
+		Random random = new Random(2);
+		for (int gridSize = 4; gridSize <= 7; gridSize++) {
+			for (int action : new int[] { CagePermutationCache.ACTION_NONE,
+					CagePermutationCache.ACTION_ADD,
+					CagePermutationCache.ACTION_MULTIPLY }) {
+				for (int cellCount = 3; cellCount <= 6; cellCount++) {
+					int[][] cells = getRandomCells(random, gridSize, cellCount);
+					int[] conflicts = getConflicts(cells);
+					for (int result : getResults(action, cellCount, gridSize)) {
+						long[] permutations = CagePermutationCache
+								.getInstance().computePermutations(action,
+										result, cellCount, gridSize);
+						int valid = 0;
+						for (long permutation : permutations) {
+							if (CagePermutationCache.satisfiesConflicts(
+									permutation, conflicts)) {
+								valid++;
+							}
+						}
+						int limit = random.nextInt(2 * valid + 2);
+						assertEquals(
+								"Count for action " + action + ", result "
+										+ result + ", cells "
+										+ Arrays.deepToString(cells),
+								Math.min(valid, limit + 1),
+								CagePermutationCache.getInstance()
+										.countPermutations(action, result,
+												cellCount, gridSize,
+												conflicts, limit));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Asserts that the permutations which are valid for the given cells equal
+	 * the permutations, including their order, as determined by the
+	 * implementation of GridCage before the cache was introduced.
+	 */
+	private static void assertPermutations(int action, int result,
+			int[][] cells, int gridSize) {
+		int[] conflicts = getConflicts(cells);
+		ArrayList<int[]> expected = new OldPermutations(cells, gridSize)
+				.get(action, result);
+		ArrayList<int[]> actual = new ArrayList<int[]>();
+		for (long permutation : CagePermutationCache.getInstance()
+				.getPermutations(action, result, cells.length, gridSize)) {
+			if (CagePermutationCache.satisfiesConflicts(permutation,
+					conflicts)) {
+				int[] digits = new int[cells.length];
+				for (int i = 0; i < cells.length; i++) {
+					digits[i] = CagePermutationCache.getDigit(permutation, i);
+				}
+				actual.add(digits);
+			}
+		}
+
+		String message = "Action " + action + ", result " + result
+				+ ", grid size " + gridSize + ", cells "
+				+ Arrays.deepToString(cells);
+		assertEquals(message, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(message, expected.get(i), actual.get(i));
+		}
+	}
+
+	/**
+	 * Get distinct random cells. Each cell is represented by its row and
+	 * column.
+	 */
+	private static int[][] getRandomCells(Random random, int gridSize,
+			int cellCount) {
+		int[][] cells = new int[cellCount][];
+		HashSet<Integer> used = new HashSet<Integer>();
+		for (int i = 0; i < cellCount; i++) {
+			int cell;
+			do {
+				cell = random.nextInt(gridSize * gridSize);
+			} while (!used.add(cell));
+			cells[i] = new int[] { cell / gridSize, cell % gridSize };
+		}
+		return cells;
+	}
+
+	/**
+	 * Get for each cell a bit mask of the preceding cells in the same row or
+	 * column in the same way as GridCage does.
+	 */
+	private static int[] getConflicts(int[][] cells) {
+		int[] conflicts = new int[cells.length];
+		for (int i = 1; i < cells.length; i++) {
+			for (int j = 0; j < i; j++) {
+				if (cells[i][0] == cells[j][0] || cells[i][1] == cells[j][1]) {
+					conflicts[i] |= (1 << j);
+				}
+			}
+		}
+		return conflicts;
+	}
+
+	/**
+	 * Get the results to be checked for the given operator. This includes all
+	 * results which can be reached with the given number of cells and some
+	 * results which can not be reached.
+	 */
+	private static int[] getResults(int action, int cellCount, int gridSize) {
+		int maxResult;
+		if (action == CagePermutationCache.ACTION_ADD) {
+			maxResult = cellCount * gridSize + 1;
+		} else if (action == CagePermutationCache.ACTION_SUBTRACT
+				|| action == CagePermutationCache.ACTION_DIVIDE) {
+			maxResult = gridSize;
+		} else {
+			maxResult = 1;
+			for (int i = 0; i < cellCount; i++) {
+				maxResult *= gridSize;
+			}
+			maxResult++;
+		}
+		ArrayList<Integer> results = new ArrayList<Integer>();
+		for (int result = 0; result <= maxResult; result++) {
+			if (action == CagePermutationCache.ACTION_ADD
+					|| action == CagePermutationCache.ACTION_SUBTRACT
+					|| action == CagePermutationCache.ACTION_DIVIDE
+					|| result <= cellCount * gridSize + 1
+					|| isProductOfDigits(result, cellCount, gridSize)) {
+				results.add(result);
+			}
+		}
+		int[] resultArray = new int[results.size()];
+		for (int i = 0; i < resultArray.length; i++) {
+			resultArray[i] = results.get(i);
+		}
+		return resultArray;
+	}
+
+	/**
+	 * Checks whether the given value is the product of the given number of
+	 * digits.
+	 */
+	private static boolean isProductOfDigits(int value, int digits,
+			int gridSize) {
+		if (digits == 0) {
+			return value == 1;
+		}
+		for (int digit = 1; digit <= gridSize; digit++) {
+			if (value % digit == 0
+					&& isProductOfDigits(value / digit, digits - 1, gridSize)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The permutations of a cage as computed by GridCage before the
+	 * permutations were cached and packed.
+	 */
+	private static class OldPermutations {
+		private final int[][] mCells;
+		private final int mGridSize;
+		private int[] getAllCombos_Numbers;
+		private ArrayList<int[]> getAllCombos_ResultSet;
+
+		OldPermutations(int[][] cells, int gridSize) {
+			mCells = cells;
+			mGridSize = gridSize;
+		}
+
+		ArrayList<int[]> get(int action, int result) {
+			ArrayList<int[]> AllResults = new ArrayList<int[]>();
+			if (mCells.length == 1) {
+				AllResults.add(new int[] { result });
+				return AllResults;
+			}
+			switch (action) {
+			case CagePermutationCache.ACTION_NONE:
+				return getNoOperator(result);
+			case CagePermutationCache.ACTION_SUBTRACT:
+				for (int i1 = 1; i1 <= mGridSize; i1++)
+					for (int i2 = i1 + 1; i2 <= mGridSize; i2++)
+						if (i2 - i1 == result || i1 - i2 == result) {
+							AllResults.add(new int[] { i1, i2 });
+							AllResults.add(new int[] { i2, i1 });
+						}
+				return AllResults;
+			case CagePermutationCache.ACTION_DIVIDE:
+				for (int i1 = 1; i1 <= mGridSize; i1++)
+					for (int i2 = i1 + 1; i2 <= mGridSize; i2++)
+						if (result * i1 == i2 || result * i2 == i1) {
+							AllResults.add(new int[] { i1, i2 });
+							AllResults.add(new int[] { i2, i1 });
+						}
+				return AllResults;
+			case CagePermutationCache.ACTION_ADD:
+				return getAllAddCombos(mGridSize, result, mCells.length);
+			default:
+				return getAllMultiplyCombos(mGridSize, result, mCells.length);
+			}
+		}
+
+		private ArrayList<int[]> getNoOperator(int result) {
+			ArrayList<int[]> AllResults = new ArrayList<int[]>();
+			if (mCells.length == 2) {
+				for (int i1 = 1; i1 <= mGridSize; i1++) {
+					for (int i2 = i1 + 1; i2 <= mGridSize; i2++) {
+						if (i2 - i1 == result || i1 - i2 == result
+								|| result * i1 == i2 || result * i2 == i1
+								|| i1 + i2 == result || i1 * i2 == result) {
+							AllResults.add(new int[] { i1, i2 });
+							AllResults.add(new int[] { i2, i1 });
+						}
+					}
+				}
+				return AllResults;
+			}
+
+			AllResults = getAllAddCombos(mGridSize, result, mCells.length);
+			ArrayList<int[]> multResults = getAllMultiplyCombos(mGridSize,
+					result, mCells.length);
+			for (int[] possibleset : multResults) {
+				boolean foundset = false;
+				for (int[] currentset : AllResults) {
+					if (Arrays.equals(possibleset, currentset)) {
+						foundset = true;
+						break;
+					}
+				}
+				if (!foundset) {
+					AllResults.add(possibleset);
+				}
+			}
+			return AllResults;
+		}
+
+		private ArrayList<int[]> getAllAddCombos(int max_val, int target_sum,
+				int n_cells) {
+			getAllCombos_Numbers = new int[n_cells];
+			getAllCombos_ResultSet = new ArrayList<int[]>();
+			getAddCombos(max_val, target_sum, n_cells);
+			return getAllCombos_ResultSet;
+		}
+
+		private void getAddCombos(int max_val, int target_sum, int n_cells) {
+			for (int n = 1; n <= max_val; n++) {
+				if (n_cells == 1) {
+					if (n == target_sum) {
+						getAllCombos_Numbers[0] = n;
+						if (satisfiesConstraints(getAllCombos_Numbers))
+							getAllCombos_ResultSet.add(getAllCombos_Numbers
+									.clone());
+					}
+				} else {
+					getAllCombos_Numbers[n_cells - 1] = n;
+					getAddCombos(max_val, target_sum - n, n_cells - 1);
+				}
+			}
+		}
+
+		private ArrayList<int[]> getAllMultiplyCombos(int max_val,
+				int target_sum, int n_cells) {
+			getAllCombos_Numbers = new int[n_cells];
+			getAllCombos_ResultSet = new ArrayList<int[]>();
+			getMultiplyCombos(max_val, target_sum, n_cells);
+			return getAllCombos_ResultSet;
+		}
+
+		private void getMultiplyCombos(int max_val, int target_sum,
+				int n_cells) {
+			for (int n = 1; n <= max_val; n++) {
+				if (target_sum % n != 0)
+					continue;
+
+				if (n_cells == 1) {
+					if (n == target_sum) {
+						getAllCombos_Numbers[0] = n;
+						if (satisfiesConstraints(getAllCombos_Numbers))
+							getAllCombos_ResultSet.add(getAllCombos_Numbers
+									.clone());
+					}
+				} else {
+					getAllCombos_Numbers[n_cells - 1] = n;
+					getMultiplyCombos(max_val, target_sum / n, n_cells - 1);
+				}
+			}
+		}
+
+		private boolean satisfiesConstraints(int[] test_nums) {
+			boolean constraints[] = new boolean[mGridSize * mGridSize * 2];
+			int constraint_num;
+			for (int i = 0; i < mCells.length; i++) {
+				constraint_num = mGridSize * (test_nums[i] - 1) + mCells[i][1];
+				if (constraints[constraint_num])
+					return false;
+				else
+					constraints[constraint_num] = true;
+				constraint_num = mGridSize * mGridSize + mGridSize
+						* (test_nums[i] - 1) + mCells[i][0];
+				if (constraints[constraint_num])
+					return false;
+				else
+					constraints[constraint_num] = true;
+			}
+			return true;
+		}
+	}
+}
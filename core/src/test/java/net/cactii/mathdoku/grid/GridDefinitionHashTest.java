@@ -0,0 +1,89 @@
+package net.cactii.mathdoku.grid;
+
+import static org.junit.Assert.assertEquals;
+
+import net.cactii.mathdoku.util.Random;
+
+import org.junit.Test;
+
+public class GridDefinitionHashTest {
+	private static final int DEFINITIONS = 5000;
+
+	@Test
+	public void hashOfEmptyDefinitionIsOffsetBasis() {
+		assertEquals(GridDefinitionHash.OFFSET_BASIS,
+				GridDefinitionHash.hash(""));
+	}
+
+	@Test
+	public void hashIsFnv1a() {
+		// Reference values of the 64-bit FNV-1a hash.
+		assertEquals(0xaf63dc4c8601ec8cL, GridDefinitionHash.hash("a"));
+		assertEquals(0x85944171f73967e8L, GridDefinitionHash.hash("foobar"));
+	}
+
+	@Test
+	public void hashIntEqualsHashOfDecimalString() {
+		int[] values = { 0, 1, 9, 10, 99, 100, 729, 123456789, -1, -10,
+				Integer.MAX_VALUE, Integer.MIN_VALUE };
+		for (int value : values) {
+			assertEquals(Integer.toString(value),
+					GridDefinitionHash.hash(Integer.toString(value)),
+					GridDefinitionHash.hashInt(GridDefinitionHash.OFFSET_BASIS,
+							value));
+		}
+	}
+
+	@Test
+	public void hashCageIdEqualsHashOfFormattedCageId() {
+		for (int cageId = -1; cageId <= 120; cageId++) {
+			String formatted = String.format("%02d", cageId);
+			assertEquals(formatted, GridDefinitionHash.hash(formatted),
+					GridDefinitionHash.hashCageId(
+							GridDefinitionHash.OFFSET_BASIS, cageId));
+		}
+	}
+
+	/**
+	 * Builds random grid definitions in the same way as
+	 * Grid.toGridDefinitionString and checks that hashing the parts equals
+	 * hashing the string, in the same way as Grid.toGridDefinitionHash does.
+	 */
+	@Test
+	public void hashOfPartsEqualsHashOfDefinitionString() {
+		Random random = new Random(1);
+		for (int i = 0; i < DEFINITIONS; i++) {
+			int gridSize = 3 + random.nextInt(7);
+			int complexity = 1 + random.nextInt(5);
+			int cages = 1 + random.nextInt(gridSize * gridSize);
+
+			StringBuilder definitionString = new StringBuilder();
+			definitionString.append(Integer.toString(complexity) + ":");
+			long hash = GridDefinitionHash.OFFSET_BASIS;
+			hash = GridDefinitionHash.hashInt(hash, complexity);
+			hash = GridDefinitionHash.hashChar(hash, ':');
+
+			for (int cell = 0; cell < gridSize * gridSize; cell++) {
+				int cageId = random.nextInt(cages);
+				definitionString.append(String.format("%02d", cageId));
+				hash = GridDefinitionHash.hashCageId(hash, cageId);
+			}
+			for (int cageId = 0; cageId < cages; cageId++) {
+				int result = 1 + random.nextInt(random.nextBoolean() ? 20
+						: 400000);
+				int action = random.nextInt(5);
+				definitionString.append(":" + cageId + "," + result + ","
+						+ action);
+				hash = GridDefinitionHash.hashChar(hash, ':');
+				hash = GridDefinitionHash.hashInt(hash, cageId);
+				hash = GridDefinitionHash.hashChar(hash, ',');
+				hash = GridDefinitionHash.hashInt(hash, result);
+				hash = GridDefinitionHash.hashChar(hash, ',');
+				hash = GridDefinitionHash.hashInt(hash, action);
+			}
+
+			assertEquals(definitionString.toString(),
+					GridDefinitionHash.hash(definitionString.toString()), hash);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CageTypeCatalogTest {
+	/**
+	 * The catalog which is packaged with the app has to be rebuilt whenever
+	 * the cage type generation changes. This test fails in case the gradle
+	 * task writeCageTypeCatalog has not been run after such a change.
+	 */
+	@Test
+	public void packagedCatalogEqualsGeneratedCageTypes() throws IOException {
+		ByteArrayOutputStream generated = new ByteArrayOutputStream();
+		CageTypeCatalog.write(CageTypeGenerator
+				.generateCageTypes(CageTypeGenerator.MAX_CAGE_SIZE), generated);
+
+		assertNotNull("Catalog " + CageTypeCatalog.RESOURCE_NAME
+				+ " is not packaged", CageTypeCatalog.class
+				.getResource(CageTypeCatalog.RESOURCE_NAME));
+		assertTrue("Catalog " + CageTypeCatalog.RESOURCE_NAME
+				+ " is outdated; run the gradle task writeCageTypeCatalog",
+				Arrays.equals(generated.toByteArray(), readPackagedCatalog()));
+	}
+
+	@Test
+	public void readReturnsWrittenCageTypes() throws IOException {
+		ArrayList<GridCageType>[] cageTypes = CageTypeGenerator
+				.generateCageTypes(CageTypeGenerator.MAX_CAGE_SIZE);
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		CageTypeCatalog.write(cageTypes, written);
+
+		ArrayList<GridCageType>[] read = CageTypeCatalog.read(
+				new ByteArrayInputStream(written.toByteArray()),
+				CageTypeGenerator.MAX_CAGE_SIZE);
+		assertEquals(cageTypes.length, read.length);
+		for (int size = 0; size < cageTypes.length; size++) {
+			assertEquals(cageTypes[size].size(), read[size].size());
+			for (int i = 0; i < cageTypes[size].size(); i++) {
+				GridCageType expected = cageTypes[size].get(i);
+				GridCageType actual = read[size].get(i);
+				assertEquals(expected.getWidth(), actual.getWidth());
+				assertEquals(expected.getHeight(), actual.getHeight());
+				assertEquals(expected.getColOriginOffset(),
+						actual.getColOriginOffset());
+				assertEquals(expected.getShapeMask(), actual.getShapeMask());
+			}
+		}
+	}
+
+	@Test
+	public void readRejectsCatalogWithOtherMaximumCageSize()
+			throws IOException {
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		CageTypeCatalog.write(CageTypeGenerator.generateCageTypes(3), written);
+
+		assertNull(CageTypeCatalog.read(new ByteArrayInputStream(
+				written.toByteArray()), 4));
+	}
+
+	private static byte[] readPackagedCatalog() throws IOException {
+		InputStream inputStream = CageTypeCatalog.class
+				.getResourceAsStream(CageTypeCatalog.RESOURCE_NAME);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int length;
+			while ((length = inputStream.read(buffer)) > 0) {
+				bytes.write(buffer, 0, length);
+			}
+			return bytes.toByteArray();
+		} finally {
+			inputStream.close();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import net.cactii.mathdoku.grid.Cage;
+import net.cactii.mathdoku.grid.CageCell;
+
+import org.junit.Test;
+
+public class GridAttemptGeneratorTest {
+	private static final int MIN_GRID_SIZE = 4;
+	private static final int MAX_GRID_SIZE = 9;
+	private static final int[] MAX_CAGE_SIZE = { 2, 4, 6 };
+	private static final int MAX_CAGE_RESULT = 2500;
+	private static final int MAX_CAGE_PERMUTATIONS = 40;
+	private static final int SEEDS = 3;
+
+	// The highest relaxation level which is applied by the grid generator.
+	private static final int MAX_RELAXATION_LEVEL = 3;
+
+	// Maximum number of attempts which are run to find a grid with a unique
+	// solution.
+	private static final int MAX_ATTEMPTS = 200;
+
+	// Grid which is generated for the pinned parameters. In case the generator
+	// is changed in a way which results in another grid for these parameters,
+	// the generator revision has to be increased and old revisions have to
+	// keep generating the old grids.
+	private static final int PINNED_GRID_SIZE = 6;
+	private static final int PINNED_MAX_CAGE_SIZE = 4;
+	private static final long PINNED_GAME_SEED = 20141025L;
+	private static final int PINNED_ATTEMPT_NUMBER = 5;
+	private static final int PINNED_RELAXATION_LEVEL = 1;
+	private static final String PINNED_GRID = "[[6, 2, 1, 5, 4, 3], [4, 3, 5, 1, 2, 6], "
+			+ "[3, 4, 2, 6, 1, 5], [5, 1, 6, 2, 3, 4], [1, 5, 3, 4, 6, 2], "
+			+ "[2, 6, 4, 3, 5, 1]]"
+			+ ":0,3,216,0,6,7,12:1,1,9,1,2,3,9:2,3,40,4,10,16,17:3,3,18,5,11"
+			+ ":4,3,40,8,13,14,19:5,3,216,15,20,21,22:6,4,5,18,24"
+			+ ":7,3,192,23,27,28,29:8,3,60,25,26,32:9,3,12,30,31:10,2,2,33,34"
+			+ ":11,0,1,35";
+
+	/**
+	 * The grid of an attempt only depends on the game seed, the attempt number
+	 * and the relaxation level. Replaying the successful attempt with a new
+	 * generator has to result in the same grid as running all attempts one
+	 * after another, as the grid generator does.
+	 */
+	@Test
+	public void replayAttemptEqualsGeneratedGrid() {
+		for (int gridSize = MIN_GRID_SIZE; gridSize <= MAX_GRID_SIZE; gridSize++) {
+			for (int maxCageSize : MAX_CAGE_SIZE) {
+				for (long seed = 0; seed < SEEDS; seed++) {
+					long gameSeed = gridSize * 1000 + maxCageSize * 10 + seed;
+					GridAttemptGenerator gridAttemptGenerator = createGridAttemptGenerator(
+							gridSize, maxCageSize, gameSeed);
+					int attemptNumber = 0;
+					int relaxationLevel;
+					do {
+						attemptNumber++;
+						assertTrue(attemptNumber <= MAX_ATTEMPTS);
+						relaxationLevel = getRelaxationLevel(attemptNumber);
+					} while (!gridAttemptGenerator.runAttempt(attemptNumber,
+							relaxationLevel, Long.MAX_VALUE));
+
+					GridAttemptGenerator replayGenerator = createGridAttemptGenerator(
+							gridSize, maxCageSize, gameSeed);
+					assertTrue(replayGenerator.replayAttempt(attemptNumber,
+							relaxationLevel));
+					assertEquals("Game seed " + gameSeed + ", attempt "
+							+ attemptNumber, toGridString(gridAttemptGenerator),
+							toGridString(replayGenerator));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaying an attempt for the pinned parameters has to result in the
+	 * pinned grid.
+	 */
+	@Test
+	public void replayAttemptEqualsPinnedGrid() {
+		GridAttemptGenerator gridAttemptGenerator = createGridAttemptGenerator(
+				PINNED_GRID_SIZE, PINNED_MAX_CAGE_SIZE, PINNED_GAME_SEED);
+		assertTrue(gridAttemptGenerator.replayAttempt(PINNED_ATTEMPT_NUMBER,
+				PINNED_RELAXATION_LEVEL));
+		assertEquals(PINNED_GRID, toGridString(gridAttemptGenerator));
+	}
+
+	/**
+	 * Replaying an attempt is not supported for revisions which use a single
+	 * randomizer for all attempts.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void replayAttemptOfLegacyRevisionFails() {
+		new GridAttemptGenerator(PINNED_GRID_SIZE,
+				GridAttemptGenerator.MIN_REVISION_PARALLEL_ATTEMPTS - 1,
+				PINNED_GAME_SEED, PINNED_MAX_CAGE_SIZE, MAX_CAGE_RESULT, false,
+				MAX_CAGE_PERMUTATIONS, PINNED_GRID_SIZE / 2).replayAttempt(1,
+				0);
+	}
+
+	private static GridAttemptGenerator createGridAttemptGenerator(
+			int gridSize, int maxCageSize, long gameSeed) {
+		return new GridAttemptGenerator(gridSize,
+				GridAttemptGenerator.MIN_REVISION_PARALLEL_ATTEMPTS, gameSeed,
+				maxCageSize, MAX_CAGE_RESULT, false, MAX_CAGE_PERMUTATIONS,
+				gridSize / 2);
+	}
+
+	/**
+	 * Get a relaxation level which increases with the attempt number in the
+	 * same way as the relaxation level of the grid generator increases when
+	 * the deadline approaches.
+	 */
+	private static int getRelaxationLevel(int attemptNumber) {
+		return Math.min(MAX_RELAXATION_LEVEL, (attemptNumber - 1) / 4);
+	}
+
+	/**
+	 * Converts the solution and the cages of the last attempt to a string.
+	 */
+	private static String toGridString(GridAttemptGenerator gridAttemptGenerator) {
+		StringBuilder gridString = new StringBuilder(
+				Arrays.deepToString(gridAttemptGenerator.getSolutionMatrix()));
+		for (Cage cage : gridAttemptGenerator.getCages()) {
+			gridString.append(":").append(cage.mId).append(",")
+					.append(cage.mAction).append(",").append(cage.mResult);
+			for (CageCell cell : cage.mCells) {
+				gridString.append(",").append(cell.getCellNumber());
+			}
+		}
+		return gridString.toString();
+	}
+}
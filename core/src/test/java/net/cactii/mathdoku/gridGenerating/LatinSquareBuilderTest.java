@@ -0,0 +1,68 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.cactii.mathdoku.util.Random;
+
+import org.junit.Test;
+
+public class LatinSquareBuilderTest {
+	// The grid sizes which are supported by the grid generator.
+	private static final int MIN_SIZE = 3;
+	private static final int MAX_SIZE = 9;
+
+	private static final int SQUARES_PER_SIZE = 500;
+
+	@Test
+	public void buildReturnsLatinSquares() {
+		for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+			Random random = new Random(size);
+			for (int i = 0; i < SQUARES_PER_SIZE; i++) {
+				assertLatinSquare(size,
+						new LatinSquareBuilder(size, random).build());
+			}
+		}
+	}
+
+	@Test
+	public void buildIsReproducibleForSameSeed() {
+		for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+			for (long seed = 0; seed < 20; seed++) {
+				int[][] square = new LatinSquareBuilder(size, new Random(seed))
+						.build();
+				int[][] sameSquare = new LatinSquareBuilder(size, new Random(
+						seed)).build();
+				for (int row = 0; row < size; row++) {
+					assertArrayEquals(square[row], sameSquare[row]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Asserts that each value from 1 to size is used exactly once in each row
+	 * and in each column of the square.
+	 */
+	private static void assertLatinSquare(int size, int[][] square) {
+		assertEquals(size, square.length);
+		for (int line = 0; line < size; line++) {
+			assertEquals(size, square[line].length);
+			boolean[] valueInRow = new boolean[size + 1];
+			boolean[] valueInColumn = new boolean[size + 1];
+			for (int i = 0; i < size; i++) {
+				int rowValue = square[line][i];
+				int columnValue = square[i][line];
+				assertTrue(rowValue >= 1 && rowValue <= size);
+				assertTrue(columnValue >= 1 && columnValue <= size);
+				assertTrue("Duplicate value in row " + line,
+						!valueInRow[rowValue]);
+				assertTrue("Duplicate value in column " + line,
+						!valueInColumn[columnValue]);
+				valueInRow[rowValue] = true;
+				valueInColumn[columnValue] = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package net.cactii.mathdoku.gridGenerating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import net.cactii.mathdoku.util.Random;
+
+import org.junit.Test;
+
+public class OverlappingSubsetCheckerTest {
+	private static final int GRIDS_PER_SIZE = 500;
+	private static final int MAX_CAGE_SIZE = 6;
+
+	@Test
+	public void hasOverlappingSubsetEqualsOldImplementation() {
+		int overlapping = 0;
+		int notOverlapping = 0;
+		for (int gridSize = 3; gridSize <= 9; gridSize++) {
+			Random random = new Random(gridSize);
+			OverlappingSubsetChecker checker = new OverlappingSubsetChecker(
+					gridSize);
+			for (int grid = 0; grid < GRIDS_PER_SIZE; grid++) {
+				int[][] solution = new LatinSquareBuilder(gridSize, random)
+						.build();
+				int[][] cageMatrix = new int[gridSize][gridSize];
+				for (int row = 0; row < gridSize; row++) {
+					for (int col = 0; col < gridSize; col++) {
+						cageMatrix[row][col] = -1;
+					}
+				}
+				checker.clear(solution);
+
+				// Fill the grid with random cages. Each cage is checked
+				// before it is added, regardless of the outcome.
+				int cageId = 0;
+				for (int cell = 0; cell < gridSize * gridSize; cell++) {
+					if (cageMatrix[cell / gridSize][cell % gridSize] >= 0) {
+						continue;
+					}
+					ArrayList<Integer> cageCells = getRandomCage(random,
+							cageMatrix, cell);
+					long maskLow = 0;
+					long maskHigh = 0;
+					boolean[][] maskNewCage = new boolean[gridSize][gridSize];
+					for (int cageCell : cageCells) {
+						if (cageCell < 64) {
+							maskLow |= 1L << cageCell;
+						} else {
+							maskHigh |= 1L << (cageCell - 64);
+						}
+						maskNewCage[cageCell / gridSize][cageCell % gridSize] = true;
+					}
+
+					boolean expected = new OldChecker(solution, cageMatrix,
+							maskNewCage).hasOverlappingSubset();
+					assertEquals("Grid " + grid + " of size " + gridSize
+							+ ", cage " + cageId, expected,
+							checker.hasOverlappingSubset(maskLow, maskHigh));
+					if (expected) {
+						overlapping++;
+					} else {
+						notOverlapping++;
+					}
+
+					checker.startCage(cageId);
+					for (int cageCell : cageCells) {
+						int row = cageCell / gridSize;
+						int col = cageCell % gridSize;
+						cageMatrix[row][col] = cageId;
+						checker.addCell(cageId, row, col);
+					}
+					cageId++;
+				}
+				for (int row = 0; row < gridSize; row++) {
+					for (int col = 0; col < gridSize; col++) {
+						assertEquals(cageMatrix[row][col],
+								checker.getCageId(row, col));
+					}
+				}
+			}
+		}
+
+		// Both outcomes have to be covered for the comparison to be
+		// meaningful.
+		assertTrue(overlapping > 1000);
+		assertTrue(notOverlapping > 1000);
+	}
+
+	/**
+	 * Get the cells of a random cage which contains the given cell. The cage
+	 * is grown from the given cell by adding random neighbours which are not
+	 * yet used by another cage.
+	 */
+	private static ArrayList<Integer> getRandomCage(Random random,
+			int[][] cageMatrix, int originCell) {
+		int gridSize = cageMatrix.length;
+		int cageSize = 1 + random.nextInt(MAX_CAGE_SIZE);
+		ArrayList<Integer> cells = new ArrayList<Integer>();
+		cells.add(originCell);
+		for (int tries = 0; cells.size() < cageSize && tries < 20; tries++) {
+			int cell = cells.get(random.nextInt(cells.size()));
+			int row = cell / gridSize;
+			int col = cell % gridSize;
+			switch (random.nextInt(4)) {
+			case 0:
+				row--;
+				break;
+			case 1:
+				row++;
+				break;
+			case 2:
+				col--;
+				break;
+			default:
+				col++;
+				break;
+			}
+			if (row >= 0 && row < gridSize && col >= 0 && col < gridSize
+					&& cageMatrix[row][col] < 0
+					&& !cells.contains(row * gridSize + col)) {
+				cells.add(row * gridSize + col);
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * The check for overlapping subsets as implemented by the grid generator
+	 * before bitmasks were used.
+	 */
+	private static class OldChecker {
+		private final int mGridSize;
+		private final int[][] mSolutionMatrix;
+		private final int[][] mCageMatrix;
+		private final boolean[][] mMaskNewCage;
+		private final int[] mMaskNewCageRowCount;
+		private final int[] mMaskNewCageColCount;
+
+		OldChecker(int[][] solutionMatrix, int[][] cageMatrix,
+				boolean[][] maskNewCage) {
+			mGridSize = solutionMatrix.length;
+			mSolutionMatrix = solutionMatrix;
+			mCageMatrix = cageMatrix;
+			mMaskNewCage = maskNewCage;
+			mMaskNewCageRowCount = new int[mGridSize];
+			mMaskNewCageColCount = new int[mGridSize];
+			for (int row = 0; row < mGridSize; row++) {
+				for (int col = 0; col < mGridSize; col++) {
+					if (maskNewCage[row][col]) {
+						mMaskNewCageRowCount[row]++;
+						mMaskNewCageColCount[col]++;
+					}
+				}
+			}
+		}
+
+		boolean hasOverlappingSubset() {
+			return hasOverlappingSubsetOfValuesInColumns()
+					|| hasOverlappingSubsetOfValuesInRows();
+		}
+
+		private boolean hasOverlappingSubsetOfValuesInColumns() {
+			for (int newCageCol = 0; newCageCol < mGridSize; newCageCol++) {
+				if (mMaskNewCageColCount[newCageCol] > 1) {
+					for (int col = 0; col < mGridSize; col++) {
+						if (col != newCageCol) {
+							ArrayList<Integer> cagesChecked = new ArrayList<Integer>();
+							for (int row = 0; row < mGridSize; row++) {
+								int otherCageId = mCageMatrix[row][col];
+								if (otherCageId >= 0
+										&& mMaskNewCage[row][newCageCol]
+										&& !cagesChecked.contains(otherCageId)) {
+									cagesChecked.add(otherCageId);
+									int[] valuesUsed = new int[mGridSize];
+									for (int row2 = row; row2 < mGridSize; row2++) {
+										if (mCageMatrix[row2][col] == otherCageId
+												&& mMaskNewCage[row2][newCageCol]) {
+											valuesUsed[mSolutionMatrix[row2][col] - 1]++;
+											valuesUsed[mSolutionMatrix[row2][newCageCol] - 1]++;
+										}
+									}
+									ArrayList<Integer> duplicateValues = new ArrayList<Integer>();
+									for (int i = 0; i < mGridSize; i++) {
+										if (valuesUsed[i] > 1) {
+											duplicateValues.add(i + 1);
+										}
+									}
+									if (duplicateValues.size() > 1) {
+										return true;
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		private boolean hasOverlappingSubsetOfValuesInRows() {
+			for (int newCageRow = 0; newCageRow < mGridSize; newCageRow++) {
+				if (mMaskNewCageRowCount[newCageRow] > 1) {
+					for (int row = 0; row < mGridSize; row++) {
+						if (row != newCageRow) {
+							ArrayList<Integer> cagesChecked = new ArrayList<Integer>();
+							for (int col = 0; col < mGridSize; col++) {
+								int otherCageId = mCageMatrix[row][col];
+								if (otherCageId >= 0
+										&& mMaskNewCage[newCageRow][col]
+										&& !cagesChecked.contains(otherCageId)) {
+									cagesChecked.add(otherCageId);
+									int[] valuesUsed = new int[mGridSize];
+									for (int cols2 = col; cols2 < mGridSize; cols2++) {
+										if (mCageMatrix[row][cols2] == otherCageId
+												&& mMaskNewCage[newCageRow][cols2]) {
+											valuesUsed[mSolutionMatrix[row][cols2] - 1]++;
+											valuesUsed[mSolutionMatrix[newCageRow][cols2] - 1]++;
+										}
+									}
+									ArrayList<Integer> duplicateValues = new ArrayList<Integer>();
+									for (int i = 0; i < mGridSize; i++) {
+										if (valuesUsed[i] > 1) {
+											duplicateValues.add(i + 1);
+										}
+									}
+									if (duplicateValues.size() > 1) {
+										return true;
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+			return false;
+		}
+	}
+}